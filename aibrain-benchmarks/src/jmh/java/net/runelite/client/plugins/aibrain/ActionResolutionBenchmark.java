@@ -0,0 +1,57 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.Item;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Turning a decoded action into a menu action: finding the inventory slot or scene object the brain
+ * named. The synthetic client answers isClientThread() with true, so clientThread.invoke runs inline
+ * and the measured time includes the dispatch itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ActionResolutionBenchmark
+{
+    @Param({"WILDERNESS", "LUMBRIDGE", "GRAND_EXCHANGE"})
+    public SceneDensity density;
+
+    private SyntheticGame game;
+    private AIBrainPlugin plugin;
+    private Item[] items;
+
+    @Setup
+    public void setUp()
+    {
+        game = new SyntheticGame(density);
+        plugin = game.newPlugin();
+        items = game.inventory;
+    }
+
+    @Benchmark
+    public int inventorySlotPreferredHit()
+    {
+        return plugin.findInventorySlotByName("Tinderbox", 1, items);
+    }
+
+    @Benchmark
+    public int inventorySlotFullScanMiss()
+    {
+        return plugin.findInventorySlotByName("Rune scimitar", null, items);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void interactWithFarObject()
+    {
+        plugin.issueInteractWithObject(game.farObjectName, "Bank", game.farObjectLocation);
+    }
+}
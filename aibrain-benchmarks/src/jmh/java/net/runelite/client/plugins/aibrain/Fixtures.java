@@ -0,0 +1,169 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Minimal stand-ins for RuneLite API interfaces.
+ *
+ * The API types are far too large to implement by hand, so fixtures are dynamic proxies that answer
+ * the handful of methods the plugin calls and return zero/null/false for everything else. Default
+ * interface methods (e.g. the plugin config) run their real body.
+ */
+final class Fixtures
+{
+    private Fixtures()
+    {
+    }
+
+    static final class Stub<T>
+    {
+        private final Class<T> type;
+        private final Map<String, Function<Object[], Object>> answers = new HashMap<>();
+
+        private Stub(Class<T> type)
+        {
+            this.type = type;
+        }
+
+        Stub<T> returns(String method, Object value)
+        {
+            answers.put(method, args -> value);
+            return this;
+        }
+
+        Stub<T> answers(String method, Function<Object[], Object> answer)
+        {
+            answers.put(method, answer);
+            return this;
+        }
+
+        T build()
+        {
+            Map<String, Function<Object[], Object>> table = new HashMap<>(answers);
+            InvocationHandler handler = (proxy, method, args) ->
+            {
+                Function<Object[], Object> answer = table.get(method.getName());
+                if (answer != null)
+                {
+                    return answer.apply(args);
+                }
+
+                if (method.getDeclaringClass() == Object.class)
+                {
+                    return objectMethod(proxy, method, args);
+                }
+
+                if (method.isDefault())
+                {
+                    return InvocationHandler.invokeDefault(proxy, method, args);
+                }
+
+                return zero(method.getReturnType());
+            };
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+        }
+    }
+
+    static <T> Stub<T> stub(Class<T> type)
+    {
+        return new Stub<>(type);
+    }
+
+    /**
+     * Sets a (usually {@code @Inject}ed) field, searching superclasses.
+     */
+    static void inject(Object target, String fieldName, Object value)
+    {
+        for (Class<?> c = target.getClass(); c != null; c = c.getSuperclass())
+        {
+            try
+            {
+                Field f = c.getDeclaredField(fieldName);
+                f.setAccessible(true);
+                f.set(target, value);
+                return;
+            }
+            catch (NoSuchFieldException e)
+            {
+                // keep walking up
+            }
+            catch (IllegalAccessException e)
+            {
+                throw new IllegalStateException("Cannot set " + fieldName, e);
+            }
+        }
+        throw new IllegalArgumentException("No field " + fieldName + " on " + target.getClass().getName());
+    }
+
+    static Object read(Object target, String fieldName)
+    {
+        try
+        {
+            Field f = target.getClass().getDeclaredField(fieldName);
+            f.setAccessible(true);
+            return f.get(target);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Cannot read " + fieldName, e);
+        }
+    }
+
+    private static Object objectMethod(Object proxy, Method method, Object[] args)
+    {
+        switch (method.getName())
+        {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+            default:
+                return proxy.getClass().getInterfaces()[0].getSimpleName() + "@"
+                        + Integer.toHexString(System.identityHashCode(proxy));
+        }
+    }
+
+    private static Object zero(Class<?> type)
+    {
+        if (!type.isPrimitive() || type == void.class)
+        {
+            return null;
+        }
+        if (type == boolean.class)
+        {
+            return false;
+        }
+        if (type == long.class)
+        {
+            return 0L;
+        }
+        if (type == double.class)
+        {
+            return 0.0;
+        }
+        if (type == float.class)
+        {
+            return 0f;
+        }
+        if (type == char.class)
+        {
+            return '\0';
+        }
+        if (type == byte.class)
+        {
+            return (byte) 0;
+        }
+        if (type == short.class)
+        {
+            return (short) 0;
+        }
+        return 0;
+    }
+}
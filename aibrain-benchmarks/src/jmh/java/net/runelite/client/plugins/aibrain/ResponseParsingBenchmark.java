@@ -0,0 +1,96 @@
+package net.runelite.client.plugins.aibrain;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * /decide response decoding: the streaming {@link BrainResponseDecoder} against the tree-based
+ * parse-then-lookup approach the plugin used before it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResponseParsingBenchmark
+{
+    public enum Response
+    {
+        WAIT("{\"action\":\"wait\",\"target\":{},\"meta\":{\"reason\":\"Nothing to do\"}}"),
+        WALK("{\"action\":\"walk_to_tile\",\"target\":{\"x\":3222,\"y\":3218,\"plane\":0},"
+                + "\"meta\":{\"reason\":\"Heading to the kitchen\",\"timing\":{\"parse_ms\":0.41,\"agent_ms\":3.2,\"total_ms\":3.9}}}"),
+        USE_ITEM("{\"action\":\"use_inventory_item\",\"target\":{\"name\":\"Pot of flour\",\"option\":\"Use\",\"slot\":4,"
+                + "\"use_on_name\":\"Bucket of milk\"},\"meta\":{\"reason\":\"Combine ingredients\","
+                + "\"agent\":\"quest\",\"step\":7,\"notes\":[\"cook\",\"flour\",\"milk\",\"egg\"],"
+                + "\"timing\":{\"parse_ms\":0.52,\"agent_ms\":11.7,\"total_ms\":12.6}}}");
+
+        final String body;
+
+        Response(String body)
+        {
+            this.body = body;
+        }
+    }
+
+    @Param({"WAIT", "WALK", "USE_ITEM"})
+    public Response response;
+
+    private String body;
+
+    @Setup
+    public void setUp()
+    {
+        body = response.body;
+    }
+
+    @Benchmark
+    public BrainAction streaming() throws IOException
+    {
+        return BrainResponseDecoder.decode(body);
+    }
+
+    @Benchmark
+    public void tree(Blackhole bh)
+    {
+        JsonObject root = JsonParser.parseString(body).getAsJsonObject();
+        bh.consume(root.has("action") ? root.get("action").getAsString() : "wait");
+
+        JsonObject target = root.has("target") && root.get("target").isJsonObject()
+                ? root.getAsJsonObject("target")
+                : new JsonObject();
+        bh.consume(intOrNull(target, "x"));
+        bh.consume(intOrNull(target, "y"));
+        bh.consume(intOrNull(target, "plane"));
+        bh.consume(intOrNull(target, "slot"));
+        bh.consume(stringOrNull(target, "name"));
+        bh.consume(stringOrNull(target, "option"));
+        bh.consume(stringOrNull(target, "use_on_name"));
+
+        if (root.has("meta") && root.get("meta").isJsonObject())
+        {
+            bh.consume(stringOrNull(root.getAsJsonObject("meta"), "reason"));
+        }
+    }
+
+    private static Integer intOrNull(JsonObject obj, String key)
+    {
+        JsonElement e = obj.get(key);
+        return e != null && !e.isJsonNull() ? e.getAsInt() : null;
+    }
+
+    private static String stringOrNull(JsonObject obj, String key)
+    {
+        JsonElement e = obj.get(key);
+        return e != null && !e.isJsonNull() ? e.getAsString() : null;
+    }
+}
@@ -0,0 +1,29 @@
+package net.runelite.client.plugins.aibrain;
+
+/**
+ * How busy the synthetic scene is. Numbers are rough counts from walking around the real areas.
+ */
+public enum SceneDensity
+{
+    /** Deep wilderness: a few NPCs, sparse scenery, next to no interface text. */
+    WILDERNESS(6, 0.03, 40, 8, false),
+    /** Lumbridge castle grounds with a quest dialog open. */
+    LUMBRIDGE(35, 0.12, 120, 20, true),
+    /** Grand Exchange at peak: crowded NPC list, dense scenery, lots of interface text. */
+    GRAND_EXCHANGE(90, 0.20, 220, 28, false);
+
+    final int npcs;
+    final double objectChancePerTile;
+    final int textWidgets;
+    final int inventoryItems;
+    final boolean dialogOpen;
+
+    SceneDensity(int npcs, double objectChancePerTile, int textWidgets, int inventoryItems, boolean dialogOpen)
+    {
+        this.npcs = npcs;
+        this.objectChancePerTile = objectChancePerTile;
+        this.textWidgets = textWidgets;
+        this.inventoryItems = inventoryItems;
+        this.dialogOpen = dialogOpen;
+    }
+}
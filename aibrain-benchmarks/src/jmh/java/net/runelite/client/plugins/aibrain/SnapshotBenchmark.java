@@ -0,0 +1,87 @@
+package net.runelite.client.plugins.aibrain;
+
+import com.google.gson.JsonObject;
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.Client;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of producing the /decide request body on the client thread: building the game_state tree
+ * and turning it into JSON text. {@code buildGameState} composes from scene scans that are already
+ * done (as in steady state); the scanning itself is measured separately, all at once and as one
+ * budgeted per-tick slice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnapshotBenchmark
+{
+    @Param({"WILDERNESS", "LUMBRIDGE", "GRAND_EXCHANGE"})
+    public SceneDensity density;
+
+    private static final long SLICE_BUDGET_NANOS = 2_000_000;
+
+    private AIBrainPlugin plugin;
+    private JsonObject snapshot;
+    private Client client;
+    private IncrementalSceneScanner scanner;
+
+    @Setup
+    public void setUp()
+    {
+        SyntheticGame game = new SyntheticGame(density);
+        plugin = game.newPlugin();
+        snapshot = plugin.buildGameState();
+        client = game.client;
+        scanner = new IncrementalSceneScanner();
+    }
+
+    @Benchmark
+    public JsonObject buildGameState()
+    {
+        return plugin.buildGameState();
+    }
+
+    @Benchmark
+    public IncrementalSceneScanner fullSceneScan()
+    {
+        scanner.scanFully(client);
+        return scanner;
+    }
+
+    @Benchmark
+    public IncrementalSceneScanner scanSlice()
+    {
+        scanner.advance(client, SLICE_BUDGET_NANOS);
+        return scanner;
+    }
+
+    @Benchmark
+    public String serialize()
+    {
+        return AIBrainPlugin.GSON.toJson(snapshot);
+    }
+
+    @Benchmark
+    public String buildAndSerialize()
+    {
+        return AIBrainPlugin.GSON.toJson(plugin.buildGameState());
+    }
+
+    /**
+     * As sent: skills, inventory and UI text are unchanged between calls here, so they are reused
+     * and spliced in already encoded.
+     */
+    @Benchmark
+    public String buildAndEncode()
+    {
+        return plugin.encodeSnapshot(plugin.buildGameState());
+    }
+}
@@ -0,0 +1,271 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import net.runelite.api.Client;
+import net.runelite.api.GameObject;
+import net.runelite.api.InventoryID;
+import net.runelite.api.Item;
+import net.runelite.api.ItemComposition;
+import net.runelite.api.ItemContainer;
+import net.runelite.api.NPC;
+import net.runelite.api.NPCComposition;
+import net.runelite.api.ObjectComposition;
+import net.runelite.api.Player;
+import net.runelite.api.Scene;
+import net.runelite.api.Tile;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.WorldPoint;
+import net.runelite.api.widgets.Widget;
+import net.runelite.api.widgets.WidgetInfo;
+import net.runelite.client.callback.ClientThread;
+
+/**
+ * A deterministic, fully in-memory game for the benchmarks: a 104x104 scene around the player,
+ * NPCs, scenery, an inventory and open interfaces, sized by a {@link SceneDensity} preset.
+ * {@link #newPlugin()} wires an {@link AIBrainPlugin} to it the way Guice would.
+ */
+final class SyntheticGame
+{
+    static final int SCENE_SIZE = 104;
+    static final int PLANES = 4;
+    private static final int BASE_X = 3200;
+    private static final int BASE_Y = 3200;
+    private static final long SEED = 0x5EED_A1B2L;
+
+    private static final String[] NPC_NAMES = {
+        "Man", "Woman", "Guard", "Goblin", "Cook", "Hans", "Banker", "Chicken", "Cow", "Giant rat",
+        "Duke Horacio", "Father Aereck", "Bob", "Count Check", "Lumbridge Guide"
+    };
+    private static final String[][] NPC_ACTIONS = {
+        {"Talk-to", null, "Pickpocket", null, "Examine"},
+        {null, "Attack", null, null, "Examine"},
+        {"Talk-to", "Bank", "Collect", null, "Examine"}
+    };
+    private static final String[] OBJECT_NAMES = {
+        "Tree", "Oak", "Willow", "Door", "Large door", "Bank booth", "Rocks", "Staircase", "Ladder", "Range",
+        "Fire", "Chest", "Gate", "Crate", "Fountain", "Plant", "Fern", "null", "null", "null"
+    };
+    private static final String[][] OBJECT_ACTIONS = {
+        {"Chop down", null, null, null, null},
+        {"Open", null, null, null, null},
+        {"Bank", "Collect", null, null, null},
+        {"Climb-up", "Climb-down", null, null, null},
+        {null, null, null, null, null}
+    };
+    private static final String[] ITEM_NAMES = {
+        "Bronze axe", "Tinderbox", "Small fishing net", "Shrimps", "Bread", "Pot", "Bucket", "Egg",
+        "Pot of flour", "Bucket of milk", "Logs", "Copper ore", "Tin ore", "Bronze bar", "Coins",
+        "Bronze pickaxe", "Bronze dagger", "Wooden shield", "Bronze sword", "Ball of wool"
+    };
+    private static final String[] UI_LINES = {
+        "Welcome to Old School RuneScape.", "Total level: 312", "Quest Points: 7", "Combat Lvl: 23",
+        "Report", "All", "Game", "Public", "Private", "Channel", "Clan", "Trade", "Walk here",
+        "Cook's Assistant", "Sheep Shearer", "<col=ff9040>Bank of Gielinor</col>", "Members", "Inventory"
+    };
+    // Roughly the interfaces a fixed-mode client has open (viewport, chatbox, tabs, orbs...).
+    private static final int[] OPEN_GROUPS = {548, 161, 162, 163, 160, 149, 218, 387, 541, 320, 399, 7, 182, 116, 261};
+
+    final SceneDensity density;
+    final Client client;
+    final WorldPoint playerLocation;
+    final Item[] inventory;
+    /** A named object near the far corner of the scene, so resolving it walks most of the tile grid. */
+    final WorldPoint farObjectLocation;
+    final String farObjectName;
+
+    private final Map<Integer, ObjectComposition> objectDefs = new HashMap<>();
+    private final Map<Integer, ItemComposition> itemDefs = new HashMap<>();
+    private final Map<Integer, Widget> widgets = new HashMap<>();
+
+    SyntheticGame(SceneDensity density)
+    {
+        this.density = density;
+        Random rnd = new Random(SEED ^ density.ordinal());
+
+        playerLocation = new WorldPoint(BASE_X + SCENE_SIZE / 2, BASE_Y + SCENE_SIZE / 2, 0);
+        Player player = Fixtures.stub(Player.class)
+                .returns("getName", "Zezima")
+                .returns("getWorldLocation", playerLocation)
+                .build();
+
+        for (int i = 0; i < OBJECT_NAMES.length; i++)
+        {
+            objectDefs.put(1000 + i, Fixtures.stub(ObjectComposition.class)
+                    .returns("getId", 1000 + i)
+                    .returns("getName", OBJECT_NAMES[i])
+                    .returns("getActions", OBJECT_ACTIONS[i % OBJECT_ACTIONS.length])
+                    .build());
+        }
+
+        for (int i = 0; i < ITEM_NAMES.length; i++)
+        {
+            itemDefs.put(2000 + i, Fixtures.stub(ItemComposition.class)
+                    .returns("getId", 2000 + i)
+                    .returns("getName", ITEM_NAMES[i])
+                    .build());
+        }
+
+        Tile[][][] tiles = new Tile[PLANES][SCENE_SIZE][SCENE_SIZE];
+        for (int x = 0; x < SCENE_SIZE; x++)
+        {
+            for (int y = 0; y < SCENE_SIZE; y++)
+            {
+                GameObject[] objects = new GameObject[5];
+                WorldPoint wp = new WorldPoint(BASE_X + x, BASE_Y + y, 0);
+                if (rnd.nextDouble() < density.objectChancePerTile)
+                {
+                    objects[0] = gameObject(1000 + rnd.nextInt(OBJECT_NAMES.length), wp);
+                }
+                tiles[0][x][y] = tile(objects);
+            }
+        }
+
+        farObjectLocation = new WorldPoint(BASE_X + SCENE_SIZE - 8, BASE_Y + SCENE_SIZE - 8, 0);
+        farObjectName = OBJECT_NAMES[5];
+        GameObject[] farTile = new GameObject[5];
+        farTile[0] = gameObject(1005, farObjectLocation);
+        tiles[0][SCENE_SIZE - 8][SCENE_SIZE - 8] = tile(farTile);
+
+        Scene scene = Fixtures.stub(Scene.class)
+                .returns("getTiles", tiles)
+                .returns("getBaseX", BASE_X)
+                .returns("getBaseY", BASE_Y)
+                .build();
+        WorldView worldView = Fixtures.stub(WorldView.class)
+                .returns("getId", -1)
+                .returns("getPlane", 0)
+                .returns("getScene", scene)
+                .returns("getBaseX", BASE_X)
+                .returns("getBaseY", BASE_Y)
+                .returns("getSizeX", SCENE_SIZE)
+                .returns("getSizeY", SCENE_SIZE)
+                .build();
+
+        List<NPC> npcs = new ArrayList<>();
+        for (int i = 0; i < density.npcs; i++)
+        {
+            String name = NPC_NAMES[rnd.nextInt(NPC_NAMES.length)];
+            NPCComposition comp = Fixtures.stub(NPCComposition.class)
+                    .returns("getName", name)
+                    .returns("getActions", NPC_ACTIONS[rnd.nextInt(NPC_ACTIONS.length)])
+                    .build();
+            npcs.add(Fixtures.stub(NPC.class)
+                    .returns("getId", 3000 + i)
+                    .returns("getIndex", i)
+                    .returns("getName", name)
+                    .returns("getComposition", comp)
+                    .returns("getWorldLocation", new WorldPoint(BASE_X + rnd.nextInt(SCENE_SIZE), BASE_Y + rnd.nextInt(SCENE_SIZE), 0))
+                    .build());
+        }
+
+        inventory = new Item[28];
+        for (int slot = 0; slot < inventory.length; slot++)
+        {
+            inventory[slot] = slot < density.inventoryItems
+                    ? new Item(2000 + (slot % ITEM_NAMES.length), 1 + rnd.nextInt(5))
+                    : new Item(-1, 0);
+        }
+        ItemContainer container = Fixtures.stub(ItemContainer.class)
+                .returns("getItems", inventory)
+                .returns("size", inventory.length)
+                .build();
+
+        for (int i = 0; i < density.textWidgets; i++)
+        {
+            int group = OPEN_GROUPS[rnd.nextInt(OPEN_GROUPS.length)];
+            int child = rnd.nextInt(64);
+            addWidget(group, child, UI_LINES[rnd.nextInt(UI_LINES.length)], rnd.nextInt(10) == 0);
+        }
+        if (density.dialogOpen)
+        {
+            addWidget(WidgetInfo.DIALOG_NPC_TEXT.getGroupId(), WidgetInfo.DIALOG_NPC_TEXT.getChildId(),
+                    "Well, I need a few things for the Duke's cake.<br>Click here to continue", false);
+        }
+
+        client = Fixtures.stub(Client.class)
+                .returns("isClientThread", true)
+                .returns("getLocalPlayer", player)
+                .returns("getNpcs", npcs)
+                .returns("getTopLevelWorldView", worldView)
+                .returns("getPlane", 0)
+                .returns("getBaseX", BASE_X)
+                .returns("getBaseY", BASE_Y)
+                .answers("getItemContainer", args -> args[0] == InventoryID.INVENTORY ? container : null)
+                .answers("getItemDefinition", args -> itemDefs.get((Integer) args[0]))
+                .answers("getObjectDefinition", args -> objectDefs.get((Integer) args[0]))
+                .answers("getRealSkillLevel", args -> 10 + ((Enum<?>) args[0]).ordinal())
+                .answers("getWidget", this::widget)
+                .build();
+    }
+
+    /**
+     * A plugin wired to this game, with a few chat lines already logged. No panel, so the
+     * context section falls back to the plugin defaults.
+     */
+    AIBrainPlugin newPlugin()
+    {
+        ClientThread clientThread = new ClientThread();
+        Fixtures.inject(clientThread, "client", client);
+
+        AIBrainPlugin plugin = new AIBrainPlugin();
+        Fixtures.inject(plugin, "client", client);
+        Fixtures.inject(plugin, "clientThread", clientThread);
+        Fixtures.inject(plugin, "config", Fixtures.stub(AIBrainPluginConfig.class).build());
+
+        ChatRing chat = (ChatRing) Fixtures.read(plugin, "chatRing");
+        for (int i = 0; i < 20; i++)
+        {
+            chat.append(UI_LINES[i % UI_LINES.length]);
+        }
+        return plugin;
+    }
+
+    private Object widget(Object[] args)
+    {
+        if (args.length == 2)
+        {
+            return widgets.get(key((Integer) args[0], (Integer) args[1]));
+        }
+        if (args[0] instanceof WidgetInfo)
+        {
+            WidgetInfo info = (WidgetInfo) args[0];
+            return widgets.get(key(info.getGroupId(), info.getChildId()));
+        }
+        int packed = (Integer) args[0];
+        return widgets.get(key(packed >>> 16, packed & 0xFFFF));
+    }
+
+    private void addWidget(int group, int child, String text, boolean hidden)
+    {
+        widgets.put(key(group, child), Fixtures.stub(Widget.class)
+                .returns("getId", (group << 16) | child)
+                .returns("getText", text)
+                .returns("isHidden", hidden)
+                .build());
+    }
+
+    private static int key(int group, int child)
+    {
+        return (group << 16) | child;
+    }
+
+    private static GameObject gameObject(int id, WorldPoint wp)
+    {
+        return Fixtures.stub(GameObject.class)
+                .returns("getId", id)
+                .returns("getWorldLocation", wp)
+                .returns("getPlane", wp.getPlane())
+                .build();
+    }
+
+    private static Tile tile(GameObject[] objects)
+    {
+        return Fixtures.stub(Tile.class)
+                .returns("getGameObjects", objects)
+                .build();
+    }
+}
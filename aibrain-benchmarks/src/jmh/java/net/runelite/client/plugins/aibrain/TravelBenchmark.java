@@ -0,0 +1,126 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.CollisionData;
+import net.runelite.api.CollisionDataFlag;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.WorldPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Route planning for walk_to_tile: a cross-map travel graph query against planning a scene-sized
+ * trip tile by tile. The synthetic map is a free-to-play-sized block of regions scattered with
+ * blocked tiles and wall segments, cut by a river that only a ferry crosses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TravelBenchmark
+{
+    private static final int MIN_X = 2880;
+    private static final int MAX_X = 3456;
+    private static final int MIN_Y = 3136;
+    private static final int MAX_Y = 3520;
+    private static final int RIVER_X = 3200;
+    private static final int SCENE = 104;
+
+    private static final WorldPoint FAR_WEST = new WorldPoint(2890, 3150, 0);
+    private static final WorldPoint FAR_EAST = new WorldPoint(3440, 3500, 0);
+    private static final WorldPoint SCENE_START = new WorldPoint(2950, 3200, 0);
+    private static final WorldPoint SCENE_END = new WorldPoint(3000, 3250, 0);
+
+    private CollisionCache collision;
+    private LocalPathfinder pathfinder;
+    private TravelGraph graph;
+    private Path dir;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        collision = new CollisionCache();
+        Random random = new Random(42);
+        for (int baseX = MIN_X; baseX < MAX_X; baseX += SCENE - 8)
+        {
+            for (int baseY = MIN_Y; baseY < MAX_Y; baseY += SCENE - 8)
+            {
+                collision.capture(scene(baseX, baseY, random));
+            }
+        }
+
+        TransportTable.Transport ferry = new TransportTable.Transport(TransportTable.Type.BOAT,
+                new WorldPoint(RIVER_X - 2, 3330, 0), new WorldPoint(RIVER_X + 5, 3330, 0), 6, "Ferryman", "Travel");
+        dir = Files.createTempDirectory("aibrain-travel");
+        Path file = dir.resolve("travel.bin");
+        new TravelGraphBuilder(collision, List.of(ferry)).write(file);
+        graph = TravelGraph.open(file);
+        pathfinder = new LocalPathfinder(collision);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        graph = null;
+        Files.deleteIfExists(dir.resolve("travel.bin"));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public TravelGraph.Route crossMapRoute()
+    {
+        return graph.route(FAR_WEST, FAR_EAST);
+    }
+
+    @Benchmark
+    public List<WorldPoint> sceneSizedLocalPath()
+    {
+        return pathfinder.findPath(SCENE_START, SCENE_END);
+    }
+
+    private static WorldView scene(int baseX, int baseY, Random random)
+    {
+        int[][] flags = new int[SCENE][SCENE];
+        for (int x = 0; x < SCENE; x++)
+        {
+            for (int y = 0; y < SCENE; y++)
+            {
+                int wx = baseX + x;
+                int wy = baseY + y;
+                if (wx >= RIVER_X && wx < RIVER_X + 3)
+                {
+                    flags[x][y] = CollisionDataFlag.BLOCK_MOVEMENT_FULL;
+                }
+                else if (random.nextInt(16) == 0)
+                {
+                    flags[x][y] = CollisionDataFlag.BLOCK_MOVEMENT_FULL;
+                }
+                else if (wx % 24 == 0 && wy % 32 < 20)
+                {
+                    // Fences with a gap every 32 tiles.
+                    flags[x][y] = CollisionDataFlag.BLOCK_MOVEMENT_EAST;
+                }
+            }
+        }
+
+        CollisionData plane = Fixtures.stub(CollisionData.class).returns("getFlags", flags).build();
+        return Fixtures.stub(WorldView.class)
+                .returns("isInstance", false)
+                .returns("getCollisionMaps", new CollisionData[]{plane})
+                .returns("getBaseX", baseX)
+                .returns("getBaseY", baseY)
+                .returns("getSizeX", SCENE)
+                .returns("getSizeY", SCENE)
+                .build();
+    }
+}
@@ -0,0 +1,372 @@
+package net.runelite.client.plugins.aibrain;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays the snapshot stream of a recorded session against one brain, or two brains side by side,
+ * through the plugin's own {@link BrainTransport}.
+ *
+ * Each virtual client walks the recording in order, waiting until an entry is due (original pace
+ * divided by {@code speed}, or back to back when speed is 0) and for its previous decision to come
+ * back, just like the plugin never has more than one decision in flight. Several clients replay
+ * the same recording concurrently, staggered slightly, to load the brain.
+ */
+@Slf4j
+final class ReplayHarness
+{
+    record Options(
+            List<Path> segments,
+            String primaryUrl,
+            String compareUrl,
+            double speed,
+            int clients,
+            long deadlineMs,
+            boolean diffRecorded,
+            int maxDiffExamples)
+    {
+    }
+
+    private static final long CLIENT_STAGGER_MS = 50;
+    private static final long LATE_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final Options options;
+    private final List<SessionRecord> stream = new ArrayList<>();
+    private final Map<Long, String> recordedResponses = new HashMap<>();
+
+    private final BrainStats primaryStats = new BrainStats();
+    private final BrainStats compareStats = new BrainStats();
+    private final LongAdder lateSends = new LongAdder();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+    private final LongAdder controlErrors = new LongAdder();
+    private final LongAdder compared = new LongAdder();
+    private final LongAdder differing = new LongAdder();
+    private final Map<String, LongAdder> diffKinds = new ConcurrentHashMap<>();
+    private final List<String> diffExamples = Collections.synchronizedList(new ArrayList<>());
+
+    ReplayHarness(Options options)
+    {
+        this.options = options;
+    }
+
+    /**
+     * Loads the recording, replays it and returns the printable report.
+     */
+    String run() throws IOException, InterruptedException
+    {
+        load();
+        long snapshots = stream.stream().filter(r -> r.type() == SessionRecord.Type.SNAPSHOT).count();
+        if (snapshots == 0)
+        {
+            throw new IOException("The recording contains no snapshots");
+        }
+        log.info("Replaying {} snapshots with {} client(s) at {}", snapshots, options.clients(),
+                options.speed() > 0 ? options.speed() + "x" : "max speed");
+
+        long started = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, options.clients()); i++)
+        {
+            long offsetMs = i * CLIENT_STAGGER_MS;
+            Thread t = new Thread(() -> replayClient(offsetMs), "replay-client-" + i);
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads)
+        {
+            t.join();
+        }
+        long elapsedNanos = System.nanoTime() - started;
+
+        return report(elapsedNanos);
+    }
+
+    private void load() throws IOException
+    {
+        try (SessionLogReader reader = new SessionLogReader(options.segments()))
+        {
+            SessionRecord record;
+            while ((record = reader.next()) != null)
+            {
+                switch (record.type())
+                {
+                    case SNAPSHOT:
+                    case CONTROL:
+                        stream.add(record);
+                        break;
+                    case RESPONSE:
+                        recordedResponses.putIfAbsent(record.seq(), record.payload());
+                        break;
+                    case ACTION:
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    private void replayClient(long offsetMs)
+    {
+        BrainTransport primary = newTransport();
+        BrainTransport secondary = options.compareUrl() != null ? newTransport() : null;
+        try
+        {
+            sleepMillis(offsetMs);
+            long startNanos = System.nanoTime();
+            long firstRecordNanos = stream.get(0).timeNanos();
+
+            for (SessionRecord record : stream)
+            {
+                if (options.speed() > 0)
+                {
+                    long due = startNanos + (long) ((record.timeNanos() - firstRecordNanos) / options.speed());
+                    long wait = due - System.nanoTime();
+                    if (wait > 0)
+                    {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                    else if (-wait > LATE_THRESHOLD_NANOS && record.type() == SessionRecord.Type.SNAPSHOT)
+                    {
+                        lateSends.increment();
+                        maxLagNanos.accumulateAndGet(-wait, Math::max);
+                    }
+                }
+
+                if (record.type() == SessionRecord.Type.CONTROL)
+                {
+                    sendControl(primary, options.primaryUrl(), record.payload());
+                    if (secondary != null)
+                    {
+                        sendControl(secondary, options.compareUrl(), record.payload());
+                    }
+                    continue;
+                }
+
+                CompletableFuture<String> a = send(primary, options.primaryUrl(), record.payload(), primaryStats);
+                CompletableFuture<String> b = secondary != null
+                        ? send(secondary, options.compareUrl(), record.payload(), compareStats)
+                        : null;
+
+                String bodyA = await(a, primaryStats);
+                String bodyB = b != null ? await(b, compareStats) : null;
+                if (b != null)
+                {
+                    compare(record.seq(), bodyA, bodyB);
+                }
+                else if (options.diffRecorded())
+                {
+                    compare(record.seq(), recordedResponses.get(record.seq()), bodyA);
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            primaryStats.absorb(primary);
+            primary.shutdown();
+            if (secondary != null)
+            {
+                compareStats.absorb(secondary);
+                secondary.shutdown();
+            }
+        }
+    }
+
+    private BrainTransport newTransport()
+    {
+        // The harness never consults the breaker; it only has to exist.
+        return new BrainTransport(2000, new BrainCircuitBreaker(100, Long.MAX_VALUE, 1000));
+    }
+
+    private CompletableFuture<String> send(BrainTransport transport, String baseUrl, String snapshot, BrainStats stats)
+    {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        long started = System.nanoTime();
+        transport.decide(baseUrl + "/decide", null, snapshot, options.deadlineMs(), 0, new DecisionTrace(),
+                new BrainTransport.DecideCallback()
+                {
+                    @Override
+                    public void onResponse(long seq, String body, boolean fromHedge)
+                    {
+                        stats.latencyMicros.record((System.nanoTime() - started) / 1000);
+                        stats.ok.increment();
+                        try
+                        {
+                            BrainResponseDecoder.decode(body);
+                        }
+                        catch (IOException e)
+                        {
+                            stats.malformed.increment();
+                        }
+                        result.complete(body);
+                    }
+
+                    @Override
+                    public void onError(long seq, String status, String details)
+                    {
+                        stats.errors.computeIfAbsent(details.replaceAll("\\d+", "N"), k -> new LongAdder()).increment();
+                        result.complete(null);
+                    }
+                });
+        return result;
+    }
+
+    private String await(CompletableFuture<String> future, BrainStats stats) throws InterruptedException
+    {
+        try
+        {
+            return future.get(options.deadlineMs() + 2000, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e)
+        {
+            // The transport did not end the call at its deadline; count it here instead.
+            stats.timeouts.increment();
+            return null;
+        }
+        catch (ExecutionException e)
+        {
+            return null;
+        }
+    }
+
+    private void sendControl(BrainTransport transport, String baseUrl, String json)
+    {
+        try
+        {
+            transport.postControl(baseUrl + "/control", json);
+        }
+        catch (IOException e)
+        {
+            controlErrors.increment();
+        }
+    }
+
+    private void compare(long seq, String expectedBody, String actualBody)
+    {
+        if (expectedBody == null || actualBody == null)
+        {
+            return;
+        }
+
+        String expected = describe(expectedBody);
+        String actual = describe(actualBody);
+        compared.increment();
+        if (expected.equals(actual))
+        {
+            return;
+        }
+
+        differing.increment();
+        String kind = expected.split(" ", 2)[0] + " -> " + actual.split(" ", 2)[0];
+        diffKinds.computeIfAbsent(kind, k -> new LongAdder()).increment();
+        if (diffExamples.size() < options.maxDiffExamples())
+        {
+            diffExamples.add("#" + seq + ": " + expected + "  vs  " + actual);
+        }
+    }
+
+    /**
+     * Action and target only; reasons and timings are expected to differ between brains.
+     */
+    private static String describe(String body)
+    {
+        try
+        {
+            BrainAction action = BrainResponseDecoder.decode(body);
+            return action.type().getWireName() + " " + action.target();
+        }
+        catch (IOException e)
+        {
+            return "malformed (" + e.getMessage() + ")";
+        }
+    }
+
+    private String report(long elapsedNanos)
+    {
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Replayed %d segment(s) with %d client(s) in %.1f s%n",
+                options.segments().size(), Math.max(1, options.clients()), seconds));
+        sb.append(String.format("Late sends (>50 ms behind schedule): %d, max lag %d ms, /control errors: %d%n",
+                lateSends.sum(), TimeUnit.NANOSECONDS.toMillis(maxLagNanos.get()), controlErrors.sum()));
+
+        primaryStats.append(sb, "Brain " + options.primaryUrl(), seconds);
+        if (options.compareUrl() != null)
+        {
+            compareStats.append(sb, "Brain " + options.compareUrl(), seconds);
+        }
+
+        if (options.compareUrl() != null || options.diffRecorded())
+        {
+            String against = options.compareUrl() != null ? "second brain" : "recorded responses";
+            sb.append(String.format("Diff against %s: %d of %d decisions differ%n", against, differing.sum(), compared.sum()));
+            new TreeMap<>(diffKinds).forEach((k, v) -> sb.append(String.format("  %-40s %d%n", k, v.sum())));
+            for (String example : diffExamples)
+            {
+                sb.append("  ").append(example).append(System.lineSeparator());
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void sleepMillis(long ms) throws InterruptedException
+    {
+        if (ms > 0)
+        {
+            Thread.sleep(ms);
+        }
+    }
+
+    private static final class BrainStats
+    {
+        private final LatencyRecorder latencyMicros = new LatencyRecorder();
+        private final LongAdder ok = new LongAdder();
+        private final LongAdder malformed = new LongAdder();
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        private final LongAdder requestBytes = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder superseded = new LongAdder();
+
+        void absorb(BrainTransport t)
+        {
+            requestBytes.add(t.getRequestBytes());
+            responseBytes.add(t.getResponseBytes());
+            timeouts.add(t.getTimeouts());
+            superseded.add(t.getSuperseded());
+        }
+
+        void append(StringBuilder sb, String title, double seconds)
+        {
+            long n = ok.sum();
+            sb.append(title).append(System.lineSeparator());
+            sb.append(String.format("  responses %d (%.1f/s), malformed %d, timeouts %d, superseded %d%n",
+                    n, seconds > 0 ? n / seconds : 0.0, malformed.sum(), timeouts.sum(), superseded.sum()));
+            sb.append(String.format("  latency p50 %s · p90 %s · p99 %s · max %s%n",
+                    DecisionMetrics.formatMicros(latencyMicros.getPercentile(50)),
+                    DecisionMetrics.formatMicros(latencyMicros.getPercentile(90)),
+                    DecisionMetrics.formatMicros(latencyMicros.getPercentile(99)),
+                    DecisionMetrics.formatMicros(latencyMicros.getMax())));
+            sb.append(String.format("  bytes sent %d, received %d%n", requestBytes.sum(), responseBytes.sum()));
+            new TreeMap<>(errors).forEach((k, v) -> sb.append(String.format("  error %-40s %d%n", k, v.sum())));
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * Command line entry point for the replay tooling.
+ *
+ * <pre>
+ * replay   [session] [--brain URL|standin] [--compare URL|standin] [--speed N|max] [--clients N]
+ *          [--deadline-ms N] [--diff-recorded] [--latency-ms N] [--jitter-ms N] [--canned]
+ * serve    [--port N] [--latency-ms N] [--jitter-ms N] [--canned SESSION]
+ * sessions [directory]
+ * </pre>
+ *
+ * A session is a directory (the newest session in it is used), a session name inside the default
+ * {@code ~/.runelite/aibrain-sessions} directory, or a list of {@code .aibr} segment files.
+ * {@code standin} starts an in-process {@link StandInBrainServer}; {@code --canned} makes it answer
+ * with the responses captured in the recording instead of its rules.
+ */
+public final class ReplayMain
+{
+    private static final Path DEFAULT_DIR = Paths.get(System.getProperty("user.home"), ".runelite", "aibrain-sessions");
+
+    private ReplayMain()
+    {
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length == 0)
+        {
+            usage();
+            return;
+        }
+
+        List<String> positional = new ArrayList<>();
+        Map<String, String> flags = parseFlags(args, positional);
+        switch (args[0])
+        {
+            case "replay":
+                replay(positional, flags);
+                break;
+            case "serve":
+                serve(flags);
+                break;
+            case "sessions":
+                listSessions(positional.isEmpty() ? DEFAULT_DIR : Paths.get(positional.get(0)));
+                break;
+            default:
+                usage();
+                break;
+        }
+    }
+
+    private static void replay(List<String> positional, Map<String, String> flags) throws Exception
+    {
+        List<Path> segments = resolveSegments(positional);
+        List<StandInBrainServer> standIns = new ArrayList<>();
+        try
+        {
+            String primary = brainUrl(flags.getOrDefault("brain", "http://127.0.0.1:9420"), flags, segments, standIns);
+            String compare = flags.containsKey("compare") ? brainUrl(flags.get("compare"), flags, segments, standIns) : null;
+
+            String speed = flags.getOrDefault("speed", "1");
+            ReplayHarness.Options options = new ReplayHarness.Options(
+                    segments,
+                    primary,
+                    compare,
+                    "max".equals(speed) ? 0 : Double.parseDouble(speed),
+                    Integer.parseInt(flags.getOrDefault("clients", "1")),
+                    Long.parseLong(flags.getOrDefault("deadline-ms", "20000")),
+                    flags.containsKey("diff-recorded"),
+                    Integer.parseInt(flags.getOrDefault("diff-examples", "10")));
+
+            System.out.print(new ReplayHarness(options).run());
+        }
+        finally
+        {
+            standIns.forEach(StandInBrainServer::stop);
+        }
+    }
+
+    private static String brainUrl(String value, Map<String, String> flags, List<Path> segments,
+                                   List<StandInBrainServer> standIns) throws IOException
+    {
+        if (!"standin".equals(value))
+        {
+            return value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+        }
+
+        StandInBrainServer server = new StandInBrainServer(0,
+                Long.parseLong(flags.getOrDefault("latency-ms", "0")),
+                Long.parseLong(flags.getOrDefault("jitter-ms", "0")),
+                flags.containsKey("canned") ? recordedResponses(segments) : null);
+        server.start();
+        standIns.add(server);
+        return server.baseUrl();
+    }
+
+    private static void serve(Map<String, String> flags) throws Exception
+    {
+        List<String> canned = null;
+        if (flags.containsKey("canned"))
+        {
+            canned = recordedResponses(resolveSegments(List.of(flags.get("canned"))));
+        }
+
+        StandInBrainServer server = new StandInBrainServer(
+                Integer.parseInt(flags.getOrDefault("port", "9420")),
+                Long.parseLong(flags.getOrDefault("latency-ms", "0")),
+                Long.parseLong(flags.getOrDefault("jitter-ms", "0")),
+                canned);
+        server.start();
+        System.out.println("Stand-in brain running on " + server.baseUrl() + " (Ctrl+C to stop)");
+        Thread.currentThread().join();
+    }
+
+    private static void listSessions(Path dir) throws IOException
+    {
+        for (Map.Entry<String, List<Path>> e : SessionLogReader.listSessions(dir).entrySet())
+        {
+            int[] counts = new int[SessionRecord.Type.values().length];
+            try (SessionLogReader reader = new SessionLogReader(e.getValue()))
+            {
+                SessionRecord r;
+                while ((r = reader.next()) != null)
+                {
+                    counts[r.type().ordinal()]++;
+                }
+            }
+            System.out.printf("%s  %d segment(s)  %d snapshots, %d responses, %d actions%n",
+                    e.getKey(), e.getValue().size(),
+                    counts[SessionRecord.Type.SNAPSHOT.ordinal()],
+                    counts[SessionRecord.Type.RESPONSE.ordinal()],
+                    counts[SessionRecord.Type.ACTION.ordinal()]);
+        }
+    }
+
+    private static List<String> recordedResponses(List<Path> segments) throws IOException
+    {
+        List<String> responses = new ArrayList<>();
+        try (SessionLogReader reader = new SessionLogReader(segments))
+        {
+            SessionRecord r;
+            while ((r = reader.next()) != null)
+            {
+                if (r.type() == SessionRecord.Type.RESPONSE)
+                {
+                    responses.add(r.payload());
+                }
+            }
+        }
+        if (responses.isEmpty())
+        {
+            throw new IOException("The recording contains no brain responses to replay");
+        }
+        return responses;
+    }
+
+    private static List<Path> resolveSegments(List<String> args) throws IOException
+    {
+        if (args.isEmpty())
+        {
+            return newestSession(DEFAULT_DIR);
+        }
+
+        List<Path> segments = new ArrayList<>();
+        for (String arg : args)
+        {
+            Path p = Paths.get(arg);
+            if (Files.isDirectory(p))
+            {
+                segments.addAll(newestSession(p));
+            }
+            else if (Files.isRegularFile(p))
+            {
+                segments.add(p);
+            }
+            else
+            {
+                List<Path> named = SessionLogReader.listSessions(DEFAULT_DIR).get(arg);
+                if (named == null)
+                {
+                    throw new IOException("No session file, directory or name matches " + arg);
+                }
+                segments.addAll(named);
+            }
+        }
+        return segments;
+    }
+
+    private static List<Path> newestSession(Path dir) throws IOException
+    {
+        NavigableMap<String, List<Path>> sessions = SessionLogReader.listSessions(dir);
+        if (sessions.isEmpty())
+        {
+            throw new IOException("No recorded sessions in " + dir);
+        }
+        return sessions.lastEntry().getValue();
+    }
+
+    private static Map<String, String> parseFlags(String[] args, List<String> positional)
+    {
+        Map<String, String> flags = new HashMap<>();
+        for (int i = 1; i < args.length; i++)
+        {
+            String arg = args[i];
+            if (!arg.startsWith("--"))
+            {
+                positional.add(arg);
+                continue;
+            }
+
+            String name = arg.substring(2);
+            int eq = name.indexOf('=');
+            if (eq >= 0)
+            {
+                flags.put(name.substring(0, eq), name.substring(eq + 1));
+            }
+            else if (i + 1 < args.length && !args[i + 1].startsWith("--") && takesValue(args[0], name))
+            {
+                flags.put(name, args[++i]);
+            }
+            else
+            {
+                flags.put(name, "true");
+            }
+        }
+        return flags;
+    }
+
+    private static boolean takesValue(String command, String flag)
+    {
+        switch (flag)
+        {
+            case "diff-recorded":
+                return false;
+            case "canned":
+                // `serve --canned SESSION` takes a value; `replay --canned` is a switch.
+                return "serve".equals(command);
+            default:
+                return true;
+        }
+    }
+
+    private static void usage()
+    {
+        System.out.println("Usage:\n"
+                + "  replay   [session] [--brain URL|standin] [--compare URL|standin] [--speed N|max] [--clients N]\n"
+                + "           [--deadline-ms N] [--diff-recorded] [--diff-examples N] [--latency-ms N] [--jitter-ms N] [--canned]\n"
+                + "  serve    [--port N] [--latency-ms N] [--jitter-ms N] [--canned SESSION]\n"
+                + "  sessions [directory]");
+    }
+}
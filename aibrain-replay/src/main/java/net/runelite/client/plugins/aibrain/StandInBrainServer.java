@@ -0,0 +1,408 @@
+package net.runelite.client.plugins.aibrain;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Java stand-in for the Python brain: answers {@code POST /decide}, {@code POST /control} and
+ * {@code GET /health} on 127.0.0.1 with either canned responses (e.g. the ones captured in a
+ * recorded session, handed out round-robin) or a handful of simple rules, after an artificial
+ * think time of {@code latencyMs} plus up to {@code jitterMs}.
+ *
+ * Plain sockets with HTTP/1.1 keep-alive and one pooled thread per connection; just enough HTTP for
+ * OkHttp and the Python tooling, not a general server.
+ */
+@Slf4j
+final class StandInBrainServer
+{
+    private static final int SOCKET_TIMEOUT_MS = 30_000;
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+
+    private final int port;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final List<String> canned;
+    private final AtomicInteger cannedCursor = new AtomicInteger();
+    private final LongAdder decides = new LongAdder();
+
+    private ServerSocket serverSocket;
+    private ExecutorService workers;
+
+    /**
+     * @param canned responses to cycle through, or null to answer with the built-in rules
+     */
+    StandInBrainServer(int port, long latencyMs, long jitterMs, List<String> canned)
+    {
+        this.port = port;
+        this.latencyMs = Math.max(0, latencyMs);
+        this.jitterMs = Math.max(0, jitterMs);
+        this.canned = canned != null && !canned.isEmpty() ? canned : null;
+    }
+
+    void start() throws IOException
+    {
+        serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        workers = Executors.newCachedThreadPool(r ->
+        {
+            Thread t = new Thread(r, "standin-brain");
+            t.setDaemon(true);
+            return t;
+        });
+
+        Thread acceptor = new Thread(this::acceptLoop, "standin-brain-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Stand-in brain listening on {} ({}, {} ms + up to {} ms jitter)",
+                baseUrl(), canned != null ? canned.size() + " canned responses" : "rules", latencyMs, jitterMs);
+    }
+
+    void stop()
+    {
+        try
+        {
+            if (serverSocket != null)
+            {
+                serverSocket.close();
+            }
+        }
+        catch (IOException e)
+        {
+            log.debug("Error closing stand-in socket", e);
+        }
+        if (workers != null)
+        {
+            workers.shutdownNow();
+        }
+    }
+
+    String baseUrl()
+    {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    long getDecideCount()
+    {
+        return decides.sum();
+    }
+
+    private void acceptLoop()
+    {
+        ServerSocket s = serverSocket;
+        while (!s.isClosed())
+        {
+            try
+            {
+                Socket socket = s.accept();
+                workers.execute(() -> serve(socket));
+            }
+            catch (SocketException e)
+            {
+                // Closed by stop().
+                return;
+            }
+            catch (IOException e)
+            {
+                log.debug("Stand-in accept failed", e);
+            }
+        }
+    }
+
+    private void serve(Socket socket)
+    {
+        try (Socket sock = socket)
+        {
+            sock.setSoTimeout(SOCKET_TIMEOUT_MS);
+            sock.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(sock.getInputStream());
+            OutputStream out = sock.getOutputStream();
+            while (handleOne(in, out))
+            {
+                // keep-alive
+            }
+        }
+        catch (IOException e)
+        {
+            log.debug("Stand-in connection closed", e);
+        }
+    }
+
+    /**
+     * @return false when the connection should be closed
+     */
+    private boolean handleOne(InputStream in, OutputStream out) throws IOException
+    {
+        String head = readHead(in);
+        if (head == null)
+        {
+            return false;
+        }
+
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length < 2)
+        {
+            write(out, "400 Bad Request", "{\"error\":\"bad request line\"}", false);
+            return false;
+        }
+
+        int contentLength = 0;
+        boolean keepAlive = true;
+        for (int i = 1; i < lines.length; i++)
+        {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0)
+            {
+                continue;
+            }
+            String name = lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = lines[i].substring(colon + 1).trim();
+            if (name.equals("content-length"))
+            {
+                contentLength = Integer.parseInt(value);
+            }
+            else if (name.equals("connection") && value.equalsIgnoreCase("close"))
+            {
+                keepAlive = false;
+            }
+        }
+
+        byte[] body = in.readNBytes(contentLength);
+        if (body.length < contentLength)
+        {
+            return false;
+        }
+
+        String method = requestLine[0];
+        String path = requestLine[1];
+        if ("GET".equals(method) && "/health".equals(path))
+        {
+            write(out, "200 OK", "{\"status\":\"ok\",\"agents\":[\"standin\"]}", keepAlive);
+        }
+        else if ("POST".equals(method) && "/control".equals(path))
+        {
+            write(out, "200 OK", "{\"status\":\"ok\"}", keepAlive);
+        }
+        else if ("POST".equals(method) && "/decide".equals(path))
+        {
+            write(out, "200 OK", decide(new String(body, StandardCharsets.UTF_8)), keepAlive);
+        }
+        else
+        {
+            write(out, "404 Not Found", "{\"error\":\"not found\"}", keepAlive);
+        }
+        return keepAlive;
+    }
+
+    private String decide(String snapshot)
+    {
+        long started = System.nanoTime();
+        decides.increment();
+
+        if (canned != null)
+        {
+            String response = canned.get(Math.floorMod(cannedCursor.getAndIncrement(), canned.size()));
+            think();
+            return response;
+        }
+
+        JsonObject action = applyRules(snapshot);
+        double agentMs = (System.nanoTime() - started) / 1e6;
+        think();
+
+        JsonObject timing = new JsonObject();
+        timing.addProperty("agent_ms", agentMs);
+        timing.addProperty("total_ms", (System.nanoTime() - started) / 1e6);
+        action.getAsJsonObject("meta").add("timing", timing);
+        return action.toString();
+    }
+
+    private void think()
+    {
+        long delay = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+        if (delay <= 0)
+        {
+            return;
+        }
+
+        try
+        {
+            Thread.sleep(delay);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Continue any open dialog, otherwise talk to the nearest NPC that offers Talk-to, otherwise
+     * use the nearest object with an action, otherwise wait.
+     */
+    static JsonObject applyRules(String snapshot)
+    {
+        JsonObject state;
+        try
+        {
+            state = JsonParser.parseString(snapshot).getAsJsonObject();
+        }
+        catch (RuntimeException e)
+        {
+            return action("wait", new JsonObject(), "Unreadable snapshot");
+        }
+
+        JsonObject dialog = state.has("dialog") && state.get("dialog").isJsonObject()
+                ? state.getAsJsonObject("dialog") : new JsonObject();
+        if (dialog.has("can_continue") && dialog.get("can_continue").getAsBoolean())
+        {
+            return action("dialog_continue", new JsonObject(), "Dialog open");
+        }
+
+        JsonObject player = state.has("player") && state.get("player").isJsonObject()
+                ? state.getAsJsonObject("player") : new JsonObject();
+        int px = intOr(player, "x", 0);
+        int py = intOr(player, "y", 0);
+
+        JsonObject npc = nearestWithAction(state.get("npcs"), "Talk-to", px, py);
+        if (npc != null)
+        {
+            JsonObject target = new JsonObject();
+            target.addProperty("name", npc.get("name").getAsString());
+            return action("talk_to_npc", target, "Nearest NPC to talk to");
+        }
+
+        JsonObject obj = nearestWithAction(state.get("objects"), null, px, py);
+        if (obj != null)
+        {
+            JsonObject target = new JsonObject();
+            target.addProperty("name", obj.get("name").getAsString());
+            target.addProperty("x", intOr(obj, "x", 0));
+            target.addProperty("y", intOr(obj, "y", 0));
+            target.addProperty("plane", intOr(obj, "plane", 0));
+            target.addProperty("option", obj.getAsJsonArray("actions").get(0).getAsString());
+            return action("interact_object", target, "Nearest usable object");
+        }
+
+        return action("wait", new JsonObject(), "Nothing to do");
+    }
+
+    private static JsonObject nearestWithAction(JsonElement list, String wantedAction, int px, int py)
+    {
+        if (list == null || !list.isJsonArray())
+        {
+            return null;
+        }
+
+        JsonObject best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (JsonElement e : list.getAsJsonArray())
+        {
+            if (!e.isJsonObject())
+            {
+                continue;
+            }
+            JsonObject o = e.getAsJsonObject();
+            if (!o.has("name") || !o.has("actions") || !o.get("actions").isJsonArray())
+            {
+                continue;
+            }
+
+            JsonArray actions = o.getAsJsonArray("actions");
+            boolean matches = wantedAction == null ? actions.size() > 0 : actions.contains(new JsonPrimitive(wantedAction));
+            if (!matches)
+            {
+                continue;
+            }
+
+            int d = Math.max(Math.abs(intOr(o, "x", px) - px), Math.abs(intOr(o, "y", py) - py));
+            if (d < bestDistance)
+            {
+                bestDistance = d;
+                best = o;
+            }
+        }
+        return best;
+    }
+
+    private static JsonObject action(String name, JsonObject target, String reason)
+    {
+        JsonObject meta = new JsonObject();
+        meta.addProperty("reason", reason);
+        meta.addProperty("agent", "standin");
+
+        JsonObject action = new JsonObject();
+        action.addProperty("action", name);
+        action.add("target", target);
+        action.add("meta", meta);
+        return action;
+    }
+
+    private static int intOr(JsonObject o, String key, int fallback)
+    {
+        JsonElement e = o.get(key);
+        return e != null && e.isJsonPrimitive() && e.getAsJsonPrimitive().isNumber() ? e.getAsInt() : fallback;
+    }
+
+    private static String readHead(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream head = new ByteArrayOutputStream(512);
+        int matched = 0;
+        while (true)
+        {
+            int b = in.read();
+            if (b < 0)
+            {
+                return null;
+            }
+            head.write(b);
+            if (head.size() > MAX_HEADER_BYTES)
+            {
+                throw new IOException("request header too large");
+            }
+
+            // Looking for \r\n\r\n
+            matched = (b == '\r' && (matched == 0 || matched == 2)) || (b == '\n' && (matched == 1 || matched == 3))
+                    ? matched + 1
+                    : (b == '\r' ? 1 : 0);
+            if (matched == 4)
+            {
+                String s = head.toString(StandardCharsets.US_ASCII);
+                return s.substring(0, s.length() - 4);
+            }
+        }
+    }
+
+    private static void write(OutputStream out, String status, String body, boolean keepAlive) throws IOException
+    {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String headers = "HTTP/1.1 " + status + "\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + bytes.length + "\r\n"
+                + (keepAlive ? "" : "Connection: close\r\n")
+                + "\r\n";
+        out.write(headers.getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes);
+        out.flush();
+    }
+}
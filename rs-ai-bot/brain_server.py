@@ -1,4 +1,5 @@
 import os
+import time
 from copy import deepcopy
 
 from flask import Flask, request, jsonify
@@ -32,9 +33,18 @@ CONTROL_STATE = {
     "skill_budget_gp": 5000,
     "skilling_goal": "Train the selected skill safely.",
     "manual_goal": "",
+    "behavior_loops": True,        # whether the plugin runs run_loop routines
 }
 
 
+@app.route("/health", methods=["GET"])
+def health():
+    """
+    Cheap liveness probe used by the plugin's circuit breaker while it is open.
+    """
+    return jsonify({"ok": True})
+
+
 @app.route("/control", methods=["POST"])
 def control():
     """
@@ -52,11 +62,17 @@ def decide():
     """
     Main decision endpoint called by RuneLite.
     Returns: { action: str, target: {...}|null, meta: {...} }
+
+    meta.timing carries server-side stage durations in milliseconds so the plugin
+    can split its round trip into network vs. brain time.
     """
+    started = time.perf_counter()
     game_state = request.get_json(force=True) or {}
+    parsed = time.perf_counter()
     ctx = deepcopy(CONTROL_STATE)
     mode = (ctx.get("mode") or "quest").lower()
 
+    agent_started = time.perf_counter()
     try:
         if mode == "quest":
             action = quest_agent.decide_quest_action(client, game_state, ctx)
@@ -82,6 +98,8 @@ def decide():
             "meta": {"reason": "Agent error, falling back to safe wait."},
         }
 
+    agent_ms = (time.perf_counter() - agent_started) * 1000.0
+
     # FINAL SAFETY: for QUEST mode we *never* allow adjust_camera
     if mode == "quest" and action.get("action") == "adjust_camera":
         action["action"] = "wait"
@@ -93,6 +111,13 @@ def decide():
     action.setdefault("action", "wait")
     action.setdefault("target", None)
     action.setdefault("meta", {"reason": "No meta given"})
+    if not isinstance(action["meta"], dict):
+        action["meta"] = {"reason": str(action["meta"])}
+
+    timing = action["meta"].setdefault("timing", {})
+    timing["parse_ms"] = round((parsed - started) * 1000.0, 3)
+    timing["agent_ms"] = round(agent_ms, 3)
+    timing["total_ms"] = round((time.perf_counter() - started) * 1000.0, 3)
 
     return jsonify(action)
 
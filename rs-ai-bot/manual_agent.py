@@ -46,17 +46,60 @@ def _extract_text_state(game_state: Dict[str, Any], ctx: Dict[str, Any]) -> str:
                 f"actions={acts}"
             )
 
+    ground_items = game_state.get("ground_items") or []
+    if ground_items:
+        lines.append("GROUND_ITEMS (nearest first, up to 15):")
+        for item in ground_items[:15]:
+            lines.append(
+                f"- {item.get('name')} x{item.get('quantity')} @ ({item.get('x')},{item.get('y')},{item.get('plane')})"
+                f" path_distance={item.get('path_distance')}"
+            )
+
+    last_action = game_state.get("last_action")
+    if last_action:
+        lines.append(
+            f"LAST_ACTION: {last_action.get('action')} -> {last_action.get('result')}"
+            f" ({last_action.get('reason')}), {last_action.get('ticks_ago')} ticks ago"
+        )
+
+    watches = game_state.get("watches") or {}
+    tripped = watches.get("tripped")
+    if tripped:
+        lines.append(
+            f"WATCH_TRIPPED: {tripped.get('id')} ({tripped.get('type')}, then={tripped.get('then')}),"
+            f" {tripped.get('ticks_ago')} ticks ago - this is why you are being asked now"
+        )
+
+    events = game_state.get("events") or []
+    if events:
+        lines.append("EVENTS since your last decision (oldest first, up to 20):")
+        for ev in events[-20:]:
+            what = " ".join(str(v) for v in (ev.get("type"), ev.get("subject"), ev.get("amount")) if v is not None)
+            lines.append(f"- {what} ({ev.get('ticks_ago')} ticks ago)")
+
     npc_text = dialog.get("npc_text")
     player_text = dialog.get("player_text")
     can_continue = dialog.get("can_continue", False)
-    lines.append(f"DIALOG.can_continue={can_continue}")
+    lines.append(f"DIALOG.type={dialog.get('type')}, can_continue={can_continue}")
     if npc_text:
-        lines.append(f"DIALOG.NPC: {npc_text}")
+        lines.append(f"DIALOG.NPC ({dialog.get('speaker')}): {npc_text}")
     if player_text:
         lines.append(f"DIALOG.PLAYER: {player_text}")
+    if dialog.get("type") not in (None, "npc", "player", "options") and dialog.get("text"):
+        lines.append(f"DIALOG.TEXT: {dialog.get('text')}")
+    if dialog.get("options"):
+        lines.append(f"DIALOG.OPTIONS ({dialog.get('prompt')}):")
+        for opt in dialog["options"]:
+            lines.append(f"  {opt.get('index')}. {opt.get('text')}")
+    script = dialog.get("script")
+    if script:
+        lines.append(
+            f"DIALOG.SCRIPT: status={script.get('status')}, remaining_choices={script.get('remaining_choices')}, "
+            f"exit_reason={script.get('exit_reason')}"
+        )
 
     if chat_log:
-        lines.append("CHAT_LOG (latest first):")
+        lines.append("CHAT_LOG (new since your last decision, oldest first):")
         for msg in chat_log[-10:]:
             lines.append(f"- {msg}")
 
@@ -80,27 +123,43 @@ def _call_llm_for_manual(client, game_state: Dict[str, Any], ctx: Dict[str, Any]
         "  - walk_to_tile\n"
         "  - talk_to_npc\n"
         "  - interact_object\n"
+        "  - pickup_item\n"
         "  - dialog_continue\n"
+        "  - select_dialog_option\n"
         "  - adjust_camera\n"
         "  - wait\n\n"
         "Action JSON schema (strict):\n"
         "{\n"
-        '  \"action\": \"walk_to_tile\" | \"talk_to_npc\" | \"interact_object\" | \"dialog_continue\" | \"adjust_camera\" | \"wait\",\n'
+        '  \"action\": \"walk_to_tile\" | \"talk_to_npc\" | \"interact_object\" | \"pickup_item\" | \"dialog_continue\" | \"select_dialog_option\" | \"adjust_camera\" | \"wait\",\n'
         "  \"target\": null | {\n"
         "      \"x\": int,\n"
         "      \"y\": int,\n"
         "      \"plane\": int,\n"
         "      \"name\": string,\n"
-        "      \"option\": string\n"
+        "      \"option\": string,\n"
+        "      \"slot\": int\n"
         "  },\n"
+        "  \"choices\": (select_dialog_option only) [string],\n"
+        "  \"watches\": (optional, up to 8) [ { \"type\": \"inventory_free_slots\" | \"dialog_opened\" | \"hp_below\" | \"npc_within\", \"id\": string, \"name\": string, \"count\": int, \"then\": \"decide\" | \"abort\" } ],\n"
         "  \"meta\": { \"reason\": string }\n"
         "}\n\n"
         "Rules:\n"
         " - Use manual_goal as the high-level desire (e.g. 'walk to the bank', 'talk to the guide').\n"
         " - Never invent map coordinates: for walking, only use player tile or tiles of visible NPCs/objects.\n"
         " - Prefer talk_to_npc for direct interactions and interact_object for things like trees, doors, or fires.\n"
+        " - pickup_item takes an item from GROUND_ITEMS: give its name and tile; the bot walks over to it.\n"
         " - Use dialog_continue if a dialogue is open.\n"
+        " - When DIALOG.OPTIONS is shown, answer with select_dialog_option: target.slot is the option's\n"
+        "   index and target.option its text. Add \"choices\": [option texts] for the menus you expect\n"
+        "   later in the same conversation; the bot clicks through the pages in between and stops at the\n"
+        "   next menu with no choice left, or when the dialog closes. DIALOG.SCRIPT says how that went.\n"
         " - If the instruction cannot be furthered right now, use wait or adjust_camera.\n"
+        " - Add \"watches\" to be asked again as soon as something happens instead of at the next\n"
+        "   scheduled decision, e.g. {\"type\": \"hp_below\", \"count\": 8, \"then\": \"abort\"} or\n"
+        "   {\"type\": \"npc_within\", \"name\": \"Goblin\", \"count\": 3}. Watches last until your next answer and\n"
+        "   trip when their condition starts to hold; \"abort\" also stops whatever the bot is doing.\n"
+        "   WATCH_TRIPPED names the one that fired.\n"
+        " - If LAST_ACTION is failure or no_op, do not repeat it unchanged: its reason says what went wrong.\n"
     )
 
     user_prompt = (
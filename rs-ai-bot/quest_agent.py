@@ -1,61 +1,25 @@
 import json
 import math
+import os
 from typing import Any, Dict, List, Optional
 
-# Very simple mapping of quests -> important NPCs near the start.
-# (This is enough to show behaviour; full F2P coverage would need more entries.)
-QUEST_NPCS = {
-    "tutorial island": [
-        "Gielinor Guide",
-        "Survival Expert",
-        "Master Chef",
-        "Quest Guide",
-        "Mining Instructor",
-        "Combat Instructor",
-        "Brother Brace",
-        "Magic Instructor",
-    ],
-    "cook's assistant": ["Cook"],
-    "sheep shearer": ["Fred the Farmer"],
-    "the restless ghost": ["Father Aereck", "Father Urhney"],
-    "rune mysteries": ["Duke Horacio", "Sedridor"],
-    "demon slayer": ["Gypsy Aris", "Sir Prysin"],
-    "shield of arrav": ["Reldo", "Charlie the Tramp", "Curator Haig Halen"],
-    "vampire slayer": ["Morgan", "Dr Harlow"],
-    "goblin diplomacy": ["General Bentnoze", "General Wartface"],
-    "imp catcher": ["Wizard Mizgog"],
-    "doric's quest": ["Doric"],
-    "the knight's sword": ["Sir Vyvin"],
-    "pirate's treasure": ["Redbeard Frank"],
-    "prince ali rescue": ["Hassan", "Osman"],
-    "black knights' fortress": ["Sir Amik Varze"],
-    "witch's potion": ["Hetty"],
-    "the corsair curse": ["Captain Tock"],
-    "below ice mountain": ["Willie"],
-    "dragon slayer i": ["Guildmaster", "Oziach"],
-}
-
-QUEST_SEQUENCE = [
-    "Tutorial Island",
-    "Cook's Assistant",
-    "Sheep Shearer",
-    "The Restless Ghost",
-    "Rune Mysteries",
-    "Demon Slayer",
-    "Shield of Arrav",
-    "Vampire Slayer",
-    "Goblin Diplomacy",
-    "Imp Catcher",
-    "Doric's Quest",
-    "The Knight's Sword",
-    "Pirate's Treasure",
-    "Prince Ali Rescue",
-    "Black Knights' Fortress",
-    "Witch's Potion",
-    "The Corsair Curse",
-    "Below Ice Mountain",
-    "Dragon Slayer I",
-]
+# The quest catalog shared with the plugin: order, start NPC and the NPCs each quest involves.
+_CATALOG_PATH = os.path.join(os.path.dirname(os.path.abspath(__file__)), "quests_f2p.json")
+
+
+def _load_catalog() -> List[Dict[str, Any]]:
+    with open(_CATALOG_PATH, encoding="utf-8") as f:
+        quests = json.load(f)["quests"]
+    return sorted(quests, key=lambda q: q["sequence_order"])
+
+
+QUEST_CATALOG = _load_catalog()
+
+QUEST_SEQUENCE = [q["name"] for q in QUEST_CATALOG]
+
+# quest name (lowercase) -> catalog entry / in-game names of the NPCs it involves
+QUESTS_BY_NAME = {q["name"].lower(): q for q in QUEST_CATALOG}
+QUEST_NPCS = {q["name"].lower(): q["npcs"] for q in QUEST_CATALOG}
 
 
 def _distance(p: Dict[str, Any], q: Dict[str, Any]) -> float:
@@ -73,7 +37,8 @@ def _find_best_npc(
 ) -> Optional[Dict[str, Any]]:
     """
     Return the best NPC to talk to:
-    1) Prefer quest-specific NPCs from QUEST_NPCS, nearest first
+    1) Prefer quest-specific NPCs (flagged quest_relevant by the plugin, or
+       listed in QUEST_NPCS), nearest first
     2) Otherwise any nearby NPC with a Talk-to action
     """
     npcs: List[Dict[str, Any]] = game_state.get("npcs") or []
@@ -84,6 +49,7 @@ def _find_best_npc(
 
     best = None
     best_dist = 999999.0
+    best_is_quest = False
 
     for npc in npcs:
         name = (npc.get("name") or "").strip()
@@ -97,17 +63,21 @@ def _find_best_npc(
             "y": npc.get("y"),
             "plane": npc.get("plane"),
         }
-        dist = _distance(player, npc_pos)
+        # Snapshots only list reachable NPCs and give the walking distance to each.
+        dist = npc.get("path_distance")
+        if dist is None:
+            dist = _distance(player, npc_pos)
 
         # Prefer quest-specific NPCs
-        if name_l in quest_list:
-            if dist < best_dist:
+        if npc.get("quest_relevant") or name_l in quest_list:
+            if not best_is_quest or dist < best_dist:
                 best = npc
                 best_dist = dist
+                best_is_quest = True
             continue
 
         # Fallback: any NPC with a talk option, if we don't have a quest NPC yet
-        if best is None and any("talk" in a for a in actions):
+        if not best_is_quest and any("talk" in a for a in actions):
             if dist < best_dist:
                 best = npc
                 best_dist = dist
@@ -135,6 +105,21 @@ def _extract_text_state(game_state: Dict[str, Any], ctx: Dict[str, Any]) -> str:
         f", mode={ctx.get('mode')}"
     )
 
+    entry = QUESTS_BY_NAME.get(quest.lower().strip())
+    if entry:
+        lines.append(
+            f"QUEST_INFO: start_npc={entry.get('start_npc')!r}, start_area={entry.get('start_area')!r}, "
+            f"hint={entry.get('short_hint')!r}, npcs={entry.get('npcs')}"
+        )
+
+    snapshot_ctx = game_state.get("context") or {}
+    if "current_quest_stage" in snapshot_ctx:
+        lines.append(
+            f"QUEST_PROGRESS: stage={snapshot_ctx.get('current_quest_stage')}, "
+            f"complete={snapshot_ctx.get('current_quest_complete')}, "
+            f"quests_complete={game_state.get('quests_complete') or []}"
+        )
+
     if player:
         lines.append(
             f"PLAYER: name={player.get('name')}, pos=({player.get('x')},"
@@ -146,7 +131,8 @@ def _extract_text_state(game_state: Dict[str, Any], ctx: Dict[str, Any]) -> str:
         acts = npc.get("actions") or []
         lines.append(
             f"- {npc.get('name')} @ ({npc.get('x')},{npc.get('y')},{npc.get('plane')}) "
-            f"actions={acts}"
+            f"path_distance={npc.get('path_distance')} actions={acts}"
+            + (" QUEST" if npc.get("quest_relevant") else "")
         )
 
     if inventory:
@@ -162,20 +148,64 @@ def _extract_text_state(game_state: Dict[str, Any], ctx: Dict[str, Any]) -> str:
             acts = obj.get("actions") or []
             lines.append(
                 f"- {obj.get('name')} @ ({obj.get('x')},{obj.get('y')},{obj.get('plane')}) "
-                f"actions={acts}"
+                f"path_distance={obj.get('path_distance')} actions={acts}"
+                + (" QUEST" if obj.get("quest_relevant") else "")
             )
 
+    ground_items = game_state.get("ground_items") or []
+    if ground_items:
+        lines.append("GROUND_ITEMS (nearest first, up to 15):")
+        for item in ground_items[:15]:
+            lines.append(
+                f"- {item.get('name')} x{item.get('quantity')} @ ({item.get('x')},{item.get('y')},{item.get('plane')})"
+                f" path_distance={item.get('path_distance')}"
+            )
+
+    last_action = game_state.get("last_action")
+    if last_action:
+        lines.append(
+            f"LAST_ACTION: {last_action.get('action')} -> {last_action.get('result')}"
+            f" ({last_action.get('reason')}), {last_action.get('ticks_ago')} ticks ago"
+        )
+
+    watches = game_state.get("watches") or {}
+    tripped = watches.get("tripped")
+    if tripped:
+        lines.append(
+            f"WATCH_TRIPPED: {tripped.get('id')} ({tripped.get('type')}, then={tripped.get('then')}),"
+            f" {tripped.get('ticks_ago')} ticks ago - this is why you are being asked now"
+        )
+
+    events = game_state.get("events") or []
+    if events:
+        lines.append("EVENTS since your last decision (oldest first, up to 20):")
+        for ev in events[-20:]:
+            what = " ".join(str(v) for v in (ev.get("type"), ev.get("subject"), ev.get("amount")) if v is not None)
+            lines.append(f"- {what} ({ev.get('ticks_ago')} ticks ago)")
+
     npc_text = dialog.get("npc_text")
     player_text = dialog.get("player_text")
     can_continue = dialog.get("can_continue", False)
-    lines.append(f"DIALOG.can_continue={can_continue}")
+    lines.append(f"DIALOG.type={dialog.get('type')}, can_continue={can_continue}")
     if npc_text:
-        lines.append(f"DIALOG.NPC: {npc_text}")
+        lines.append(f"DIALOG.NPC ({dialog.get('speaker')}): {npc_text}")
     if player_text:
         lines.append(f"DIALOG.PLAYER: {player_text}")
+    if dialog.get("type") not in (None, "npc", "player", "options") and dialog.get("text"):
+        lines.append(f"DIALOG.TEXT: {dialog.get('text')}")
+    if dialog.get("options"):
+        lines.append(f"DIALOG.OPTIONS ({dialog.get('prompt')}):")
+        for opt in dialog["options"]:
+            lines.append(f"  {opt.get('index')}. {opt.get('text')}")
+    script = dialog.get("script")
+    if script:
+        lines.append(
+            f"DIALOG.SCRIPT: status={script.get('status')}, remaining_choices={script.get('remaining_choices')}, "
+            f"exit_reason={script.get('exit_reason')}"
+        )
 
     if chat_log:
-        lines.append("CHAT_LOG (latest first):")
+        lines.append("CHAT_LOG (new since your last decision, oldest first):")
         for msg in chat_log[-10:]:
             lines.append(f"- {msg}")
 
@@ -199,13 +229,15 @@ def _call_llm_for_quest(client, game_state: Dict[str, Any], ctx: Dict[str, Any])
         "  - walk_to_tile\n"
         "  - talk_to_npc\n"
         "  - interact_object\n"
+        "  - pickup_item\n"
         "  - use_inventory_item\n"
         "  - dialog_continue\n"
+        "  - select_dialog_option\n"
         "  - adjust_camera\n"
         "  - wait\n\n"
         "Action JSON schema (strict):\n"
         "{\n"
-        '  "action": "walk_to_tile" | "talk_to_npc" | "interact_object" | "use_inventory_item" | "dialog_continue" | "adjust_camera" | "wait",\n'
+        '  "action": "walk_to_tile" | "talk_to_npc" | "interact_object" | "use_inventory_item" | "pickup_item" | "dialog_continue" | "select_dialog_option" | "adjust_camera" | "wait",\n'
         '  "target": null | {\n'
         '      "x": int,\n'
         '      "y": int,\n'
@@ -215,10 +247,14 @@ def _call_llm_for_quest(client, game_state: Dict[str, Any], ctx: Dict[str, Any])
         '      "slot": int,\n'
         '      "use_on_name": string\n'
         "  },\n"
+        '  "choices": (select_dialog_option only) [string],\n'
+        '  "watches": (optional, up to 8) [ { "type": "inventory_free_slots" | "dialog_opened" | "hp_below" | "npc_within", "id": string, "name": string, "count": int, "then": "decide" | "abort" } ],\n'
         '  "meta": { "reason": string }\n'
         "}\n\n"
         "Rules:\n"
-        " - Never invent map coordinates. For walking, only use the player's tile or a visible NPC tile.\n"
+        " - Never invent map coordinates. walk_to_tile may target any tile you have seen in game_state\n"
+        "   (even one now off-screen): the bot plans the route and keeps walking over several ticks.\n"
+        "   While game_state.walk.status is 'walking', prefer wait; if it is 'failed', pick another route.\n"
         " - Use interact_object for visible quest-relevant objects (e.g., trees, stoves, ladders).\n"
         " - Treat on-screen prompts (UI text, flashing arrows, quest hints) as the primary guidance.\n"
         "   If a prompt suggests combining/using items together, choose the interaction that follows it.\n"
@@ -226,10 +262,24 @@ def _call_llm_for_quest(client, game_state: Dict[str, Any], ctx: Dict[str, Any])
         "   * use an item directly (e.g. option='Use' or 'Eat'), optionally pointing to a slot.\n"
         "   * use an item on another inventory item by providing use_on_name.\n"
         " - Prioritise following explicit quest guidance before generic NPC interactions.\n"
+        " - QUEST_PROGRESS.stage is the game's own progress value for the quest (0 = not started);\n"
+        "   it only moves forward, so use it to tell which step of the quest comes next.\n"
+        " - pickup_item takes an item from GROUND_ITEMS: give its name and tile; the bot walks over to it.\n"
         " - Prefer dialog_continue when 'Click here to continue' is visible.\n"
+        " - When DIALOG.OPTIONS is shown, answer with select_dialog_option: target.slot is the option's\n"
+        "   index and target.option its text. Add \"choices\": [option texts] for the menus you expect\n"
+        "   later in the same conversation; the bot clicks through the pages in between and stops at the\n"
+        "   next menu with no choice left, or when the dialog closes. DIALOG.SCRIPT says how that went.\n"
         " - Prefer talk_to_npc to engage the next relevant quest NPC.\n"
+        " - NPCS and OBJECTS marked QUEST belong to the current quest; QUEST_INFO says who starts it and where.\n"
         " - If do_all_quests is true, stay focused on the current quest without idling.\n"
         " - Use wait only if absolutely nothing safe is available.\n"
+        " - Add \"watches\" to be asked again as soon as something happens instead of at the next\n"
+        "   scheduled decision, e.g. {\"type\": \"hp_below\", \"count\": 8, \"then\": \"abort\"} or\n"
+        "   {\"type\": \"npc_within\", \"name\": \"Goblin\", \"count\": 3}. Watches last until your next answer and\n"
+        "   trip when their condition starts to hold; \"abort\" also stops whatever the bot is doing.\n"
+        "   WATCH_TRIPPED names the one that fired.\n"
+        " - If LAST_ACTION is failure or no_op, do not repeat it unchanged: its reason says what went wrong.\n"
     )
 
     user_prompt = (
@@ -21,7 +21,8 @@ def _extract_text_state(game_state: Dict[str, Any], ctx: Dict[str, Any]) -> str:
         f"skill_target={ctx.get('skill_target')}, "
         f"target_level={ctx.get('skill_target_level')}, "
         f"budget_gp={ctx.get('skill_budget_gp')}, "
-        f"skilling_goal={ctx.get('skilling_goal')}"
+        f"skilling_goal={ctx.get('skilling_goal')}, "
+        f"behavior_loops={ctx.get('behavior_loops', True)}"
     )
 
     if player:
@@ -51,6 +52,45 @@ def _extract_text_state(game_state: Dict[str, Any], ctx: Dict[str, Any]) -> str:
                 f"actions={acts}"
             )
 
+    loop = game_state.get("loop")
+    if loop:
+        lines.append(
+            f"LOOP: status={loop.get('status')}, step={loop.get('step')}, "
+            f"iterations={loop.get('iterations')}, ticks={loop.get('ticks')}, "
+            f"exit_reason={loop.get('exit_reason')}"
+        )
+
+    ground_items = game_state.get("ground_items") or []
+    if ground_items:
+        lines.append("GROUND_ITEMS (nearest first, up to 15):")
+        for item in ground_items[:15]:
+            lines.append(
+                f"- {item.get('name')} x{item.get('quantity')} @ ({item.get('x')},{item.get('y')},{item.get('plane')})"
+                f" path_distance={item.get('path_distance')}"
+            )
+
+    last_action = game_state.get("last_action")
+    if last_action:
+        lines.append(
+            f"LAST_ACTION: {last_action.get('action')} -> {last_action.get('result')}"
+            f" ({last_action.get('reason')}), {last_action.get('ticks_ago')} ticks ago"
+        )
+
+    watches = game_state.get("watches") or {}
+    tripped = watches.get("tripped")
+    if tripped:
+        lines.append(
+            f"WATCH_TRIPPED: {tripped.get('id')} ({tripped.get('type')}, then={tripped.get('then')}),"
+            f" {tripped.get('ticks_ago')} ticks ago - this is why you are being asked now"
+        )
+
+    events = game_state.get("events") or []
+    if events:
+        lines.append("EVENTS since your last decision (oldest first, up to 20):")
+        for ev in events[-20:]:
+            what = " ".join(str(v) for v in (ev.get("type"), ev.get("subject"), ev.get("amount")) if v is not None)
+            lines.append(f"- {what} ({ev.get('ticks_ago')} ticks ago)")
+
     # Dialog
     npc_text = dialog.get("npc_text")
     player_text = dialog.get("player_text")
@@ -62,7 +102,7 @@ def _extract_text_state(game_state: Dict[str, Any], ctx: Dict[str, Any]) -> str:
         lines.append(f"DIALOG.PLAYER: {player_text}")
 
     if chat_log:
-        lines.append("CHAT_LOG (latest first):")
+        lines.append("CHAT_LOG (new since your last decision, oldest first):")
         for msg in chat_log[-10:]:
             lines.append(f"- {msg}")
 
@@ -84,12 +124,14 @@ def _call_llm_for_skill(client, game_state: Dict[str, Any], ctx: Dict[str, Any])
         "  - walk_to_tile\n"
         "  - talk_to_npc\n"
         "  - interact_object\n"
+        "  - pickup_item\n"
         "  - dialog_continue\n"
         "  - adjust_camera\n"
+        "  - run_loop\n"
         "  - wait\n\n"
         "Action JSON schema (strict):\n"
         "{\n"
-        '  \"action\": \"walk_to_tile\" | \"talk_to_npc\" | \"interact_object\" | \"dialog_continue\" | \"adjust_camera\" | \"wait\",\n'
+        '  \"action\": \"walk_to_tile\" | \"talk_to_npc\" | \"interact_object\" | \"pickup_item\" | \"dialog_continue\" | \"adjust_camera\" | \"run_loop\" | \"wait\",\n'
         "  \"target\": null | {\n"
         "      \"x\": int,\n"
         "      \"y\": int,\n"
@@ -97,8 +139,19 @@ def _call_llm_for_skill(client, game_state: Dict[str, Any], ctx: Dict[str, Any])
         "      \"name\": string,\n"
         "      \"option\": string\n"
         "  },\n"
+        "  \"loop\": (run_loop only) {\n"
+        "      \"steps\": [ { \"do\": \"interact_object\" | \"interact_npc\" | \"drop_item\" | \"wait\",\n"
+        "                   \"name\": string, \"option\": string, \"until\": condition,\n"
+        "                   \"timeout_ticks\": int } ],  (1-8 steps)\n"
+        "      \"repeat\": bool,\n"
+        "      \"exit_when\": condition,\n"
+        "      \"max_ticks\": int\n"
+        "  },\n"
+        "  \"watches\": (optional, up to 8) [ { \"type\": \"inventory_free_slots\" | \"dialog_opened\" | \"hp_below\" | \"npc_within\", \"id\": string, \"name\": string, \"count\": int, \"then\": \"decide\" | \"abort\" } ],\n"
         "  \"meta\": { \"reason\": string }\n"
-        "}\n\n"
+        "}\n"
+        "A condition is {\"type\": \"inventory_full\" | \"inventory_empty\" | \"has_item\" | \"lacks_item\""
+        " | \"skill_level\" | \"ticks\", \"name\": string, \"count\": int}.\n\n"
         "Additional rules:\n"
         " - Skill information:\n"
         "   * skill_target: which skill should be trained (e.g. Mining, Woodcutting).\n"
@@ -109,8 +162,21 @@ def _call_llm_for_skill(client, game_state: Dict[str, Any], ctx: Dict[str, Any])
         "   * Use the tile of a visible NPC you want to approach (like Banker, Grand Exchange Clerk).\n"
         " - Use interact_object for skilling spots like trees, rocks, or range fires that are visible.\n"
         " - Prefer talk_to_npc when interacting with Grand Exchange, bankers or skilling tutors.\n"
+        " - For repetitive training, prefer ONE run_loop over single clicks, e.g. steps\n"
+        "   [interact_object 'Copper rocks' option 'Mine' until inventory_full, drop_item 'Copper ore'],\n"
+        "   repeat true, exit_when skill_level Mining >= target. It runs locally every tick; you are\n"
+        "   asked again when it ends, and LOOP.exit_reason says why. A step fails after timeout_ticks\n"
+        "   (default 200) without a click or an inventory change.\n"
+        "   Never use run_loop when behavior_loops is False.\n"
+        " - pickup_item takes an item from GROUND_ITEMS: give its name and tile; the bot walks over to it.\n"
         " - Use dialog_continue if a dialogue is open.\n"
         " - Use wait if there is no obvious safe action.\n"
+        " - Add \"watches\" to be asked again as soon as something happens instead of at the next\n"
+        "   scheduled decision, e.g. {\"type\": \"hp_below\", \"count\": 8, \"then\": \"abort\"} or\n"
+        "   {\"type\": \"npc_within\", \"name\": \"Goblin\", \"count\": 3}. Watches last until your next answer and\n"
+        "   trip when their condition starts to hold; \"abort\" also stops whatever the bot is doing.\n"
+        "   WATCH_TRIPPED names the one that fired.\n"
+        " - If LAST_ACTION is failure or no_op, do not repeat it unchanged: its reason says what went wrong.\n"
     )
 
     user_prompt = (
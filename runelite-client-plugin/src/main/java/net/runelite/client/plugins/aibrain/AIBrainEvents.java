@@ -0,0 +1,120 @@
+package net.runelite.client.plugins.aibrain;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events emitted by the plugin, so plugin activity can be lined up with GC
+ * pauses and client-thread stalls in a recording. They cost next to nothing unless a recording
+ * enables them; see {@code runelite-client-plugin/jfr/aibrain.jfc} for a ready-made profile.
+ */
+final class AIBrainEvents
+{
+    private static final String CATEGORY = "AI Brain";
+
+    private AIBrainEvents()
+    {
+    }
+
+    @Name("aibrain.SnapshotPhase")
+    @Label("Snapshot Phase")
+    @Description("One section of buildGameState() on the client thread")
+    @Category({CATEGORY, "Snapshot"})
+    @StackTrace(false)
+    static final class SnapshotPhase extends Event
+    {
+        @Label("Phase")
+        String phase;
+
+        @Label("Entries")
+        int entries;
+    }
+
+    @Name("aibrain.MenuAction")
+    @Label("Menu Action Dispatch")
+    @Description("A client.menuAction call issued on behalf of the brain")
+    @Category({CATEGORY, "Dispatch"})
+    @StackTrace(false)
+    static final class MenuActionDispatch extends Event
+    {
+        @Label("Menu Action")
+        String menuAction;
+
+        @Label("Option")
+        String option;
+
+        @Label("Target")
+        String target;
+
+        @Label("Param0")
+        int param0;
+
+        @Label("Param1")
+        int param1;
+
+        @Label("Identifier")
+        int identifier;
+    }
+
+    @Name("aibrain.BrainRoundTrip")
+    @Label("Brain Round Trip")
+    @Description("A /decide request from enqueue until the winning response, failure or cancellation")
+    @Category({CATEGORY, "Brain"})
+    @StackTrace(false)
+    static final class BrainRoundTrip extends Event
+    {
+        @Label("Sequence Id")
+        long seq;
+
+        @Label("Request Size")
+        @DataAmount
+        long requestBytes;
+
+        @Label("Response Size")
+        @DataAmount
+        long responseBytes;
+
+        @Label("Outcome")
+        String outcome;
+
+        @Label("From Hedge")
+        boolean fromHedge;
+    }
+
+    @Name("aibrain.ActionQueueDrain")
+    @Label("Action Queue Drain")
+    @Description("Dispatch of queued brain actions in onGameTick")
+    @Category({CATEGORY, "Dispatch"})
+    @StackTrace(false)
+    static final class ActionQueueDrain extends Event
+    {
+        @Label("Actions Dispatched")
+        int dispatched;
+
+        @Label("Tick")
+        int tick;
+    }
+
+    static SnapshotPhase beginPhase(String phase)
+    {
+        SnapshotPhase event = new SnapshotPhase();
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    static void endPhase(SnapshotPhase event, int entries)
+    {
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.entries = entries;
+            event.commit();
+        }
+    }
+}
@@ -6,11 +6,20 @@ import javax.swing.*;
 import javax.swing.BorderFactory;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public class AIBrainPanel extends PluginPanel
 {
+    // Status updates and metrics are applied on one fixed-rate timer, so bursts of setStatus()
+    // calls from HTTP threads collapse into at most one EDT update per period.
+    private static final int REFRESH_PERIOD_MS = 250;
+    private static final int METRICS_EVERY_N_REFRESHES = 4;
+
     private final Runnable executeCallback;
     private final Runnable stopCallback;
+    private final Runnable modeChangeCallback;
 
     private final JComboBox<AIBrainMode> modeCombo;
     private final JComboBox<String> questCombo;
@@ -31,32 +40,31 @@ public class AIBrainPanel extends PluginPanel
     private final CardLayout cardLayout;
     private final JPanel cardPanel;
 
-    private static final String[] F2P_QUESTS = new String[]{
-            "Tutorial Island",
-            "Cook's Assistant",
-            "Sheep Shearer",
-            "The Restless Ghost",
-            "Rune Mysteries",
-            "Demon Slayer",
-            "Shield of Arrav",
-            "Vampire Slayer",
-            "Goblin Diplomacy",
-            "Imp Catcher",
-            "Doric's Quest",
-            "The Knight's Sword",
-            "Pirate's Treasure",
-            "Prince Ali Rescue",
-            "Black Knights' Fortress",
-            "Witch's Potion",
-            "The Corsair Curse",
-            "Below Ice Mountain",
-            "Dragon Slayer I"
-    };
-
-    public AIBrainPanel(Runnable executeCallback, Runnable stopCallback)
+    private final SparklinePanel decideSparkline;
+    private final JLabel rttLabel;
+    private final JLabel snapshotLabel;
+    private final JLabel captureLabel;
+    private final JLabel rateLabel;
+    private final JTextArea hitRatesLabel;
+
+    private final Timer refreshTimer;
+    private int refreshCount;
+
+    private volatile Supplier<PanelMetrics> metricsSource;
+    private volatile boolean statusDirty;
+    private volatile String pendingStatus = "Status: Idle";
+    private volatile String pendingDetails = "Last action: (none)";
+    private volatile boolean pendingRunning;
+
+    /**
+     * @param quests quest names in the order "do all quests" works through them
+     */
+    public AIBrainPanel(Runnable executeCallback, Runnable stopCallback, Runnable modeChangeCallback,
+                        List<String> quests)
     {
         this.executeCallback = executeCallback;
         this.stopCallback = stopCallback;
+        this.modeChangeCallback = modeChangeCallback;
 
         setLayout(new BorderLayout());
 
@@ -74,7 +82,14 @@ public class AIBrainPanel extends PluginPanel
         JLabel modeLabel = new JLabel("Mode:");
         modeCombo = new JComboBox<>(AIBrainMode.values());
         modeCombo.setMaximumSize(new Dimension(Integer.MAX_VALUE, modeCombo.getPreferredSize().height));
-        modeCombo.addActionListener(e -> updateModeCard());
+        modeCombo.addActionListener(e ->
+        {
+            updateModeCard();
+            if (modeChangeCallback != null)
+            {
+                modeChangeCallback.run();
+            }
+        });
         modeRow.add(modeLabel, BorderLayout.WEST);
         modeRow.add(modeCombo, BorderLayout.CENTER);
         modeRow.setAlignmentX(Component.LEFT_ALIGNMENT);
@@ -92,7 +107,7 @@ public class AIBrainPanel extends PluginPanel
         questCard.setAlignmentX(Component.LEFT_ALIGNMENT);
 
         questCard.add(new JLabel("Quest:"));
-        questCombo = new JComboBox<>(F2P_QUESTS);
+        questCombo = new JComboBox<>(quests.toArray(new String[0]));
         questCombo.setMaximumSize(new Dimension(Integer.MAX_VALUE, questCombo.getPreferredSize().height));
         questCard.add(questCombo);
         questCard.add(Box.createVerticalStrut(4));
@@ -201,7 +216,97 @@ public class AIBrainPanel extends PluginPanel
         JPanel statusPanel = wrapSection("Run status", statusBody);
         main.add(statusPanel);
 
+        main.add(Box.createVerticalStrut(8));
+
+        // ---- Performance ----
+        decideSparkline = new SparklinePanel();
+        decideSparkline.setAlignmentX(Component.LEFT_ALIGNMENT);
+        rttLabel = new JLabel("Round trip: –");
+        snapshotLabel = new JLabel("Snapshot: –");
+        captureLabel = new JLabel("Client thread: –");
+        rateLabel = new JLabel("Decisions/min: –");
+        hitRatesLabel = new JTextArea("");
+        hitRatesLabel.setLineWrap(true);
+        hitRatesLabel.setWrapStyleWord(true);
+        hitRatesLabel.setEditable(false);
+        hitRatesLabel.setOpaque(false);
+        hitRatesLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        JPanel metricsBody = new JPanel();
+        metricsBody.setLayout(new BoxLayout(metricsBody, BoxLayout.Y_AXIS));
+        metricsBody.add(new JLabel("Decide latency (recent):"));
+        metricsBody.add(decideSparkline);
+        metricsBody.add(rttLabel);
+        metricsBody.add(snapshotLabel);
+        metricsBody.add(captureLabel);
+        metricsBody.add(rateLabel);
+        metricsBody.add(hitRatesLabel);
+
+        JPanel metricsPanel = wrapSection("Performance", metricsBody);
+        main.add(metricsPanel);
+
         updateModeCard();
+
+        refreshTimer = new Timer(REFRESH_PERIOD_MS, e -> refresh());
+        refreshTimer.setCoalesce(true);
+        refreshTimer.start();
+    }
+
+    void setMetricsSource(Supplier<PanelMetrics> metricsSource)
+    {
+        this.metricsSource = metricsSource;
+    }
+
+    void stopRefresh()
+    {
+        refreshTimer.stop();
+    }
+
+    private void refresh()
+    {
+        if (statusDirty)
+        {
+            statusDirty = false;
+            String status = pendingStatus;
+            String details = pendingDetails;
+            statusLabel.setText(status != null ? status : "");
+            actionLabel.setText(details != null ? details : "");
+            executeButton.setEnabled(!pendingRunning);
+            stopButton.setEnabled(true);
+        }
+
+        if (++refreshCount % METRICS_EVERY_N_REFRESHES == 0)
+        {
+            refreshMetrics();
+        }
+    }
+
+    private void refreshMetrics()
+    {
+        Supplier<PanelMetrics> source = metricsSource;
+        PanelMetrics m = source != null ? source.get() : null;
+        if (m == null)
+        {
+            return;
+        }
+
+        decideSparkline.setValues(m.recentDecideMs());
+        rttLabel.setText(String.format("Round trip: p50 %d ms · p95 %d ms", m.rttP50Ms(), m.rttP95Ms()));
+        snapshotLabel.setText(String.format("Snapshot: %.1f KB", m.lastSnapshotBytes() / 1024.0));
+        captureLabel.setText("Client thread: p50 " + DecisionMetrics.formatMicros(m.captureP50Micros())
+                + " · p95 " + DecisionMetrics.formatMicros(m.captureP95Micros()));
+        rateLabel.setText(String.format("Decisions/min: %.1f", m.decisionsPerMinute()));
+
+        StringBuilder rates = new StringBuilder();
+        for (Map.Entry<String, String> e : m.rates().entrySet())
+        {
+            if (rates.length() > 0)
+            {
+                rates.append('\n');
+            }
+            rates.append(e.getKey()).append(": ").append(e.getValue());
+        }
+        hitRatesLabel.setText(rates.toString());
     }
 
     private JPanel wrapSection(String title, JComponent body)
@@ -244,6 +349,14 @@ public class AIBrainPanel extends PluginPanel
         return doAllQuestsCheck.isSelected();
     }
 
+    /**
+     * Thread-safe; the selection changes on the EDT.
+     */
+    void selectQuest(String quest)
+    {
+        SwingUtilities.invokeLater(() -> questCombo.setSelectedItem(quest));
+    }
+
     String getSkillName()
     {
         Object v = skillCombo.getSelectedItem();
@@ -272,14 +385,14 @@ public class AIBrainPanel extends PluginPanel
         return manualGoalField.getText().trim();
     }
 
+    /**
+     * Thread-safe; the latest values are applied on the next refresh tick.
+     */
     void setStatus(String status, String details, boolean running)
     {
-        SwingUtilities.invokeLater(() ->
-        {
-            statusLabel.setText(status != null ? status : "");
-            actionLabel.setText(details != null ? details : "");
-            executeButton.setEnabled(!running);
-            stopButton.setEnabled(true);
-        });
+        pendingStatus = status;
+        pendingDetails = details;
+        pendingRunning = running;
+        statusDirty = true;
     }
 }
\ No newline at end of file
@@ -9,27 +9,44 @@ import javax.inject.Inject;
 
 import lombok.extern.slf4j.Slf4j;
 
+import net.runelite.api.Actor;
 import net.runelite.api.ChatMessageType;
 import net.runelite.api.Client;
 import net.runelite.api.GameObject;
 import net.runelite.api.GameState;
+import net.runelite.api.Hitsplat;
 import net.runelite.api.ItemComposition;
 import net.runelite.api.ObjectComposition;
 import net.runelite.api.Skill;
 import net.runelite.api.Tile;
+import net.runelite.api.TileItem;
+import net.runelite.api.TileObject;
 import net.runelite.api.InventoryID;
 import net.runelite.api.Item;
 import net.runelite.api.ItemContainer;
 import net.runelite.api.MenuAction;
 import net.runelite.api.NPC;
 import net.runelite.api.NPCComposition;
+import net.runelite.api.Player;
 import net.runelite.api.coords.LocalPoint;
 import net.runelite.api.coords.WorldPoint;
 import net.runelite.api.events.ChatMessage;
+import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.GameTick;
+import net.runelite.api.events.HitsplatApplied;
+import net.runelite.api.events.ItemContainerChanged;
+import net.runelite.api.events.ItemDespawned;
+import net.runelite.api.events.ItemQuantityChanged;
+import net.runelite.api.events.ItemSpawned;
+import net.runelite.api.events.NpcDespawned;
+import net.runelite.api.events.NpcSpawned;
+import net.runelite.api.events.StatChanged;
+import net.runelite.api.events.VarbitChanged;
+import net.runelite.api.events.WallObjectDespawned;
+import net.runelite.api.events.WallObjectSpawned;
 import net.runelite.api.widgets.WidgetInfo;
-import net.runelite.api.widgets.Widget;
 
+import net.runelite.client.RuneLite;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.Subscribe;
@@ -38,15 +55,23 @@ import net.runelite.client.plugins.PluginDescriptor;
 import net.runelite.client.ui.ClientToolbar;
 import net.runelite.client.ui.NavigationButton;
 
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
-
 import java.awt.image.BufferedImage;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ToLongFunction;
 
 @Slf4j
 @PluginDescriptor(
@@ -56,12 +81,76 @@ import java.util.Deque;
 )
 public class AIBrainPlugin extends Plugin
 {
-    private static final Gson GSON = new Gson();
-    private static final MediaType JSON_MEDIA_TYPE =
-            MediaType.parse("application/json; charset=utf-8");
+    static final Gson GSON = new Gson();
 
     private static final int AUTO_DECISION_INTERVAL_TICKS = 12;
-    private static final int MAX_CHAT_LOG = 50;
+    // Scanned sections older than this are rescanned in full before a snapshot is sent.
+    private static final int SCAN_MAX_AGE_TICKS = 2 * AUTO_DECISION_INTERVAL_TICKS;
+    // Unacknowledged chat messages beyond the newest this many are left out of snapshots.
+    private static final int MAX_CHAT_LOG = 20;
+    private static final Set<ChatMessageType> CHAT_LOG_TYPES = EnumSet.of(
+            ChatMessageType.GAMEMESSAGE,
+            ChatMessageType.ENGINE,
+            ChatMessageType.SPAM,
+            ChatMessageType.BROADCAST);
+    // Ticks after dispatch within which an action must show one of its expected effects.
+    private static final int WALK_WINDOW_TICKS = 3;
+    private static final int TALK_WINDOW_TICKS = 12;
+    private static final int INTERACT_WINDOW_TICKS = 10;
+    private static final int USE_ITEM_WINDOW_TICKS = 4;
+    private static final int DIALOG_WINDOW_TICKS = 3;
+    private static final int PICKUP_WINDOW_TICKS = 10;
+    private static final Set<ActionOutcomeTracker.Effect> WALK_EFFECTS =
+            EnumSet.of(ActionOutcomeTracker.Effect.MOVED);
+    private static final Set<ActionOutcomeTracker.Effect> TALK_EFFECTS =
+            EnumSet.of(ActionOutcomeTracker.Effect.DIALOG);
+    private static final Set<ActionOutcomeTracker.Effect> INTERACT_EFFECTS = EnumSet.of(
+            ActionOutcomeTracker.Effect.INTERACTING,
+            ActionOutcomeTracker.Effect.ANIMATING,
+            ActionOutcomeTracker.Effect.DIALOG,
+            ActionOutcomeTracker.Effect.INVENTORY);
+    private static final Set<ActionOutcomeTracker.Effect> USE_ITEM_EFFECTS = EnumSet.of(
+            ActionOutcomeTracker.Effect.ANIMATING,
+            ActionOutcomeTracker.Effect.DIALOG,
+            ActionOutcomeTracker.Effect.INVENTORY);
+    private static final Set<ActionOutcomeTracker.Effect> DIALOG_EFFECTS =
+            EnumSet.of(ActionOutcomeTracker.Effect.DIALOG);
+    private static final Set<ActionOutcomeTracker.Effect> PICKUP_EFFECTS =
+            EnumSet.of(ActionOutcomeTracker.Effect.INVENTORY);
+    // Tiles the reachability fill expands per game tick; a full fill is a few thousand.
+    private static final int REACH_TILES_PER_TICK = 2048;
+    private static final int METRICS_LOG_INTERVAL = 20;
+    private static final long COLLISION_SAVE_INTERVAL_MS = 60_000;
+    // How far from its listed tile an NPC offering a transport may have wandered.
+    private static final int TRANSPORT_NPC_RADIUS = 10;
+    // How far from its snapshot tile an NPC may have wandered and still count as the one the brain meant.
+    private static final int NPC_DRIFT_TILES = 3;
+    // NPCs spawning or despawning further from the player than this are left out of the event journal.
+    private static final int JOURNAL_NPC_RADIUS = 15;
+    // Ground items further from the player than this, or past the nearest this many, are left out of snapshots.
+    private static final int GROUND_ITEM_RADIUS = 20;
+    private static final int MAX_GROUND_ITEMS = 30;
+    private static final MenuAction[] OBJECT_OPTIONS = {
+            MenuAction.GAME_OBJECT_FIRST_OPTION,
+            MenuAction.GAME_OBJECT_SECOND_OPTION,
+            MenuAction.GAME_OBJECT_THIRD_OPTION,
+            MenuAction.GAME_OBJECT_FOURTH_OPTION,
+            MenuAction.GAME_OBJECT_FIFTH_OPTION
+    };
+    private static final MenuAction[] NPC_OPTIONS = {
+            MenuAction.NPC_FIRST_OPTION,
+            MenuAction.NPC_SECOND_OPTION,
+            MenuAction.NPC_THIRD_OPTION,
+            MenuAction.NPC_FOURTH_OPTION,
+            MenuAction.NPC_FIFTH_OPTION
+    };
+    private static final MenuAction[] ITEM_OPTIONS = {
+            MenuAction.ITEM_FIRST_OPTION,
+            MenuAction.ITEM_SECOND_OPTION,
+            MenuAction.ITEM_THIRD_OPTION,
+            MenuAction.ITEM_FOURTH_OPTION,
+            MenuAction.ITEM_FIFTH_OPTION
+    };
 
     @Inject
     private Client client;
@@ -75,10 +164,11 @@ public class AIBrainPlugin extends Plugin
     @Inject
     private ClientToolbar clientToolbar;
 
-    private final OkHttpClient httpClient = new OkHttpClient();
+    private BrainTransport transport;
 
     private WorldPoint queuedWalkTarget;
     private String queuedTalkNpcName;
+    private WorldPoint queuedTalkNpcTile;
     private WorldPoint queuedObjectTarget;
     private String queuedObjectName;
     private String queuedObjectOption;
@@ -86,12 +176,302 @@ public class AIBrainPlugin extends Plugin
     private String queuedUseItemOnName;
     private String queuedUseItemOption;
     private Integer queuedUseItemSlot;
+    private String queuedPickupName;
+    private WorldPoint queuedPickupTile;
     private boolean queuedCameraAdjust;
     private boolean queuedDialogContinue;
+    private Integer queuedDialogOptionIndex;
+    private String queuedDialogOptionText;
+    private List<String> queuedDialogChoices;
+    private volatile BehaviorLoop queuedLoop;
+    private volatile DecisionTrace queuedTrace;
 
     private boolean aiPaused;
 
-    private final Deque<String> chatLog = new ArrayDeque<>();
+    private final DecisionMetrics decisionMetrics = new DecisionMetrics();
+    private volatile long lastSnapshotBytes;
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final MetricsRegistry.Counter decisionsCounter =
+            metrics.counter("aibrain_decisions_total", "Decisions completed (parsed, and dispatched if they queued an action)");
+    private final MetricsRegistry.Counter malformedCounter =
+            metrics.counter("aibrain_errors_total", "Failed decisions by error type", "type", "malformed_response");
+    private final MetricsRegistry.Counter breakerDroppedCounter =
+            metrics.counter("aibrain_requests_dropped_total", "Decisions not sent to the brain", "reason", "breaker_open");
+    private final MetricsRegistry.Counter actionsDispatchedCounter =
+            metrics.counter("aibrain_actions_dispatched_total", "Queued actions dispatched on a game tick");
+    private MetricsHttpExporter metricsExporter;
+    private MetricsMBean metricsMBean;
+    private boolean metricsRegistered;
+    private volatile SessionRecorder recorder;
+
+    private final ChatRing chatRing = new ChatRing();
+    private final SnapshotSections snapshotSections = new SnapshotSections(GSON);
+    // The scanner's UI text list the ui_text section was last checked against; client thread only.
+    private List<IncrementalSceneScanner.UiEntry> snapshotUiText;
+    // The newest chat message the last snapshot built carried; client thread only.
+    private long lastSnapshotChatSequence;
+    private final EventJournal eventJournal = new EventJournal();
+    // Baselines the journal diffs events against; -1 / null until the first event after login.
+    private final int[] journalXp = new int[Skill.values().length];
+    private final int[] journalLevels = new int[Skill.values().length];
+    private Map<Integer, Integer> journalInventory;
+    private boolean journalDialogOpen;
+
+    private volatile QuestCatalog questCatalog = QuestCatalog.EMPTY;
+    private volatile QuestProgressTracker questProgress = new QuestProgressTracker(QuestCatalog.EMPTY);
+    private final QuestProgressTracker.Vars questVars = new QuestProgressTracker.Vars()
+    {
+        @Override
+        public int varp(int id)
+        {
+            return client.getVarpValue(id);
+        }
+
+        @Override
+        public int varbit(int id)
+        {
+            return client.getVarbitValue(id);
+        }
+    };
+    // The completed quest "do all quests" last moved on from, so it moves on only once.
+    private QuestCatalog.Quest questAdvancedFrom;
+    private final IncrementalSceneScanner sceneScanner = new IncrementalSceneScanner();
+    private final GroundItemIndex groundItems = new GroundItemIndex(id ->
+    {
+        ItemComposition comp = client.getItemDefinition(id);
+        return comp != null ? comp.getName() : null;
+    });
+
+    private final CollisionCache collisionCache = new CollisionCache();
+    private final PathWalker pathWalker = new PathWalker(new LocalPathfinder(collisionCache));
+    private final PathWalker.Actions walkerActions = new PathWalker.Actions()
+    {
+        @Override
+        public boolean inScene(WorldPoint tile)
+        {
+            return LocalPoint.fromWorld(client, tile) != null;
+        }
+
+        @Override
+        public void walk(WorldPoint tile)
+        {
+            clickWalk(LocalPoint.fromWorld(client, tile));
+        }
+
+        @Override
+        public void use(TransportTable.Transport transport)
+        {
+            issueTransport(transport);
+        }
+    };
+    private final ReachabilityMap reachability = new ReachabilityMap();
+    private final ActionOutcomeTracker actionOutcomes = new ActionOutcomeTracker();
+    private final MetricsRegistry.Counter outcomeSuccessCounter =
+            metrics.counter("aibrain_action_outcomes_total", "Brain actions by observed outcome", "result", "success");
+    private final MetricsRegistry.Counter outcomeFailureCounter =
+            metrics.counter("aibrain_action_outcomes_total", "Brain actions by observed outcome", "result", "failure");
+    private final MetricsRegistry.Counter outcomeNoOpCounter =
+            metrics.counter("aibrain_action_outcomes_total", "Brain actions by observed outcome", "result", "no_op");
+    private final MetricsRegistry.Counter unreachableNpcsCounter =
+            metrics.counter("aibrain_snapshot_unreachable_total", "Entities left out of snapshots as unreachable, by kind", "kind", "npc");
+    private final MetricsRegistry.Counter unreachableObjectsCounter =
+            metrics.counter("aibrain_snapshot_unreachable_total", "Entities left out of snapshots as unreachable, by kind", "kind", "object");
+    private final MetricsRegistry.Counter unreachableGroundItemsCounter =
+            metrics.counter("aibrain_snapshot_unreachable_total", "Entities left out of snapshots as unreachable, by kind", "kind", "ground_item");
+    private final MetricsRegistry.Counter targetValidCounter =
+            metrics.counter("aibrain_dispatch_revalidations_total", "Queued brain actions by what dispatch found of their target", "outcome", "valid");
+    private final MetricsRegistry.Counter targetRetargetedCounter =
+            metrics.counter("aibrain_dispatch_revalidations_total", "Queued brain actions by what dispatch found of their target", "outcome", "retargeted");
+    private final MetricsRegistry.Counter targetMissingCounter =
+            metrics.counter("aibrain_dispatch_revalidations_total", "Queued brain actions by what dispatch found of their target", "outcome", "missing");
+    private final MetricsRegistry.Counter staleDroppedCounter =
+            metrics.counter("aibrain_dispatch_revalidations_total", "Queued brain actions by what dispatch found of their target", "outcome", "stale");
+    private final DialogScript dialogScript = new DialogScript();
+    private final DialogScript.Actions dialogActions = new DialogScript.Actions()
+    {
+        @Override
+        public void continueDialog(int widget)
+        {
+            dispatchMenuAction(-1, widget, MenuAction.WIDGET_CONTINUE, 0, -1, "Continue", "");
+        }
+
+        @Override
+        public void selectOption(int index)
+        {
+            issueSelectDialogOption(index);
+        }
+    };
+    private final WatchSet watchSet = new WatchSet();
+    // Watches from the latest parsed response, armed on the next game tick.
+    private volatile WatchSet.Pending pendingWatches;
+    // The watch whose trip triggered the decision being captured; client thread only.
+    private WatchSet.Trip watchTrip;
+    private final WatchSet.Game watchGame = new WatchSet.Game()
+    {
+        @Override
+        public int freeInventorySlots()
+        {
+            return LoopInterpreter.INVENTORY_SLOTS - loopGame.usedInventorySlots();
+        }
+
+        @Override
+        public boolean isDialogOpen()
+        {
+            // Read by journalDialog() at the start of this tick.
+            return journalDialogOpen;
+        }
+
+        @Override
+        public int hitpoints()
+        {
+            return client.getBoostedSkillLevel(Skill.HITPOINTS);
+        }
+
+        @Override
+        public int npcDistance(String name)
+        {
+            Player player = client.getLocalPlayer();
+            if (player == null)
+            {
+                return -1;
+            }
+
+            WorldPoint from = player.getWorldLocation();
+            int best = -1;
+            for (NPC npc : client.getNpcs())
+            {
+                WorldPoint at = npc.getWorldLocation();
+                if (at == null || at.getPlane() != from.getPlane() || !name.equalsIgnoreCase(npc.getName()))
+                {
+                    continue;
+                }
+                int d = at.distanceTo(from);
+                if (best < 0 || d < best)
+                {
+                    best = d;
+                }
+            }
+            return best;
+        }
+    };
+    private final LoopInterpreter loopInterpreter = new LoopInterpreter();
+    private final LoopInterpreter.Game loopGame = new LoopInterpreter.Game()
+    {
+        @Override
+        public int usedInventorySlots()
+        {
+            ItemContainer inv = client.getItemContainer(InventoryID.INVENTORY);
+            int used = 0;
+            if (inv != null)
+            {
+                for (Item it : inv.getItems())
+                {
+                    if (it != null && it.getId() > 0)
+                    {
+                        used++;
+                    }
+                }
+            }
+            return used;
+        }
+
+        @Override
+        public int countItem(String name)
+        {
+            ItemContainer inv = client.getItemContainer(InventoryID.INVENTORY);
+            int count = 0;
+            if (inv != null)
+            {
+                for (Item it : inv.getItems())
+                {
+                    ItemComposition comp = it != null && it.getId() > 0 ? client.getItemDefinition(it.getId()) : null;
+                    if (comp != null && name.equalsIgnoreCase(comp.getName()))
+                    {
+                        count += it.getQuantity();
+                    }
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public int skillLevel(String skill)
+        {
+            for (Skill s : Skill.values())
+            {
+                if (s.getName().equalsIgnoreCase(skill))
+                {
+                    return client.getRealSkillLevel(s);
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int hitpoints()
+        {
+            return client.getBoostedSkillLevel(Skill.HITPOINTS);
+        }
+
+        @Override
+        public boolean isAnimating()
+        {
+            return client.getLocalPlayer() != null && client.getLocalPlayer().getAnimation() != -1;
+        }
+
+        @Override
+        public boolean isDialogOpen()
+        {
+            return DialogReader.read(client).isOpen();
+        }
+
+        @Override
+        public boolean interactObject(String name, String option)
+        {
+            return issueNearestObjectOption(name, option);
+        }
+
+        @Override
+        public boolean interactNpc(String name, String option)
+        {
+            return issueNearestNpcOption(name, option);
+        }
+
+        @Override
+        public boolean dropItem(String name)
+        {
+            return issueItemOption(name, "Drop");
+        }
+    };
+    private final MetricsRegistry.Counter loopActionsCounter =
+            metrics.counter("aibrain_loop_actions_total", "Actions issued by behaviour loops without asking the brain");
+    private final MetricsRegistry.Counter dialogScriptsFinishedCounter =
+            metrics.counter("aibrain_dialog_scripts_total", "Conversations talked through after select_dialog_option, by outcome", "outcome", "finished");
+    private final MetricsRegistry.Counter dialogScriptsFailedCounter =
+            metrics.counter("aibrain_dialog_scripts_total", "Conversations talked through after select_dialog_option, by outcome", "outcome", "failed");
+    private final MetricsRegistry.Counter dialogScriptActionsCounter =
+            metrics.counter("aibrain_dialog_script_actions_total", "Dialog pages continued and options selected without asking the brain");
+    private final MetricsRegistry.Counter watchDecideCounter =
+            metrics.counter("aibrain_watch_trips_total", "Brain-registered watches that tripped between decisions, by what they did", "then", "decide");
+    private final MetricsRegistry.Counter watchAbortCounter =
+            metrics.counter("aibrain_watch_trips_total", "Brain-registered watches that tripped between decisions, by what they did", "then", "abort");
+    private final MetricsRegistry.Counter loopsFinishedCounter =
+            metrics.counter("aibrain_loops_total", "Behaviour loops ended, by outcome", "outcome", "finished");
+    private final MetricsRegistry.Counter loopsInterruptedCounter =
+            metrics.counter("aibrain_loops_total", "Behaviour loops ended, by outcome", "outcome", "interrupted");
+    private final MetricsRegistry.Counter loopsFailedCounter =
+            metrics.counter("aibrain_loops_total", "Behaviour loops ended, by outcome", "outcome", "failed");
+    private final MetricsRegistry.Counter walksArrivedCounter =
+            metrics.counter("aibrain_walks_total", "Long-distance walks finished, by outcome", "outcome", "arrived");
+    private final MetricsRegistry.Counter walksFailedCounter =
+            metrics.counter("aibrain_walks_total", "Long-distance walks finished, by outcome", "outcome", "failed");
+    private ExecutorService collisionIo;
+    private volatile boolean travelGraphReady;
+    private volatile TravelGraph travelGraph;
+    private boolean travelGraphUnavailable;
+    private boolean collisionCaptureDue;
+    private long lastCollisionSaveMillis;
 
     private AIBrainPanel panel;
     private NavigationButton navButton;
@@ -105,6 +485,7 @@ public class AIBrainPlugin extends Plugin
 
         queuedWalkTarget = null;
         queuedTalkNpcName = null;
+        queuedTalkNpcTile = null;
         queuedObjectTarget = null;
         queuedObjectName = null;
         queuedObjectOption = null;
@@ -112,16 +493,46 @@ public class AIBrainPlugin extends Plugin
         queuedUseItemOnName = null;
         queuedUseItemOption = null;
         queuedUseItemSlot = null;
+        queuedPickupName = null;
+        queuedPickupTile = null;
         queuedCameraAdjust = false;
         queuedDialogContinue = false;
+        queuedDialogOptionIndex = null;
+        queuedDialogOptionText = null;
+        queuedDialogChoices = null;
+        queuedLoop = null;
+        pendingWatches = null;
         aiPaused = false;
-        synchronized (chatLog)
+        chatRing.clear();
+        clientThread.invoke(() ->
         {
-            chatLog.clear();
-        }
+            eventJournal.clear();
+            resetJournalBaselines();
+            watchSet.clear();
+            watchTrip = null;
+            // Items that spawned while the plugin was off never reached the index.
+            rebuildGroundItems();
+            // Nor did the stat and inventory changes the cached sections depend on.
+            snapshotSections.invalidateAll();
+        });
         autoTickCounter = 0;
 
-        panel = new AIBrainPanel((Runnable) this::executeOnceFromUI, (Runnable) this::stopExecutionFromUI);
+        BrainCircuitBreaker breaker = new BrainCircuitBreaker(
+                config.breakerFailureRatePercent(),
+                config.breakerSlowCallMs(),
+                config.breakerCooldownSeconds() * 1000L);
+        transport = new BrainTransport(Math.max(100, config.connectTimeoutMs()), breaker);
+        startMetricsExport();
+        startRecording();
+        loadCollisionCache();
+        loadQuestCatalog();
+
+        panel = new AIBrainPanel(
+                (Runnable) this::executeOnceFromUI,
+                (Runnable) this::stopExecutionFromUI,
+                (Runnable) this::modeChangedFromUI,
+                questCatalog.getNames());
+        panel.setMetricsSource(this::buildPanelMetrics);
 
         BufferedImage dummyIcon = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
 
@@ -142,6 +553,7 @@ public class AIBrainPlugin extends Plugin
 
         queuedWalkTarget = null;
         queuedTalkNpcName = null;
+        queuedTalkNpcTile = null;
         queuedObjectTarget = null;
         queuedObjectName = null;
         queuedObjectOption = null;
@@ -149,887 +561,2909 @@ public class AIBrainPlugin extends Plugin
         queuedUseItemOnName = null;
         queuedUseItemOption = null;
         queuedUseItemSlot = null;
+        queuedPickupName = null;
+        queuedPickupTile = null;
         queuedCameraAdjust = false;
         queuedDialogContinue = false;
+        queuedDialogOptionIndex = null;
+        queuedDialogOptionText = null;
+        queuedDialogChoices = null;
+        queuedLoop = null;
+        pendingWatches = null;
         aiPaused = false;
-        synchronized (chatLog)
+        chatRing.clear();
+
+        stopMetricsExport();
+        stopRecording();
+        saveCollisionCache();
+        if (collisionIo != null)
+        {
+            collisionIo.shutdown();
+            collisionIo = null;
+        }
+        travelGraphReady = false;
+        travelGraphUnavailable = false;
+        travelGraph = null;
+        clientThread.invoke(() ->
         {
-            chatLog.clear();
+            pathWalker.cancel();
+            groundItems.clear();
+        });
+
+        if (transport != null)
+        {
+            transport.shutdown();
+            transport = null;
         }
 
         if (clientToolbar != null && navButton != null)
         {
             clientToolbar.removeNavigation(navButton);
         }
+        if (panel != null)
+        {
+            panel.stopRefresh();
+        }
         navButton = null;
         panel = null;
     }
 
-    // ===== UI helpers =====
+    // ===== Metrics =====
 
-    AIBrainMode getCurrentMode()
+    private void startMetricsExport()
     {
-        if (panel != null)
+        // Supplier-backed series read the current transport at scrape time; register them once.
+        if (!metricsRegistered)
         {
-            return panel.getSelectedMode();
+            registerMetrics();
+            metricsRegistered = true;
         }
-        return AIBrainMode.QUEST;
-    }
 
-    String getCurrentQuest()
-    {
-        if (panel != null)
+        int port = config.metricsHttpPort();
+        if (port > 0)
         {
-            String q = panel.getQuestName();
-            if (q != null && !q.trim().isEmpty())
+            try
             {
-                return q.trim();
+                metricsExporter = new MetricsHttpExporter(metrics, port);
+                metricsExporter.start();
+            }
+            catch (IOException e)
+            {
+                log.warn("Unable to start AI Brain metrics listener on port {}", port, e);
+                metricsExporter = null;
             }
         }
-        return "Cook's Assistant";
-    }
-
-    boolean isDoAllQuests()
-    {
-        return panel != null && panel.isDoAllQuests();
-    }
 
-    String getSkillName()
-    {
-        if (panel != null)
+        if (config.metricsJmxEnabled())
         {
-            String s = panel.getSkillName();
-            if (s != null && !s.trim().isEmpty())
+            try
             {
-                return s.trim();
+                metricsMBean = new MetricsMBean(metrics);
+                metricsMBean.register();
+            }
+            catch (Exception | LinkageError e)
+            {
+                log.warn("Unable to register AI Brain metrics MBean", e);
+                metricsMBean = null;
             }
         }
-        return "Mining";
     }
 
-    int getSkillTargetLevel()
+    private void stopMetricsExport()
     {
-        if (panel != null)
+        if (metricsExporter != null)
         {
-            int v = panel.getTargetLevel();
-            if (v < 1) v = 1;
-            if (v > 99) v = 99;
-            return v;
+            metricsExporter.stop();
+            metricsExporter = null;
         }
-        return 10;
-    }
 
-    int getSkillBudget()
-    {
-        if (panel != null)
+        if (metricsMBean != null)
         {
-            int v = panel.getBudgetGp();
-            if (v < 0) v = 0;
-            return v;
+            metricsMBean.unregister();
+            metricsMBean = null;
         }
-        return 5000;
     }
 
-    String getSkillingGoal()
+    private void registerMetrics()
     {
-        if (panel != null)
+        metrics.counter("aibrain_recorder_entries_total", "Session recorder entries, by outcome",
+                () -> recorderValue(SessionRecorder::getRecorded), "outcome", "written");
+        metrics.counter("aibrain_recorder_entries_total", "Session recorder entries, by outcome",
+                () -> recorderValue(SessionRecorder::getDropped), "outcome", "dropped");
+        metrics.counter("aibrain_recorder_bytes_total", "Bytes written to session segments",
+                () -> recorderValue(SessionRecorder::getBytesWritten));
+        metrics.counter("aibrain_errors_total", "Failed decisions by error type",
+                () -> transportValue(BrainTransport::getTimeouts), "type", "timeout");
+        metrics.counter("aibrain_errors_total", "Failed decisions by error type",
+                () -> transportValue(BrainTransport::getHttpErrors), "type", "http");
+        metrics.counter("aibrain_errors_total", "Failed decisions by error type",
+                () -> transportValue(BrainTransport::getIoErrors), "type", "io");
+        metrics.counter("aibrain_requests_dropped_total", "Decisions not sent to the brain",
+                () -> transportValue(BrainTransport::getSuperseded), "reason", "superseded");
+        metrics.counter("aibrain_requests_dropped_total", "Decisions not sent to the brain",
+                () -> transportValue(BrainTransport::getCancelled), "reason", "cancelled");
+        metrics.counter("aibrain_requests_total", "/decide requests sent, by leg",
+                () -> transportValue(BrainTransport::currentSequence), "leg", "primary");
+        metrics.counter("aibrain_requests_total", "/decide requests sent, by leg",
+                () -> transportValue(BrainTransport::getHedgesSent), "leg", "hedge");
+        metrics.counter("aibrain_hedge_wins_total", "Decisions answered first by the secondary brain",
+                () -> transportValue(BrainTransport::getHedgeWins));
+        metrics.counter("aibrain_payload_bytes_total", "Bytes exchanged with the brain",
+                () -> transportValue(BrainTransport::getRequestBytes), "direction", "request");
+        metrics.counter("aibrain_payload_bytes_total", "Bytes exchanged with the brain",
+                () -> transportValue(BrainTransport::getResponseBytes), "direction", "response");
+
+        metrics.gauge("aibrain_last_snapshot_bytes", "Size of the most recent snapshot", () -> lastSnapshotBytes);
+        metrics.gauge("aibrain_queue_depth", "Items waiting in each queue",
+                this::countQueuedActions, "queue", "actions");
+        metrics.gauge("aibrain_queue_depth", "Items waiting in each queue",
+                () -> transportValue(BrainTransport::getInFlightCount), "queue", "decisions_in_flight");
+        metrics.gauge("aibrain_queue_depth", "Items waiting in each queue",
+                () -> transportValue(BrainTransport::getQueuedCallCount), "queue", "http_dispatcher");
+        metrics.gauge("aibrain_breaker_state", "Circuit breaker state (0 closed, 1 half-open, 2 open)", () ->
         {
-            String s = panel.getSkillGoal();
-            if (s != null && !s.trim().isEmpty())
+            BrainTransport t = transport;
+            if (t == null)
             {
-                return s.trim();
+                return 0;
             }
+            switch (t.getBreaker().getState())
+            {
+                case OPEN:
+                    return 2;
+                case HALF_OPEN:
+                    return 1;
+                case CLOSED:
+                default:
+                    return 0;
+            }
+        });
+
+        for (IncrementalSceneScanner.Section section : IncrementalSceneScanner.Section.values())
+        {
+            metrics.counter("aibrain_scan_sweeps_total", "Completed incremental scan sweeps, by section",
+                    () -> sceneScanner.getSweepsCompleted(section), "section", section.name().toLowerCase());
         }
-        return "Train the selected skill safely.";
+        // The tracker is replaced each time the plugin starts, so read the field on every scrape.
+        metrics.gauge("aibrain_quests_complete", "F2P quests the game reports as complete",
+                () -> questProgress.getCompletedCount());
+        for (SnapshotSections.Section section : SnapshotSections.Section.values())
+        {
+            metrics.counter("aibrain_snapshot_sections_reused_total", "Snapshot sections reused unchanged from the last snapshot, by section",
+                    () -> snapshotSections.getReused(section), "section", section.getKey());
+            metrics.counter("aibrain_snapshot_sections_rebuilt_total", "Snapshot sections read from the client again, by section",
+                    () -> snapshotSections.getRebuilt(section), "section", section.getKey());
+        }
+        metrics.gauge("aibrain_watches_armed", "Brain-registered watches checked every tick",
+                watchSet::size);
+        metrics.gauge("aibrain_ground_items", "Items on the ground in the loaded scene",
+                groundItems::size);
+        metrics.gauge("aibrain_journal_events", "Events waiting for the brain to acknowledge them",
+                eventJournal::size);
+        metrics.counter("aibrain_journal_events_dropped_total", "Events dropped from a full journal before the brain saw them",
+                eventJournal::getDropped);
+        metrics.gauge("aibrain_reachable_tiles", "Scene tiles the player can walk to, as of the last reachability fill",
+                reachability::getReachedCount);
+        metrics.gauge("aibrain_collision_regions", "Map regions with cached collision flags",
+                collisionCache::getRegionCount);
+        metrics.gauge("aibrain_travel_graph_nodes", "Nodes in the mapped travel graph (0 until first used)", () ->
+        {
+            TravelGraph g = travelGraph;
+            return g != null ? g.getNodeCount() : 0;
+        });
+        metrics.summaries("aibrain_scan_slice_seconds", "Client-thread time spent scanning per tick",
+                "scanner", () -> Collections.singletonMap("scene", sceneScanner.getSliceMicros()), 1e-6);
+        metrics.summaries("aibrain_stage_latency_seconds", "Decide pipeline latency per stage",
+                "stage", decisionMetrics::recordersByStage, 1e-6);
+        metrics.summaries("aibrain_round_trip_seconds", "Winning /decide round trip",
+                "brain", () ->
+                {
+                    BrainTransport t = transport;
+                    return t != null
+                            ? Collections.singletonMap("decide", t.getDecideLatencyMs())
+                            : Collections.emptyMap();
+                }, 1e-3);
     }
 
-    String getManualGoal()
+    private long transportValue(ToLongFunction<BrainTransport> getter)
     {
-        if (panel != null)
-        {
-            String s = panel.getManualGoal();
-            if (s != null && !s.trim().isEmpty())
-            {
-                return s.trim();
-            }
-        }
-        return "";
+        BrainTransport t = transport;
+        return t != null ? getter.applyAsLong(t) : 0;
     }
 
-    void setPanelStatus(String status, String details, boolean running)
+    private long recorderValue(ToLongFunction<SessionRecorder> getter)
     {
-        if (panel != null)
-        {
-            panel.setStatus(status, details, running);
-        }
+        SessionRecorder r = recorder;
+        return r != null ? getter.applyAsLong(r) : 0;
     }
 
-    // ===== Called from panel =====
+    // ===== Quest catalog =====
 
-    void executeOnceFromUI()
+    private void loadQuestCatalog()
     {
-        aiPaused = false;
-        executeStep(false);
+        try
+        {
+            questCatalog = QuestCatalog.loadBundled();
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to load the AI brain quest catalog", e);
+            questCatalog = QuestCatalog.EMPTY;
+        }
+        questProgress = new QuestProgressTracker(questCatalog);
     }
 
-    void stopExecutionFromUI()
+    // ===== Collision cache =====
+
+    private File collisionCacheFile()
     {
-        aiPaused = true;
-        clearQueuedActions();
-        setPanelStatus("Status: Stopped", "Execution halted by user.", false);
+        return new File(RuneLite.RUNELITE_DIR, "aibrain-collision.bin");
     }
 
-    private void executeStep(boolean fromAuto)
+    private void loadCollisionCache()
     {
-        if (aiPaused)
+        collisionIo = Executors.newSingleThreadExecutor(r ->
         {
-            if (!fromAuto)
+            Thread t = new Thread(r, "aibrain-collision");
+            t.setDaemon(true);
+            return t;
+        });
+        lastCollisionSaveMillis = System.currentTimeMillis();
+        collisionIo.execute(() ->
+        {
+            try
             {
-                aiPaused = false;
+                int loaded = collisionCache.load(collisionCacheFile().toPath());
+                log.debug("Loaded collision flags for {} regions", loaded);
             }
-            else
+            catch (IOException e)
             {
-                setPanelStatus("Status: Stopped", "Execution paused. Use Execute AI step to resume.", false);
-                return;
+                log.warn("Unable to load the AI brain collision cache", e);
             }
-        }
-
-        if (client.getGameState() != GameState.LOGGED_IN || client.getLocalPlayer() == null)
-        {
-            setPanelStatus("Status: Not logged in",
-                    "Log into the game before executing.", false);
-            return;
-        }
-
-        AIBrainMode mode = getCurrentMode();
-        String modeLabel = mode != null ? mode.getDisplayName() : "Quest";
-
-        setPanelStatus(
-                "Status: Executing...",
-                (fromAuto ? "Auto " : "Manual ") + modeLabel + " step...",
-                true
-        );
 
-        JsonObject gameState = buildGameState();
-        sendControlUpdate();
-        sendToBrainAsync(gameState);
+            prepareTravelGraph();
+        });
     }
 
-    // ===== Events =====
-
-    @Subscribe
-    public void onChatMessage(ChatMessage event)
+    private File travelGraphFile()
     {
-        ChatMessageType type = event.getType();
+        return new File(RuneLite.RUNELITE_DIR, "aibrain-travel.bin");
+    }
 
-        if (type == ChatMessageType.GAMEMESSAGE
-                || type == ChatMessageType.ENGINE
-                || type == ChatMessageType.SPAM
-                || type == ChatMessageType.BROADCAST)
+    /**
+     * Rebuild the travel graph if the collision cache has been saved since it was last built. Runs on
+     * the IO thread at startup, before the graph can be mapped: a mapped file cannot be replaced on
+     * every platform, so regions explored this session join the graph on the next start.
+     */
+    private void prepareTravelGraph()
+    {
+        try
         {
-            String msg = event.getMessage();
-            if (msg == null || msg.isEmpty())
+            File graphFile = travelGraphFile();
+            File collisionFile = collisionCacheFile();
+            if (collisionCache.getRegionCount() > 0
+                    && (!graphFile.exists() || graphFile.lastModified() < collisionFile.lastModified()))
             {
-                return;
+                new TravelGraphBuilder(collisionCache, TransportTable.loadBundled()).write(graphFile.toPath());
             }
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to build the AI brain travel graph", e);
+        }
+        finally
+        {
+            travelGraphReady = true;
+        }
+    }
 
-            synchronized (chatLog)
+    /**
+     * @return the travel graph, mapped on first use; null while it is being built or if there is none
+     */
+    private TravelGraph getTravelGraph()
+    {
+        if (travelGraph == null && travelGraphReady && !travelGraphUnavailable)
+        {
+            File file = travelGraphFile();
+            try
             {
-                if (chatLog.size() >= MAX_CHAT_LOG)
-                {
-                    chatLog.removeFirst();
-                }
-                chatLog.addLast(msg);
+                travelGraph = file.exists() ? TravelGraph.open(file.toPath()) : null;
+            }
+            catch (IOException e)
+            {
+                log.warn("Unable to open the AI brain travel graph", e);
             }
+            travelGraphUnavailable = travelGraph == null;
         }
+        return travelGraph;
     }
 
-    @Subscribe
-    public void onGameTick(GameTick tick)
+    /**
+     * Write the collision cache on the IO thread if anything was captured since the last save.
+     */
+    private void saveCollisionCache()
     {
-        if (client.getGameState() != GameState.LOGGED_IN)
+        ExecutorService io = collisionIo;
+        if (io == null || !collisionCache.isDirty())
         {
             return;
         }
 
-        if (queuedWalkTarget != null)
+        lastCollisionSaveMillis = System.currentTimeMillis();
+        io.execute(() ->
         {
-            issueWalk(queuedWalkTarget);
-            queuedWalkTarget = null;
-        }
+            try
+            {
+                collisionCache.save(collisionCacheFile().toPath());
+            }
+            catch (IOException e)
+            {
+                log.warn("Unable to save the AI brain collision cache", e);
+            }
+        });
+    }
+
+    // ===== Session recording =====
+
+    private void startRecording()
+    {
+        if (!config.sessionRecordingEnabled())
+        {
+            return;
+        }
+
+        SessionRecorder r = new SessionRecorder(
+                new File(RuneLite.RUNELITE_DIR, "aibrain-sessions").toPath(),
+                Math.max(1, config.sessionSegmentMb()) * 1024L * 1024L,
+                Math.max(1, config.sessionMaxMb()) * 1024L * 1024L);
+        try
+        {
+            r.start();
+            recorder = r;
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to start AI brain session recording", e);
+        }
+    }
+
+    private void stopRecording()
+    {
+        SessionRecorder r = recorder;
+        recorder = null;
+        if (r != null)
+        {
+            r.close();
+        }
+    }
+
+    /**
+     * Hand an entry to the session recorder, if one is running. Never blocks.
+     */
+    private void record(SessionRecord.Type type, long seq, String payload)
+    {
+        SessionRecorder r = recorder;
+        if (r != null)
+        {
+            r.record(type, seq, payload);
+        }
+    }
+
+    private long countQueuedActions()
+    {
+        int n = 0;
+        if (queuedWalkTarget != null)
+        {
+            n++;
+        }
+        if (queuedTalkNpcName != null)
+        {
+            n++;
+        }
+        if (queuedObjectTarget != null)
+        {
+            n++;
+        }
+        if (queuedUseItemName != null)
+        {
+            n++;
+        }
+        if (queuedPickupName != null)
+        {
+            n++;
+        }
+        if (queuedCameraAdjust)
+        {
+            n++;
+        }
+        if (queuedDialogContinue)
+        {
+            n++;
+        }
+        if (queuedDialogOptionIndex != null || queuedDialogOptionText != null)
+        {
+            n++;
+        }
+        return n;
+    }
+
+    // ===== UI helpers =====
+
+    AIBrainMode getCurrentMode()
+    {
+        if (panel != null)
+        {
+            return panel.getSelectedMode();
+        }
+        return AIBrainMode.QUEST;
+    }
+
+    String getCurrentQuest()
+    {
+        if (panel != null)
+        {
+            String q = panel.getQuestName();
+            if (q != null && !q.trim().isEmpty())
+            {
+                return q.trim();
+            }
+        }
+        return "Cook's Assistant";
+    }
+
+    boolean isDoAllQuests()
+    {
+        return panel != null && panel.isDoAllQuests();
+    }
+
+    String getSkillName()
+    {
+        if (panel != null)
+        {
+            String s = panel.getSkillName();
+            if (s != null && !s.trim().isEmpty())
+            {
+                return s.trim();
+            }
+        }
+        return "Mining";
+    }
+
+    int getSkillTargetLevel()
+    {
+        if (panel != null)
+        {
+            int v = panel.getTargetLevel();
+            if (v < 1) v = 1;
+            if (v > 99) v = 99;
+            return v;
+        }
+        return 10;
+    }
+
+    int getSkillBudget()
+    {
+        if (panel != null)
+        {
+            int v = panel.getBudgetGp();
+            if (v < 0) v = 0;
+            return v;
+        }
+        return 5000;
+    }
+
+    String getSkillingGoal()
+    {
+        if (panel != null)
+        {
+            String s = panel.getSkillGoal();
+            if (s != null && !s.trim().isEmpty())
+            {
+                return s.trim();
+            }
+        }
+        return "Train the selected skill safely.";
+    }
+
+    String getManualGoal()
+    {
+        if (panel != null)
+        {
+            String s = panel.getManualGoal();
+            if (s != null && !s.trim().isEmpty())
+            {
+                return s.trim();
+            }
+        }
+        return "";
+    }
+
+    void setPanelStatus(String status, String details, boolean running)
+    {
+        if (panel != null)
+        {
+            panel.setStatus(status, details, running);
+        }
+    }
+
+    // ===== Called from panel =====
+
+    void executeOnceFromUI()
+    {
+        aiPaused = false;
+        // Capturing a snapshot advances client-thread-only state: scan sweeps, reachability, the journal.
+        clientThread.invoke(() -> executeStep(false));
+    }
+
+    void stopExecutionFromUI()
+    {
+        aiPaused = true;
+        cancelInFlightDecision("stopped by user");
+        clearQueuedActions();
+        setPanelStatus("Status: Stopped", "Execution halted by user.", false);
+    }
+
+    void modeChangedFromUI()
+    {
+        // Loops are a Skill mode routine; whatever the new mode is, the brain should look afresh.
+        clientThread.invoke(loopInterpreter::cancel);
+        if (cancelInFlightDecision("mode changed"))
+        {
+            clearQueuedActions();
+            setPanelStatus("Status: Idle", "Mode changed; pending decision cancelled.", false);
+        }
+    }
+
+    private boolean cancelInFlightDecision(String reason)
+    {
+        BrainTransport t = transport;
+        return t != null && t.cancelInFlight(reason);
+    }
+
+    private void executeStep(boolean fromAuto)
+    {
+        DecisionTrace trace = new DecisionTrace();
+        trace.mark(DecisionTrace.Stage.TRIGGER);
+
+        if (aiPaused)
+        {
+            if (!fromAuto)
+            {
+                aiPaused = false;
+            }
+            else
+            {
+                setPanelStatus("Status: Stopped", "Execution paused. Use Execute AI step to resume.", false);
+                return;
+            }
+        }
+
+        if (client.getGameState() != GameState.LOGGED_IN || client.getLocalPlayer() == null)
+        {
+            setPanelStatus("Status: Not logged in",
+                    "Log into the game before executing.", false);
+            return;
+        }
+
+        BrainTransport t = transport;
+        if (t != null && !t.getBreaker().allowDecide())
+        {
+            breakerDroppedCounter.inc();
+            runDegradedStep(t.getBreaker());
+            return;
+        }
+
+        AIBrainMode mode = getCurrentMode();
+        String modeLabel = mode != null ? mode.getDisplayName() : "Quest";
+
+        setPanelStatus(
+                "Status: Executing...",
+                (fromAuto ? "Auto " : "Manual ") + modeLabel + " step...",
+                true
+        );
+
+        trace.mark(DecisionTrace.Stage.CAPTURE_START);
+        trace.setSnapshotTick(client.getTickCount());
+        JsonObject gameState = buildGameState();
+        trace.setJournalSequence(eventJournal.getDrained());
+        trace.setChatSequence(lastSnapshotChatSequence);
+        trace.setWatchesSeen(captureWatchesSeen());
+        trace.mark(DecisionTrace.Stage.CAPTURE_END);
+
+        sendControlUpdate();
+        trace.mark(DecisionTrace.Stage.CONTROL_SENT);
+
+        sendToBrainAsync(gameState, trace);
+    }
+
+    private void completeTrace(DecisionTrace trace)
+    {
+        if (trace == null)
+        {
+            return;
+        }
+
+        decisionMetrics.complete(trace);
+        decisionsCounter.inc();
+        if (decisionMetrics.decisionCount() % METRICS_LOG_INTERVAL == 0)
+        {
+            log.info("AI brain decide pipeline after {} decisions:\n{}",
+                    decisionMetrics.decisionCount(), decisionMetrics.summary());
+        }
+    }
+
+    DecisionMetrics getDecisionMetrics()
+    {
+        return decisionMetrics;
+    }
+
+    private PanelMetrics buildPanelMetrics()
+    {
+        Map<String, String> rates = new LinkedHashMap<>();
+        long rttP50 = 0;
+        long rttP95 = 0;
+
+        BrainTransport t = transport;
+        if (t != null)
+        {
+            rttP50 = t.getDecideLatencyMs().getPercentile(50);
+            rttP95 = t.getDecideLatencyMs().getPercentile(95);
+            rates.put("Superseded/cancelled", formatRate(t.getSuperseded() + t.getCancelled(), t.currentSequence()));
+            rates.put("Hedge wins", formatRate(t.getHedgeWins(), t.getHedgesSent()));
+        }
+
+        LatencyRecorder capture = decisionMetrics.getRecorder(DecisionMetrics.Interval.CAPTURE);
+        return new PanelMetrics(
+                decisionMetrics.recentTotalsMs(),
+                rttP50,
+                rttP95,
+                lastSnapshotBytes,
+                capture.getPercentile(50),
+                capture.getPercentile(95),
+                decisionMetrics.decisionsPerMinute(),
+                rates);
+    }
+
+    private static String formatRate(long hits, long total)
+    {
+        if (total <= 0)
+        {
+            return "n/a";
+        }
+        return String.format("%.0f%% (%d/%d)", 100.0 * hits / total, hits, total);
+    }
+
+    /**
+     * Minimal local behaviour while the breaker is open: keep dialogs moving and otherwise stand
+     * still, instead of sending full snapshots to a brain that is down.
+     */
+    private void runDegradedStep(BrainCircuitBreaker breaker)
+    {
+        clearQueuedActions();
+
+        if (isDialogContinueVisible())
+        {
+            queuedDialogContinue = true;
+            setPanelStatus("Status: Brain unavailable",
+                    "Continuing dialog locally.\n" + breaker.describe(), false);
+            return;
+        }
+
+        setPanelStatus("Status: Brain unavailable",
+                "Idling safely.\n" + breaker.describe(), false);
+    }
+
+    // ===== Events =====
+
+    @Subscribe
+    public void onChatMessage(ChatMessage event)
+    {
+        if (!CHAT_LOG_TYPES.contains(event.getType()))
+        {
+            return;
+        }
+
+        String msg = event.getMessage();
+        if (msg != null && !msg.isEmpty())
+        {
+            chatRing.append(msg);
+        }
+    }
+
+    @Subscribe
+    public void onStatChanged(StatChanged event)
+    {
+        snapshotSections.invalidate(SnapshotSections.Section.SKILLS);
+        int i = event.getSkill().ordinal();
+        int xp = event.getXp();
+        int level = event.getLevel();
+        if (journalXp[i] >= 0 && xp > journalXp[i])
+        {
+            eventJournal.record(client.getTickCount(), EventJournal.Kind.XP_GAINED, event.getSkill().getName(), xp - journalXp[i]);
+        }
+        if (journalLevels[i] >= 0 && level > journalLevels[i])
+        {
+            eventJournal.record(client.getTickCount(), EventJournal.Kind.LEVEL_UP, event.getSkill().getName(), level);
+        }
+        journalXp[i] = xp;
+        journalLevels[i] = level;
+    }
+
+    @Subscribe
+    public void onItemContainerChanged(ItemContainerChanged event)
+    {
+        if (event.getContainerId() != InventoryID.INVENTORY.getId())
+        {
+            return;
+        }
+        snapshotSections.invalidate(SnapshotSections.Section.INVENTORY);
+
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (Item it : event.getItemContainer().getItems())
+        {
+            if (it != null && it.getId() > 0)
+            {
+                counts.merge(it.getId(), it.getQuantity(), Integer::sum);
+            }
+        }
+
+        Map<Integer, Integer> before = journalInventory;
+        journalInventory = counts;
+        if (before == null)
+        {
+            return;
+        }
+
+        Map<Integer, Integer> deltas = new HashMap<>(counts);
+        before.forEach((id, qty) -> deltas.merge(id, -qty, Integer::sum));
+        int tick = client.getTickCount();
+        deltas.forEach((id, delta) ->
+        {
+            if (delta == 0)
+            {
+                return;
+            }
+            ItemComposition comp = client.getItemDefinition(id);
+            String name = comp != null ? comp.getName() : String.valueOf(id);
+            eventJournal.record(tick, delta > 0 ? EventJournal.Kind.ITEM_GAINED : EventJournal.Kind.ITEM_LOST,
+                    name, Math.abs(delta));
+        });
+    }
+
+    @Subscribe
+    public void onVarbitChanged(VarbitChanged event)
+    {
+        questProgress.onVarChanged(event.getVarpId(), event.getVarbitId());
+    }
+
+    @Subscribe
+    public void onNpcSpawned(NpcSpawned event)
+    {
+        recordNearbyNpc(event.getNpc(), EventJournal.Kind.NPC_APPEARED);
+    }
+
+    @Subscribe
+    public void onNpcDespawned(NpcDespawned event)
+    {
+        recordNearbyNpc(event.getNpc(), EventJournal.Kind.NPC_LEFT);
+    }
+
+    @Subscribe
+    public void onHitsplatApplied(HitsplatApplied event)
+    {
+        Hitsplat hitsplat = event.getHitsplat();
+        Actor actor = event.getActor();
+        if (actor == null || hitsplat == null)
+        {
+            return;
+        }
+
+        if (actor == client.getLocalPlayer())
+        {
+            eventJournal.record(client.getTickCount(), EventJournal.Kind.DAMAGE_TAKEN, null, hitsplat.getAmount());
+        }
+        else if (hitsplat.isMine())
+        {
+            eventJournal.record(client.getTickCount(), EventJournal.Kind.DAMAGE_DEALT, actor.getName(), hitsplat.getAmount());
+        }
+    }
+
+    @Subscribe
+    public void onItemSpawned(ItemSpawned event)
+    {
+        TileItem item = event.getItem();
+        groundItems.onSpawned(event.getTile().getWorldLocation(), item.getId(), item.getQuantity());
+    }
+
+    @Subscribe
+    public void onItemDespawned(ItemDespawned event)
+    {
+        TileItem item = event.getItem();
+        groundItems.onDespawned(event.getTile().getWorldLocation(), item.getId(), item.getQuantity());
+    }
+
+    @Subscribe
+    public void onItemQuantityChanged(ItemQuantityChanged event)
+    {
+        groundItems.onQuantityChanged(event.getTile().getWorldLocation(), event.getItem().getId(),
+                event.getOldQuantity(), event.getNewQuantity());
+    }
+
+    /**
+     * Fill the ground item index from the loaded scene's tiles, for when the spawn events that
+     * normally keep it were missed. Client thread only.
+     */
+    private void rebuildGroundItems()
+    {
+        groundItems.clear();
+        if (client.getGameState() != GameState.LOGGED_IN)
+        {
+            return;
+        }
+
+        Tile[][][] tiles = client.getTopLevelWorldView().getScene().getTiles();
+        if (tiles == null)
+        {
+            return;
+        }
+        for (Tile[][] plane : tiles)
+        {
+            for (Tile[] column : plane)
+            {
+                for (Tile tile : column)
+                {
+                    List<TileItem> items = tile != null ? tile.getGroundItems() : null;
+                    if (items == null)
+                    {
+                        continue;
+                    }
+                    for (TileItem item : items)
+                    {
+                        groundItems.onSpawned(tile.getWorldLocation(), item.getId(), item.getQuantity());
+                    }
+                }
+            }
+        }
+    }
+
+    @Subscribe
+    public void onGameStateChanged(GameStateChanged event)
+    {
+        // A region load or world hop replaces every tile; scanned results from before are stale.
+        if (event.getGameState() == GameState.LOADING || event.getGameState() == GameState.HOPPING)
+        {
+            sceneScanner.reset();
+            reachability.invalidate();
+            // The new scene's items are spawned again once it has loaded.
+            groundItems.clear();
+        }
+        if (event.getGameState() == GameState.LOGIN_SCREEN || event.getGameState() == GameState.HOPPING)
+        {
+            // Stats and inventory are sent again in full on login; don't journal them as gains.
+            resetJournalBaselines();
+        }
+        else if (event.getGameState() == GameState.LOGGED_IN)
+        {
+            // Collision maps are rebuilt with each region load; capture them once the scene is in.
+            collisionCaptureDue = true;
+            questProgress.invalidate();
+            // Another account, or the same one after a hop, may have other stats and items.
+            snapshotSections.invalidateAll();
+        }
+    }
+
+    @Subscribe
+    public void onWallObjectSpawned(WallObjectSpawned event)
+    {
+        // Doors and gates swap wall objects when opened or closed.
+        collisionCaptureDue = true;
+        reachability.invalidate(event.getTile().getWorldLocation());
+    }
+
+    @Subscribe
+    public void onWallObjectDespawned(WallObjectDespawned event)
+    {
+        collisionCaptureDue = true;
+        reachability.invalidate(event.getTile().getWorldLocation());
+    }
+
+    @Subscribe
+    public void onGameTick(GameTick tick)
+    {
+        if (client.getGameState() != GameState.LOGGED_IN)
+        {
+            return;
+        }
+
+        // Judge the last dispatched action by this tick's state, before anything new is clicked.
+        ActionOutcomeTracker.Observation observation = observe();
+        if (observation != null)
+        {
+            ActionOutcomeTracker.Outcome before = actionOutcomes.getLast();
+            actionOutcomes.observe(client.getTickCount(), observation);
+            countOutcome(before, actionOutcomes.getLast());
+        }
+        journalDialog();
+
+        AIBrainEvents.ActionQueueDrain drain = new AIBrainEvents.ActionQueueDrain();
+        drain.begin();
+        int dispatchedCount = 0;
+
+        DecisionTrace queued = queuedTrace;
+        int maxAge = config.maxDecisionAgeTicks();
+        int age = queued != null && queued.getSnapshotTick() >= 0 ? client.getTickCount() - queued.getSnapshotTick() : 0;
+        if (maxAge > 0 && age > maxAge && countQueuedActions() > 0)
+        {
+            dropStaleActions(age, observation);
+        }
+        if (countQueuedActions() > 0)
+        {
+            // A fresh decision from the brain replaces the rest of any conversation being talked through.
+            dialogScript.cancel();
+        }
+
+        if (queuedWalkTarget != null)
+        {
+            WorldPoint target = queuedWalkTarget;
+            trackDispatch(BrainActionType.WALK_TO_TILE, WALK_EFFECTS, WALK_WINDOW_TICKS, observation,
+                    () -> issueWalk(target));
+            queuedWalkTarget = null;
+            dispatchedCount++;
+        }
 
         if (queuedTalkNpcName != null && !queuedTalkNpcName.isEmpty())
         {
-            issueTalkToNpc(queuedTalkNpcName);
-            queuedTalkNpcName = null;
+            pathWalker.cancel();
+            String npcName = queuedTalkNpcName;
+            WorldPoint npcTile = queuedTalkNpcTile;
+            trackDispatch(BrainActionType.TALK_TO_NPC, TALK_EFFECTS, TALK_WINDOW_TICKS, observation, () ->
+            {
+                NPC npc = revalidateNpc(npcName, "Talk-to", npcTile);
+                if (npc == null)
+                {
+                    actionOutcomes.fail("no reachable " + npcName + " to talk to");
+                    return;
+                }
+                issueTalkToNpc(npc);
+            });
+            queuedTalkNpcName = null;
+            queuedTalkNpcTile = null;
+            dispatchedCount++;
+        }
+
+        if (queuedObjectName != null && queuedObjectTarget != null)
+        {
+            pathWalker.cancel();
+            String objectName = queuedObjectName;
+            String objectOption = queuedObjectOption;
+            WorldPoint objectTarget = queuedObjectTarget;
+            trackDispatch(BrainActionType.INTERACT_OBJECT, INTERACT_EFFECTS, INTERACT_WINDOW_TICKS, observation, () ->
+            {
+                WorldPoint tile = revalidateObject(objectName, objectOption, objectTarget);
+                if (tile == null)
+                {
+                    actionOutcomes.fail("no " + (objectName != null ? objectName : "object") + " at "
+                            + objectTarget.getX() + "," + objectTarget.getY() + " and none other in reach");
+                    return;
+                }
+                issueInteractWithObject(objectName, objectOption, tile);
+            });
+            dispatchedCount++;
+            queuedObjectName = null;
+            queuedObjectTarget = null;
+            queuedObjectOption = null;
+        }
+
+        if (queuedUseItemName != null && !queuedUseItemName.isEmpty())
+        {
+            pathWalker.cancel();
+            String itemName = queuedUseItemName;
+            String onName = queuedUseItemOnName;
+            String itemOption = queuedUseItemOption;
+            Integer itemSlot = queuedUseItemSlot;
+            trackDispatch(BrainActionType.USE_INVENTORY_ITEM, USE_ITEM_EFFECTS, USE_ITEM_WINDOW_TICKS, observation, () ->
+            {
+                int slot = revalidateItem(itemName, itemSlot);
+                if (slot < 0)
+                {
+                    actionOutcomes.fail("no " + itemName + " in the inventory");
+                    return;
+                }
+
+                if (onName != null && !onName.isEmpty())
+                {
+                    issueUseItemOnItem(itemName, onName, itemOption, slot);
+                }
+                else
+                {
+                    issueUseInventoryItem(itemName, itemOption, slot);
+                }
+            });
+
+            queuedUseItemName = null;
+            queuedUseItemOnName = null;
+            queuedUseItemOption = null;
+            queuedUseItemSlot = null;
+            dispatchedCount++;
+        }
+
+        if (queuedPickupName != null && !queuedPickupName.isEmpty())
+        {
+            pathWalker.cancel();
+            String itemName = queuedPickupName;
+            WorldPoint itemTile = queuedPickupTile;
+            trackDispatch(BrainActionType.PICKUP_ITEM, PICKUP_EFFECTS, PICKUP_WINDOW_TICKS, observation, () ->
+            {
+                GroundItemIndex.GroundItem item = revalidateGroundItem(itemName, itemTile);
+                if (item == null)
+                {
+                    actionOutcomes.fail("no reachable " + itemName + " on the ground");
+                    return;
+                }
+                issuePickup(item);
+            });
+            queuedPickupName = null;
+            queuedPickupTile = null;
+            dispatchedCount++;
+        }
+
+        if (queuedCameraAdjust)
+        {
+            adjustCameraSlightly();
+            queuedCameraAdjust = false;
+            dispatchedCount++;
+        }
+
+        if (queuedDialogContinue)
+        {
+            trackDispatch(BrainActionType.DIALOG_CONTINUE, DIALOG_EFFECTS, DIALOG_WINDOW_TICKS, observation,
+                    this::issueDialogContinue);
+            queuedDialogContinue = false;
+            dispatchedCount++;
+        }
+
+        if (queuedDialogOptionIndex != null || queuedDialogOptionText != null)
+        {
+            Integer optionIndex = queuedDialogOptionIndex;
+            String optionText = queuedDialogOptionText;
+            List<String> choices = queuedDialogChoices != null ? queuedDialogChoices : Collections.emptyList();
+            trackDispatch(BrainActionType.SELECT_DIALOG_OPTION, DIALOG_EFFECTS, DIALOG_WINDOW_TICKS, observation, () ->
+            {
+                DialogReader.Dialog dialog = DialogReader.read(client);
+                int index = revalidateDialogOption(dialog, optionIndex, optionText);
+                if (index < 0)
+                {
+                    actionOutcomes.fail(dialog.kind() != DialogReader.Kind.OPTIONS
+                            ? "no option menu is open"
+                            : "no option " + (optionText != null ? "'" + optionText + "'" : String.valueOf(optionIndex))
+                              + " in " + dialog.options());
+                    return;
+                }
+                issueSelectDialogOption(index);
+                dialogScript.start(choices, client.getTickCount(), dialog.hash());
+            });
+            queuedDialogOptionIndex = null;
+            queuedDialogOptionText = null;
+            queuedDialogChoices = null;
+            dispatchedCount++;
+        }
+
+        if (dispatchedCount > 0)
+        {
+            // A fresh decision from the brain replaces whatever loop was running.
+            loopInterpreter.cancel();
+        }
+
+        BehaviorLoop loop = queuedLoop;
+        if (loop != null && client.getLocalPlayer() != null)
+        {
+            queuedLoop = null;
+            pathWalker.cancel();
+            loopInterpreter.start(loop, client.getTickCount(), client.getLocalPlayer().getWorldLocation(),
+                    client.getBoostedSkillLevel(Skill.HITPOINTS));
+            dispatchedCount++;
+        }
+
+        actionsDispatchedCounter.add(dispatchedCount);
+
+        drain.end();
+        if (dispatchedCount > 0 && drain.shouldCommit())
+        {
+            drain.dispatched = dispatchedCount;
+            drain.tick = client.getTickCount();
+            drain.commit();
+        }
+
+        DecisionTrace trace = queuedTrace;
+        if (dispatchedCount > 0 && trace != null)
+        {
+            queuedTrace = null;
+            trace.mark(DecisionTrace.Stage.DISPATCHED);
+            completeTrace(trace);
+        }
+
+        if (collisionCaptureDue)
+        {
+            collisionCaptureDue = false;
+            collisionCache.capture(client.getTopLevelWorldView());
+        }
+        if (System.currentTimeMillis() - lastCollisionSaveMillis >= COLLISION_SAVE_INTERVAL_MS)
+        {
+            saveCollisionCache();
+        }
+
+        questProgress.refresh(questVars);
+
+        if (aiPaused)
+        {
+            return;
+        }
+
+        advanceQuestIfComplete();
+        // Before anything steps, so an aborting watch stops the plan ahead of its next click.
+        WatchSet.Trip trip = checkWatches();
+        stepWalker();
+        boolean loopEnded = stepLoop();
+        boolean dialogEnded = stepDialogScript();
+
+        int scanBudgetMicros = config.scanBudgetMicros();
+        if (scanBudgetMicros > 0)
+        {
+            sceneScanner.advance(client, scanBudgetMicros * 1000L);
+        }
+        if (client.getLocalPlayer() != null)
+        {
+            reachability.advance(client.getTopLevelWorldView(), client.getLocalPlayer().getWorldLocation(),
+                    REACH_TILES_PER_TICK);
+        }
+
+        BrainTransport t = transport;
+        if (t != null && t.getBreaker().getState() != BrainCircuitBreaker.State.CLOSED)
+        {
+            // Also expires a half-open trial that never reported back.
+            t.probeHealthIfDue(normalizeBaseUrl(config.brainServerUrl()) + "/health");
+        }
+
+        autoTickCounter++;
+
+        AIBrainMode mode = getCurrentMode();
+        if (trip != null)
+        {
+            // The brain asked to hear about this at once, whatever the mode.
+            autoTickCounter = 0;
+            executeStep(true);
+        }
+        else if (mode == AIBrainMode.QUEST || mode == AIBrainMode.SKILL)
+        {
+            // A running behaviour loop or dialog script acts by itself; the brain is asked again as soon as it ends.
+            if (loopEnded || dialogEnded || (!loopInterpreter.isRunning() && !dialogScript.isRunning()
+                    && autoTickCounter % AUTO_DECISION_INTERVAL_TICKS == 0))
+            {
+                executeStep(true);
+            }
+        }
+    }
+
+    // ===== Build game_state JSON =====
+
+    JsonObject buildGameState()
+    {
+        JsonObject root = new JsonObject();
+        // Null outside the catalog (or when it failed to load); quest fields are then left out.
+        QuestCatalog.Quest quest = questCatalog.byName(getCurrentQuest());
+
+        // ---- Player ----
+        AIBrainEvents.SnapshotPhase phase = AIBrainEvents.beginPhase("player");
+        JsonObject playerJson = new JsonObject();
+        if (client.getLocalPlayer() != null)
+        {
+            WorldPoint wp = client.getLocalPlayer().getWorldLocation();
+            playerJson.addProperty("x", wp.getX());
+            playerJson.addProperty("y", wp.getY());
+            playerJson.addProperty("plane", wp.getPlane());
+            playerJson.addProperty("name", client.getLocalPlayer().getName());
+        }
+        root.add("player", playerJson);
+        AIBrainEvents.endPhase(phase, 1);
+
+        // ---- Reachability (finishes the fill onGameTick has been spreading over ticks) ----
+        WorldPoint playerWp = client.getLocalPlayer() != null ? client.getLocalPlayer().getWorldLocation() : null;
+        boolean reachKnown = reachability.finish(client.getTopLevelWorldView(), playerWp);
+
+        // ---- Nearby NPCs ----
+        phase = AIBrainEvents.beginPhase("npcs");
+        JsonArray npcsArr = new JsonArray();
+        for (NPC npc : client.getNpcs())
+        {
+            if (npc == null || npc.getName() == null || npc.getName().isEmpty())
+            {
+                continue;
+            }
+
+            WorldPoint wp = npc.getWorldLocation();
+            if (wp == null)
+            {
+                continue;
+            }
+
+            if (playerWp != null && playerWp.distanceTo(wp) > 20)
+            {
+                continue;
+            }
+
+            int pathDistance = reachKnown ? reachability.approachDistance(wp) : -1;
+            if (reachKnown && pathDistance < 0)
+            {
+                unreachableNpcsCounter.inc();
+                continue;
+            }
+
+            JsonObject n = new JsonObject();
+            n.addProperty("id", npc.getId());
+            n.addProperty("name", npc.getName());
+            n.addProperty("x", wp.getX());
+            n.addProperty("y", wp.getY());
+            n.addProperty("plane", wp.getPlane());
+            if (reachKnown)
+            {
+                n.addProperty("path_distance", pathDistance);
+            }
+            if (quest != null && questCatalog.questsForNpc(npc.getName()).contains(quest.id()))
+            {
+                n.addProperty("quest_relevant", true);
+            }
+
+            NPCComposition comp = npc.getComposition();
+            if (comp != null && comp.getActions() != null)
+            {
+                JsonArray acts = new JsonArray();
+                for (String a : comp.getActions())
+                {
+                    if (a != null && !a.isEmpty())
+                    {
+                        acts.add(a);
+                    }
+                }
+                n.add("actions", acts);
+            }
+
+            npcsArr.add(n);
+        }
+        root.add("npcs", npcsArr);
+        AIBrainEvents.endPhase(phase, npcsArr.size());
+
+        // ---- Inventory ----
+        phase = AIBrainEvents.beginPhase("inventory");
+        JsonArray invArr = snapshotSections.get(SnapshotSections.Section.INVENTORY, this::buildInventorySection).getAsJsonArray();
+        root.add("inventory", invArr);
+        AIBrainEvents.endPhase(phase, invArr.size());
+
+        // ---- Scene scan (objects and UI text come from the latest finished sweeps) ----
+        int scanBudgetMicros = config.scanBudgetMicros();
+        if (scanBudgetMicros > 0)
+        {
+            sceneScanner.refreshStale(client, SCAN_MAX_AGE_TICKS);
+        }
+        else
+        {
+            sceneScanner.scanFully(client);
+        }
+
+        // ---- Nearby objects ----
+        phase = AIBrainEvents.beginPhase("objects");
+        JsonArray objectsArr = new JsonArray();
+        int plane = client.getTopLevelWorldView().getPlane();
+
+        for (IncrementalSceneScanner.ObjectEntry obj : sceneScanner.getObjects())
+        {
+            WorldPoint wp = obj.location();
+            if (wp.getPlane() != plane)
+            {
+                continue;
+            }
+
+            if (playerWp != null && playerWp.distanceTo(wp) > 20)
+            {
+                continue;
+            }
+
+            int pathDistance = reachKnown ? reachability.approachDistance(wp) : -1;
+            if (reachKnown && pathDistance < 0)
+            {
+                unreachableObjectsCounter.inc();
+                continue;
+            }
+
+            JsonObject o = new JsonObject();
+            o.addProperty("id", obj.id());
+            o.addProperty("name", obj.name());
+            o.addProperty("x", wp.getX());
+            o.addProperty("y", wp.getY());
+            o.addProperty("plane", wp.getPlane());
+            if (reachKnown)
+            {
+                o.addProperty("path_distance", pathDistance);
+            }
+            if (quest != null && questCatalog.questsForObject(obj.name()).contains(quest.id()))
+            {
+                o.addProperty("quest_relevant", true);
+            }
+
+            if (obj.actions() != null)
+            {
+                JsonArray acts = new JsonArray();
+                for (String a : obj.actions())
+                {
+                    if (a != null && !a.isEmpty())
+                    {
+                        acts.add(a);
+                    }
+                }
+                o.add("actions", acts);
+            }
+
+            objectsArr.add(o);
+        }
+
+        root.add("objects", objectsArr);
+        AIBrainEvents.endPhase(phase, objectsArr.size());
+
+        // ---- Ground items ----
+        phase = AIBrainEvents.beginPhase("ground_items");
+        JsonArray groundArr = new JsonArray();
+        if (playerWp != null)
+        {
+            for (GroundItemIndex.GroundItem item : groundItems.within(playerWp, GROUND_ITEM_RADIUS))
+            {
+                if (groundArr.size() >= MAX_GROUND_ITEMS)
+                {
+                    break;
+                }
+
+                int pathDistance = reachKnown ? reachability.approachDistance(item.tile()) : -1;
+                if (reachKnown && pathDistance < 0)
+                {
+                    unreachableGroundItemsCounter.inc();
+                    continue;
+                }
+
+                JsonObject g = new JsonObject();
+                g.addProperty("id", item.id());
+                g.addProperty("name", item.name());
+                g.addProperty("quantity", item.quantity());
+                g.addProperty("x", item.tile().getX());
+                g.addProperty("y", item.tile().getY());
+                g.addProperty("plane", item.tile().getPlane());
+                if (reachKnown)
+                {
+                    g.addProperty("path_distance", pathDistance);
+                }
+                groundArr.add(g);
+            }
+        }
+        root.add("ground_items", groundArr);
+        AIBrainEvents.endPhase(phase, groundArr.size());
+
+        // ---- Skills ----
+        phase = AIBrainEvents.beginPhase("skills");
+        JsonObject skills = snapshotSections.get(SnapshotSections.Section.SKILLS, this::buildSkillsSection).getAsJsonObject();
+        root.add("skills", skills);
+        AIBrainEvents.endPhase(phase, skills.size());
+
+        // ---- Dialogue: what is open, its options by index, and any conversation being talked through ----
+        phase = AIBrainEvents.beginPhase("dialog");
+        JsonObject dialog = new JsonObject();
+        DialogReader.Dialog open = DialogReader.read(client);
+        dialog.addProperty("type", open.kind().getWireName());
+        if (open.speaker() != null)
+        {
+            dialog.addProperty("speaker", open.speaker());
+        }
+        if (open.text() != null)
+        {
+            dialog.addProperty("text", open.text());
+            if (open.kind() == DialogReader.Kind.NPC)
+            {
+                dialog.addProperty("npc_text", open.text());
+            }
+            else if (open.kind() == DialogReader.Kind.PLAYER)
+            {
+                dialog.addProperty("player_text", open.text());
+            }
+        }
+        if (open.prompt() != null)
+        {
+            dialog.addProperty("prompt", open.prompt());
+        }
+        if (open.kind() == DialogReader.Kind.OPTIONS)
+        {
+            JsonArray options = new JsonArray();
+            for (int i = 0; i < open.options().size(); i++)
+            {
+                JsonObject option = new JsonObject();
+                option.addProperty("index", i + 1);
+                option.addProperty("text", open.options().get(i));
+                options.add(option);
+            }
+            dialog.add("options", options);
+        }
+        dialog.addProperty("can_continue", open.canContinue());
+
+        if (dialogScript.getStatus() != DialogScript.Status.IDLE)
+        {
+            JsonObject script = new JsonObject();
+            script.addProperty("status", dialogScript.getStatus().name().toLowerCase());
+            script.addProperty("remaining_choices", dialogScript.getRemainingChoices());
+            script.addProperty("actions", dialogScript.getActions());
+            if (dialogScript.getExitReason() != null)
+            {
+                script.addProperty("exit_reason", dialogScript.getExitReason());
+            }
+            dialog.add("script", script);
+        }
+
+        root.add("dialog", dialog);
+        AIBrainEvents.endPhase(phase, dialog.size());
+
+        // ---- Chat log: messages the brain has not yet acknowledged ----
+        phase = AIBrainEvents.beginPhase("chat_log");
+        JsonArray chatArr = new JsonArray();
+        long chatSequence = 0;
+        for (ChatRing.Message m : chatRing.unacknowledged(MAX_CHAT_LOG))
+        {
+            chatArr.add(m.text());
+            chatSequence = m.sequence();
+        }
+        root.add("chat_log", chatArr);
+        lastSnapshotChatSequence = chatSequence;
+        AIBrainEvents.endPhase(phase, chatArr.size());
+
+        // ---- Events since the last decision the brain answered ----
+        phase = AIBrainEvents.beginPhase("events");
+        JsonArray eventsArr = new JsonArray();
+        int tickNow = client.getTickCount();
+        int eventsDropped = eventJournal.getDroppedSinceDrain();
+        for (EventJournal.Event e : eventJournal.drain())
+        {
+            JsonObject ev = new JsonObject();
+            ev.addProperty("type", e.kind().getWireName());
+            if (e.subject() != null)
+            {
+                ev.addProperty("subject", e.subject());
+            }
+            if (e.amount() != 0)
+            {
+                ev.addProperty("amount", e.amount());
+            }
+            ev.addProperty("ticks_ago", tickNow - e.tick());
+            eventsArr.add(ev);
+        }
+        root.add("events", eventsArr);
+        if (eventsDropped > 0)
+        {
+            root.addProperty("events_dropped", eventsDropped);
+        }
+        AIBrainEvents.endPhase(phase, eventsArr.size());
+
+        // ---- Context from UI ----
+        phase = AIBrainEvents.beginPhase("context");
+        JsonObject ctx = new JsonObject();
+        AIBrainMode mode = getCurrentMode();
+        ctx.addProperty("mode", mode != null ? mode.getWireName() : "quest");
+        ctx.addProperty("current_quest", getCurrentQuest());
+        if (quest != null)
+        {
+            ctx.addProperty("current_quest_id", quest.id());
+            ctx.addProperty("current_quest_stage", questProgress.getStage(quest));
+            ctx.addProperty("current_quest_complete", questProgress.isComplete(quest));
         }
+        ctx.addProperty("do_all_quests", isDoAllQuests());
+        ctx.addProperty("skill_target", getSkillName());
+        ctx.addProperty("skill_target_level", getSkillTargetLevel());
+        ctx.addProperty("skill_budget_gp", getSkillBudget());
+        ctx.addProperty("skilling_goal", getSkillingGoal());
+        ctx.addProperty("manual_goal", getManualGoal());
+        root.add("context", ctx);
+        AIBrainEvents.endPhase(phase, ctx.size());
 
-        if (queuedObjectName != null && queuedObjectTarget != null)
+        if (mode == AIBrainMode.QUEST)
         {
-            issueInteractWithObject(queuedObjectName, queuedObjectOption, queuedObjectTarget);
-            queuedObjectName = null;
-            queuedObjectTarget = null;
-            queuedObjectOption = null;
+            // Raw progress variable per quest id: 0 not started, the quest's final value once done.
+            JsonObject questStages = new JsonObject();
+            JsonArray questsComplete = new JsonArray();
+            for (QuestCatalog.Quest q : questCatalog.getQuests())
+            {
+                questStages.addProperty(q.id(), questProgress.getStage(q));
+                if (questProgress.isComplete(q))
+                {
+                    questsComplete.add(q.id());
+                }
+            }
+            root.add("quest_stages", questStages);
+            root.add("quests_complete", questsComplete);
         }
 
-        if (queuedUseItemName != null && !queuedUseItemName.isEmpty())
+        // ---- UI text (for future smarter agents) ----
+        phase = AIBrainEvents.beginPhase("ui_text");
+        // Widget changes reach the snapshot only through a finished UI sweep, which swaps in a new
+        // list; a sweep that found the same text keeps the encoded section.
+        List<IncrementalSceneScanner.UiEntry> uiText = sceneScanner.getUiText();
+        if (uiText != snapshotUiText)
         {
-            if (queuedUseItemOnName != null && !queuedUseItemOnName.isEmpty())
+            if (!uiText.equals(snapshotUiText))
             {
-                issueUseItemOnItem(queuedUseItemName, queuedUseItemOnName, queuedUseItemOption, queuedUseItemSlot);
+                snapshotSections.invalidate(SnapshotSections.Section.UI_TEXT);
             }
-            else
+            snapshotUiText = uiText;
+        }
+        JsonArray uiArr = snapshotSections.get(SnapshotSections.Section.UI_TEXT, () -> buildUiTextSection(uiText)).getAsJsonArray();
+        root.add("ui_text", uiArr);
+        AIBrainEvents.endPhase(phase, uiArr.size());
+
+        // ---- Scan watermarks: how many ticks old the scanned sections are ----
+        int tick = client.getTickCount();
+        JsonObject scan = new JsonObject();
+        scan.addProperty("tick", tick);
+        scan.addProperty("objects_age_ticks", tick - sceneScanner.getCompletedTick(IncrementalSceneScanner.Section.OBJECTS));
+        scan.addProperty("ui_text_age_ticks", tick - sceneScanner.getCompletedTick(IncrementalSceneScanner.Section.UI_TEXT));
+        root.add("scan", scan);
+
+        if (pathWalker.getStatus() != PathWalker.Status.IDLE)
+        {
+            JsonObject walk = new JsonObject();
+            walk.addProperty("status", pathWalker.getStatus().name().toLowerCase());
+            WorldPoint dest = pathWalker.getDestination();
+            walk.addProperty("x", dest.getX());
+            walk.addProperty("y", dest.getY());
+            walk.addProperty("plane", dest.getPlane());
+            walk.addProperty("remaining_tiles", pathWalker.getRemainingTiles());
+            walk.addProperty("remaining_legs", pathWalker.getRemainingLegs());
+            if (pathWalker.isPlanning())
             {
-                issueUseInventoryItem(queuedUseItemName, queuedUseItemOption, queuedUseItemSlot);
+                walk.addProperty("planning", true);
             }
-
-            queuedUseItemName = null;
-            queuedUseItemOnName = null;
-            queuedUseItemOption = null;
-            queuedUseItemSlot = null;
+            if (pathWalker.getFailure() != null)
+            {
+                walk.addProperty("failure", pathWalker.getFailure());
+            }
+            root.add("walk", walk);
         }
 
-        if (queuedCameraAdjust)
+        // ---- Behaviour loop: what it got through and, once it stops, why ----
+        if (loopInterpreter.getStatus() != LoopInterpreter.Status.IDLE)
         {
-            adjustCameraSlightly();
-            queuedCameraAdjust = false;
+            JsonObject loopJson = new JsonObject();
+            loopJson.addProperty("status", loopInterpreter.getStatus().name().toLowerCase());
+            loopJson.addProperty("step", loopInterpreter.getStepIndex());
+            loopJson.addProperty("iterations", loopInterpreter.getIterations());
+            loopJson.addProperty("ticks", loopInterpreter.getTicksRun(client.getTickCount()));
+            loopJson.addProperty("actions", loopInterpreter.getActions());
+            if (loopInterpreter.getExitReason() != null)
+            {
+                loopJson.addProperty("exit_reason", loopInterpreter.getExitReason());
+            }
+            root.add("loop", loopJson);
         }
 
-        if (queuedDialogContinue)
+        // ---- Outcome of the last action the brain asked for ----
+        ActionOutcomeTracker.Outcome outcome = actionOutcomes.getLast();
+        if (outcome != null)
         {
-            issueDialogContinue();
-            queuedDialogContinue = false;
+            JsonObject last = new JsonObject();
+            last.addProperty("action", outcome.action());
+            last.addProperty("result", outcome.result().name().toLowerCase());
+            if (outcome.reason() != null)
+            {
+                last.addProperty("reason", outcome.reason());
+            }
+            JsonArray effects = new JsonArray();
+            for (ActionOutcomeTracker.Effect effect : outcome.effects())
+            {
+                effects.add(effect.name().toLowerCase());
+            }
+            last.add("effects", effects);
+            last.addProperty("ticks_ago", client.getTickCount() - outcome.dispatchTick());
+            root.add("last_action", last);
         }
 
-        if (aiPaused)
+        // ---- Watches: what the brain asked to hear about, and which one triggered this decision ----
+        List<WatchSet.Watch> armed = watchSet.getWatches();
+        if (!armed.isEmpty() || watchTrip != null)
         {
-            return;
+            JsonObject watches = new JsonObject();
+            JsonArray armedArr = new JsonArray();
+            for (WatchSet.Watch watch : armed)
+            {
+                armedArr.add(watch.id());
+            }
+            watches.add("armed", armedArr);
+            if (watchTrip != null)
+            {
+                WatchSet.Watch watch = watchTrip.watch();
+                JsonObject tripped = new JsonObject();
+                tripped.addProperty("id", watch.id());
+                tripped.addProperty("type", watch.type().getWireName());
+                tripped.addProperty("then", watch.then().getWireName());
+                tripped.addProperty("ticks_ago", client.getTickCount() - watchTrip.tick());
+                watches.add("tripped", tripped);
+                // Reported once, in the decision it triggered.
+                watchTrip = null;
+            }
+            root.add("watches", watches);
         }
 
-        autoTickCounter++;
+        return root;
+    }
 
-        AIBrainMode mode = getCurrentMode();
-        if (mode == AIBrainMode.QUEST || mode == AIBrainMode.SKILL)
+    /**
+     * @return the snapshot as JSON text, with sections unchanged since the last one spliced in
+     *         already encoded
+     */
+    String encodeSnapshot(JsonObject gameState)
+    {
+        return snapshotSections.encode(gameState);
+    }
+
+    private JsonArray buildInventorySection()
+    {
+        JsonArray invArr = new JsonArray();
+        ItemContainer inv = client.getItemContainer(InventoryID.INVENTORY);
+        if (inv == null)
+        {
+            return invArr;
+        }
+
+        Item[] items = inv.getItems();
+        for (int slot = 0; slot < items.length; slot++)
         {
-            if (autoTickCounter % AUTO_DECISION_INTERVAL_TICKS == 0)
+            Item it = items[slot];
+            if (it == null || it.getId() <= 0)
             {
-                executeStep(true);
+                continue;
+            }
+
+            JsonObject itm = new JsonObject();
+            itm.addProperty("slot", slot);
+            itm.addProperty("id", it.getId());
+            itm.addProperty("quantity", it.getQuantity());
+
+            ItemComposition comp = client.getItemDefinition(it.getId());
+            if (comp != null)
+            {
+                itm.addProperty("name", comp.getName());
             }
+            invArr.add(itm);
         }
+        return invArr;
     }
 
-    // ===== Build game_state JSON =====
+    private JsonObject buildSkillsSection()
+    {
+        JsonObject skills = new JsonObject();
+        for (Skill skill : Skill.values())
+        {
+            int level = client.getRealSkillLevel(skill);
+            skills.addProperty(skill.getName(), level);
+        }
+        return skills;
+    }
 
-    private JsonObject buildGameState()
+    private static JsonArray buildUiTextSection(List<IncrementalSceneScanner.UiEntry> uiText)
     {
-        JsonObject root = new JsonObject();
+        JsonArray uiArr = new JsonArray();
+        for (IncrementalSceneScanner.UiEntry entry : uiText)
+        {
+            JsonObject ui = new JsonObject();
+            ui.addProperty("group", entry.group());
+            ui.addProperty("id", entry.id());
+            ui.addProperty("text", entry.text());
+            uiArr.add(ui);
+        }
+        return uiArr;
+    }
 
-        // ---- Player ----
-        JsonObject playerJson = new JsonObject();
-        if (client.getLocalPlayer() != null)
+    private boolean isDialogContinueVisible()
+    {
+        return DialogReader.read(client).canContinue();
+    }
+
+    // ===== HTTP helpers =====
+
+    private String normalizeBaseUrl(String baseUrl)
+    {
+        if (baseUrl == null || baseUrl.isEmpty())
         {
-            WorldPoint wp = client.getLocalPlayer().getWorldLocation();
-            playerJson.addProperty("x", wp.getX());
-            playerJson.addProperty("y", wp.getY());
-            playerJson.addProperty("plane", wp.getPlane());
-            playerJson.addProperty("name", client.getLocalPlayer().getName());
+            baseUrl = "http://127.0.0.1:9420";
         }
-        root.add("player", playerJson);
+        if (baseUrl.endsWith("/"))
+        {
+            baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
+        }
+        return baseUrl;
+    }
 
-        // ---- Nearby NPCs ----
-        JsonArray npcsArr = new JsonArray();
-        for (NPC npc : client.getNpcs())
+    private String secondaryDecideUrl()
+    {
+        if (!config.hedgeEnabled())
         {
-            if (npc == null || npc.getName() == null || npc.getName().isEmpty())
+            return null;
+        }
+
+        String secondary = config.secondaryBrainServerUrl();
+        if (secondary == null || secondary.trim().isEmpty())
+        {
+            return null;
+        }
+        return normalizeBaseUrl(secondary.trim()) + "/decide";
+    }
+
+    private long decideDeadlineMs(AIBrainMode mode)
+    {
+        int deadline;
+        switch (mode != null ? mode : AIBrainMode.QUEST)
+        {
+            case SKILL:
+                deadline = config.skillDeadlineMs();
+                break;
+            case MANUAL:
+                deadline = config.manualDeadlineMs();
+                break;
+            case QUEST:
+            default:
+                deadline = config.questDeadlineMs();
+                break;
+        }
+        return Math.max(500, deadline);
+    }
+
+    private void sendToBrainAsync(JsonObject gameState, DecisionTrace trace)
+    {
+        BrainTransport t = transport;
+        if (t == null)
+        {
+            return;
+        }
+
+        try
+        {
+            String url = normalizeBaseUrl(config.brainServerUrl()) + "/decide";
+            String json = encodeSnapshot(gameState);
+            trace.mark(DecisionTrace.Stage.ENCODED);
+            lastSnapshotBytes = json.getBytes(StandardCharsets.UTF_8).length;
+
+            long seq = t.decide(
+                    url,
+                    secondaryDecideUrl(),
+                    json,
+                    decideDeadlineMs(getCurrentMode()),
+                    Math.max(0, config.hedgeDelayMs()),
+                    trace,
+                    new BrainTransport.DecideCallback()
+                    {
+                        @Override
+                        public void onResponse(long seq, String body, boolean fromHedge)
+                        {
+                            record(SessionRecord.Type.RESPONSE, seq, body);
+                            onDecideResponse(body, fromHedge, trace);
+                        }
+
+                        @Override
+                        public void onError(long seq, String status, String details)
+                        {
+                            setPanelStatus(status, details + "\n" + t.latencySummary(), false);
+                        }
+                    });
+            trace.setSequence(seq);
+            record(SessionRecord.Type.SNAPSHOT, seq, json);
+        }
+        catch (Exception e)
+        {
+            log.warn("Error preparing AI brain /decide request", e);
+            setPanelStatus("Status: Error", "Failed to prepare /decide request", false);
+        }
+    }
+
+    private void onDecideResponse(String respBody, boolean fromHedge, DecisionTrace trace)
+    {
+        try
+        {
+            BrainAction action = BrainResponseDecoder.decode(respBody);
+            trace.setServerTimingMs(action.serverTimingMs());
+            trace.mark(DecisionTrace.Stage.PARSED);
+            eventJournal.acknowledge(trace.getJournalSequence());
+            chatRing.acknowledge(trace.getChatSequence());
+
+            if (aiPaused)
             {
-                continue;
+                setPanelStatus("Status: Stopped", "Execution halted by user.", false);
+                clearQueuedActions();
+                return;
             }
 
-            WorldPoint wp = npc.getWorldLocation();
-            if (wp == null)
+            handleActionResponse(action, trace);
+
+            String actionName = action.type().getWireName();
+            String reason = action.reason();
+
+            String desc = "Last action: " + actionName;
+            if (reason != null && !reason.isEmpty())
             {
-                continue;
+                desc += " – " + reason;
             }
-
-            if (client.getLocalPlayer() != null)
+            if (fromHedge)
             {
-                WorldPoint pw = client.getLocalPlayer().getWorldLocation();
-                if (pw != null && pw.distanceTo(wp) > 20)
-                {
-                    continue;
-                }
+                desc += " (secondary brain)";
             }
 
-            JsonObject n = new JsonObject();
-            n.addProperty("id", npc.getId());
-            n.addProperty("name", npc.getName());
-            n.addProperty("x", wp.getX());
-            n.addProperty("y", wp.getY());
-            n.addProperty("plane", wp.getPlane());
-
-            NPCComposition comp = npc.getComposition();
-            if (comp != null && comp.getActions() != null)
+            BrainTransport t = transport;
+            if (t != null)
             {
-                JsonArray acts = new JsonArray();
-                for (String a : comp.getActions())
-                {
-                    if (a != null && !a.isEmpty())
-                    {
-                        acts.add(a);
-                    }
-                }
-                n.add("actions", acts);
+                desc += "\n" + t.latencySummary();
             }
 
-            npcsArr.add(n);
+            setPanelStatus("Status: Idle", desc, false);
         }
-        root.add("npcs", npcsArr);
+        catch (BrainResponseException e)
+        {
+            malformedCounter.inc();
+            log.warn("AI brain /decide returned a malformed action ({}): {}", e.getMessage(), respBody);
+            setPanelStatus("Status: Error", "Invalid action from /decide: " + e.getMessage(), false);
+        }
+        catch (Exception e)
+        {
+            log.warn("Failed to handle AI brain /decide response", e);
+            setPanelStatus("Status: Error", "Exception in /decide: " + e.getMessage(), false);
+        }
+    }
 
-        // ---- Inventory ----
-        JsonArray invArr = new JsonArray();
-        ItemContainer inv = client.getItemContainer(InventoryID.INVENTORY);
-        if (inv != null)
+    private void sendControlUpdate()
+    {
+        BrainTransport t = transport;
+        if (t == null)
         {
-            Item[] items = inv.getItems();
-            for (int slot = 0; slot < items.length; slot++)
+            return;
+        }
+
+        try
+        {
+            JsonObject payload = new JsonObject();
+
+            AIBrainMode mode = getCurrentMode();
+            if (mode != null)
             {
-                Item it = items[slot];
-                if (it == null || it.getId() <= 0)
-                {
-                    continue;
-                }
+                payload.addProperty("mode", mode.getWireName());
+            }
 
-                JsonObject itm = new JsonObject();
-                itm.addProperty("slot", slot);
-                itm.addProperty("id", it.getId());
-                itm.addProperty("quantity", it.getQuantity());
+            payload.addProperty("current_quest", getCurrentQuest());
+            payload.addProperty("do_all_quests", isDoAllQuests());
 
-                ItemComposition comp = client.getItemDefinition(it.getId());
-                if (comp != null)
-                {
-                    itm.addProperty("name", comp.getName());
-                }
-                invArr.add(itm);
+            String skillName = getSkillName();
+            if (skillName != null && !skillName.isEmpty())
+            {
+                payload.addProperty("skill_target", skillName);
+            }
+            payload.addProperty("skill_target_level", getSkillTargetLevel());
+            payload.addProperty("skill_budget_gp", getSkillBudget());
+            payload.addProperty("behavior_loops", config.behaviorLoops());
+
+            String skGoal = getSkillingGoal();
+            if (skGoal != null && !skGoal.isEmpty())
+            {
+                payload.addProperty("skilling_goal", skGoal);
+            }
+
+            String manual = getManualGoal();
+            if (manual != null && !manual.isEmpty())
+            {
+                payload.addProperty("manual_goal", manual);
             }
+
+            String url = normalizeBaseUrl(config.brainServerUrl()) + "/control";
+            String json = GSON.toJson(payload);
+            record(SessionRecord.Type.CONTROL, t.currentSequence() + 1, json);
+            t.postControl(url, json);
         }
-        root.add("inventory", invArr);
+        catch (Exception e)
+        {
+            log.debug("Error sending AI brain /control request", e);
+        }
+    }
 
-        // ---- Nearby objects ----
-        JsonArray objectsArr = new JsonArray();
-        WorldPoint playerWp = client.getLocalPlayer() != null ? client.getLocalPlayer().getWorldLocation() : null;
-        int plane = client.getTopLevelWorldView().getPlane();
-        Tile[][][] tiles = client.getTopLevelWorldView().getScene().getTiles();
+    // ===== Action handling =====
 
-        if (tiles != null && plane >= 0 && plane < tiles.length)
+    private void handleActionResponse(BrainAction action, DecisionTrace trace)
+    {
+        if (aiPaused)
         {
-            for (Tile[] row : tiles[plane])
-            {
-                if (row == null)
-                {
-                    continue;
-                }
+            clearQueuedActions();
+            return;
+        }
+
+        // Every response replaces the watches, whatever it asks to do.
+        pendingWatches = new WatchSet.Pending(action.watches(), trace != null ? trace.getWatchesSeen() : null);
 
-                for (Tile tile : row)
+        BrainAction.Target target = action.target();
+
+        switch (action.type())
+        {
+            case WALK_TO_TILE:
+                queuedWalkTarget = target.toWorldPoint();
+                break;
+            case TALK_TO_NPC:
+                queuedTalkNpcName = target.name();
+                queuedTalkNpcTile = target.hasTile() ? target.toWorldPoint() : null;
+                break;
+            case ADJUST_CAMERA:
+                queuedCameraAdjust = true;
+                break;
+            case INTERACT_OBJECT:
+                queuedObjectTarget = target.toWorldPoint();
+                queuedObjectName = target.name();
+                queuedObjectOption = target.option();
+                break;
+            case USE_INVENTORY_ITEM:
+                queuedUseItemName = target.name();
+                queuedUseItemOption = target.option() != null ? target.option() : "Use";
+                queuedUseItemOnName = target.useOnName();
+                queuedUseItemSlot = target.slot();
+                break;
+            case PICKUP_ITEM:
+                queuedPickupName = target.name();
+                queuedPickupTile = target.hasTile() ? target.toWorldPoint() : null;
+                break;
+            case DIALOG_CONTINUE:
+                queuedDialogContinue = true;
+                autoTickCounter = 0;
+                break;
+            case SELECT_DIALOG_OPTION:
+                queuedDialogOptionIndex = target.slot();
+                queuedDialogOptionText = target.option();
+                queuedDialogChoices = action.choices();
+                autoTickCounter = 0;
+                break;
+            case RUN_LOOP:
+                if (getCurrentMode() != AIBrainMode.SKILL || !config.behaviorLoops())
                 {
-                    if (tile == null)
-                    {
-                        continue;
-                    }
+                    log.debug("Ignoring run_loop outside Skill mode or with loops disabled");
+                    autoTickCounter = 0;
+                    completeTrace(trace);
+                    return;
+                }
+                queuedLoop = action.loop();
+                break;
+            case WAIT:
+            default:
+                autoTickCounter = 0;
+                completeTrace(trace);
+                return;
+        }
 
-                    for (GameObject obj : tile.getGameObjects())
-                    {
-                        if (obj == null)
-                        {
-                            continue;
-                        }
+        trace.mark(DecisionTrace.Stage.QUEUED);
+        queuedTrace = trace;
+    }
 
-                        WorldPoint wp = obj.getWorldLocation();
-                        if (wp == null || wp.getPlane() != plane)
-                        {
-                            continue;
-                        }
+    /**
+     * Single funnel for every menu action the plugin issues, so each dispatch shows up in a flight recording.
+     */
+    private void dispatchMenuAction(int param0, int param1, MenuAction menuAction, int identifier, int itemId,
+                                    String option, String target)
+    {
+        AIBrainEvents.MenuActionDispatch event = new AIBrainEvents.MenuActionDispatch();
+        event.begin();
 
-                        if (playerWp != null && playerWp.distanceTo(wp) > 20)
-                        {
-                            continue;
-                        }
+        client.menuAction(param0, param1, menuAction, identifier, itemId, option, target);
 
-                        ObjectComposition comp = client.getObjectDefinition(obj.getId());
-                        if (comp == null || comp.getName() == null || comp.getName().isEmpty())
-                        {
-                            continue;
-                        }
+        if (recorder != null)
+        {
+            JsonObject dispatched = new JsonObject();
+            dispatched.addProperty("tick", client.getTickCount());
+            dispatched.addProperty("menu_action", menuAction.name());
+            dispatched.addProperty("option", option);
+            dispatched.addProperty("target", target);
+            dispatched.addProperty("param0", param0);
+            dispatched.addProperty("param1", param1);
+            dispatched.addProperty("identifier", identifier);
+            dispatched.addProperty("item_id", itemId);
+            DecisionTrace trace = queuedTrace;
+            record(SessionRecord.Type.ACTION, trace != null ? trace.getSequence() : 0, GSON.toJson(dispatched));
+        }
 
-                        JsonObject o = new JsonObject();
-                        o.addProperty("id", obj.getId());
-                        o.addProperty("name", comp.getName());
-                        o.addProperty("x", wp.getX());
-                        o.addProperty("y", wp.getY());
-                        o.addProperty("plane", wp.getPlane());
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.menuAction = menuAction.name();
+            event.option = option;
+            event.target = target;
+            event.param0 = param0;
+            event.param1 = param1;
+            event.identifier = identifier;
+            event.commit();
+        }
+    }
 
-                        if (comp.getActions() != null)
-                        {
-                            JsonArray acts = new JsonArray();
-                            for (String a : comp.getActions())
-                            {
-                                if (a != null && !a.isEmpty())
-                                {
-                                    acts.add(a);
-                                }
-                            }
-                            o.add("actions", acts);
-                        }
+    private void issueWalk(WorldPoint target)
+    {
+        clientThread.invoke(() ->
+        {
+            if (client.getLocalPlayer() == null || target == null)
+            {
+                return;
+            }
 
-                        objectsArr.add(o);
-                    }
+            pathWalker.cancel();
+            WorldPoint from = client.getLocalPlayer().getWorldLocation();
+            if (from.equals(target))
+            {
+                actionOutcomes.noOp("already on " + target);
+                return;
+            }
+            if (from.getPlane() == target.getPlane())
+            {
+                LocalPoint lp = LocalPoint.fromWorld(client, target);
+                if (lp != null)
+                {
+                    clickWalk(lp);
+                    return;
                 }
             }
-        }
 
-        root.add("objects", objectsArr);
+            // Outside the loaded scene or on another floor: follow a travel graph route if one is known,
+            // else a route over the collision cache, a few clicks at a time.
+            TravelGraph graph = getTravelGraph();
+            TravelGraph.Route route = graph != null ? graph.route(from, target) : null;
+            if (pathWalker.start(from, target, client.getTickCount(), route))
+            {
+                stepWalker();
+            }
+            else
+            {
+                walksFailedCounter.inc();
+                actionOutcomes.fail(pathWalker.getFailure());
+            }
+        });
+    }
 
-        // ---- Skills ----
-        JsonObject skills = new JsonObject();
-        for (Skill skill : Skill.values())
+    private void clickWalk(LocalPoint lp)
+    {
+        dispatchMenuAction(
+                lp.getSceneX(),
+                lp.getSceneY(),
+                MenuAction.WALK,
+                0,
+                0,
+                "Walk here",
+                ""
+        );
+    }
+
+    /**
+     * Move an active long-distance walk along by one tick. Client thread only.
+     */
+    private void stepWalker()
+    {
+        if (pathWalker.getStatus() != PathWalker.Status.WALKING || client.getLocalPlayer() == null)
         {
-            int level = client.getRealSkillLevel(skill);
-            skills.addProperty(skill.getName(), level);
+            return;
         }
-        root.add("skills", skills);
 
-        // ---- Dialogue (fixed can_continue) ----
-        JsonObject dialog = new JsonObject();
+        PathWalker.Status status = pathWalker.step(
+                client.getLocalPlayer().getWorldLocation(),
+                client.getTickCount(),
+                walkerActions);
 
-        Widget npcText = client.getWidget(WidgetInfo.DIALOG_NPC_TEXT);
-        String npcStr = null;
-        if (npcText != null)
+        if (status == PathWalker.Status.ARRIVED)
+        {
+            walksArrivedCounter.inc();
+        }
+        else if (status == PathWalker.Status.FAILED)
         {
-            npcStr = npcText.getText();
-            dialog.addProperty("npc_text", npcStr);
+            walksFailedCounter.inc();
         }
+    }
 
-        Widget playerText = client.getWidget(WidgetInfo.DIALOG_PLAYER_TEXT);
-        String playerStr = null;
-        if (playerText != null)
+    /**
+     * Issue one brain action with its outcome tracked from this tick on. Client thread only.
+     *
+     * @param before this tick's observation, or null if there is no player to observe
+     */
+    private void trackDispatch(BrainActionType type, Set<ActionOutcomeTracker.Effect> expected, int windowTicks,
+                               ActionOutcomeTracker.Observation before, Runnable issue)
+    {
+        if (before == null)
         {
-            playerStr = playerText.getText();
-            dialog.addProperty("player_text", playerStr);
+            issue.run();
+            return;
         }
 
-        // Look for the dedicated "continue" widgets – not available in this API version, so rely on text hints only.
-        boolean hasContinueWidget = false;
+        ActionOutcomeTracker.Outcome previous = actionOutcomes.getLast();
+        actionOutcomes.beginDispatch(type.getWireName(), expected, windowTicks, client.getTickCount(), before);
+        try
+        {
+            issue.run();
+        }
+        finally
+        {
+            actionOutcomes.endDispatch();
+        }
+        countOutcome(previous, actionOutcomes.getLast());
+    }
 
-        // Fallback: textual hint, just in case
-        boolean textHints = false;
-        if (npcStr != null && npcStr.toLowerCase().contains("click here to continue"))
+    /**
+     * Throw away the queued action: it was decided from a snapshot {@code age} ticks old, long enough
+     * that whatever it targets has likely moved on. It is reported to the brain as a failure, so the
+     * next decision is made knowing it never ran. A queued loop is kept; it picks its targets as it
+     * runs. Client thread only.
+     */
+    private void dropStaleActions(int age, ActionOutcomeTracker.Observation observation)
+    {
+        BrainActionType type = BrainActionType.ADJUST_CAMERA;
+        if (queuedWalkTarget != null)
+        {
+            type = BrainActionType.WALK_TO_TILE;
+        }
+        else if (queuedTalkNpcName != null)
+        {
+            type = BrainActionType.TALK_TO_NPC;
+        }
+        else if (queuedObjectTarget != null)
+        {
+            type = BrainActionType.INTERACT_OBJECT;
+        }
+        else if (queuedUseItemName != null)
+        {
+            type = BrainActionType.USE_INVENTORY_ITEM;
+        }
+        else if (queuedPickupName != null)
+        {
+            type = BrainActionType.PICKUP_ITEM;
+        }
+        else if (queuedDialogContinue)
         {
-            textHints = true;
+            type = BrainActionType.DIALOG_CONTINUE;
         }
-        if (playerStr != null && playerStr.toLowerCase().contains("click here to continue"))
+        else if (queuedDialogOptionIndex != null || queuedDialogOptionText != null)
         {
-            textHints = true;
+            type = BrainActionType.SELECT_DIALOG_OPTION;
         }
 
-        boolean canContinue = hasContinueWidget || textHints;
-        dialog.addProperty("can_continue", canContinue);
+        log.debug("Dropping {} decided {} ticks ago", type.getWireName(), age);
+        staleDroppedCounter.inc();
+        trackDispatch(type, Collections.emptySet(), 0, observation,
+                () -> actionOutcomes.fail("decided from a snapshot " + age + " ticks old; dropped"));
 
-        root.add("dialog", dialog);
+        queuedWalkTarget = null;
+        queuedTalkNpcName = null;
+        queuedTalkNpcTile = null;
+        queuedObjectTarget = null;
+        queuedObjectName = null;
+        queuedObjectOption = null;
+        queuedUseItemName = null;
+        queuedUseItemOnName = null;
+        queuedUseItemOption = null;
+        queuedUseItemSlot = null;
+        queuedPickupName = null;
+        queuedPickupTile = null;
+        queuedCameraAdjust = false;
+        queuedDialogContinue = false;
+        queuedDialogOptionIndex = null;
+        queuedDialogOptionText = null;
+        queuedDialogChoices = null;
 
-        // ---- Chat log ----
-        JsonArray chatArr = new JsonArray();
-        synchronized (chatLog)
+        DecisionTrace trace = queuedTrace;
+        queuedTrace = null;
+        completeTrace(trace);
+    }
+
+    /**
+     * Find the NPC a queued action meant: one called {@code name} offering {@code option} within
+     * {@link #NPC_DRIFT_TILES} of where the snapshot saw it, or else the nearest reachable one.
+     * Client thread only.
+     *
+     * @param seenAt where the snapshot had it, or null if the brain gave no tile
+     * @return null if there is none
+     */
+    private NPC revalidateNpc(String name, String option, WorldPoint seenAt)
+    {
+        if (seenAt != null)
         {
-            for (String msg : chatLog)
+            for (NPC npc : client.getNpcs())
             {
-                chatArr.add(msg);
+                if (offersOption(npc, name, option) && npc.getWorldLocation().distanceTo(seenAt) <= NPC_DRIFT_TILES)
+                {
+                    targetValidCounter.inc();
+                    return npc;
+                }
             }
         }
-        root.add("chat_log", chatArr);
 
-        // ---- Context from UI ----
-        JsonObject ctx = new JsonObject();
-        AIBrainMode mode = getCurrentMode();
-        ctx.addProperty("mode", mode != null ? mode.getWireName() : "quest");
-        ctx.addProperty("current_quest", getCurrentQuest());
-        ctx.addProperty("do_all_quests", isDoAllQuests());
-        ctx.addProperty("skill_target", getSkillName());
-        ctx.addProperty("skill_target_level", getSkillTargetLevel());
-        ctx.addProperty("skill_budget_gp", getSkillBudget());
-        ctx.addProperty("skilling_goal", getSkillingGoal());
-        ctx.addProperty("manual_goal", getManualGoal());
-        root.add("context", ctx);
+        NPC nearest = nearestReachableNpc(name, option);
+        if (nearest == null)
+        {
+            targetMissingCounter.inc();
+        }
+        else if (seenAt != null)
+        {
+            log.debug("Retargeting {} {} from {} to {}", option, name, seenAt, nearest.getWorldLocation());
+            targetRetargetedCounter.inc();
+        }
+        else
+        {
+            targetValidCounter.inc();
+        }
+        return nearest;
+    }
 
-        // ---- UI text (for future smarter agents) ----
-        JsonArray uiArr = new JsonArray();
-        try
+    /**
+     * Find the object a queued action meant: the one called {@code name} still on {@code tile}, or
+     * else the nearest reachable one offering {@code option}. Client thread only.
+     *
+     * @return its tile, or null if there is none
+     */
+    private WorldPoint revalidateObject(String name, String option, WorldPoint tile)
+    {
+        if (findGameObject(name, tile) != null)
         {
-            final int MAX_GROUP = 800;
-            final int MAX_CHILD = 800;
+            targetValidCounter.inc();
+            return tile;
+        }
+
+        WorldPoint nearest = name != null && !name.isEmpty() ? nearestReachableObject(name, option) : null;
+        if (nearest == null)
+        {
+            targetMissingCounter.inc();
+            return null;
+        }
+        log.debug("Retargeting {} {} from {} to {}", option, name, tile, nearest);
+        targetRetargetedCounter.inc();
+        return nearest;
+    }
 
-            for (int group = 0; group < MAX_GROUP; group++)
+    /**
+     * Find the ground item a queued pickup meant: one called {@code name} still on {@code tile},
+     * or else the nearest reachable one. Client thread only.
+     *
+     * @param tile where the snapshot had it, or null if the brain gave no tile
+     * @return null if there is none
+     */
+    private GroundItemIndex.GroundItem revalidateGroundItem(String name, WorldPoint tile)
+    {
+        if (tile != null)
+        {
+            for (GroundItemIndex.GroundItem item : groundItems.at(tile))
             {
-                for (int child = 0; child < MAX_CHILD; child++)
+                if (name.equalsIgnoreCase(item.name()))
                 {
-                    Widget w = client.getWidget(group, child);
-                    if (w == null || w.isHidden())
-                    {
-                        continue;
-                    }
-
-                    String text = w.getText();
-                    if (text == null)
-                    {
-                        continue;
-                    }
-
-                    String trimmed = text.trim();
-                    if (trimmed.isEmpty())
-                    {
-                        continue;
-                    }
+                    targetValidCounter.inc();
+                    return item;
+                }
+            }
+        }
 
-                    if (trimmed.length() > 200)
-                    {
-                        trimmed = trimmed.substring(0, 200);
-                    }
+        GroundItemIndex.GroundItem nearest = nearestReachableGroundItem(name);
+        if (nearest == null)
+        {
+            targetMissingCounter.inc();
+        }
+        else if (tile != null)
+        {
+            log.debug("Retargeting Take {} from {} to {}", name, tile, nearest.tile());
+            targetRetargetedCounter.inc();
+        }
+        else
+        {
+            targetValidCounter.inc();
+        }
+        return nearest;
+    }
 
-                    JsonObject ui = new JsonObject();
-                    ui.addProperty("group", group);
-                    ui.addProperty("id", w.getId());
-                    ui.addProperty("text", trimmed);
+    /**
+     * Find the option a queued selection meant: the one reading {@code text} if it is given, else
+     * option {@code index}. Client thread only.
+     *
+     * @return the option's index from 1, or -1 if there is no option menu or no such option
+     */
+    private int revalidateDialogOption(DialogReader.Dialog dialog, Integer index, String text)
+    {
+        if (dialog.kind() != DialogReader.Kind.OPTIONS)
+        {
+            targetMissingCounter.inc();
+            return -1;
+        }
 
-                    uiArr.add(ui);
-                }
+        int byText = text != null && !text.trim().isEmpty() ? dialog.optionIndex(text) : -1;
+        boolean byIndex = index != null && index >= 1 && index <= dialog.options().size();
+        if (byText > 0)
+        {
+            // Menus can differ from the snapshot's by an option or two; the text is what the brain meant.
+            if (byIndex && byText != index)
+            {
+                targetRetargetedCounter.inc();
+            }
+            else
+            {
+                targetValidCounter.inc();
             }
+            return byText;
         }
-        catch (Exception e)
+        if (byIndex && (text == null || text.trim().isEmpty()))
         {
-            log.debug("Error while collecting UI text", e);
+            targetValidCounter.inc();
+            return index;
         }
-        root.add("ui_text", uiArr);
-
-        return root;
+        targetMissingCounter.inc();
+        return -1;
     }
 
-    // ===== HTTP helpers =====
-
-    private String normalizeBaseUrl(String baseUrl)
+    /**
+     * Find the inventory slot a queued action meant: {@code preferredSlot} if it still holds
+     * {@code name}, or else the first slot that does. Client thread only.
+     *
+     * @return -1 if there is none
+     */
+    private int revalidateItem(String name, Integer preferredSlot)
     {
-        if (baseUrl == null || baseUrl.isEmpty())
+        ItemContainer inv = client.getItemContainer(InventoryID.INVENTORY);
+        int slot = inv != null ? findInventorySlotByName(name, preferredSlot, inv.getItems()) : -1;
+        if (slot < 0)
         {
-            baseUrl = "http://127.0.0.1:9420";
+            targetMissingCounter.inc();
         }
-        if (baseUrl.endsWith("/"))
+        else if (preferredSlot != null && slot != preferredSlot)
         {
-            baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
+            targetRetargetedCounter.inc();
         }
-        return baseUrl;
+        else
+        {
+            targetValidCounter.inc();
+        }
+        return slot;
     }
 
-    private void sendToBrainAsync(JsonObject gameState)
+    private void countOutcome(ActionOutcomeTracker.Outcome before, ActionOutcomeTracker.Outcome after)
     {
-        try
+        if (after == null || after == before)
         {
-            String baseUrl = normalizeBaseUrl(config.brainServerUrl());
-            String url = baseUrl + "/decide";
+            return;
+        }
 
-            String json = GSON.toJson(gameState);
-            RequestBody body = RequestBody.create(JSON_MEDIA_TYPE, json);
+        switch (after.result())
+        {
+            case SUCCESS:
+                outcomeSuccessCounter.inc();
+                break;
+            case FAILURE:
+                outcomeFailureCounter.inc();
+                break;
+            case NO_OP:
+                outcomeNoOpCounter.inc();
+                break;
+            case PENDING:
+            default:
+                break;
+        }
+    }
 
-            Request request = new Request.Builder()
-                    .url(url)
-                    .post(body)
-                    .build();
+    /**
+     * What the outcome tracker compares between ticks. Client thread only.
+     *
+     * @return null when there is no local player
+     */
+    private ActionOutcomeTracker.Observation observe()
+    {
+        Player player = client.getLocalPlayer();
+        if (player == null || player.getWorldLocation() == null)
+        {
+            return null;
+        }
 
-            new Thread(() ->
+        int inventoryHash = 0;
+        ItemContainer inv = client.getItemContainer(InventoryID.INVENTORY);
+        if (inv != null)
+        {
+            for (Item it : inv.getItems())
             {
-                try (Response response = httpClient.newCall(request).execute())
-                {
-                    if (!response.isSuccessful())
-                    {
-                        log.warn("AI brain /decide error: {}", response);
-                        setPanelStatus("Status: Error",
-                                "Brain /decide HTTP " + response.code(), false);
-                        return;
-                    }
-
-                    if (response.body() == null)
-                    {
-                        log.warn("AI brain /decide returned no body");
-                        setPanelStatus("Status: Error", "Empty body from /decide", false);
-                        return;
-                    }
-
-                    String respBody = response.body().string();
-                    if (respBody.isEmpty())
-                    {
-                        log.warn("AI brain /decide returned empty string");
-                        setPanelStatus("Status: Error", "Empty string from /decide", false);
-                        return;
-                    }
-
-                    JsonObject actionJson = GSON.fromJson(respBody, JsonObject.class);
-                    if (actionJson == null)
-                    {
-                        log.warn("AI brain /decide returned invalid JSON: {}", respBody);
-                        setPanelStatus("Status: Error", "Invalid JSON from /decide", false);
-                        return;
-                    }
-
-                    if (aiPaused)
-                    {
-                        setPanelStatus("Status: Stopped", "Execution halted by user.", false);
-                        clearQueuedActions();
-                        return;
-                    }
-
-                    handleActionResponse(actionJson);
+                inventoryHash = 31 * inventoryHash + (it != null ? it.getId() * 65599 + it.getQuantity() : 0);
+            }
+        }
 
-                    String actionName = actionJson.has("action")
-                            ? actionJson.get("action").getAsString()
-                            : "unknown";
+        int dialogHash = DialogReader.read(client).hash();
 
-                    String reason = null;
-                    if (actionJson.has("meta") && actionJson.get("meta").isJsonObject())
-                    {
-                        JsonObject meta = actionJson.getAsJsonObject("meta");
-                        if (meta.has("reason") && !meta.get("reason").isJsonNull())
-                        {
-                            reason = meta.get("reason").getAsString();
-                        }
-                    }
+        Actor interacting = player.getInteracting();
+        return new ActionOutcomeTracker.Observation(
+                player.getWorldLocation(),
+                interacting != null ? System.identityHashCode(interacting) : 0,
+                player.getAnimation(),
+                dialogHash,
+                inventoryHash);
+    }
 
-                    String desc = "Last action: " + actionName;
-                    if (reason != null && !reason.isEmpty())
-                    {
-                        desc += " – " + reason;
-                    }
+    /**
+     * Forget what the journal last saw of stats and inventory, so the next full update sets a new
+     * baseline instead of showing up as gains. Client thread only.
+     */
+    private void resetJournalBaselines()
+    {
+        Arrays.fill(journalXp, -1);
+        Arrays.fill(journalLevels, -1);
+        journalInventory = null;
+        journalDialogOpen = false;
+    }
 
-                    setPanelStatus("Status: Idle", desc, false);
-                }
-                catch (Exception e)
-                {
-                    log.warn("Failed to call AI brain /decide", e);
-                    setPanelStatus("Status: Error", "Exception in /decide: " + e.getMessage(), false);
-                }
-            }, "aibrain-decide-http").start();
+    private void recordNearbyNpc(NPC npc, EventJournal.Kind kind)
+    {
+        Player player = client.getLocalPlayer();
+        if (npc == null || npc.getName() == null || player == null || npc.getWorldLocation() == null
+                || npc.getWorldLocation().distanceTo(player.getWorldLocation()) > JOURNAL_NPC_RADIUS)
+        {
+            return;
         }
-        catch (Exception e)
+        eventJournal.record(client.getTickCount(), kind, npc.getName(), 1);
+    }
+
+    /**
+     * Journal a dialog opening or closing since the last tick. Client thread only.
+     */
+    private void journalDialog()
+    {
+        DialogReader.Dialog dialog = DialogReader.read(client);
+        boolean open = dialog.isOpen();
+        if (open == journalDialogOpen)
         {
-            log.warn("Error preparing AI brain /decide request", e);
-            setPanelStatus("Status: Error", "Failed to prepare /decide request", false);
+            return;
         }
+
+        journalDialogOpen = open;
+        Actor with = client.getLocalPlayer() != null ? client.getLocalPlayer().getInteracting() : null;
+        String subject = dialog.speaker() != null ? dialog.speaker() : with != null ? with.getName() : null;
+        eventJournal.record(client.getTickCount(),
+                open ? EventJournal.Kind.DIALOG_OPENED : EventJournal.Kind.DIALOG_CLOSED,
+                open ? subject : null, 0);
     }
 
-    private void sendControlUpdate()
+    /**
+     * With "do all quests" on, move the panel to the next unfinished quest as soon as the game says
+     * the selected one is complete, dropping whatever was planned for the old one. Client thread only.
+     */
+    private void advanceQuestIfComplete()
     {
-        try
+        if (panel == null || getCurrentMode() != AIBrainMode.QUEST || !isDoAllQuests())
         {
-            JsonObject payload = new JsonObject();
+            return;
+        }
 
-            AIBrainMode mode = getCurrentMode();
-            if (mode != null)
-            {
-                payload.addProperty("mode", mode.getWireName());
-            }
+        QuestCatalog.Quest quest = questCatalog.byName(getCurrentQuest());
+        if (quest == null || !questProgress.isComplete(quest) || quest.equals(questAdvancedFrom))
+        {
+            return;
+        }
+        questAdvancedFrom = quest;
 
-            payload.addProperty("current_quest", getCurrentQuest());
-            payload.addProperty("do_all_quests", isDoAllQuests());
+        QuestCatalog.Quest next = questProgress.nextIncomplete(quest);
+        if (next == null)
+        {
+            log.info("{} is complete, and so is every other quest", quest.name());
+            return;
+        }
+
+        log.info("{} is complete; moving on to {}", quest.name(), next.name());
+        cancelInFlightDecision("quest complete");
+        clearQueuedActions();
+        panel.selectQuest(next.name());
+        setPanelStatus("Status: Quest complete", quest.name() + " done; next up: " + next.name(), true);
+    }
 
-            String skillName = getSkillName();
-            if (skillName != null && !skillName.isEmpty())
-            {
-                payload.addProperty("skill_target", skillName);
-            }
-            payload.addProperty("skill_target_level", getSkillTargetLevel());
-            payload.addProperty("skill_budget_gp", getSkillBudget());
+    /**
+     * Talk through the active dialog script for one tick. Client thread only.
+     *
+     * @return true if it ended this tick, so the brain should decide what comes next
+     */
+    private boolean stepDialogScript()
+    {
+        if (!dialogScript.isRunning())
+        {
+            return false;
+        }
 
-            String skGoal = getSkillingGoal();
-            if (skGoal != null && !skGoal.isEmpty())
-            {
-                payload.addProperty("skilling_goal", skGoal);
-            }
+        int actionsBefore = dialogScript.getActions();
+        DialogScript.Status status = dialogScript.step(client.getTickCount(), DialogReader.read(client), dialogActions);
+        dialogScriptActionsCounter.add(dialogScript.getActions() - actionsBefore);
 
-            String manual = getManualGoal();
-            if (manual != null && !manual.isEmpty())
-            {
-                payload.addProperty("manual_goal", manual);
-            }
+        switch (status)
+        {
+            case FINISHED:
+                dialogScriptsFinishedCounter.inc();
+                return true;
+            case FAILED:
+                dialogScriptsFailedCounter.inc();
+                return true;
+            case RUNNING:
+            case IDLE:
+            default:
+                return false;
+        }
+    }
 
-            String baseUrl = normalizeBaseUrl(config.brainServerUrl());
-            String url = baseUrl + "/control";
+    /**
+     * Arm the watches from the latest response, then check them once. A tripped {@code abort}
+     * watch drops the running plan here. Client thread only.
+     *
+     * @return the watch that tripped this tick, or null
+     */
+    private WatchSet.Trip checkWatches()
+    {
+        WatchSet.Pending pending = pendingWatches;
+        if (pending != null)
+        {
+            pendingWatches = null;
+            watchSet.arm(pending.watches(), pending.seen());
+        }
 
-            String json = GSON.toJson(payload);
-            RequestBody body = RequestBody.create(JSON_MEDIA_TYPE, json);
+        WatchSet.Trip trip = watchSet.check(client.getTickCount(), watchGame);
+        if (trip == null)
+        {
+            return null;
+        }
 
-            Request request = new Request.Builder()
-                    .url(url)
-                    .post(body)
-                    .build();
+        log.debug("Watch '{}' ({}) tripped", trip.watch().id(), trip.watch().type().getWireName());
+        if (trip.watch().then() == WatchSet.OnTrip.ABORT)
+        {
+            watchAbortCounter.inc();
+            clearQueuedActions();
+        }
+        else
+        {
+            watchDecideCounter.inc();
+        }
+        watchTrip = trip;
+        return trip;
+    }
 
-            try (Response response = httpClient.newCall(request).execute())
+    /**
+     * The watched state as the snapshot being captured shows it, so that watches in the answer trip
+     * on anything that changed while the brain was deciding. Client thread only.
+     */
+    private WatchSet.Seen captureWatchesSeen()
+    {
+        Map<String, Integer> npcDistances = new HashMap<>();
+        Player player = client.getLocalPlayer();
+        if (player != null)
+        {
+            WorldPoint from = player.getWorldLocation();
+            for (NPC npc : client.getNpcs())
             {
-                if (!response.isSuccessful())
+                WorldPoint at = npc.getWorldLocation();
+                if (at == null || npc.getName() == null || at.getPlane() != from.getPlane())
                 {
-                    log.debug("AI brain /control error: {}", response);
+                    continue;
                 }
+                npcDistances.merge(npc.getName().toLowerCase(Locale.ROOT), at.distanceTo(from), Math::min);
             }
         }
-        catch (Exception e)
+        return new WatchSet.Seen(watchGame.freeInventorySlots(), watchGame.isDialogOpen(), watchGame.hitpoints(),
+                npcDistances);
+    }
+
+    /**
+     * Run the active behaviour loop for one tick. Client thread only.
+     *
+     * @return true if the loop ended this tick, so the brain should decide what comes next
+     */
+    private boolean stepLoop()
+    {
+        if (!loopInterpreter.isRunning() || client.getLocalPlayer() == null)
         {
-            log.debug("Error sending AI brain /control request", e);
+            return false;
+        }
+
+        int actionsBefore = loopInterpreter.getActions();
+        LoopInterpreter.Status status = loopInterpreter.step(
+                client.getTickCount(),
+                client.getLocalPlayer().getWorldLocation(),
+                loopGame);
+        loopActionsCounter.add(loopInterpreter.getActions() - actionsBefore);
+
+        switch (status)
+        {
+            case FINISHED:
+                loopsFinishedCounter.inc();
+                return true;
+            case INTERRUPTED:
+                loopsInterruptedCounter.inc();
+                return true;
+            case FAILED:
+                loopsFailedCounter.inc();
+                return true;
+            case RUNNING:
+            case IDLE:
+            default:
+                return false;
         }
     }
 
-    // ===== Action handling =====
+    /**
+     * Use {@code option} on the nearest reachable scanned object called {@code name}. Client thread only.
+     *
+     * @return false if there is none
+     */
+    private boolean issueNearestObjectOption(String name, String option)
+    {
+        WorldPoint best = nearestReachableObject(name, option);
+        if (best == null)
+        {
+            return false;
+        }
+        issueInteractWithObject(name, option, best);
+        return true;
+    }
 
-    private void handleActionResponse(JsonObject actionJson)
+    /**
+     * Use {@code option} on the nearest reachable NPC called {@code name}. Client thread only.
+     *
+     * @return false if there is none
+     */
+    private boolean issueNearestNpcOption(String name, String option)
     {
-        if (aiPaused)
+        NPC best = nearestReachableNpc(name, option);
+        LocalPoint lp = best != null ? LocalPoint.fromWorld(client, best.getWorldLocation()) : null;
+        if (lp == null)
         {
-            clearQueuedActions();
-            return;
+            return false;
         }
+        int opt = indexOfOption(best.getComposition().getActions(), option);
+        dispatchMenuAction(lp.getSceneX(), lp.getSceneY(), NPC_OPTIONS[opt], best.getIndex(), 0,
+                option, best.getName());
+        return true;
+    }
 
-        String action = actionJson.has("action")
-                ? actionJson.get("action").getAsString()
-                : "wait";
+    /**
+     * Find the nearest object called {@code name} that the scanner has seen, the player can walk up
+     * to and that is still in the scene. Client thread only.
+     *
+     * @param option an option the object must offer, or null for any
+     * @return its tile, or null if there is none
+     */
+    private WorldPoint nearestReachableObject(String name, String option)
+    {
+        WorldPoint playerWp = client.getLocalPlayer() != null ? client.getLocalPlayer().getWorldLocation() : null;
+        if (!reachability.finish(client.getTopLevelWorldView(), playerWp))
+        {
+            return null;
+        }
 
-        JsonObject target = actionJson.has("target") && actionJson.get("target").isJsonObject()
-                ? actionJson.getAsJsonObject("target")
-                : null;
+        WorldPoint best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (IncrementalSceneScanner.ObjectEntry obj : sceneScanner.getObjects())
+        {
+            if (!name.equalsIgnoreCase(obj.name()) || (option != null && indexOfOption(obj.actions(), option) < 0))
+            {
+                continue;
+            }
+            int d = reachability.approachDistance(obj.location());
+            // The scanner may lag a few ticks behind, e.g. a tree chopped down since its section was scanned.
+            if (d >= 0 && d < bestDistance && findGameObject(name, obj.location()) != null)
+            {
+                best = obj.location();
+                bestDistance = d;
+            }
+        }
+        return best;
+    }
 
-        if ("walk_to_tile".equalsIgnoreCase(action) && target != null)
+    /**
+     * Find the nearest ground item called {@code name} that the player can walk up to. Client
+     * thread only.
+     *
+     * @return null if there is none
+     */
+    private GroundItemIndex.GroundItem nearestReachableGroundItem(String name)
+    {
+        WorldPoint playerWp = client.getLocalPlayer() != null ? client.getLocalPlayer().getWorldLocation() : null;
+        if (!reachability.finish(client.getTopLevelWorldView(), playerWp))
         {
-            int tx = target.has("x") ? target.get("x").getAsInt() : 0;
-            int ty = target.has("y") ? target.get("y").getAsInt() : 0;
-            int plane = target.has("plane") ? target.get("plane").getAsInt() : 0;
-            queuedWalkTarget = new WorldPoint(tx, ty, plane);
-            return;
+            return null;
         }
 
-        if ("talk_to_npc".equalsIgnoreCase(action) && target != null)
+        GroundItemIndex.GroundItem best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (GroundItemIndex.GroundItem item : groundItems.named(name))
         {
-            String npcName = target.has("name") ? target.get("name").getAsString() : "";
-            if (!npcName.isEmpty())
+            int d = reachability.approachDistance(item.tile());
+            if (d >= 0 && d < bestDistance)
             {
-                queuedTalkNpcName = npcName;
+                best = item;
+                bestDistance = d;
             }
-            return;
         }
+        return best;
+    }
 
-        if ("adjust_camera".equalsIgnoreCase(action))
+    /**
+     * Find the nearest NPC called {@code name} that offers {@code option} and that the player can
+     * walk up to. Client thread only.
+     *
+     * @return null if there is none
+     */
+    private NPC nearestReachableNpc(String name, String option)
+    {
+        WorldPoint playerWp = client.getLocalPlayer() != null ? client.getLocalPlayer().getWorldLocation() : null;
+        if (!reachability.finish(client.getTopLevelWorldView(), playerWp))
         {
-            queuedCameraAdjust = true;
-            return;
+            return null;
         }
 
-        if ("dialog_continue".equalsIgnoreCase(action))
+        NPC best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (NPC npc : client.getNpcs())
         {
-            queuedDialogContinue = true;
+            if (!offersOption(npc, name, option))
+            {
+                continue;
+            }
+            int d = reachability.approachDistance(npc.getWorldLocation());
+            if (d >= 0 && d < bestDistance)
+            {
+                best = npc;
+                bestDistance = d;
+            }
         }
+        return best;
+    }
 
-        if ("interact_object".equalsIgnoreCase(action) && target != null)
+    private static boolean offersOption(NPC npc, String name, String option)
+    {
+        if (npc == null || !name.equalsIgnoreCase(npc.getName()) || npc.getWorldLocation() == null)
         {
-            int tx = target.has("x") ? target.get("x").getAsInt() : 0;
-            int ty = target.has("y") ? target.get("y").getAsInt() : 0;
-            int plane = target.has("plane") ? target.get("plane").getAsInt() : 0;
-            queuedObjectTarget = new WorldPoint(tx, ty, plane);
-            queuedObjectName = target.has("name") ? target.get("name").getAsString() : null;
-            queuedObjectOption = target.has("option") ? target.get("option").getAsString() : null;
-            return;
+            return false;
         }
+        NPCComposition comp = npc.getComposition();
+        return comp != null && indexOfOption(comp.getActions(), option) >= 0;
+    }
 
-        if ("use_inventory_item".equalsIgnoreCase(action) && target != null)
+    /**
+     * Use an inventory option ("Drop", "Eat", ...) on the first item called {@code name}. Client thread only.
+     *
+     * @return false if there is no such item, or it has no such option
+     */
+    private boolean issueItemOption(String name, String option)
+    {
+        ItemContainer inv = client.getItemContainer(InventoryID.INVENTORY);
+        if (inv == null)
         {
-            queuedUseItemName = target.has("name") ? target.get("name").getAsString() : null;
-            queuedUseItemOption = target.has("option") ? target.get("option").getAsString() : "Use";
-            queuedUseItemOnName = target.has("use_on_name") ? target.get("use_on_name").getAsString() : null;
-            queuedUseItemSlot = target.has("slot") ? target.get("slot").getAsInt() : null;
-            return;
+            return false;
         }
 
-        autoTickCounter = 0;
+        Item[] items = inv.getItems();
+        int slot = findInventorySlotByName(name, null, items);
+        ItemComposition comp = slot >= 0 ? client.getItemDefinition(items[slot].getId()) : null;
+        int opt = comp != null ? indexOfOption(comp.getInventoryActions(), option) : -1;
+        if (opt < 0)
+        {
+            return false;
+        }
+
+        dispatchMenuAction(slot, WidgetInfo.INVENTORY.getId(), ITEM_OPTIONS[opt], items[slot].getId(),
+                items[slot].getId(), option, comp.getName());
+        return true;
     }
 
-    private void issueWalk(WorldPoint target)
+    /**
+     * Use a door, staircase, ladder or boat: the named object on the transport's tile, or else the
+     * named NPC nearest to it. Client thread only.
+     */
+    private void issueTransport(TransportTable.Transport transport)
     {
-        clientThread.invoke(() ->
+        WorldPoint at = transport.from();
+        LocalPoint lp = LocalPoint.fromWorld(client, at);
+        Tile[][][] tiles = client.getTopLevelWorldView().getScene().getTiles();
+        if (lp != null && tiles != null && at.getPlane() < tiles.length)
         {
-            if (client.getLocalPlayer() == null || target == null)
+            Tile tile = tiles[at.getPlane()][lp.getSceneX()][lp.getSceneY()];
+            List<TileObject> candidates = new ArrayList<>();
+            if (tile != null)
             {
-                return;
+                candidates.add(tile.getWallObject());
+                Collections.addAll(candidates, tile.getGameObjects());
+                candidates.add(tile.getGroundObject());
+                candidates.add(tile.getDecorativeObject());
             }
 
-            if (client.getTopLevelWorldView().getPlane() != target.getPlane())
+            for (TileObject obj : candidates)
             {
-                return;
+                ObjectComposition comp = obj != null ? client.getObjectDefinition(obj.getId()) : null;
+                if (comp == null || !transport.target().equalsIgnoreCase(comp.getName()))
+                {
+                    continue;
+                }
+
+                int option = indexOfOption(comp.getActions(), transport.option());
+                if (option >= 0)
+                {
+                    dispatchMenuAction(lp.getSceneX(), lp.getSceneY(), OBJECT_OPTIONS[option], obj.getId(), 0,
+                            transport.option(), comp.getName());
+                    return;
+                }
             }
+        }
 
-            LocalPoint lp = LocalPoint.fromWorld(client, target);
-            if (lp == null)
+        NPC nearest = null;
+        for (NPC npc : client.getNpcs())
+        {
+            if (npc == null || npc.getName() == null || !npc.getName().equalsIgnoreCase(transport.target()))
             {
-                return;
+                continue;
             }
+            WorldPoint wp = npc.getWorldLocation();
+            if (wp != null && wp.distanceTo(at) <= TRANSPORT_NPC_RADIUS
+                    && (nearest == null || wp.distanceTo(at) < nearest.getWorldLocation().distanceTo(at)))
+            {
+                nearest = npc;
+            }
+        }
 
-            int sceneX = lp.getSceneX();
-            int sceneY = lp.getSceneY();
+        NPCComposition comp = nearest != null ? nearest.getComposition() : null;
+        int option = comp != null ? indexOfOption(comp.getActions(), transport.option()) : -1;
+        if (option < 0)
+        {
+            log.debug("Transport {} {} not found near {}", transport.option(), transport.target(), at);
+            return;
+        }
 
-            client.menuAction(
-                    sceneX,
-                    sceneY,
-                    MenuAction.WALK,
-                    0,
-                    0,
-                    "Walk here",
-                    ""
-            );
-        });
+        LocalPoint npcLp = LocalPoint.fromWorld(client, nearest.getWorldLocation());
+        if (npcLp != null)
+        {
+            dispatchMenuAction(npcLp.getSceneX(), npcLp.getSceneY(), NPC_OPTIONS[option], nearest.getIndex(), 0,
+                    transport.option(), nearest.getName());
+        }
     }
 
-    private void issueTalkToNpc(String npcName)
+    private static int indexOfOption(String[] actions, String option)
     {
-        clientThread.invoke(() ->
+        if (actions == null)
         {
-            if (client.getLocalPlayer() == null || npcName == null || npcName.isEmpty())
-            {
-                return;
-            }
-
-            NPC targetNpc = null;
-            for (NPC npc : client.getNpcs())
+            return -1;
+        }
+        for (int i = 0; i < Math.min(actions.length, OBJECT_OPTIONS.length); i++)
+        {
+            if (option.equalsIgnoreCase(actions[i]))
             {
-                if (npc != null && npc.getName() != null && npc.getName().equalsIgnoreCase(npcName))
-                {
-                    targetNpc = npc;
-                    break;
-                }
+                return i;
             }
+        }
+        return -1;
+    }
 
-            if (targetNpc == null)
+    private void issueTalkToNpc(NPC targetNpc)
+    {
+        clientThread.invoke(() ->
+        {
+            if (client.getLocalPlayer() == null)
             {
                 return;
             }
 
+            String npcName = targetNpc.getName();
             WorldPoint npcWp = targetNpc.getWorldLocation();
             if (npcWp == null || npcWp.getPlane() != client.getTopLevelWorldView().getPlane())
             {
+                actionOutcomes.fail(npcName + " is on another floor");
                 return;
             }
 
             LocalPoint lp = LocalPoint.fromWorld(client, npcWp);
             if (lp == null)
             {
+                actionOutcomes.fail(npcName + " is outside the loaded scene");
                 return;
             }
 
             int sceneX = lp.getSceneX();
             int sceneY = lp.getSceneY();
+            int option = indexOfOption(targetNpc.getComposition().getActions(), "Talk-to");
 
-            client.menuAction(
+            dispatchMenuAction(
                     sceneX,
                     sceneY,
-                    MenuAction.NPC_FIRST_OPTION,
+                    NPC_OPTIONS[option],
                     targetNpc.getIndex(),
                     0,
                     "Talk-to",
@@ -1038,7 +3472,7 @@ public class AIBrainPlugin extends Plugin
         });
     }
 
-    private void issueInteractWithObject(String objectName, String option, WorldPoint target)
+    void issueInteractWithObject(String objectName, String option, WorldPoint target)
     {
         clientThread.invoke(() ->
         {
@@ -1050,81 +3484,15 @@ public class AIBrainPlugin extends Plugin
             int plane = client.getTopLevelWorldView().getPlane();
             if (plane != target.getPlane())
             {
+                actionOutcomes.fail("object is on plane " + target.getPlane() + ", player is on " + plane);
                 return;
             }
 
-            Tile[][][] tiles = client.getTopLevelWorldView().getScene().getTiles();
-            if (tiles == null || plane < 0 || plane >= tiles.length)
-            {
-                return;
-            }
-
-            GameObject found = null;
-
-            for (Tile[] row : tiles[plane])
-            {
-                if (row == null)
-                {
-                    continue;
-                }
-
-                for (Tile tile : row)
-                {
-                    if (tile == null)
-                    {
-                        continue;
-                    }
-
-                    for (GameObject obj : tile.getGameObjects())
-                    {
-                        if (obj == null)
-                        {
-                            continue;
-                        }
-
-                        WorldPoint wp = obj.getWorldLocation();
-                        if (wp == null || wp.getPlane() != target.getPlane())
-                        {
-                            continue;
-                        }
-
-                        if (wp.getX() != target.getX() || wp.getY() != target.getY())
-                        {
-                            continue;
-                        }
-
-                        ObjectComposition comp = client.getObjectDefinition(obj.getId());
-                        if (comp == null)
-                        {
-                            continue;
-                        }
-
-                        if (objectName != null && !objectName.isEmpty())
-                        {
-                            if (!comp.getName().equalsIgnoreCase(objectName))
-                            {
-                                continue;
-                            }
-                        }
-
-                        found = obj;
-                        break;
-                    }
-
-                    if (found != null)
-                    {
-                        break;
-                    }
-                }
-
-                if (found != null)
-                {
-                    break;
-                }
-            }
-
+            GameObject found = findGameObject(objectName, target);
             if (found == null)
             {
+                actionOutcomes.fail("no " + (objectName != null ? objectName : "object") + " at "
+                        + target.getX() + "," + target.getY());
                 return;
             }
 
@@ -1132,6 +3500,7 @@ public class AIBrainPlugin extends Plugin
             LocalPoint lp = LocalPoint.fromWorld(client, target);
             if (comp == null || lp == null)
             {
+                actionOutcomes.fail("object at " + target.getX() + "," + target.getY() + " is outside the loaded scene");
                 return;
             }
 
@@ -1171,7 +3540,7 @@ public class AIBrainPlugin extends Plugin
             String optLabel = option != null ? option : "Interact";
             String targetLabel = comp.getName();
 
-            client.menuAction(
+            dispatchMenuAction(
                     lp.getSceneX(),
                     lp.getSceneY(),
                     menuAction,
@@ -1183,7 +3552,63 @@ public class AIBrainPlugin extends Plugin
         });
     }
 
-    private int findInventorySlotByName(String itemName, Integer preferredSlot, Item[] items)
+    /**
+     * Take {@code item} off the ground; the client walks to it first. Client thread only.
+     */
+    private void issuePickup(GroundItemIndex.GroundItem item)
+    {
+        LocalPoint lp = LocalPoint.fromWorld(client, item.tile());
+        if (lp == null)
+        {
+            actionOutcomes.fail(item.name() + " is no longer in the loaded scene");
+            return;
+        }
+        // Take is always a ground item's third option.
+        dispatchMenuAction(lp.getSceneX(), lp.getSceneY(), MenuAction.GROUND_ITEM_THIRD_OPTION, item.id(), 0,
+                "Take", item.name());
+    }
+
+    /**
+     * Find the game object whose location is {@code at}, by looking only at that tile: an object
+     * larger than a tile is on every tile it covers, including the one it is located on. Client
+     * thread only.
+     *
+     * @param name the object's name, or null for any
+     * @return null if there is none, or the tile is not in the loaded scene
+     */
+    private GameObject findGameObject(String name, WorldPoint at)
+    {
+        Tile[][][] tiles = client.getTopLevelWorldView().getScene().getTiles();
+        LocalPoint lp = LocalPoint.fromWorld(client, at);
+        if (tiles == null || lp == null || at.getPlane() != client.getTopLevelWorldView().getPlane()
+                || at.getPlane() >= tiles.length)
+        {
+            return null;
+        }
+
+        Tile tile = tiles[at.getPlane()][lp.getSceneX()][lp.getSceneY()];
+        if (tile == null)
+        {
+            return null;
+        }
+
+        for (GameObject obj : tile.getGameObjects())
+        {
+            if (obj == null || !at.equals(obj.getWorldLocation()))
+            {
+                continue;
+            }
+
+            ObjectComposition comp = client.getObjectDefinition(obj.getId());
+            if (comp != null && (name == null || name.isEmpty() || name.equalsIgnoreCase(comp.getName())))
+            {
+                return obj;
+            }
+        }
+        return null;
+    }
+
+    int findInventorySlotByName(String itemName, Integer preferredSlot, Item[] items)
     {
         if (itemName == null || itemName.isEmpty() || items == null)
         {
@@ -1228,6 +3653,7 @@ public class AIBrainPlugin extends Plugin
             ItemContainer inv = client.getItemContainer(InventoryID.INVENTORY);
             if (inv == null)
             {
+                actionOutcomes.fail("inventory not loaded");
                 return;
             }
 
@@ -1235,6 +3661,7 @@ public class AIBrainPlugin extends Plugin
             int slot = findInventorySlotByName(itemName, preferredSlot, items);
             if (slot < 0)
             {
+                actionOutcomes.fail("no " + itemName + " in the inventory");
                 return;
             }
 
@@ -1249,7 +3676,7 @@ public class AIBrainPlugin extends Plugin
                 menuAction = MenuAction.ITEM_FIRST_OPTION;
             }
 
-            client.menuAction(
+            dispatchMenuAction(
                     slot,
                     WidgetInfo.INVENTORY.getId(),
                     menuAction,
@@ -1268,6 +3695,7 @@ public class AIBrainPlugin extends Plugin
             ItemContainer inv = client.getItemContainer(InventoryID.INVENTORY);
             if (inv == null)
             {
+                actionOutcomes.fail("inventory not loaded");
                 return;
             }
 
@@ -1277,6 +3705,7 @@ public class AIBrainPlugin extends Plugin
 
             if (sourceSlot < 0 || targetSlot < 0)
             {
+                actionOutcomes.fail("no " + (sourceSlot < 0 ? sourceName : targetName) + " in the inventory");
                 return;
             }
 
@@ -1291,7 +3720,7 @@ public class AIBrainPlugin extends Plugin
             ItemComposition tgtComp = client.getItemDefinition(target.getId());
             String actionLabel = (option != null && !option.isEmpty()) ? option : "Use";
 
-            client.menuAction(
+            dispatchMenuAction(
                     sourceSlot,
                     WidgetInfo.INVENTORY.getId(),
                     MenuAction.ITEM_USE,
@@ -1301,7 +3730,7 @@ public class AIBrainPlugin extends Plugin
                     srcComp != null ? srcComp.getName() : sourceName
             );
 
-            client.menuAction(
+            dispatchMenuAction(
                     targetSlot,
                     WidgetInfo.INVENTORY.getId(),
                     MenuAction.ITEM_USE,
@@ -1336,31 +3765,57 @@ public class AIBrainPlugin extends Plugin
     {
         clientThread.invoke(() ->
         {
-            client.menuAction(
-                    0,
-                    0,
-                    MenuAction.WIDGET_CONTINUE,
-                    0,
-                    0,
-                    "Continue",
-                    ""
-            );
+            DialogReader.Dialog dialog = DialogReader.read(client);
+            if (!dialog.canContinue())
+            {
+                actionOutcomes.fail("no dialog to continue");
+                return;
+            }
+            dialogActions.continueDialog(dialog.continueWidget());
         });
     }
 
+    /**
+     * Pick option {@code index} (from 1) of the open option menu. Client thread only.
+     */
+    private void issueSelectDialogOption(int index)
+    {
+        dispatchMenuAction(index, DialogReader.OPTIONS_WIDGET, MenuAction.WIDGET_CONTINUE, 0, -1, "Continue", "");
+    }
+
+    /**
+     * Drop everything queued or running. Runs on the client thread, where the queue is drained:
+     * inline when called from it, otherwise on its next cycle.
+     */
     private void clearQueuedActions()
     {
-        queuedWalkTarget = null;
-        queuedTalkNpcName = null;
-        queuedObjectTarget = null;
-        queuedObjectName = null;
-        queuedObjectOption = null;
-        queuedUseItemName = null;
-        queuedUseItemOnName = null;
-        queuedUseItemOption = null;
-        queuedUseItemSlot = null;
-        queuedCameraAdjust = false;
-        queuedDialogContinue = false;
+        clientThread.invoke(() ->
+        {
+            queuedWalkTarget = null;
+            queuedTalkNpcName = null;
+            queuedTalkNpcTile = null;
+            queuedObjectTarget = null;
+            queuedObjectName = null;
+            queuedObjectOption = null;
+            queuedUseItemName = null;
+            queuedUseItemOnName = null;
+            queuedUseItemOption = null;
+            queuedUseItemSlot = null;
+            queuedPickupName = null;
+            queuedPickupTile = null;
+            queuedCameraAdjust = false;
+            queuedDialogContinue = false;
+            queuedDialogOptionIndex = null;
+            queuedDialogOptionText = null;
+            queuedDialogChoices = null;
+            queuedLoop = null;
+            queuedTrace = null;
+            pendingWatches = null;
+            pathWalker.cancel();
+            loopInterpreter.cancel();
+            dialogScript.cancel();
+            watchSet.clear();
+        });
     }
 
     @Provides
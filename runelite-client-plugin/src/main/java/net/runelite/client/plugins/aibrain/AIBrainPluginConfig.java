@@ -3,6 +3,7 @@ package net.runelite.client.plugins.aibrain;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.Units;
 
 @ConfigGroup("aibrain")
 public interface AIBrainPluginConfig extends Config
@@ -17,4 +18,210 @@ public interface AIBrainPluginConfig extends Config
     {
         return "http://127.0.0.1:9420";
     }
+
+    @ConfigItem(
+            keyName = "connectTimeoutMs",
+            name = "Connect timeout",
+            description = "How long to wait for a TCP connection to the brain server",
+            position = 2
+    )
+    @Units(Units.MILLISECONDS)
+    default int connectTimeoutMs()
+    {
+        return 2000;
+    }
+
+    @ConfigItem(
+            keyName = "questDeadlineMs",
+            name = "Quest decide deadline",
+            description = "Hard deadline for a /decide call in Quest mode; the call is cancelled when it expires",
+            position = 3
+    )
+    @Units(Units.MILLISECONDS)
+    default int questDeadlineMs()
+    {
+        return 20000;
+    }
+
+    @ConfigItem(
+            keyName = "skillDeadlineMs",
+            name = "Skill decide deadline",
+            description = "Hard deadline for a /decide call in Skill mode; the call is cancelled when it expires",
+            position = 4
+    )
+    @Units(Units.MILLISECONDS)
+    default int skillDeadlineMs()
+    {
+        return 12000;
+    }
+
+    @ConfigItem(
+            keyName = "manualDeadlineMs",
+            name = "Manual decide deadline",
+            description = "Hard deadline for a /decide call in Manual mode; the call is cancelled when it expires",
+            position = 5
+    )
+    @Units(Units.MILLISECONDS)
+    default int manualDeadlineMs()
+    {
+        return 30000;
+    }
+
+    @ConfigItem(
+            keyName = "hedgeEnabled",
+            name = "Hedge slow decisions",
+            description = "Send a duplicate /decide to the secondary brain when the primary is slow, and use whichever answers first",
+            position = 6
+    )
+    default boolean hedgeEnabled()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+            keyName = "hedgeDelayMs",
+            name = "Hedge delay",
+            description = "How long to wait for the primary brain before sending the hedged request",
+            position = 7
+    )
+    @Units(Units.MILLISECONDS)
+    default int hedgeDelayMs()
+    {
+        return 4000;
+    }
+
+    @ConfigItem(
+            keyName = "secondaryBrainServerUrl",
+            name = "Secondary brain server URL",
+            description = "Base URL of the brain used for hedged requests (e.g. http://127.0.0.1:9421)",
+            position = 8
+    )
+    default String secondaryBrainServerUrl()
+    {
+        return "";
+    }
+
+    @ConfigItem(
+            keyName = "breakerFailureRatePercent",
+            name = "Breaker failure rate",
+            description = "Open the circuit breaker when this percentage of recent brain calls failed or were slow",
+            position = 9
+    )
+    @Units(Units.PERCENT)
+    default int breakerFailureRatePercent()
+    {
+        return 50;
+    }
+
+    @ConfigItem(
+            keyName = "breakerSlowCallMs",
+            name = "Breaker slow call",
+            description = "Brain calls slower than this count as failures for the circuit breaker",
+            position = 10
+    )
+    @Units(Units.MILLISECONDS)
+    default int breakerSlowCallMs()
+    {
+        return 10000;
+    }
+
+    @ConfigItem(
+            keyName = "breakerCooldownSeconds",
+            name = "Breaker cooldown",
+            description = "How long the breaker stays open before probing the brain's /health endpoint",
+            position = 11
+    )
+    @Units(Units.SECONDS)
+    default int breakerCooldownSeconds()
+    {
+        return 15;
+    }
+
+    @ConfigItem(
+            keyName = "metricsHttpPort",
+            name = "Metrics port",
+            description = "Serve Prometheus metrics on http://127.0.0.1:<port>/metrics; 0 disables the listener",
+            position = 12
+    )
+    default int metricsHttpPort()
+    {
+        return 0;
+    }
+
+    @ConfigItem(
+            keyName = "metricsJmxEnabled",
+            name = "Metrics over JMX",
+            description = "Also expose plugin metrics as the MBean net.runelite.client.plugins.aibrain:type=Metrics",
+            position = 13
+    )
+    default boolean metricsJmxEnabled()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+            keyName = "sessionRecordingEnabled",
+            name = "Record sessions",
+            description = "Append snapshots, control updates, brain responses and dispatched actions to a compressed log under .runelite/aibrain-sessions",
+            position = 14
+    )
+    default boolean sessionRecordingEnabled()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+            keyName = "sessionSegmentMb",
+            name = "Recording segment size (MB)",
+            description = "Start a new log segment once the current one reaches this size",
+            position = 15
+    )
+    default int sessionSegmentMb()
+    {
+        return 32;
+    }
+
+    @ConfigItem(
+            keyName = "sessionMaxMb",
+            name = "Recording disk cap (MB)",
+            description = "Oldest segments are deleted once all recordings together exceed this size",
+            position = 16
+    )
+    default int sessionMaxMb()
+    {
+        return 512;
+    }
+
+    @ConfigItem(
+            keyName = "scanBudgetMicros",
+            name = "Scan budget per tick (µs)",
+            description = "Client-thread time per game tick for scanning scene objects and interface text in slices; 0 scans everything when a snapshot is built",
+            position = 17
+    )
+    default int scanBudgetMicros()
+    {
+        return 2000;
+    }
+
+    @ConfigItem(
+            keyName = "behaviorLoops",
+            name = "Behaviour loops",
+            description = "In Skill mode, let the brain hand over a repeating routine (e.g. mine until full, drop ore) that runs each tick until it ends",
+            position = 18
+    )
+    default boolean behaviorLoops()
+    {
+        return true;
+    }
+
+    @ConfigItem(
+            keyName = "maxDecisionAgeTicks",
+            name = "Max decision age (ticks)",
+            description = "Drop a brain action instead of dispatching it if its snapshot is older than this many game ticks; 0 never drops",
+            position = 19
+    )
+    default int maxDecisionAgeTicks()
+    {
+        return 20;
+    }
 }
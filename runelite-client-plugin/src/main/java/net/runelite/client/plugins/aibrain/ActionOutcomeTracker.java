@@ -0,0 +1,175 @@
+package net.runelite.client.plugins.aibrain;
+
+import net.runelite.api.coords.WorldPoint;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Follows the latest action the brain asked for past its dispatch, so the next snapshot can say
+ * whether it worked. An action fails straight away if the plugin could not issue it (no such NPC,
+ * item or object); otherwise the game is observed once per tick and the action succeeds as soon as
+ * one of the effects expected of it shows up, or is a no-op if none has within its tick window.
+ *
+ * Client thread only.
+ */
+final class ActionOutcomeTracker
+{
+    enum Result
+    {
+        PENDING,
+        SUCCESS,
+        FAILURE,
+        NO_OP
+    }
+
+    enum Effect
+    {
+        MOVED,
+        INTERACTING,
+        ANIMATING,
+        DIALOG,
+        INVENTORY
+    }
+
+    /**
+     * What the plugin can see of the player on one tick.
+     *
+     * @param interacting identity of the actor the player is interacting with, 0 for none
+     * @param animation the player's animation id, -1 for none
+     * @param dialogHash changes whenever dialog text appears, changes or goes away
+     * @param inventoryHash changes whenever an inventory slot changes
+     */
+    record Observation(WorldPoint position, int interacting, int animation, int dialogHash, int inventoryHash)
+    {
+    }
+
+    /**
+     * @param effects everything seen change since dispatch, expected or not
+     */
+    record Outcome(String action, Result result, String reason, Set<Effect> effects, int dispatchTick, int resolvedTick)
+    {
+    }
+
+    private String action;
+    private Set<Effect> expected = Collections.emptySet();
+    private int windowTicks;
+    private int dispatchTick;
+    private Observation baseline;
+    private boolean dispatching;
+    private Outcome last;
+
+    /**
+     * Start tracking an action about to be issued. Everything the plugin reports through
+     * {@link #fail} or {@link #noOp} until {@link #endDispatch} belongs to it.
+     *
+     * @param before the game as seen this tick, before the action
+     */
+    void beginDispatch(String action, Set<Effect> expected, int windowTicks, int tick, Observation before)
+    {
+        this.action = action;
+        this.expected = expected;
+        this.windowTicks = windowTicks;
+        dispatchTick = tick;
+        baseline = before;
+        dispatching = true;
+        last = new Outcome(action, Result.PENDING, null, Collections.emptySet(), tick, -1);
+    }
+
+    void endDispatch()
+    {
+        dispatching = false;
+    }
+
+    /**
+     * The action being dispatched could not be issued.
+     */
+    void fail(String reason)
+    {
+        resolveDuringDispatch(Result.FAILURE, reason);
+    }
+
+    /**
+     * The action being dispatched had nothing to do, e.g. walking to the tile the player stands on.
+     */
+    void noOp(String reason)
+    {
+        resolveDuringDispatch(Result.NO_OP, reason);
+    }
+
+    /**
+     * Compare this tick's view of the game against the one at dispatch.
+     */
+    void observe(int tick, Observation now)
+    {
+        if (last == null || last.result() != Result.PENDING || tick <= dispatchTick)
+        {
+            return;
+        }
+
+        Set<Effect> seen = EnumSet.noneOf(Effect.class);
+        if (!now.position().equals(baseline.position()))
+        {
+            seen.add(Effect.MOVED);
+        }
+        if (now.interacting() != 0 && now.interacting() != baseline.interacting())
+        {
+            seen.add(Effect.INTERACTING);
+        }
+        if (now.animation() != -1 && now.animation() != baseline.animation())
+        {
+            seen.add(Effect.ANIMATING);
+        }
+        if (now.dialogHash() != baseline.dialogHash())
+        {
+            seen.add(Effect.DIALOG);
+        }
+        if (now.inventoryHash() != baseline.inventoryHash())
+        {
+            seen.add(Effect.INVENTORY);
+        }
+        seen.addAll(last.effects());
+
+        if (!Collections.disjoint(seen, expected))
+        {
+            last = new Outcome(action, Result.SUCCESS, "observed " + names(seen), seen, dispatchTick, tick);
+        }
+        else if (tick - dispatchTick >= windowTicks)
+        {
+            String reason = "no " + names(expected) + " within " + windowTicks + " ticks";
+            if (!seen.isEmpty())
+            {
+                reason += " (only " + names(seen) + ")";
+            }
+            last = new Outcome(action, Result.NO_OP, reason, seen, dispatchTick, tick);
+        }
+        else
+        {
+            last = new Outcome(action, Result.PENDING, null, seen, dispatchTick, -1);
+        }
+    }
+
+    /**
+     * @return the outcome of the latest tracked action, or null if there has been none
+     */
+    Outcome getLast()
+    {
+        return last;
+    }
+
+    static String names(Set<Effect> effects)
+    {
+        return effects.stream().map(e -> e.name().toLowerCase()).collect(Collectors.joining("/"));
+    }
+
+    private void resolveDuringDispatch(Result result, String reason)
+    {
+        if (!dispatching || last == null || last.result() != Result.PENDING)
+        {
+            return;
+        }
+        last = new Outcome(action, result, reason, Collections.emptySet(), dispatchTick, dispatchTick);
+    }
+}
@@ -0,0 +1,118 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A small routine the brain hands over in Skill mode instead of choosing every click itself, e.g.
+ * "mine the nearest Copper rocks until the inventory is full, drop all Copper ore, repeat". It is a
+ * fixed list of steps, each a single kind of action repeated until a condition holds; there are no
+ * variables or expressions, so {@link LoopInterpreter} can bound what it does per tick.
+ *
+ * @param exitWhen ends the loop as soon as it holds, or null
+ * @param maxTicks the loop ends after this many game ticks however far it got
+ */
+record BehaviorLoop(List<Step> steps, boolean repeat, Condition exitWhen, int maxTicks)
+{
+    static final int MAX_STEPS = 8;
+    /** An hour of game ticks. */
+    static final int MAX_TICKS = 6000;
+    static final int DEFAULT_MAX_TICKS = 1000;
+    static final int DEFAULT_STEP_TIMEOUT_TICKS = 200;
+
+    enum Verb
+    {
+        /** Use {@code option} on the nearest reachable object called {@code name}. */
+        INTERACT_OBJECT("interact_object"),
+        /** Use {@code option} on the nearest reachable NPC called {@code name}. */
+        INTERACT_NPC("interact_npc"),
+        /** Drop inventory items called {@code name}, one per tick. */
+        DROP_ITEM("drop_item"),
+        /** Do nothing. */
+        WAIT("wait");
+
+        private final String wireName;
+
+        Verb(String wireName)
+        {
+            this.wireName = wireName;
+        }
+
+        String getWireName()
+        {
+            return wireName;
+        }
+
+        /**
+         * @return the matching verb (case-insensitive), or null
+         */
+        static Verb fromWireName(String name)
+        {
+            String wanted = name.trim().toLowerCase(Locale.ROOT);
+            for (Verb verb : values())
+            {
+                if (verb.wireName.equals(wanted))
+                {
+                    return verb;
+                }
+            }
+            return null;
+        }
+    }
+
+    enum ConditionType
+    {
+        INVENTORY_FULL("inventory_full"),
+        INVENTORY_EMPTY("inventory_empty"),
+        /** At least {@code count} (default 1) of item {@code name}. */
+        HAS_ITEM("has_item"),
+        /** None of item {@code name}. */
+        LACKS_ITEM("lacks_item"),
+        /** Real level of skill {@code name} is at least {@code count}. */
+        SKILL_LEVEL("skill_level"),
+        /** {@code count} ticks since the step (or, for {@code exit_when}, the loop) began. */
+        TICKS("ticks");
+
+        private final String wireName;
+
+        ConditionType(String wireName)
+        {
+            this.wireName = wireName;
+        }
+
+        String getWireName()
+        {
+            return wireName;
+        }
+
+        /**
+         * @return the matching type (case-insensitive), or null
+         */
+        static ConditionType fromWireName(String name)
+        {
+            String wanted = name.trim().toLowerCase(Locale.ROOT);
+            for (ConditionType type : values())
+            {
+                if (type.wireName.equals(wanted))
+                {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @param until the step is done once this holds; null means once its action has been done and
+     *              the player is idle again (for {@link Verb#DROP_ITEM}: once none are left)
+     * @param timeoutTicks the loop fails if the step goes this long without an action or an
+     *                     inventory change
+     */
+    record Step(Verb verb, String name, String option, Condition until, int timeoutTicks)
+    {
+    }
+
+    record Condition(ConditionType type, String name, int count)
+    {
+    }
+}
@@ -0,0 +1,34 @@
+package net.runelite.client.plugins.aibrain;
+
+import net.runelite.api.coords.WorldPoint;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One decoded /decide response. Fields of {@code target} that the brain did not send are null;
+ * {@code loop} is set only for {@link BrainActionType#RUN_LOOP}; {@code choices} are the option
+ * texts for the menus after a {@link BrainActionType#SELECT_DIALOG_OPTION} (empty otherwise);
+ * {@code watches} replace the conditions the plugin checks every tick until the next response
+ * (empty if the brain sent none); {@code serverTimingMs} holds the brain's own {@code meta.timing} breakdown (empty if absent).
+ */
+record BrainAction(BrainActionType type, Target target, BehaviorLoop loop, List<String> choices,
+                   List<WatchSet.Watch> watches, String reason, Map<String, Double> serverTimingMs)
+{
+    static final int MAX_CHOICES = 10;
+
+    record Target(Integer x, Integer y, Integer plane, String name, String option, Integer slot, String useOnName)
+    {
+        static final Target EMPTY = new Target(null, null, null, null, null, null, null);
+
+        boolean hasTile()
+        {
+            return x != null && y != null;
+        }
+
+        WorldPoint toWorldPoint()
+        {
+            return new WorldPoint(x, y, plane != null ? plane : 0);
+        }
+    }
+}
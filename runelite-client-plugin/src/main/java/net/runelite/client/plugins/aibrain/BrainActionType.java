@@ -0,0 +1,53 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public enum BrainActionType
+{
+    WALK_TO_TILE("walk_to_tile"),
+    TALK_TO_NPC("talk_to_npc"),
+    INTERACT_OBJECT("interact_object"),
+    USE_INVENTORY_ITEM("use_inventory_item"),
+    PICKUP_ITEM("pickup_item"),
+    DIALOG_CONTINUE("dialog_continue"),
+    SELECT_DIALOG_OPTION("select_dialog_option"),
+    ADJUST_CAMERA("adjust_camera"),
+    RUN_LOOP("run_loop"),
+    WAIT("wait");
+
+    private static final Map<String, BrainActionType> BY_WIRE_NAME = new HashMap<>();
+
+    static
+    {
+        for (BrainActionType type : values())
+        {
+            BY_WIRE_NAME.put(type.wireName, type);
+        }
+    }
+
+    private final String wireName;
+
+    BrainActionType(String wireName)
+    {
+        this.wireName = wireName;
+    }
+
+    public String getWireName()
+    {
+        return wireName;
+    }
+
+    /**
+     * @return the matching type (case-insensitive), or null if the brain sent an unknown action
+     */
+    static BrainActionType fromWireName(String name)
+    {
+        if (name == null)
+        {
+            return null;
+        }
+        return BY_WIRE_NAME.get(name.trim().toLowerCase(Locale.ROOT));
+    }
+}
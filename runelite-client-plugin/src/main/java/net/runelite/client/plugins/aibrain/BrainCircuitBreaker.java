@@ -0,0 +1,254 @@
+package net.runelite.client.plugins.aibrain;
+
+/**
+ * Circuit breaker around the brain transport.
+ *
+ * CLOSED: every decide is allowed; outcomes go into a sliding window and the breaker trips once
+ * enough of them are errors or slower than the slow-call threshold.
+ * OPEN: no decides are sent. After the cooldown a cheap /health probe is allowed.
+ * HALF_OPEN: the probe succeeded; exactly one real decide is let through as a trial. Success closes
+ * the breaker, failure re-opens it with a doubled cooldown. A trial that has not reported back by
+ * its call deadline (plus a grace period) counts as a failure, so a lost outcome cannot hold the
+ * breaker half-open.
+ */
+final class BrainCircuitBreaker
+{
+    enum State
+    {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private static final int WINDOW_SIZE = 10;
+    private static final int MIN_CALLS = 4;
+    private static final long MAX_COOLDOWN_MS = 5 * 60_000L;
+    /** How long a trial may go unreported: until sent, then its deadline plus the grace period. */
+    private static final long UNSENT_TRIAL_MS = 30_000L;
+    private static final long TRIAL_GRACE_MS = 2_000L;
+
+    private final boolean[] window = new boolean[WINDOW_SIZE];
+    private int windowPos;
+    private int windowFill;
+    private int badInWindow;
+
+    private final int failureRatePercent;
+    private final long slowCallMs;
+    private final long baseCooldownMs;
+
+    private State state = State.CLOSED;
+    private long openedAtMs;
+    private long cooldownMs;
+    private boolean probeInFlight;
+    private boolean trialInFlight;
+    private long trialExpiresAtMs;
+
+    BrainCircuitBreaker(int failureRatePercent, long slowCallMs, long cooldownMs)
+    {
+        this.failureRatePercent = Math.max(1, Math.min(100, failureRatePercent));
+        this.slowCallMs = Math.max(1, slowCallMs);
+        this.baseCooldownMs = Math.max(1000, cooldownMs);
+        this.cooldownMs = this.baseCooldownMs;
+    }
+
+    synchronized State getState()
+    {
+        return state;
+    }
+
+    /**
+     * @return true if a full /decide may be sent now
+     */
+    synchronized boolean allowDecide()
+    {
+        switch (state)
+        {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                expireTrial();
+                if (state == State.HALF_OPEN && !trialInFlight)
+                {
+                    trialInFlight = true;
+                    trialExpiresAtMs = System.currentTimeMillis() + UNSENT_TRIAL_MS;
+                    return true;
+                }
+                return false;
+            case OPEN:
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return true if the caller should send a health probe now; the breaker then waits for
+     * {@link #onProbeResult(boolean)} before handing out another probe. Call this while the breaker
+     * is not closed, so that an expired half-open trial re-opens it.
+     */
+    synchronized boolean shouldProbe()
+    {
+        expireTrial();
+        if (state != State.OPEN || probeInFlight)
+        {
+            return false;
+        }
+
+        if (System.currentTimeMillis() - openedAtMs < cooldownMs)
+        {
+            return false;
+        }
+
+        probeInFlight = true;
+        return true;
+    }
+
+    synchronized void onProbeResult(boolean healthy)
+    {
+        probeInFlight = false;
+        if (state != State.OPEN)
+        {
+            return;
+        }
+
+        if (healthy)
+        {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        else
+        {
+            openedAtMs = System.currentTimeMillis();
+            cooldownMs = Math.min(cooldownMs * 2, MAX_COOLDOWN_MS);
+        }
+    }
+
+    /**
+     * A decide was sent with this deadline; if it is the half-open trial, it expires after it.
+     */
+    synchronized void onDecideSent(long deadlineMs)
+    {
+        if (state == State.HALF_OPEN && trialInFlight)
+        {
+            trialExpiresAtMs = System.currentTimeMillis() + deadlineMs + TRIAL_GRACE_MS;
+        }
+    }
+
+    synchronized void onSuccess(long latencyMs)
+    {
+        boolean slow = latencyMs >= slowCallMs;
+
+        if (state == State.HALF_OPEN)
+        {
+            trialInFlight = false;
+            if (slow)
+            {
+                trip();
+            }
+            else
+            {
+                close();
+            }
+            return;
+        }
+
+        record(slow);
+    }
+
+    synchronized void onFailure()
+    {
+        if (state == State.HALF_OPEN)
+        {
+            trialInFlight = false;
+            trip();
+            return;
+        }
+
+        record(true);
+    }
+
+    /**
+     * A cancelled call says nothing about the brain's health; just release the half-open trial slot.
+     */
+    synchronized void onCancelled()
+    {
+        if (state == State.HALF_OPEN)
+        {
+            trialInFlight = false;
+        }
+    }
+
+    synchronized String describe()
+    {
+        switch (state)
+        {
+            case OPEN:
+                long waitMs = Math.max(0, cooldownMs - (System.currentTimeMillis() - openedAtMs));
+                return "Breaker open – next health probe in " + (waitMs / 1000) + " s";
+            case HALF_OPEN:
+                return "Breaker half-open – trial decision pending";
+            case CLOSED:
+            default:
+                return "Breaker closed (" + badInWindow + "/" + windowFill + " recent calls failed or slow)";
+        }
+    }
+
+    private void expireTrial()
+    {
+        if (state == State.HALF_OPEN && trialInFlight && System.currentTimeMillis() >= trialExpiresAtMs)
+        {
+            trialInFlight = false;
+            trip();
+        }
+    }
+
+    private void record(boolean bad)
+    {
+        if (state != State.CLOSED)
+        {
+            return;
+        }
+
+        if (windowFill == WINDOW_SIZE && window[windowPos])
+        {
+            badInWindow--;
+        }
+
+        window[windowPos] = bad;
+        if (bad)
+        {
+            badInWindow++;
+        }
+
+        windowPos = (windowPos + 1) % WINDOW_SIZE;
+        windowFill = Math.min(WINDOW_SIZE, windowFill + 1);
+
+        if (windowFill >= MIN_CALLS && badInWindow * 100 >= failureRatePercent * windowFill)
+        {
+            trip();
+        }
+    }
+
+    private void trip()
+    {
+        cooldownMs = state == State.HALF_OPEN
+                ? Math.min(cooldownMs * 2, MAX_COOLDOWN_MS)
+                : baseCooldownMs;
+        state = State.OPEN;
+        openedAtMs = System.currentTimeMillis();
+        clearWindow();
+    }
+
+    private void close()
+    {
+        state = State.CLOSED;
+        cooldownMs = baseCooldownMs;
+        clearWindow();
+    }
+
+    private void clearWindow()
+    {
+        windowPos = 0;
+        windowFill = 0;
+        badInWindow = 0;
+    }
+}
@@ -0,0 +1,722 @@
+package net.runelite.client.plugins.aibrain;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import net.runelite.api.Skill;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Schema-driven decoder for /decide responses.
+ *
+ * Reads the body token by token with a {@link JsonReader} straight into a {@link BrainAction},
+ * without building a JSON tree. Unknown keys are skipped so the brain can add fields, but known
+ * fields with the wrong type, unknown actions, actions missing their required target fields and
+ * bodies that are not well-formed JSON are all rejected with a {@link BrainResponseException}
+ * naming the JSON path.
+ */
+final class BrainResponseDecoder
+{
+    private BrainResponseDecoder()
+    {
+    }
+
+    static BrainAction decode(String body) throws IOException
+    {
+        if (body == null || body.isEmpty())
+        {
+            throw new BrainResponseException("$", "empty response body");
+        }
+        return decode(new StringReader(body));
+    }
+
+    static BrainAction decode(Reader in) throws IOException
+    {
+        JsonReader reader = new JsonReader(in);
+        try
+        {
+            return read(reader);
+        }
+        catch (MalformedJsonException | EOFException e)
+        {
+            // Not JSON at all, or cut short: as much a broken response as a schema mismatch.
+            String message = e.getMessage();
+            int lineEnd = message != null ? message.indexOf('\n') : -1;
+            throw new BrainResponseException(reader.getPath(),
+                    "malformed JSON: " + (lineEnd >= 0 ? message.substring(0, lineEnd) : message));
+        }
+    }
+
+    private static BrainAction read(JsonReader reader) throws IOException
+    {
+        BrainActionType type = null;
+        BrainAction.Target target = null;
+        BehaviorLoop loop = null;
+        List<String> choices = Collections.emptyList();
+        List<WatchSet.Watch> watches = Collections.emptyList();
+        Meta meta = Meta.EMPTY;
+
+        expect(reader, JsonToken.BEGIN_OBJECT);
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            String key = reader.nextName();
+            switch (key)
+            {
+                case "action":
+                    type = readActionType(reader);
+                    break;
+                case "target":
+                    target = readTarget(reader);
+                    break;
+                case "loop":
+                    loop = readLoop(reader);
+                    break;
+                case "choices":
+                    choices = readChoices(reader);
+                    break;
+                case "watches":
+                    watches = readWatches(reader);
+                    break;
+                case "meta":
+                    meta = readMeta(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (reader.peek() != JsonToken.END_DOCUMENT)
+        {
+            throw new BrainResponseException(reader.getPath(), "trailing data after response object");
+        }
+
+        if (type == null)
+        {
+            // Matches the brain server's own default when an agent omits the action.
+            type = BrainActionType.WAIT;
+        }
+
+        if (target == null)
+        {
+            target = BrainAction.Target.EMPTY;
+        }
+
+        validate(type, target);
+        if (type == BrainActionType.RUN_LOOP && loop == null)
+        {
+            throw new BrainResponseException("$.loop", "run_loop requires a loop");
+        }
+        return new BrainAction(type, target, type == BrainActionType.RUN_LOOP ? loop : null,
+                type == BrainActionType.SELECT_DIALOG_OPTION ? choices : Collections.emptyList(),
+                watches, meta.reason, meta.timingMs);
+    }
+
+    private static BrainActionType readActionType(JsonReader reader) throws IOException
+    {
+        String path = reader.getPath();
+        if (reader.peek() == JsonToken.NULL)
+        {
+            reader.nextNull();
+            return null;
+        }
+
+        expect(reader, JsonToken.STRING);
+        String name = reader.nextString();
+        BrainActionType type = BrainActionType.fromWireName(name);
+        if (type == null)
+        {
+            throw new BrainResponseException(path, "unknown action '" + name + "'");
+        }
+        return type;
+    }
+
+    private static BrainAction.Target readTarget(JsonReader reader) throws IOException
+    {
+        if (reader.peek() == JsonToken.NULL)
+        {
+            reader.nextNull();
+            return null;
+        }
+
+        Integer x = null;
+        Integer y = null;
+        Integer plane = null;
+        String name = null;
+        String option = null;
+        Integer slot = null;
+        String useOnName = null;
+
+        expect(reader, JsonToken.BEGIN_OBJECT);
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            String key = reader.nextName();
+            switch (key)
+            {
+                case "x":
+                    x = readOptionalInt(reader);
+                    break;
+                case "y":
+                    y = readOptionalInt(reader);
+                    break;
+                case "plane":
+                    plane = readOptionalInt(reader);
+                    break;
+                case "slot":
+                    slot = readOptionalInt(reader);
+                    break;
+                case "name":
+                    name = readOptionalString(reader);
+                    break;
+                case "option":
+                    option = readOptionalString(reader);
+                    break;
+                case "use_on_name":
+                    useOnName = readOptionalString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return new BrainAction.Target(x, y, plane, name, option, slot, useOnName);
+    }
+
+    private static BehaviorLoop readLoop(JsonReader reader) throws IOException
+    {
+        if (reader.peek() == JsonToken.NULL)
+        {
+            reader.nextNull();
+            return null;
+        }
+
+        String path = reader.getPath();
+        List<BehaviorLoop.Step> steps = null;
+        boolean repeat = false;
+        BehaviorLoop.Condition exitWhen = null;
+        int maxTicks = BehaviorLoop.DEFAULT_MAX_TICKS;
+
+        expect(reader, JsonToken.BEGIN_OBJECT);
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            switch (reader.nextName())
+            {
+                case "steps":
+                    steps = readSteps(reader);
+                    break;
+                case "repeat":
+                    expect(reader, JsonToken.BOOLEAN);
+                    repeat = reader.nextBoolean();
+                    break;
+                case "exit_when":
+                    exitWhen = readCondition(reader);
+                    break;
+                case "max_ticks":
+                    maxTicks = readTicks(reader, BehaviorLoop.MAX_TICKS);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (steps == null || steps.isEmpty())
+        {
+            throw new BrainResponseException(path, "loop requires at least one step");
+        }
+        return new BehaviorLoop(steps, repeat, exitWhen, maxTicks);
+    }
+
+    private static List<BehaviorLoop.Step> readSteps(JsonReader reader) throws IOException
+    {
+        List<BehaviorLoop.Step> steps = new ArrayList<>();
+        expect(reader, JsonToken.BEGIN_ARRAY);
+        reader.beginArray();
+        while (reader.hasNext())
+        {
+            if (steps.size() == BehaviorLoop.MAX_STEPS)
+            {
+                throw new BrainResponseException(reader.getPath(), "a loop has at most " + BehaviorLoop.MAX_STEPS + " steps");
+            }
+            steps.add(readStep(reader));
+        }
+        reader.endArray();
+        return Collections.unmodifiableList(steps);
+    }
+
+    private static BehaviorLoop.Step readStep(JsonReader reader) throws IOException
+    {
+        String path = reader.getPath();
+        BehaviorLoop.Verb verb = null;
+        String name = null;
+        String option = null;
+        BehaviorLoop.Condition until = null;
+        int timeoutTicks = BehaviorLoop.DEFAULT_STEP_TIMEOUT_TICKS;
+
+        expect(reader, JsonToken.BEGIN_OBJECT);
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            switch (reader.nextName())
+            {
+                case "do":
+                    String verbPath = reader.getPath();
+                    String wire = readOptionalString(reader);
+                    verb = wire != null ? BehaviorLoop.Verb.fromWireName(wire) : null;
+                    if (verb == null)
+                    {
+                        throw new BrainResponseException(verbPath, "unknown step '" + wire + "'");
+                    }
+                    break;
+                case "name":
+                    name = readOptionalString(reader);
+                    break;
+                case "option":
+                    option = readOptionalString(reader);
+                    break;
+                case "until":
+                    until = readCondition(reader);
+                    break;
+                case "timeout_ticks":
+                    timeoutTicks = readTicks(reader, BehaviorLoop.MAX_TICKS);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (verb == null)
+        {
+            throw new BrainResponseException(path, "step requires 'do'");
+        }
+        boolean needsName = verb != BehaviorLoop.Verb.WAIT;
+        if (needsName && (name == null || name.trim().isEmpty()))
+        {
+            throw new BrainResponseException(path, verb.getWireName() + " step requires a non-empty name");
+        }
+        boolean needsOption = verb == BehaviorLoop.Verb.INTERACT_OBJECT || verb == BehaviorLoop.Verb.INTERACT_NPC;
+        if (needsOption && (option == null || option.trim().isEmpty()))
+        {
+            throw new BrainResponseException(path, verb.getWireName() + " step requires a non-empty option");
+        }
+        return new BehaviorLoop.Step(verb, name, option, until, timeoutTicks);
+    }
+
+    private static BehaviorLoop.Condition readCondition(JsonReader reader) throws IOException
+    {
+        if (reader.peek() == JsonToken.NULL)
+        {
+            reader.nextNull();
+            return null;
+        }
+
+        String path = reader.getPath();
+        BehaviorLoop.ConditionType type = null;
+        String name = null;
+        Integer count = null;
+
+        expect(reader, JsonToken.BEGIN_OBJECT);
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            switch (reader.nextName())
+            {
+                case "type":
+                    String typePath = reader.getPath();
+                    String wire = readOptionalString(reader);
+                    type = wire != null ? BehaviorLoop.ConditionType.fromWireName(wire) : null;
+                    if (type == null)
+                    {
+                        throw new BrainResponseException(typePath, "unknown condition '" + wire + "'");
+                    }
+                    break;
+                case "name":
+                    name = readOptionalString(reader);
+                    break;
+                case "count":
+                    count = readOptionalInt(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (type == null)
+        {
+            throw new BrainResponseException(path, "condition requires a type");
+        }
+        switch (type)
+        {
+            case HAS_ITEM:
+            case LACKS_ITEM:
+                if (name == null || name.trim().isEmpty())
+                {
+                    throw new BrainResponseException(path, type.getWireName() + " requires a non-empty name");
+                }
+                break;
+            case SKILL_LEVEL:
+                if (name == null || !isSkill(name) || count == null)
+                {
+                    throw new BrainResponseException(path, "skill_level requires a skill name and a count");
+                }
+                break;
+            case TICKS:
+                if (count == null || count < 0)
+                {
+                    throw new BrainResponseException(path, "ticks requires a non-negative count");
+                }
+                break;
+            case INVENTORY_FULL:
+            case INVENTORY_EMPTY:
+            default:
+                break;
+        }
+        return new BehaviorLoop.Condition(type, name, count != null ? count : 0);
+    }
+
+    private static boolean isSkill(String name)
+    {
+        for (Skill skill : Skill.values())
+        {
+            if (skill.getName().equalsIgnoreCase(name.trim()))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@code choices}: option texts for the menus after a {@code select_dialog_option}.
+     */
+    private static List<String> readChoices(JsonReader reader) throws IOException
+    {
+        if (reader.peek() == JsonToken.NULL)
+        {
+            reader.nextNull();
+            return Collections.emptyList();
+        }
+
+        List<String> choices = new ArrayList<>();
+        expect(reader, JsonToken.BEGIN_ARRAY);
+        reader.beginArray();
+        while (reader.hasNext())
+        {
+            String path = reader.getPath();
+            if (choices.size() == BrainAction.MAX_CHOICES)
+            {
+                throw new BrainResponseException(path, "at most " + BrainAction.MAX_CHOICES + " choices");
+            }
+            expect(reader, JsonToken.STRING);
+            String choice = reader.nextString().trim();
+            if (choice.isEmpty())
+            {
+                throw new BrainResponseException(path, "a choice must not be empty");
+            }
+            choices.add(choice);
+        }
+        reader.endArray();
+        return Collections.unmodifiableList(choices);
+    }
+
+    /**
+     * {@code watches}: conditions to be checked every tick until the next response.
+     */
+    private static List<WatchSet.Watch> readWatches(JsonReader reader) throws IOException
+    {
+        if (reader.peek() == JsonToken.NULL)
+        {
+            reader.nextNull();
+            return Collections.emptyList();
+        }
+
+        List<WatchSet.Watch> watches = new ArrayList<>();
+        expect(reader, JsonToken.BEGIN_ARRAY);
+        reader.beginArray();
+        while (reader.hasNext())
+        {
+            if (watches.size() == WatchSet.MAX_WATCHES)
+            {
+                throw new BrainResponseException(reader.getPath(), "at most " + WatchSet.MAX_WATCHES + " watches");
+            }
+            watches.add(readWatch(reader));
+        }
+        reader.endArray();
+        return Collections.unmodifiableList(watches);
+    }
+
+    private static WatchSet.Watch readWatch(JsonReader reader) throws IOException
+    {
+        String path = reader.getPath();
+        String id = null;
+        WatchSet.Type type = null;
+        String name = null;
+        Integer count = null;
+        WatchSet.OnTrip then = WatchSet.OnTrip.DECIDE;
+
+        expect(reader, JsonToken.BEGIN_OBJECT);
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            switch (reader.nextName())
+            {
+                case "id":
+                    id = readOptionalString(reader);
+                    break;
+                case "type":
+                    String typePath = reader.getPath();
+                    String wire = readOptionalString(reader);
+                    type = wire != null ? WatchSet.Type.fromWireName(wire) : null;
+                    if (type == null)
+                    {
+                        throw new BrainResponseException(typePath, "unknown watch '" + wire + "'");
+                    }
+                    break;
+                case "name":
+                    name = readOptionalString(reader);
+                    break;
+                case "count":
+                    count = readOptionalInt(reader);
+                    break;
+                case "then":
+                    String thenPath = reader.getPath();
+                    String thenWire = readOptionalString(reader);
+                    then = thenWire != null ? WatchSet.OnTrip.fromWireName(thenWire) : WatchSet.OnTrip.DECIDE;
+                    if (then == null)
+                    {
+                        throw new BrainResponseException(thenPath, "then must be 'decide' or 'abort'");
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (type == null)
+        {
+            throw new BrainResponseException(path, "watch requires a type");
+        }
+        switch (type)
+        {
+            case INVENTORY_FREE_SLOTS:
+                if (count == null || count < 0 || count > LoopInterpreter.INVENTORY_SLOTS)
+                {
+                    throw new BrainResponseException(path, "inventory_free_slots requires a count from 0 to " + LoopInterpreter.INVENTORY_SLOTS);
+                }
+                break;
+            case HP_BELOW:
+                if (count == null || count < 1)
+                {
+                    throw new BrainResponseException(path, "hp_below requires a positive count");
+                }
+                break;
+            case NPC_WITHIN:
+                if (name == null || name.trim().isEmpty() || count == null || count < 0)
+                {
+                    throw new BrainResponseException(path, "npc_within requires a non-empty name and a non-negative count of tiles");
+                }
+                break;
+            case DIALOG_OPENED:
+            default:
+                break;
+        }
+        if (id == null || id.trim().isEmpty())
+        {
+            id = type.getWireName();
+        }
+        return new WatchSet.Watch(id.trim(), type, name != null ? name.trim() : null, count != null ? count : 0, then);
+    }
+
+    /**
+     * A positive tick count, clamped to {@code max}.
+     */
+    private static int readTicks(JsonReader reader, int max) throws IOException
+    {
+        String path = reader.getPath();
+        Integer ticks = readOptionalInt(reader);
+        if (ticks == null || ticks <= 0)
+        {
+            throw new BrainResponseException(path, "expected a positive number of ticks");
+        }
+        return Math.min(ticks, max);
+    }
+
+    private static Meta readMeta(JsonReader reader) throws IOException
+    {
+        if (reader.peek() == JsonToken.NULL)
+        {
+            reader.nextNull();
+            return Meta.EMPTY;
+        }
+
+        String reason = null;
+        Map<String, Double> timing = Collections.emptyMap();
+        expect(reader, JsonToken.BEGIN_OBJECT);
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            switch (reader.nextName())
+            {
+                case "reason":
+                    reason = readOptionalString(reader);
+                    break;
+                case "timing":
+                    timing = readTiming(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return new Meta(reason, timing);
+    }
+
+    /**
+     * {@code meta.timing}: an object of server-side stage name to milliseconds.
+     */
+    private static Map<String, Double> readTiming(JsonReader reader) throws IOException
+    {
+        if (reader.peek() == JsonToken.NULL)
+        {
+            reader.nextNull();
+            return Collections.emptyMap();
+        }
+
+        Map<String, Double> timing = new LinkedHashMap<>();
+        expect(reader, JsonToken.BEGIN_OBJECT);
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            String name = reader.nextName();
+            String path = reader.getPath();
+            JsonToken token = reader.peek();
+            if (token != JsonToken.NUMBER)
+            {
+                throw new BrainResponseException(path, "expected milliseconds but was " + token);
+            }
+
+            double ms = reader.nextDouble();
+            if (ms < 0 || Double.isNaN(ms) || Double.isInfinite(ms))
+            {
+                throw new BrainResponseException(path, "timing must be a finite, non-negative number");
+            }
+            timing.put(name, ms);
+        }
+        reader.endObject();
+        return Collections.unmodifiableMap(timing);
+    }
+
+    private static void validate(BrainActionType type, BrainAction.Target target) throws BrainResponseException
+    {
+        switch (type)
+        {
+            case WALK_TO_TILE:
+            case INTERACT_OBJECT:
+                if (!target.hasTile())
+                {
+                    throw new BrainResponseException("$.target", type.getWireName() + " requires integer x and y");
+                }
+                break;
+            case TALK_TO_NPC:
+            case USE_INVENTORY_ITEM:
+            case PICKUP_ITEM:
+                if (target.name() == null || target.name().trim().isEmpty())
+                {
+                    throw new BrainResponseException("$.target.name", type.getWireName() + " requires a non-empty name");
+                }
+                break;
+            case SELECT_DIALOG_OPTION:
+                if ((target.slot() == null || target.slot() < 1)
+                        && (target.option() == null || target.option().trim().isEmpty()))
+                {
+                    throw new BrainResponseException("$.target", type.getWireName() + " requires an option index (slot, from 1) or option text");
+                }
+                break;
+            case DIALOG_CONTINUE:
+            case ADJUST_CAMERA:
+            case RUN_LOOP:
+            case WAIT:
+            default:
+                break;
+        }
+    }
+
+    private static Integer readOptionalInt(JsonReader reader) throws IOException
+    {
+        String path = reader.getPath();
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL)
+        {
+            reader.nextNull();
+            return null;
+        }
+
+        if (token != JsonToken.NUMBER)
+        {
+            throw new BrainResponseException(path, "expected integer but was " + token);
+        }
+
+        try
+        {
+            return reader.nextInt();
+        }
+        catch (NumberFormatException e)
+        {
+            throw new BrainResponseException(path, "expected integer but was a fractional or out-of-range number");
+        }
+    }
+
+    private static String readOptionalString(JsonReader reader) throws IOException
+    {
+        String path = reader.getPath();
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL)
+        {
+            reader.nextNull();
+            return null;
+        }
+
+        if (token != JsonToken.STRING)
+        {
+            throw new BrainResponseException(path, "expected string but was " + token);
+        }
+        return reader.nextString();
+    }
+
+    private record Meta(String reason, Map<String, Double> timingMs)
+    {
+        static final Meta EMPTY = new Meta(null, Collections.emptyMap());
+    }
+
+    private static void expect(JsonReader reader, JsonToken expected) throws IOException
+    {
+        JsonToken actual = reader.peek();
+        if (actual != expected)
+        {
+            throw new BrainResponseException(reader.getPath(), "expected " + expected + " but was " + actual);
+        }
+    }
+}
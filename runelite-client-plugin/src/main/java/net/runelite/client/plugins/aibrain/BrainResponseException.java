@@ -0,0 +1,22 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.io.IOException;
+
+/**
+ * A /decide response that does not match the action schema. The message names the offending JSON path.
+ */
+class BrainResponseException extends IOException
+{
+    private final String path;
+
+    BrainResponseException(String path, String message)
+    {
+        super(path + ": " + message);
+        this.path = path;
+    }
+
+    String getPath()
+    {
+        return path;
+    }
+}
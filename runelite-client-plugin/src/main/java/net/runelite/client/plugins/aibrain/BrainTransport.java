@@ -0,0 +1,583 @@
+package net.runelite.client.plugins.aibrain;
+
+import lombok.extern.slf4j.Slf4j;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.EventListener;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP transport for the brain server.
+ *
+ * At most one /decide is in flight at a time: a newer snapshot supersedes (cancels) the older call,
+ * and {@link #cancelInFlight(String)} really cancels the underlying OkHttp calls. Each decide carries
+ * a hard deadline and can optionally be hedged: if the primary has not answered after the hedge
+ * delay, the same payload is sent to a secondary brain and whichever answers first wins.
+ * Outcomes feed a {@link BrainCircuitBreaker}; callers consult it before sending full snapshots.
+ */
+@Slf4j
+class BrainTransport
+{
+    interface DecideCallback
+    {
+        void onResponse(long seq, String body, boolean fromHedge);
+
+        void onError(long seq, String status, String details);
+    }
+
+    private static final MediaType JSON_MEDIA_TYPE =
+            MediaType.parse("application/json; charset=utf-8");
+
+    private static final long CONTROL_CALL_TIMEOUT_MS = 2000;
+    private static final long HEALTH_CALL_TIMEOUT_MS = 2000;
+
+    /**
+     * Marks send / first-byte stages on the {@link DecisionTrace} tagged onto /decide requests.
+     */
+    private static final EventListener TRACE_LISTENER = new EventListener()
+    {
+        @Override
+        public void requestHeadersStart(Call call)
+        {
+            mark(call, DecisionTrace.Stage.SENT);
+        }
+
+        @Override
+        public void responseHeadersStart(Call call)
+        {
+            mark(call, DecisionTrace.Stage.FIRST_BYTE);
+        }
+
+        private void mark(Call call, DecisionTrace.Stage stage)
+        {
+            DecisionTrace trace = call.request().tag(DecisionTrace.class);
+            if (trace != null)
+            {
+                trace.mark(stage);
+            }
+        }
+    };
+
+    private final OkHttpClient httpClient;
+    private final BrainCircuitBreaker breaker;
+    private final ScheduledExecutorService hedgeScheduler;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicReference<InFlight> inFlight = new AtomicReference<>();
+
+    private final LatencyRecorder decideLatencyMs = new LatencyRecorder();
+    private final LongAdder hedgesSent = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder superseded = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder httpErrors = new LongAdder();
+    private final LongAdder ioErrors = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+
+    BrainTransport(long connectTimeoutMs, BrainCircuitBreaker breaker)
+    {
+        this.breaker = breaker;
+        this.httpClient = new OkHttpClient.Builder()
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .eventListener(TRACE_LISTENER)
+                .build();
+
+        this.hedgeScheduler = Executors.newSingleThreadScheduledExecutor(r ->
+        {
+            Thread t = new Thread(r, "aibrain-hedge");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Send a /decide request, superseding any call still in flight.
+     *
+     * @param secondaryUrl full /decide URL of the hedge target, or null to disable hedging
+     * @param hedgeDelayMs delay before the hedge is sent; ignored when secondaryUrl is null
+     * @return the sequence id of this decision
+     */
+    long decide(String primaryUrl, String secondaryUrl, String json, long deadlineMs, long hedgeDelayMs,
+                DecisionTrace trace, DecideCallback callback)
+    {
+        InFlight flight = new InFlight(sequence.incrementAndGet(), json, secondaryUrl, deadlineMs, trace, callback);
+
+        InFlight previous = inFlight.getAndSet(flight);
+        if (previous != null && previous.cancel())
+        {
+            superseded.increment();
+            log.debug("Decision #{} superseded by #{}", previous.seq, flight.seq);
+        }
+
+        breaker.onDecideSent(deadlineMs);
+        enqueue(flight, primaryUrl, false);
+
+        if (secondaryUrl != null)
+        {
+            flight.hedgeTimer = hedgeScheduler.schedule(flight::fireHedge, hedgeDelayMs, TimeUnit.MILLISECONDS);
+        }
+
+        return flight.seq;
+    }
+
+    /**
+     * Cancel the decision currently in flight, if any.
+     *
+     * @return true if a call was actually cancelled
+     */
+    boolean cancelInFlight(String reason)
+    {
+        InFlight flight = inFlight.getAndSet(null);
+        if (flight != null && flight.cancel())
+        {
+            cancelled.increment();
+            log.debug("Decision #{} cancelled: {}", flight.seq, reason);
+            return true;
+        }
+        return false;
+    }
+
+    long currentSequence()
+    {
+        return sequence.get();
+    }
+
+    BrainCircuitBreaker getBreaker()
+    {
+        return breaker;
+    }
+
+    /**
+     * Fire a cheap GET /health probe if the breaker asks for one. Never blocks.
+     */
+    void probeHealthIfDue(String url)
+    {
+        if (!breaker.shouldProbe())
+        {
+            return;
+        }
+
+        OkHttpClient client = httpClient.newBuilder()
+                .callTimeout(HEALTH_CALL_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .build();
+
+        Request request = new Request.Builder()
+                .url(url)
+                .get()
+                .build();
+
+        client.newCall(request).enqueue(new Callback()
+        {
+            @Override
+            public void onFailure(Call c, IOException e)
+            {
+                log.debug("AI brain health probe failed", e);
+                breaker.onProbeResult(false);
+            }
+
+            @Override
+            public void onResponse(Call c, Response response)
+            {
+                try (Response r = response)
+                {
+                    log.debug("AI brain health probe: HTTP {}", r.code());
+                    breaker.onProbeResult(r.isSuccessful());
+                }
+            }
+        });
+    }
+
+    /**
+     * Blocking POST used for the small /control update; bounded by a short call timeout.
+     */
+    void postControl(String url, String json) throws IOException
+    {
+        OkHttpClient client = httpClient.newBuilder()
+                .callTimeout(CONTROL_CALL_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .build();
+
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(JSON_MEDIA_TYPE, json))
+                .build();
+
+        try (Response response = client.newCall(request).execute())
+        {
+            if (!response.isSuccessful())
+            {
+                log.debug("AI brain /control error: {}", response);
+            }
+        }
+    }
+
+    LatencyRecorder getDecideLatencyMs()
+    {
+        return decideLatencyMs;
+    }
+
+    long getHedgesSent()
+    {
+        return hedgesSent.sum();
+    }
+
+    long getHedgeWins()
+    {
+        return hedgeWins.sum();
+    }
+
+    long getSuperseded()
+    {
+        return superseded.sum();
+    }
+
+    long getCancelled()
+    {
+        return cancelled.sum();
+    }
+
+    long getTimeouts()
+    {
+        return timeouts.sum();
+    }
+
+    long getHttpErrors()
+    {
+        return httpErrors.sum();
+    }
+
+    long getIoErrors()
+    {
+        return ioErrors.sum();
+    }
+
+    long getRequestBytes()
+    {
+        return requestBytes.sum();
+    }
+
+    long getResponseBytes()
+    {
+        return responseBytes.sum();
+    }
+
+    int getInFlightCount()
+    {
+        return inFlight.get() != null ? 1 : 0;
+    }
+
+    int getQueuedCallCount()
+    {
+        return httpClient.dispatcher().queuedCallsCount();
+    }
+
+    int getRunningCallCount()
+    {
+        return httpClient.dispatcher().runningCallsCount();
+    }
+
+    String latencySummary()
+    {
+        return String.format("RTT p50 %d ms · p99 %d ms · max %d ms (n=%d, hedged %d, hedge wins %d, cancelled %d, timeouts %d)",
+                decideLatencyMs.getPercentile(50),
+                decideLatencyMs.getPercentile(99),
+                decideLatencyMs.getMax(),
+                decideLatencyMs.getCount(),
+                hedgesSent.sum(),
+                hedgeWins.sum(),
+                superseded.sum() + cancelled.sum(),
+                timeouts.sum());
+    }
+
+    void shutdown()
+    {
+        cancelInFlight("shutdown");
+        hedgeScheduler.shutdownNow();
+    }
+
+    /**
+     * Send one leg of a decision, bounded by what is left of the decision's deadline rather than a
+     * fresh one, so a hedge never stretches the decision past {@code deadlineMs}.
+     */
+    private void enqueue(InFlight flight, String url, boolean hedge)
+    {
+        OkHttpClient client = httpClient.newBuilder()
+                .callTimeout(Math.max(1, flight.remainingMs()), TimeUnit.MILLISECONDS)
+                .build();
+
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(JSON_MEDIA_TYPE, flight.body))
+                .tag(DecisionTrace.class, flight.trace)
+                .build();
+
+        flight.pendingLegs.incrementAndGet();
+        requestBytes.add(flight.body.length);
+        Call call = client.newCall(request);
+        // Published before it is sent, so a cancel from here on reaches it.
+        if (hedge)
+        {
+            flight.hedge = call;
+        }
+        else
+        {
+            flight.primary = call;
+        }
+        if (flight.done.get())
+        {
+            flight.selfCancelled = true;
+            call.cancel();
+        }
+        call.enqueue(new Callback()
+        {
+            @Override
+            public void onFailure(Call c, IOException e)
+            {
+                if (flight.selfCancelled || flight.done.get())
+                {
+                    return;
+                }
+
+                // OkHttp cancels a call whose callTimeout expires, so a cancel we did not make is the deadline.
+                boolean timedOut = c.isCanceled() || e instanceof InterruptedIOException;
+                if (timedOut)
+                {
+                    timeouts.increment();
+                }
+                else
+                {
+                    ioErrors.increment();
+                }
+
+                log.warn("Failed to call AI brain /decide ({})", hedge ? "hedge" : "primary", e);
+                flight.legFailed("Status: Error", timedOut
+                        ? "Brain /decide exceeded " + flight.deadlineMs + " ms deadline"
+                        : "Exception in /decide: " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call c, Response response)
+            {
+                try (Response r = response)
+                {
+                    if (!r.isSuccessful())
+                    {
+                        httpErrors.increment();
+                        log.warn("AI brain /decide error: {}", r);
+                        flight.legFailed("Status: Error", "Brain /decide HTTP " + r.code());
+                        return;
+                    }
+
+                    ResponseBody body = r.body();
+                    if (body == null)
+                    {
+                        log.warn("AI brain /decide returned no body");
+                        flight.legFailed("Status: Error", "Empty body from /decide");
+                        return;
+                    }
+
+                    // Read as bytes so the byte counts are the payload's, not its length in chars.
+                    byte[] bytes = body.bytes();
+                    MediaType type = body.contentType();
+                    Charset charset = type != null ? type.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
+                    flight.succeeded(new String(bytes, charset), bytes.length, hedge);
+                }
+                catch (IOException e)
+                {
+                    onFailure(c, e);
+                }
+            }
+        });
+    }
+
+    private final class InFlight
+    {
+        private final long seq;
+        private final byte[] body;
+        private final String secondaryUrl;
+        private final long deadlineMs;
+        private final DecisionTrace trace;
+        private final DecideCallback callback;
+        private final long startNanos = System.nanoTime();
+        private final AIBrainEvents.BrainRoundTrip event = new AIBrainEvents.BrainRoundTrip();
+
+        private final AtomicBoolean done = new AtomicBoolean();
+        private final AtomicInteger pendingLegs = new AtomicInteger();
+        private boolean hedgeFired;
+        // Set before the transport cancels a leg itself (superseded, cancelled, hedge loser), so that
+        // any other cancelled call is known to have hit its deadline.
+        private volatile boolean selfCancelled;
+
+        private volatile Call primary;
+        private volatile Call hedge;
+        private volatile ScheduledFuture<?> hedgeTimer;
+
+        InFlight(long seq, String json, String secondaryUrl, long deadlineMs, DecisionTrace trace,
+                 DecideCallback callback)
+        {
+            this.trace = trace;
+            this.seq = seq;
+            this.body = json.getBytes(StandardCharsets.UTF_8);
+            this.event.seq = seq;
+            this.event.requestBytes = body.length;
+            this.event.begin();
+            this.secondaryUrl = secondaryUrl;
+            this.deadlineMs = deadlineMs;
+            this.callback = callback;
+        }
+
+        synchronized boolean fireHedge()
+        {
+            if (hedgeFired || secondaryUrl == null || done.get())
+            {
+                return false;
+            }
+
+            hedgeFired = true;
+            if (remainingMs() <= 0)
+            {
+                // No time left for a second leg to answer in.
+                return false;
+            }
+            hedgesSent.increment();
+            log.debug("Hedging decision #{} to {}", seq, secondaryUrl);
+            enqueue(this, secondaryUrl, true);
+            return true;
+        }
+
+        /**
+         * @return milliseconds left of this decision's deadline, counted from when it was sent
+         */
+        long remainingMs()
+        {
+            return deadlineMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+
+        void legFailed(String status, String details)
+        {
+            if (pendingLegs.decrementAndGet() > 0)
+            {
+                // The other leg may still answer in time.
+                return;
+            }
+
+            cancelTimer();
+
+            // The primary failed before the hedge delay elapsed: try the secondary right away.
+            if (fireHedge())
+            {
+                return;
+            }
+
+            if (done.compareAndSet(false, true))
+            {
+                commitEvent("error", 0, false);
+                breaker.onFailure();
+                inFlight.compareAndSet(this, null);
+                callback.onError(seq, status, details);
+            }
+        }
+
+        void succeeded(String responseBody, int bodyBytes, boolean fromHedge)
+        {
+            if (!done.compareAndSet(false, true))
+            {
+                return;
+            }
+
+            responseBytes.add(bodyBytes);
+            commitEvent("ok", bodyBytes, fromHedge);
+            long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            decideLatencyMs.record(latencyMs);
+            breaker.onSuccess(latencyMs);
+            if (fromHedge)
+            {
+                hedgeWins.increment();
+            }
+
+            cancelTimer();
+            Call loser = fromHedge ? primary : hedge;
+            if (loser != null)
+            {
+                selfCancelled = true;
+                loser.cancel();
+            }
+
+            inFlight.compareAndSet(this, null);
+            callback.onResponse(seq, responseBody, fromHedge);
+        }
+
+        boolean cancel()
+        {
+            if (!done.compareAndSet(false, true))
+            {
+                return false;
+            }
+
+            commitEvent("cancelled", 0, false);
+            breaker.onCancelled();
+            cancelCalls();
+            return true;
+        }
+
+        private void commitEvent(String outcome, long bodyBytes, boolean fromHedge)
+        {
+            event.end();
+            if (event.shouldCommit())
+            {
+                event.outcome = outcome;
+                event.responseBytes = bodyBytes;
+                event.fromHedge = fromHedge;
+                event.commit();
+            }
+        }
+
+        private void cancelTimer()
+        {
+            ScheduledFuture<?> timer = hedgeTimer;
+            if (timer != null)
+            {
+                timer.cancel(false);
+            }
+        }
+
+        private void cancelCalls()
+        {
+            cancelTimer();
+            selfCancelled = true;
+
+            Call p = primary;
+            if (p != null)
+            {
+                p.cancel();
+            }
+
+            Call h = hedge;
+            if (h != null)
+            {
+                h.cancel();
+            }
+        }
+    }
+}
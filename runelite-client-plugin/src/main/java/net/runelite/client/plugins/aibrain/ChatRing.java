@@ -0,0 +1,93 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The last {@link #CAPACITY} game messages, numbered with a sequence that only grows. One thread
+ * appends; any thread reads without locking. A message overwritten while a reader is copying is
+ * skipped rather than returned out of order.
+ *
+ * Snapshots take the messages after the brain's acknowledged cursor, so each message is sent
+ * until a /decide response for a snapshot carrying it is parsed, and then no more.
+ */
+final class ChatRing
+{
+    static final int CAPACITY = 64;
+    private static final int MASK = CAPACITY - 1;
+
+    record Message(long sequence, String text)
+    {
+    }
+
+    private final AtomicReferenceArray<Message> slots = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLong acknowledged = new AtomicLong();
+    // Written only by the appending thread; readers see slots up to it.
+    private volatile long last;
+
+    /**
+     * Add a message. Single writer: call from one thread only.
+     *
+     * @return its sequence
+     */
+    long append(String text)
+    {
+        long seq = last + 1;
+        slots.set((int) (seq & MASK), new Message(seq, text));
+        last = seq;
+        return seq;
+    }
+
+    /**
+     * @return up to {@code max} of the newest messages after {@code cursor}, oldest first
+     */
+    List<Message> since(long cursor, int max)
+    {
+        long hi = last;
+        long lo = Math.max(cursor + 1, Math.max(hi - CAPACITY + 1, hi - max + 1));
+        List<Message> out = new ArrayList<>((int) Math.max(0, hi - lo + 1));
+        for (long seq = lo; seq <= hi; seq++)
+        {
+            Message m = slots.get((int) (seq & MASK));
+            if (m != null && m.sequence() == seq)
+            {
+                out.add(m);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @return up to {@code max} of the newest messages the brain has not acknowledged, oldest first
+     */
+    List<Message> unacknowledged(int max)
+    {
+        return since(acknowledged.get(), max);
+    }
+
+    /**
+     * The brain has seen every message up to {@code sequence}.
+     */
+    void acknowledge(long sequence)
+    {
+        acknowledged.accumulateAndGet(sequence, Math::max);
+    }
+
+    /**
+     * @return the newest message's sequence, 0 before the first
+     */
+    long getLast()
+    {
+        return last;
+    }
+
+    /**
+     * Stop sending every message so far, e.g. when the plugin restarts.
+     */
+    void clear()
+    {
+        acknowledged.accumulateAndGet(last, Math::max);
+    }
+}
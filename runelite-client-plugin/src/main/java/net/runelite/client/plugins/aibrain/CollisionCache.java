@@ -0,0 +1,335 @@
+package net.runelite.client.plugins.aibrain;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.CollisionData;
+import net.runelite.api.CollisionDataFlag;
+import net.runelite.api.WorldView;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Movement flags for every tile the player has had loaded, kept per 64x64 region so they outlive
+ * the 104x104 scene and can be persisted between sessions.
+ *
+ * Each tile is one byte of bit flags (known, fully blocked, wall on each side). Region arrays are
+ * copy-on-write: {@link #capture} builds a new array and swaps it in, so readers on other threads
+ * (the pathfinder, the saver) never see a half-written region and need no locking.
+ *
+ * Tiles never captured read as open, so the pathfinder plans optimistically through unexplored
+ * areas and replans once they come into view.
+ */
+@Slf4j
+final class CollisionCache
+{
+    static final int REGION_SIZE = 64;
+    static final int PLANES = 4;
+    private static final int REGION_BYTES = REGION_SIZE * REGION_SIZE * PLANES;
+
+    static final byte KNOWN = 1;
+    static final byte FULL = 2;
+    static final byte WALL_N = 4;
+    static final byte WALL_E = 8;
+    static final byte WALL_S = 16;
+    static final byte WALL_W = 32;
+
+    private static final int FILE_MAGIC = 0x4149434D;
+    private static final int FILE_VERSION = 1;
+    /** The client marks the outermost scene tiles as blocked; their real flags are unknown. */
+    private static final int SCENE_BORDER = 1;
+    private static final int SCENE_FAR_BORDER = 5;
+    private static final int UNLOADED = 0xFFFFFF;
+
+    private final Map<Integer, byte[]> regions = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    /**
+     * Copy the current scene's collision flags into the cache. Client thread only.
+     *
+     * @return the number of tiles captured
+     */
+    int capture(WorldView wv)
+    {
+        if (wv == null || wv.isInstance())
+        {
+            // Instanced areas reuse template coordinates; caching them would poison the real map.
+            return 0;
+        }
+
+        CollisionData[] maps = wv.getCollisionMaps();
+        if (maps == null)
+        {
+            return 0;
+        }
+
+        int baseX = wv.getBaseX();
+        int baseY = wv.getBaseY();
+        int sizeX = wv.getSizeX();
+        int sizeY = wv.getSizeY();
+        Map<Integer, byte[]> staged = new HashMap<>();
+        int captured = 0;
+
+        for (int plane = 0; plane < Math.min(PLANES, maps.length); plane++)
+        {
+            if (maps[plane] == null)
+            {
+                continue;
+            }
+
+            int[][] flags = maps[plane].getFlags();
+            for (int x = SCENE_BORDER; x < sizeX - SCENE_FAR_BORDER; x++)
+            {
+                for (int y = SCENE_BORDER; y < sizeY - SCENE_FAR_BORDER; y++)
+                {
+                    int f = flags[x][y];
+                    if (f == UNLOADED)
+                    {
+                        continue;
+                    }
+
+                    int wx = baseX + x;
+                    int wy = baseY + y;
+                    int regionId = regionId(wx, wy);
+                    byte[] region = staged.computeIfAbsent(regionId, id ->
+                    {
+                        byte[] existing = regions.get(id);
+                        return existing != null ? existing.clone() : new byte[REGION_BYTES];
+                    });
+                    region[index(wx, wy, plane)] = encode(f);
+                    captured++;
+                }
+            }
+        }
+
+        if (!staged.isEmpty())
+        {
+            regions.putAll(staged);
+            dirty = true;
+        }
+        return captured;
+    }
+
+    /**
+     * @return true if a player can step one tile in direction (dx, dy), each -1..1, from (x, y)
+     */
+    boolean canMove(int x, int y, int plane, int dx, int dy)
+    {
+        if (dx != 0 && dy != 0)
+        {
+            // Diagonal steps need both L-shaped routes to be clear, like the game's own pathing.
+            return canMove(x, y, plane, dx, 0) && canMove(x + dx, y, plane, 0, dy)
+                    && canMove(x, y, plane, 0, dy) && canMove(x, y + dy, plane, dx, 0);
+        }
+        return canStep(getFlags(x, y, plane), getFlags(x + dx, y + dy, plane), dx, dy);
+    }
+
+    /**
+     * Copy the flags of a {@code width} x {@code height} block of one plane into {@code out}, tile
+     * (x, y) of the block at {@code out[x * stride + y]}.
+     */
+    void copyWindow(int originX, int originY, int width, int height, int plane, byte[] out, int stride)
+    {
+        for (int x = 0; x < width; x++)
+        {
+            int wx = originX + x;
+            int y = 0;
+            while (y < height)
+            {
+                // Copy the run of this column that lies in one region; region columns are contiguous.
+                int wy = originY + y;
+                int run = Math.min(height - y, REGION_SIZE - (wy & (REGION_SIZE - 1)));
+                byte[] region = plane >= 0 && plane < PLANES ? regions.get(regionId(wx, wy)) : null;
+                if (region != null)
+                {
+                    System.arraycopy(region, index(wx, wy, plane), out, x * stride + y, run);
+                }
+                else
+                {
+                    Arrays.fill(out, x * stride + y, x * stride + y + run, (byte) 0);
+                }
+                y += run;
+            }
+        }
+    }
+
+    /**
+     * Orthogonal step between two neighbouring tiles' flags.
+     */
+    static boolean canStep(byte from, byte to, int dx, int dy)
+    {
+        return (to & FULL) == 0 && !hasWall(from, to, dx, dy);
+    }
+
+    /**
+     * @return true if a wall on either tile's side blocks the orthogonal edge between them
+     */
+    static boolean hasWall(byte from, byte to, int dx, int dy)
+    {
+        if (dy == 1)
+        {
+            return (from & WALL_N) != 0 || (to & WALL_S) != 0;
+        }
+        if (dy == -1)
+        {
+            return (from & WALL_S) != 0 || (to & WALL_N) != 0;
+        }
+        if (dx == 1)
+        {
+            return (from & WALL_E) != 0 || (to & WALL_W) != 0;
+        }
+        if (dx == -1)
+        {
+            return (from & WALL_W) != 0 || (to & WALL_E) != 0;
+        }
+        return false;
+    }
+
+    int getRegionCount()
+    {
+        return regions.size();
+    }
+
+    /**
+     * @return the ids of every region with captured tiles, in no particular order
+     */
+    List<Integer> getRegionIds()
+    {
+        return new ArrayList<>(regions.keySet());
+    }
+
+    boolean isDirty()
+    {
+        return dirty;
+    }
+
+    /**
+     * Write every region to {@code file} (gzip), replacing it atomically. Safe from any thread.
+     */
+    void save(Path file) throws IOException
+    {
+        dirty = false;
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.createDirectories(file.getParent());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024))))
+        {
+            Map<Integer, byte[]> snapshot = new HashMap<>(regions);
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<Integer, byte[]> e : snapshot.entrySet())
+            {
+                out.writeInt(e.getKey());
+                out.write(e.getValue());
+            }
+        }
+        catch (IOException e)
+        {
+            dirty = true;
+            throw e;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Merge regions from {@code file}; regions captured this session take precedence.
+     *
+     * @return the number of regions loaded, 0 if there is no file yet
+     */
+    int load(Path file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), 64 * 1024))))
+        {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION)
+            {
+                throw new IOException(file + " is not a collision cache of this version");
+            }
+
+            int count = in.readInt();
+            int loaded = 0;
+            for (int i = 0; i < count; i++)
+            {
+                int regionId = in.readInt();
+                byte[] region = new byte[REGION_BYTES];
+                in.readFully(region);
+                if (regions.putIfAbsent(regionId, region) == null)
+                {
+                    loaded++;
+                }
+            }
+            return loaded;
+        }
+        catch (NoSuchFileException e)
+        {
+            return 0;
+        }
+    }
+
+    static int regionId(int x, int y)
+    {
+        return ((x >> 6) << 8) | (y >> 6);
+    }
+
+    /**
+     * @return the tile's flag byte, 0 if it was never captured
+     */
+    byte getFlags(int x, int y, int plane)
+    {
+        if (plane < 0 || plane >= PLANES)
+        {
+            return 0;
+        }
+        byte[] region = regions.get(regionId(x, y));
+        return region != null ? region[index(x, y, plane)] : 0;
+    }
+
+    private static int index(int x, int y, int plane)
+    {
+        return (plane * REGION_SIZE + (x & (REGION_SIZE - 1))) * REGION_SIZE + (y & (REGION_SIZE - 1));
+    }
+
+    /**
+     * Reduce the game's collision flags to this cache's tile byte.
+     */
+    static byte encode(int flags)
+    {
+        int b = KNOWN;
+        if ((flags & CollisionDataFlag.BLOCK_MOVEMENT_FULL) != 0)
+        {
+            b |= FULL;
+        }
+        if ((flags & CollisionDataFlag.BLOCK_MOVEMENT_NORTH) != 0)
+        {
+            b |= WALL_N;
+        }
+        if ((flags & CollisionDataFlag.BLOCK_MOVEMENT_EAST) != 0)
+        {
+            b |= WALL_E;
+        }
+        if ((flags & CollisionDataFlag.BLOCK_MOVEMENT_SOUTH) != 0)
+        {
+            b |= WALL_S;
+        }
+        if ((flags & CollisionDataFlag.BLOCK_MOVEMENT_WEST) != 0)
+        {
+            b |= WALL_W;
+        }
+        return (byte) b;
+    }
+}
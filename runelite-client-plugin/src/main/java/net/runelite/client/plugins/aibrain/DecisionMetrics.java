@@ -0,0 +1,217 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import net.runelite.client.plugins.aibrain.DecisionTrace.Stage;
+
+/**
+ * Per-stage latency histograms (microseconds) aggregated from completed {@link DecisionTrace}s.
+ * Server-side timings returned by the brain in {@code meta.timing} are recorded as
+ * {@code brain.<key>} stages, and when the brain reports {@code total_ms} the pure network share
+ * of the wait for the first byte is derived as well.
+ */
+final class DecisionMetrics
+{
+    enum Interval
+    {
+        TRIGGER_WAIT("trigger", Stage.TRIGGER, Stage.CAPTURE_START),
+        CAPTURE("capture", Stage.CAPTURE_START, Stage.CAPTURE_END),
+        CONTROL("control", Stage.CAPTURE_END, Stage.CONTROL_SENT),
+        ENCODE("encode", Stage.CONTROL_SENT, Stage.ENCODED),
+        SEND("send", Stage.ENCODED, Stage.SENT),
+        FIRST_BYTE("first_byte", Stage.SENT, Stage.FIRST_BYTE),
+        PARSE("parse", Stage.FIRST_BYTE, Stage.PARSED),
+        QUEUE("queue", Stage.PARSED, Stage.QUEUED),
+        TICK_WAIT("tick_wait", Stage.QUEUED, Stage.DISPATCHED);
+
+        private final String key;
+        private final Stage from;
+        private final Stage to;
+
+        Interval(String key, Stage from, Stage to)
+        {
+            this.key = key;
+            this.from = from;
+            this.to = to;
+        }
+
+        String getKey()
+        {
+            return key;
+        }
+    }
+
+    static final String TOTAL = "total";
+    static final String NETWORK = "network";
+    private static final String BRAIN_PREFIX = "brain.";
+    private static final String BRAIN_TOTAL_KEY = "total_ms";
+    private static final int RECENT_DECISIONS = 120;
+    private static final long RATE_WINDOW_MS = 60_000L;
+
+    private final Map<Interval, LatencyRecorder> intervals = new EnumMap<>(Interval.class);
+    private final LatencyRecorder total = new LatencyRecorder();
+    private final LatencyRecorder network = new LatencyRecorder();
+    private final Map<String, LatencyRecorder> brainStages = new ConcurrentHashMap<>();
+
+    // Ring of the most recent decisions, for the panel's sparkline and decisions-per-minute.
+    private final long[] recentTotalMicros = new long[RECENT_DECISIONS];
+    private final long[] recentCompletedAtMs = new long[RECENT_DECISIONS];
+    private int recentPos;
+    private int recentFill;
+
+    DecisionMetrics()
+    {
+        for (Interval interval : Interval.values())
+        {
+            intervals.put(interval, new LatencyRecorder());
+        }
+    }
+
+    void complete(DecisionTrace trace)
+    {
+        for (Interval interval : Interval.values())
+        {
+            long nanos = trace.elapsedNanos(interval.from, interval.to);
+            if (nanos >= 0)
+            {
+                intervals.get(interval).record(TimeUnit.NANOSECONDS.toMicros(nanos));
+            }
+        }
+
+        long totalNanos = trace.elapsedNanos(Stage.TRIGGER, trace.lastStage());
+        if (totalNanos >= 0)
+        {
+            long totalMicros = TimeUnit.NANOSECONDS.toMicros(totalNanos);
+            total.record(totalMicros);
+
+            synchronized (recentTotalMicros)
+            {
+                recentTotalMicros[recentPos] = totalMicros;
+                recentCompletedAtMs[recentPos] = System.currentTimeMillis();
+                recentPos = (recentPos + 1) % RECENT_DECISIONS;
+                recentFill = Math.min(RECENT_DECISIONS, recentFill + 1);
+            }
+        }
+
+        Map<String, Double> server = trace.getServerTimingMs();
+        for (Map.Entry<String, Double> e : server.entrySet())
+        {
+            brainStages.computeIfAbsent(BRAIN_PREFIX + e.getKey(), k -> new LatencyRecorder())
+                    .record((long) (e.getValue() * 1000.0));
+        }
+
+        Double serverTotalMs = server.get(BRAIN_TOTAL_KEY);
+        long firstByteNanos = trace.elapsedNanos(Stage.SENT, Stage.FIRST_BYTE);
+        if (serverTotalMs != null && firstByteNanos >= 0)
+        {
+            long networkMicros = TimeUnit.NANOSECONDS.toMicros(firstByteNanos) - (long) (serverTotalMs * 1000.0);
+            network.record(Math.max(0, networkMicros));
+        }
+    }
+
+    /**
+     * @return stage name to recorder, in pipeline order, for every stage with at least one sample
+     */
+    Map<String, LatencyRecorder> recordersByStage()
+    {
+        Map<String, LatencyRecorder> out = new LinkedHashMap<>();
+        for (Interval interval : Interval.values())
+        {
+            LatencyRecorder r = intervals.get(interval);
+            if (r.getCount() > 0)
+            {
+                out.put(interval.getKey(), r);
+            }
+        }
+        if (network.getCount() > 0)
+        {
+            out.put(NETWORK, network);
+        }
+        brainStages.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> out.put(e.getKey(), e.getValue()));
+        if (total.getCount() > 0)
+        {
+            out.put(TOTAL, total);
+        }
+        return out;
+    }
+
+    long decisionCount()
+    {
+        return total.getCount();
+    }
+
+    LatencyRecorder getRecorder(Interval interval)
+    {
+        return intervals.get(interval);
+    }
+
+    /**
+     * @return end-to-end latency in milliseconds of the most recent decisions, oldest first
+     */
+    long[] recentTotalsMs()
+    {
+        synchronized (recentTotalMicros)
+        {
+            long[] out = new long[recentFill];
+            int start = (recentPos - recentFill + RECENT_DECISIONS) % RECENT_DECISIONS;
+            for (int i = 0; i < recentFill; i++)
+            {
+                out[i] = recentTotalMicros[(start + i) % RECENT_DECISIONS] / 1000;
+            }
+            return out;
+        }
+    }
+
+    double decisionsPerMinute()
+    {
+        long cutoff = System.currentTimeMillis() - RATE_WINDOW_MS;
+        int n = 0;
+        synchronized (recentTotalMicros)
+        {
+            for (int i = 0; i < recentFill; i++)
+            {
+                if (recentCompletedAtMs[i] >= cutoff)
+                {
+                    n++;
+                }
+            }
+        }
+        return n * (60_000.0 / RATE_WINDOW_MS);
+    }
+
+    /**
+     * One line per stage: {@code capture p50 1.2 ms · p95 3.4 ms · p99 8.0 ms}.
+     */
+    String summary()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, LatencyRecorder> e : recordersByStage().entrySet())
+        {
+            LatencyRecorder r = e.getValue();
+            if (sb.length() > 0)
+            {
+                sb.append('\n');
+            }
+            sb.append(e.getKey())
+                    .append(" p50 ").append(formatMicros(r.getPercentile(50)))
+                    .append(" · p95 ").append(formatMicros(r.getPercentile(95)))
+                    .append(" · p99 ").append(formatMicros(r.getPercentile(99)));
+        }
+        return sb.toString();
+    }
+
+    static String formatMicros(long micros)
+    {
+        if (micros < 1000)
+        {
+            return micros + " µs";
+        }
+        return String.format("%.1f ms", micros / 1000.0);
+    }
+}
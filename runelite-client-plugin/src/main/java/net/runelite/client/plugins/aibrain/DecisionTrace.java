@@ -0,0 +1,152 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timestamps of one decision as it moves through the pipeline, from the tick that triggered it to
+ * the tick its action was dispatched on. Stages are marked from the client thread, OkHttp threads
+ * and the EDT; each stage keeps the first timestamp written, so a hedged second leg does not
+ * overwrite the primary's marks.
+ */
+final class DecisionTrace
+{
+    enum Stage
+    {
+        TRIGGER,
+        CAPTURE_START,
+        CAPTURE_END,
+        CONTROL_SENT,
+        ENCODED,
+        SENT,
+        FIRST_BYTE,
+        PARSED,
+        QUEUED,
+        DISPATCHED
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final AtomicLongArray stamps = new AtomicLongArray(STAGES.length);
+    private volatile Map<String, Double> serverTimingMs = Collections.emptyMap();
+    private volatile long sequence;
+    private volatile int snapshotTick = -1;
+    private volatile long journalSequence;
+    private volatile long chatSequence;
+    private volatile WatchSet.Seen watchesSeen;
+
+    void mark(Stage stage)
+    {
+        stamps.compareAndSet(stage.ordinal(), 0, System.nanoTime());
+    }
+
+    boolean has(Stage stage)
+    {
+        return stamps.get(stage.ordinal()) != 0;
+    }
+
+    /**
+     * @return nanoseconds between two marked stages, or -1 if either is missing
+     */
+    long elapsedNanos(Stage from, Stage to)
+    {
+        long a = stamps.get(from.ordinal());
+        long b = stamps.get(to.ordinal());
+        if (a == 0 || b == 0)
+        {
+            return -1;
+        }
+        return Math.max(0, b - a);
+    }
+
+    /**
+     * @return the last stage that has been marked
+     */
+    Stage lastStage()
+    {
+        for (int i = STAGES.length - 1; i >= 0; i--)
+        {
+            if (stamps.get(i) != 0)
+            {
+                return STAGES[i];
+            }
+        }
+        return Stage.TRIGGER;
+    }
+
+    /**
+     * @return the transport sequence id, or 0 before it was sent
+     */
+    long getSequence()
+    {
+        return sequence;
+    }
+
+    void setSequence(long sequence)
+    {
+        this.sequence = sequence;
+    }
+
+    /**
+     * @return the tick the snapshot was captured on, or -1 before capture
+     */
+    int getSnapshotTick()
+    {
+        return snapshotTick;
+    }
+
+    void setSnapshotTick(int tick)
+    {
+        snapshotTick = tick;
+    }
+
+    /**
+     * @return the newest journal entry the snapshot carried
+     */
+    long getJournalSequence()
+    {
+        return journalSequence;
+    }
+
+    void setJournalSequence(long sequence)
+    {
+        journalSequence = sequence;
+    }
+
+    /**
+     * @return the newest chat message the snapshot carried
+     */
+    long getChatSequence()
+    {
+        return chatSequence;
+    }
+
+    void setChatSequence(long sequence)
+    {
+        chatSequence = sequence;
+    }
+
+    /**
+     * @return the watched state the snapshot showed, or null before capture
+     */
+    WatchSet.Seen getWatchesSeen()
+    {
+        return watchesSeen;
+    }
+
+    void setWatchesSeen(WatchSet.Seen seen)
+    {
+        watchesSeen = seen;
+    }
+
+    Map<String, Double> getServerTimingMs()
+    {
+        return serverTimingMs;
+    }
+
+    void setServerTimingMs(Map<String, Double> timing)
+    {
+        serverTimingMs = timing != null ? timing : Collections.emptyMap();
+    }
+}
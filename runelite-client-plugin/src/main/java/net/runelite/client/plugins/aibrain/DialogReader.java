@@ -0,0 +1,241 @@
+package net.runelite.client.plugins.aibrain;
+
+import net.runelite.api.Client;
+import net.runelite.api.widgets.Widget;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Reads whichever chatbox dialog is open into one structured {@link Dialog}: who is speaking and
+ * what they say, the option menu with the index each option is selected by, and the widget that
+ * continues the dialog. "Click here to continue" is taken from that widget instead of being
+ * guessed from the dialog text.
+ *
+ * Client thread only.
+ */
+final class DialogReader
+{
+    enum Kind
+    {
+        NONE("none"),
+        NPC("npc"),
+        PLAYER("player"),
+        OPTIONS("options"),
+        SPRITE("sprite"),
+        MESSAGE("message"),
+        LEVEL_UP("level_up");
+
+        private final String wireName;
+
+        Kind(String wireName)
+        {
+            this.wireName = wireName;
+        }
+
+        String getWireName()
+        {
+            return wireName;
+        }
+    }
+
+    /**
+     * @param speaker the NPC's or player's name, or null
+     * @param prompt the option menu's title, e.g. a quest-start question, or null
+     * @param options option texts; option {@code i} is selected with index {@code i + 1}
+     * @param continueWidget the component id that continues the dialog, or -1 if it cannot be continued
+     */
+    record Dialog(Kind kind, String speaker, String text, String prompt, List<String> options, int continueWidget)
+    {
+        static final Dialog NONE = new Dialog(Kind.NONE, null, null, null, Collections.emptyList(), -1);
+
+        boolean canContinue()
+        {
+            return continueWidget != -1;
+        }
+
+        boolean isOpen()
+        {
+            return kind != Kind.NONE;
+        }
+
+        /**
+         * @return the 1-based index of the option reading {@code text} (case-insensitive), else of
+         *         the only option containing it, or -1 if there is no single match
+         */
+        int optionIndex(String text)
+        {
+            String wanted = text.trim().toLowerCase(Locale.ROOT);
+            int contains = -1;
+            for (int i = 0; i < options.size(); i++)
+            {
+                String option = options.get(i).toLowerCase(Locale.ROOT);
+                if (option.equals(wanted))
+                {
+                    return i + 1;
+                }
+                if (option.contains(wanted))
+                {
+                    contains = contains == -1 ? i + 1 : -2;
+                }
+            }
+            return contains > 0 ? contains : -1;
+        }
+
+        /**
+         * @return a value that changes whenever the dialog's text or options do
+         */
+        int hash()
+        {
+            return Objects.hash(kind, text, prompt, options);
+        }
+    }
+
+    // Chatbox interfaces: group id and the children holding the speaker, text and continue button.
+    private static final int NPC_GROUP = 231;
+    private static final int PLAYER_GROUP = 217;
+    private static final int NAME_CHILD = 4;
+    private static final int CONTINUE_CHILD = 5;
+    private static final int TEXT_CHILD = 6;
+    private static final int OPTIONS_GROUP = 219;
+    private static final int OPTIONS_CHILD = 1;
+    private static final int SPRITE_GROUP = 193;
+    private static final int SPRITE_TEXT_CHILD = 2;
+    private static final int SPRITE_CONTINUE_CHILD = 0;
+    private static final int DOUBLE_SPRITE_GROUP = 11;
+    private static final int DOUBLE_SPRITE_TEXT_CHILD = 2;
+    private static final int DOUBLE_SPRITE_CONTINUE_CHILD = 4;
+    private static final int MESSAGE_GROUP = 229;
+    private static final int MESSAGE_TEXT_CHILD = 1;
+    private static final int MESSAGE_CONTINUE_CHILD = 2;
+    private static final int LEVEL_UP_GROUP = 233;
+    private static final int LEVEL_UP_TEXT_CHILD = 2;
+    private static final int LEVEL_UP_CONTINUE_CHILD = 3;
+
+    /** The option menu's component, which WIDGET_CONTINUE selects options on. */
+    static final int OPTIONS_WIDGET = component(OPTIONS_GROUP, OPTIONS_CHILD);
+
+    private DialogReader()
+    {
+    }
+
+    static Dialog read(Client client)
+    {
+        Widget options = visible(client, OPTIONS_GROUP, OPTIONS_CHILD);
+        if (options != null)
+        {
+            return readOptions(options);
+        }
+
+        Dialog d = readSpeech(client, Kind.NPC, NPC_GROUP);
+        if (d == null)
+        {
+            d = readSpeech(client, Kind.PLAYER, PLAYER_GROUP);
+        }
+        if (d == null)
+        {
+            d = readText(client, Kind.SPRITE, SPRITE_GROUP, SPRITE_TEXT_CHILD, SPRITE_CONTINUE_CHILD);
+        }
+        if (d == null)
+        {
+            d = readText(client, Kind.SPRITE, DOUBLE_SPRITE_GROUP, DOUBLE_SPRITE_TEXT_CHILD, DOUBLE_SPRITE_CONTINUE_CHILD);
+        }
+        if (d == null)
+        {
+            d = readText(client, Kind.MESSAGE, MESSAGE_GROUP, MESSAGE_TEXT_CHILD, MESSAGE_CONTINUE_CHILD);
+        }
+        if (d == null)
+        {
+            d = readText(client, Kind.LEVEL_UP, LEVEL_UP_GROUP, LEVEL_UP_TEXT_CHILD, LEVEL_UP_CONTINUE_CHILD);
+        }
+        return d != null ? d : Dialog.NONE;
+    }
+
+    private static Dialog readOptions(Widget container)
+    {
+        // The first child is the menu's title; options follow in the order they are numbered.
+        Widget[] children = container.getDynamicChildren();
+        String prompt = null;
+        List<String> options = new ArrayList<>();
+        if (children != null)
+        {
+            for (int i = 0; i < children.length; i++)
+            {
+                String text = children[i] != null ? clean(children[i].getText()) : null;
+                if (i == 0)
+                {
+                    prompt = text;
+                }
+                else if (text != null)
+                {
+                    options.add(text);
+                }
+                else
+                {
+                    break;
+                }
+            }
+        }
+        return new Dialog(Kind.OPTIONS, null, null, prompt, Collections.unmodifiableList(options), -1);
+    }
+
+    private static Dialog readSpeech(Client client, Kind kind, int group)
+    {
+        Widget text = visible(client, group, TEXT_CHILD);
+        if (text == null)
+        {
+            return null;
+        }
+        Widget name = visible(client, group, NAME_CHILD);
+        return new Dialog(kind, name != null ? clean(name.getText()) : null, clean(text.getText()), null,
+                Collections.emptyList(), continueWidget(client, group, CONTINUE_CHILD));
+    }
+
+    private static Dialog readText(Client client, Kind kind, int group, int textChild, int continueChild)
+    {
+        Widget text = visible(client, group, textChild);
+        if (text == null)
+        {
+            return null;
+        }
+        return new Dialog(kind, null, clean(text.getText()), null, Collections.emptyList(),
+                continueWidget(client, group, continueChild));
+    }
+
+    /**
+     * @return the continue widget's component id, or -1 if it is missing or reads "Please wait..."
+     */
+    private static int continueWidget(Client client, int group, int child)
+    {
+        Widget w = visible(client, group, child);
+        String text = w != null ? w.getText() : null;
+        return text != null && text.toLowerCase(Locale.ROOT).contains("continue") ? component(group, child) : -1;
+    }
+
+    private static Widget visible(Client client, int group, int child)
+    {
+        Widget w = client.getWidget(group, child);
+        return w != null && !w.isHidden() ? w : null;
+    }
+
+    /**
+     * @return the text without formatting tags and with line breaks as spaces, or null if blank
+     */
+    static String clean(String text)
+    {
+        if (text == null)
+        {
+            return null;
+        }
+        String s = text.replace("<br>", " ").replaceAll("<[^>]*>", "").trim();
+        return s.isEmpty() ? null : s;
+    }
+
+    private static int component(int group, int child)
+    {
+        return group << 16 | child;
+    }
+}
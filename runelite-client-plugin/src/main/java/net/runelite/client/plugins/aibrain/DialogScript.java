@@ -0,0 +1,177 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Talks through the rest of a conversation after a {@code select_dialog_option}, one game tick at
+ * a time: it continues every page, answers each option menu with the next of the brain's
+ * {@code choices}, and stops when the dialog closes or a menu comes up with no choice left for it.
+ * A multi-option conversation then costs one /decide round trip instead of one per page.
+ *
+ * Client thread only.
+ */
+final class DialogScript
+{
+    enum Status
+    {
+        IDLE,
+        RUNNING,
+        /** The dialog closed, or reached a menu the brain left for itself. */
+        FINISHED,
+        /** A choice matched no option, the dialog closed early, or it ran out of ticks. */
+        FAILED
+    }
+
+    /**
+     * How the script clicks through the dialog.
+     */
+    interface Actions
+    {
+        void continueDialog(int widget);
+
+        void selectOption(int index);
+    }
+
+    /** Ticks after a click before the same page or menu is clicked again. */
+    private static final int RESPONSE_TICKS = 3;
+    /** Ticks the chatbox may stay empty between pages before the dialog counts as closed. */
+    private static final int CLOSED_TICKS = 3;
+    static final int MAX_TICKS = 100;
+
+    private final Deque<String> choices = new ArrayDeque<>();
+    private Status status = Status.IDLE;
+    private String exitReason;
+    private int startTick;
+    private int actedTick;
+    private int actedHash;
+    private int closedSince;
+    private int actions;
+
+    /**
+     * Start on the next {@link #step}, right after the first option has been selected.
+     *
+     * @param choices option texts for the menus that follow, in order
+     */
+    void start(List<String> choices, int tick, int dialogHash)
+    {
+        this.choices.clear();
+        this.choices.addAll(choices);
+        status = Status.RUNNING;
+        exitReason = null;
+        startTick = tick;
+        actedTick = tick;
+        actedHash = dialogHash;
+        closedSince = -1;
+        actions = 0;
+    }
+
+    void cancel()
+    {
+        choices.clear();
+        status = Status.IDLE;
+        exitReason = null;
+    }
+
+    /**
+     * Advance by one game tick, clicking at most once.
+     *
+     * @return the status after this tick
+     */
+    Status step(int tick, DialogReader.Dialog dialog, Actions game)
+    {
+        if (status != Status.RUNNING)
+        {
+            return status;
+        }
+        if (tick - startTick >= MAX_TICKS)
+        {
+            return end(Status.FAILED, "still in dialog after " + MAX_TICKS + " ticks");
+        }
+
+        if (!dialog.isOpen())
+        {
+            if (closedSince < 0)
+            {
+                closedSince = tick;
+            }
+            if (tick - closedSince < CLOSED_TICKS)
+            {
+                return status;
+            }
+            return choices.isEmpty()
+                    ? end(Status.FINISHED, "dialog closed")
+                    : end(Status.FAILED, "dialog closed with " + choices.size() + " choice(s) unused");
+        }
+        closedSince = -1;
+
+        // The server has not answered the last click yet.
+        if (dialog.hash() == actedHash && tick - actedTick < RESPONSE_TICKS)
+        {
+            return status;
+        }
+
+        if (dialog.kind() == DialogReader.Kind.OPTIONS)
+        {
+            if (choices.isEmpty())
+            {
+                return end(Status.FINISHED, "reached an option menu with no choice left");
+            }
+            String choice = choices.peekFirst();
+            int index = dialog.optionIndex(choice);
+            if (index < 0)
+            {
+                return end(Status.FAILED, "no single option matching '" + choice + "' in " + dialog.options());
+            }
+            choices.pollFirst();
+            game.selectOption(index);
+            acted(tick, dialog);
+        }
+        else if (dialog.canContinue())
+        {
+            game.continueDialog(dialog.continueWidget());
+            acted(tick, dialog);
+        }
+        return status;
+    }
+
+    Status getStatus()
+    {
+        return status;
+    }
+
+    boolean isRunning()
+    {
+        return status == Status.RUNNING;
+    }
+
+    String getExitReason()
+    {
+        return exitReason;
+    }
+
+    int getRemainingChoices()
+    {
+        return choices.size();
+    }
+
+    int getActions()
+    {
+        return actions;
+    }
+
+    private void acted(int tick, DialogReader.Dialog dialog)
+    {
+        actedTick = tick;
+        actedHash = dialog.hash();
+        actions++;
+    }
+
+    private Status end(Status end, String reason)
+    {
+        status = end;
+        exitReason = reason;
+        return status;
+    }
+}
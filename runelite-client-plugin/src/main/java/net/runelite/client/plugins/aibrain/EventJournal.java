@@ -0,0 +1,154 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What happened in the game between two decisions, as a short list of typed events: XP and levels
+ * gained, items gained and lost, NPCs coming and going nearby, dialogs, hitsplats. Each snapshot
+ * carries every event the brain has not yet acknowledged by answering a snapshot that held it, so
+ * a failed /decide loses nothing.
+ *
+ * The journal is bounded. Repeats of an additive event not yet sent are merged (ten Mining XP drops
+ * become one event), and past {@link #CAPACITY} unacknowledged events the oldest are dropped.
+ *
+ * Written and drained on the client thread; {@link #acknowledge} may be called from any thread.
+ */
+final class EventJournal
+{
+    static final int CAPACITY = 64;
+
+    enum Kind
+    {
+        XP_GAINED("xp_gained", true),
+        LEVEL_UP("level_up", false),
+        ITEM_GAINED("item_gained", true),
+        ITEM_LOST("item_lost", true),
+        NPC_APPEARED("npc_appeared", true),
+        NPC_LEFT("npc_left", true),
+        DIALOG_OPENED("dialog_opened", false),
+        DIALOG_CLOSED("dialog_closed", false),
+        DAMAGE_TAKEN("damage_taken", true),
+        DAMAGE_DEALT("damage_dealt", true);
+
+        private final String wireName;
+        private final boolean additive;
+
+        Kind(String wireName, boolean additive)
+        {
+            this.wireName = wireName;
+            this.additive = additive;
+        }
+
+        String getWireName()
+        {
+            return wireName;
+        }
+    }
+
+    /**
+     * @param subject the skill, item or NPC name, or null
+     * @param amount XP, quantity, count or damage for additive kinds; the new level for level-ups
+     */
+    record Event(long sequence, int tick, Kind kind, String subject, int amount)
+    {
+    }
+
+    private final Deque<Event> events = new ArrayDeque<>();
+    private final AtomicLong acknowledged = new AtomicLong();
+    private long nextSequence = 1;
+    private long drained;
+    private int droppedSinceDrain;
+    private long dropped;
+
+    void record(int tick, Kind kind, String subject, int amount)
+    {
+        prune();
+
+        Event last = events.peekLast();
+        // An event already sent keeps the amount the brain saw; later ones start a new event.
+        if (kind.additive && last != null && last.sequence() > drained && last.kind() == kind
+                && Objects.equals(last.subject(), subject))
+        {
+            events.pollLast();
+            events.addLast(new Event(last.sequence(), tick, kind, subject, last.amount() + amount));
+            return;
+        }
+
+        if (events.size() >= CAPACITY)
+        {
+            events.pollFirst();
+            droppedSinceDrain++;
+            dropped++;
+        }
+        events.addLast(new Event(nextSequence++, tick, kind, subject, amount));
+    }
+
+    /**
+     * @return every unacknowledged event, oldest first; the journal remembers the newest as sent
+     */
+    List<Event> drain()
+    {
+        prune();
+        List<Event> out = new ArrayList<>(events);
+        if (!out.isEmpty())
+        {
+            drained = Math.max(drained, out.get(out.size() - 1).sequence());
+        }
+        droppedSinceDrain = 0;
+        return out;
+    }
+
+    /**
+     * @return the sequence of the newest event handed out by {@link #drain}, to acknowledge later
+     */
+    long getDrained()
+    {
+        return drained;
+    }
+
+    /**
+     * The brain has seen every event up to {@code sequence}.
+     */
+    void acknowledge(long sequence)
+    {
+        acknowledged.accumulateAndGet(sequence, Math::max);
+    }
+
+    /**
+     * @return events dropped for lack of room since the last {@link #drain}
+     */
+    int getDroppedSinceDrain()
+    {
+        return droppedSinceDrain;
+    }
+
+    long getDropped()
+    {
+        return dropped;
+    }
+
+    int size()
+    {
+        return events.size();
+    }
+
+    void clear()
+    {
+        events.clear();
+        droppedSinceDrain = 0;
+    }
+
+    private void prune()
+    {
+        long ack = acknowledged.get();
+        while (!events.isEmpty() && events.peekFirst().sequence() <= ack)
+        {
+            events.pollFirst();
+        }
+    }
+}
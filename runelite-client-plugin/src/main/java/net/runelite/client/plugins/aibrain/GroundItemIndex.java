@@ -0,0 +1,181 @@
+package net.runelite.client.plugins.aibrain;
+
+import net.runelite.api.coords.WorldPoint;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every item lying on the ground in the loaded scene, kept up to date from ItemSpawned,
+ * ItemDespawned and ItemQuantityChanged instead of walking the scene's tiles. Items are keyed by
+ * tile, and names are resolved once per item id, so a snapshot's radius query and a pickup's
+ * lookup cost only the items actually on the ground.
+ *
+ * Client thread only, except {@link #size}.
+ */
+final class GroundItemIndex
+{
+    /**
+     * How the index turns item ids into names.
+     */
+    interface Names
+    {
+        /**
+         * @return the item's name, or null if it has no definition
+         */
+        String itemName(int id);
+    }
+
+    record GroundItem(int id, String name, int quantity, WorldPoint tile)
+    {
+    }
+
+    private final Names names;
+    private final Map<WorldPoint, List<GroundItem>> byTile = new HashMap<>();
+    private final Map<Integer, String> nameCache = new HashMap<>();
+    private volatile int size;
+
+    GroundItemIndex(Names names)
+    {
+        this.names = names;
+    }
+
+    void onSpawned(WorldPoint tile, int id, int quantity)
+    {
+        byTile.computeIfAbsent(tile, k -> new ArrayList<>(2)).add(new GroundItem(id, name(id), quantity, tile));
+        size++;
+    }
+
+    void onDespawned(WorldPoint tile, int id, int quantity)
+    {
+        List<GroundItem> items = byTile.get(tile);
+        if (items == null)
+        {
+            return;
+        }
+
+        // Several unstackable items of one id can share a tile; prefer the exact quantity, else any.
+        int match = -1;
+        for (int i = 0; i < items.size(); i++)
+        {
+            GroundItem item = items.get(i);
+            if (item.id() == id)
+            {
+                match = i;
+                if (item.quantity() == quantity)
+                {
+                    break;
+                }
+            }
+        }
+        if (match < 0)
+        {
+            return;
+        }
+
+        items.remove(match);
+        size--;
+        if (items.isEmpty())
+        {
+            byTile.remove(tile);
+        }
+    }
+
+    void onQuantityChanged(WorldPoint tile, int id, int oldQuantity, int newQuantity)
+    {
+        List<GroundItem> items = byTile.get(tile);
+        if (items == null)
+        {
+            return;
+        }
+
+        for (int i = 0; i < items.size(); i++)
+        {
+            GroundItem item = items.get(i);
+            if (item.id() == id && item.quantity() == oldQuantity)
+            {
+                items.set(i, new GroundItem(id, item.name(), newQuantity, tile));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Forget every item, e.g. on a region load: the new scene's items are spawned again.
+     * Names stay cached, since definitions do not change.
+     */
+    void clear()
+    {
+        byTile.clear();
+        size = 0;
+    }
+
+    /**
+     * @return the items on {@code tile}, empty if none
+     */
+    List<GroundItem> at(WorldPoint tile)
+    {
+        List<GroundItem> items = byTile.get(tile);
+        return items != null ? List.copyOf(items) : List.of();
+    }
+
+    /**
+     * @return items on {@code center}'s plane within {@code radius} tiles (Chebyshev) of it,
+     *         nearest first
+     */
+    List<GroundItem> within(WorldPoint center, int radius)
+    {
+        List<GroundItem> out = new ArrayList<>();
+        for (Map.Entry<WorldPoint, List<GroundItem>> e : byTile.entrySet())
+        {
+            WorldPoint tile = e.getKey();
+            if (tile.getPlane() == center.getPlane() && tile.distanceTo(center) <= radius)
+            {
+                out.addAll(e.getValue());
+            }
+        }
+        out.sort(Comparator.comparingInt(item -> item.tile().distanceTo(center)));
+        return out;
+    }
+
+    /**
+     * @return every item called {@code name} (case-insensitive), in no particular order
+     */
+    List<GroundItem> named(String name)
+    {
+        List<GroundItem> out = new ArrayList<>();
+        for (List<GroundItem> items : byTile.values())
+        {
+            for (GroundItem item : items)
+            {
+                if (name.equalsIgnoreCase(item.name()))
+                {
+                    out.add(item);
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @return items on the ground; safe to read from any thread
+     */
+    int size()
+    {
+        return size;
+    }
+
+    private String name(int id)
+    {
+        String name = nameCache.get(id);
+        if (name == null && !nameCache.containsKey(id))
+        {
+            name = names.itemName(id);
+            nameCache.put(id, name);
+        }
+        return name;
+    }
+}
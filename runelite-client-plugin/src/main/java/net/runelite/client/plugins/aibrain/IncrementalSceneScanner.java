@@ -0,0 +1,433 @@
+package net.runelite.client.plugins.aibrain;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.GameObject;
+import net.runelite.api.ObjectComposition;
+import net.runelite.api.Player;
+import net.runelite.api.Tile;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.WorldPoint;
+import net.runelite.api.widgets.Widget;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spreads the expensive snapshot scans (scene tiles and interface text) over several client-thread
+ * slices. {@link #advance} is called once per game tick with a time budget; each section keeps a
+ * sweep cursor, and when a sweep finishes its results replace the previous ones and the section's
+ * watermark moves to that tick. Snapshots are composed from the latest finished sweeps, so no single
+ * tick pays for a full scan once the first sweep of each section is done.
+ *
+ * All methods must be called on the client thread.
+ */
+@Slf4j
+final class IncrementalSceneScanner
+{
+    enum Section
+    {
+        OBJECTS,
+        UI_TEXT
+    }
+
+    record ObjectEntry(int id, String name, WorldPoint location, String[] actions)
+    {
+    }
+
+    record UiEntry(int group, int id, String text)
+    {
+    }
+
+    /** Objects are kept this far from the player at sweep start, so walking a few tiles mid-sweep does not lose any. */
+    static final int OBJECT_SCAN_RADIUS = 28;
+    static final int UI_MAX_GROUP = 800;
+    static final int UI_MAX_CHILD = 800;
+    private static final int UI_TEXT_MAX_LENGTH = 200;
+    /** Work units (tiles or widget ids) between clock checks. */
+    private static final int CHECK_INTERVAL = 32;
+
+    private final Map<Section, Sweep> sweeps = new EnumMap<>(Section.class);
+    private final LatencyRecorder sliceMicros = new LatencyRecorder();
+
+    private List<ObjectEntry> objects = Collections.emptyList();
+    private List<UiEntry> uiText = Collections.emptyList();
+    private final Map<Section, Integer> completedAtTick = new EnumMap<>(Section.class);
+    private final Map<Section, LongAdder> sweepsCompleted = new EnumMap<>(Section.class);
+
+    IncrementalSceneScanner()
+    {
+        for (Section section : Section.values())
+        {
+            sweepsCompleted.put(section, new LongAdder());
+        }
+        reset();
+    }
+
+    /**
+     * Forget all results, e.g. after a region load when every cached tile is stale.
+     */
+    void reset()
+    {
+        sweeps.put(Section.OBJECTS, new ObjectSweep());
+        sweeps.put(Section.UI_TEXT, new UiSweep());
+        objects = Collections.emptyList();
+        uiText = Collections.emptyList();
+        completedAtTick.clear();
+    }
+
+    /**
+     * Continue the sweeps for up to {@code budgetNanos}, the section with the oldest data first.
+     */
+    void advance(Client client, long budgetNanos)
+    {
+        long started = System.nanoTime();
+        long deadline = started + budgetNanos;
+
+        List<Section> order = new ArrayList<>(sweeps.keySet());
+        order.sort((a, b) -> Integer.compare(
+                completedAtTick.getOrDefault(a, Integer.MIN_VALUE),
+                completedAtTick.getOrDefault(b, Integer.MIN_VALUE)));
+
+        for (Section section : order)
+        {
+            if (System.nanoTime() >= deadline)
+            {
+                break;
+            }
+            run(client, section, deadline);
+        }
+
+        sliceMicros.record((System.nanoTime() - started) / 1000);
+    }
+
+    /**
+     * Finish, without a budget, every section that has no results or whose last sweep completed
+     * more than {@code maxAgeTicks} ago: the first snapshot after start-up or a region load, or
+     * after the scanner was starved, is still complete.
+     */
+    void refreshStale(Client client, int maxAgeTicks)
+    {
+        int tick = client.getTickCount();
+        for (Section section : Section.values())
+        {
+            Integer completed = completedAtTick.get(section);
+            if (completed == null || tick - completed > maxAgeTicks)
+            {
+                run(client, section, Long.MAX_VALUE);
+            }
+        }
+    }
+
+    /**
+     * Restart and finish every sweep right now: the old all-at-once behaviour.
+     */
+    void scanFully(Client client)
+    {
+        for (Section section : Section.values())
+        {
+            sweeps.get(section).restart();
+            run(client, section, Long.MAX_VALUE);
+        }
+    }
+
+    List<ObjectEntry> getObjects()
+    {
+        return objects;
+    }
+
+    List<UiEntry> getUiText()
+    {
+        return uiText;
+    }
+
+    /**
+     * @return the tick the section's current results were completed on, or -1 if it has none yet
+     */
+    int getCompletedTick(Section section)
+    {
+        return completedAtTick.getOrDefault(section, -1);
+    }
+
+    long getSweepsCompleted(Section section)
+    {
+        return sweepsCompleted.get(section).sum();
+    }
+
+    LatencyRecorder getSliceMicros()
+    {
+        return sliceMicros;
+    }
+
+    private void run(Client client, Section section, long deadline)
+    {
+        Sweep sweep = sweeps.get(section);
+        if (!sweep.isStarted())
+        {
+            sweep.start(client);
+        }
+
+        if (!sweep.step(client, deadline))
+        {
+            return;
+        }
+
+        sweep.publish();
+        completedAtTick.put(section, client.getTickCount());
+        sweepsCompleted.get(section).increment();
+        sweep.restart();
+    }
+
+    private interface Sweep
+    {
+        boolean isStarted();
+
+        void start(Client client);
+
+        /**
+         * @return true once the sweep has covered everything
+         */
+        boolean step(Client client, long deadline);
+
+        void publish();
+
+        void restart();
+    }
+
+    /**
+     * Named game objects in a square around the player's position when the sweep began.
+     */
+    private final class ObjectSweep implements Sweep
+    {
+        private boolean started;
+        private Tile[][] planeTiles;
+        private int plane;
+        private int minX;
+        private int maxX;
+        private int minY;
+        private int maxY;
+        private int x;
+        private int y;
+        private List<ObjectEntry> found = new ArrayList<>();
+
+        @Override
+        public boolean isStarted()
+        {
+            return started;
+        }
+
+        @Override
+        public void start(Client client)
+        {
+            started = true;
+            found = new ArrayList<>();
+            planeTiles = null;
+
+            Player player = client.getLocalPlayer();
+            WorldView wv = client.getTopLevelWorldView();
+            if (player == null || wv == null || player.getWorldLocation() == null)
+            {
+                return;
+            }
+
+            Tile[][][] tiles = wv.getScene().getTiles();
+            plane = wv.getPlane();
+            if (tiles == null || plane < 0 || plane >= tiles.length || tiles[plane] == null)
+            {
+                return;
+            }
+
+            WorldPoint wp = player.getWorldLocation();
+            int sceneX = wp.getX() - wv.getBaseX();
+            int sceneY = wp.getY() - wv.getBaseY();
+            planeTiles = tiles[plane];
+            minX = Math.max(0, sceneX - OBJECT_SCAN_RADIUS);
+            maxX = Math.min(planeTiles.length - 1, sceneX + OBJECT_SCAN_RADIUS);
+            minY = Math.max(0, sceneY - OBJECT_SCAN_RADIUS);
+            maxY = Math.min(planeTiles.length > 0 ? planeTiles[0].length - 1 : -1, sceneY + OBJECT_SCAN_RADIUS);
+            x = minX;
+            y = minY;
+        }
+
+        @Override
+        public boolean step(Client client, long deadline)
+        {
+            if (planeTiles == null)
+            {
+                return true;
+            }
+
+            int sinceCheck = 0;
+            while (x <= maxX)
+            {
+                Tile[] row = planeTiles[x];
+                if (row != null && y <= maxY)
+                {
+                    scanTile(client, row[y]);
+                }
+
+                if (++y > maxY)
+                {
+                    y = minY;
+                    x++;
+                }
+
+                if (++sinceCheck == CHECK_INTERVAL)
+                {
+                    sinceCheck = 0;
+                    if (System.nanoTime() >= deadline)
+                    {
+                        return x > maxX;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void scanTile(Client client, Tile tile)
+        {
+            if (tile == null)
+            {
+                return;
+            }
+
+            for (GameObject obj : tile.getGameObjects())
+            {
+                if (obj == null)
+                {
+                    continue;
+                }
+
+                WorldPoint wp = obj.getWorldLocation();
+                if (wp == null || wp.getPlane() != plane)
+                {
+                    continue;
+                }
+
+                ObjectComposition comp = client.getObjectDefinition(obj.getId());
+                if (comp == null || comp.getName() == null || comp.getName().isEmpty())
+                {
+                    continue;
+                }
+
+                found.add(new ObjectEntry(obj.getId(), comp.getName(), wp, comp.getActions()));
+            }
+        }
+
+        @Override
+        public void publish()
+        {
+            objects = Collections.unmodifiableList(found);
+        }
+
+        @Override
+        public void restart()
+        {
+            started = false;
+            planeTiles = null;
+            found = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Visible, non-empty text of every widget id below {@link #UI_MAX_GROUP} x {@link #UI_MAX_CHILD}.
+     */
+    private final class UiSweep implements Sweep
+    {
+        private boolean started;
+        private int group;
+        private int child;
+        private List<UiEntry> found = new ArrayList<>();
+
+        @Override
+        public boolean isStarted()
+        {
+            return started;
+        }
+
+        @Override
+        public void start(Client client)
+        {
+            started = true;
+            group = 0;
+            child = 0;
+            found = new ArrayList<>();
+        }
+
+        @Override
+        public boolean step(Client client, long deadline)
+        {
+            int sinceCheck = 0;
+            while (group < UI_MAX_GROUP)
+            {
+                try
+                {
+                    scanWidget(client.getWidget(group, child), group);
+                }
+                catch (Exception e)
+                {
+                    log.debug("Error while collecting UI text", e);
+                }
+
+                if (++child == UI_MAX_CHILD)
+                {
+                    child = 0;
+                    group++;
+                }
+
+                if (++sinceCheck == CHECK_INTERVAL)
+                {
+                    sinceCheck = 0;
+                    if (System.nanoTime() >= deadline)
+                    {
+                        return group >= UI_MAX_GROUP;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void scanWidget(Widget w, int group)
+        {
+            if (w == null || w.isHidden())
+            {
+                return;
+            }
+
+            String text = w.getText();
+            if (text == null)
+            {
+                return;
+            }
+
+            String trimmed = text.trim();
+            if (trimmed.isEmpty())
+            {
+                return;
+            }
+
+            if (trimmed.length() > UI_TEXT_MAX_LENGTH)
+            {
+                trimmed = trimmed.substring(0, UI_TEXT_MAX_LENGTH);
+            }
+            found.add(new UiEntry(group, w.getId(), trimmed));
+        }
+
+        @Override
+        public void publish()
+        {
+            uiText = Collections.unmodifiableList(found);
+        }
+
+        @Override
+        public void restart()
+        {
+            started = false;
+            found = new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets (16 linear sub-buckets per power of two),
+ * so percentiles are accurate to roughly 6% across the whole range. Values are unit-agnostic;
+ * callers decide whether they record millis or micros.
+ */
+final class LatencyRecorder
+{
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAJOR_BUCKETS = 32;
+    private static final int BUCKETS = MAJOR_BUCKETS * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long value)
+    {
+        if (value < 0)
+        {
+            value = 0;
+        }
+
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long prev = max.get();
+        while (value > prev && !max.compareAndSet(prev, value))
+        {
+            prev = max.get();
+        }
+    }
+
+    long getCount()
+    {
+        return count.get();
+    }
+
+    long getSum()
+    {
+        return sum.get();
+    }
+
+    long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     * @param percentile 0..100
+     * @return the highest value equivalent to the bucket holding the requested percentile, or 0 when empty
+     */
+    long getPercentile(double percentile)
+    {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        if (total == 0)
+        {
+            return 0;
+        }
+
+        double p = Math.max(0.0, Math.min(100.0, percentile));
+        long target = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += snapshot[i];
+            if (seen >= target)
+            {
+                return Math.min(highestEquivalentValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    private static int indexOf(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int major = msb - SUB_BUCKET_BITS + 1;
+        if (major >= MAJOR_BUCKETS)
+        {
+            return BUCKETS - 1;
+        }
+
+        int sub = (int) ((value >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return major * SUB_BUCKETS + sub;
+    }
+
+    private static long highestEquivalentValue(int index)
+    {
+        int major = index / SUB_BUCKETS;
+        int sub = index % SUB_BUCKETS;
+        if (major == 0)
+        {
+            return sub;
+        }
+
+        long lower = ((long) SUB_BUCKETS + sub) << (major - 1);
+        return lower + (1L << (major - 1)) - 1;
+    }
+}
@@ -0,0 +1,281 @@
+package net.runelite.client.plugins.aibrain;
+
+import net.runelite.api.coords.WorldPoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A* over the {@link CollisionCache} on a single plane, with the game's movement rules: eight
+ * directions, one tile per step, diagonals only when both orthogonal routes around the corner are
+ * open. The search is confined to the bounding box of start and goal plus a margin, so an
+ * unreachable goal costs a bounded amount of work; that window's flags are copied out of the cache
+ * once per search so the inner loop reads a flat array instead of looking up regions.
+ *
+ * A search is started by {@link #begin} and can be spread over game ticks by calling
+ * {@link #advance} with a per-tick share of expansions, the way {@link ReachabilityMap} spreads its
+ * fill; {@link #findPath} runs one to the end at once.
+ *
+ * Not thread-safe; the scratch arrays are reused between searches, and beginning a search abandons
+ * the one in progress.
+ */
+final class LocalPathfinder
+{
+    /** Detour room around the start/goal bounding box. */
+    static final int SEARCH_MARGIN = 32;
+    /** Longest side of the search window; goals farther apart than this are refused. */
+    static final int MAX_WINDOW = 512;
+    /** Expansions a whole search may take, however many ticks it is spread over. */
+    static final int MAX_EXPANSIONS = 200_000;
+    private static final int H_SHIFT = 18;
+    private static final int F_SHIFT = 28;
+    private static final long CELL_MASK = (1L << H_SHIFT) - 1;
+
+    private static final int[] DX = {0, 1, 0, -1, 1, 1, -1, -1};
+    private static final int[] DY = {1, 0, -1, 0, 1, -1, -1, 1};
+
+    enum Progress
+    {
+        SEARCHING,
+        FOUND,
+        NO_ROUTE
+    }
+
+    private final CollisionCache collision;
+    private final int[] cost = new int[MAX_WINDOW * MAX_WINDOW];
+    private final int[] parent = new int[MAX_WINDOW * MAX_WINDOW];
+    private final int[] visitedIn = new int[MAX_WINDOW * MAX_WINDOW];
+    private final byte[] tiles = new byte[MAX_WINDOW * MAX_WINDOW];
+    private final LongHeap open = new LongHeap();
+    private int generation;
+
+    // The search in progress.
+    private Progress progress = Progress.NO_ROUTE;
+    private int plane;
+    private int originX;
+    private int originY;
+    private int width;
+    private int height;
+    private int gx;
+    private int gy;
+    private boolean goalBlocked;
+    private int expansions;
+    private List<WorldPoint> path;
+
+    LocalPathfinder(CollisionCache collision)
+    {
+        this.collision = collision;
+    }
+
+    /**
+     * Search the whole way at once.
+     *
+     * @return the tiles from {@code start} (exclusive) to {@code goal} (inclusive), or null if there is
+     * no known route within the search window. If the goal itself is blocked (an object or NPC's tile),
+     * the path ends on the closest reachable tile next to it.
+     */
+    List<WorldPoint> findPath(WorldPoint start, WorldPoint goal)
+    {
+        return begin(start, goal) && advance(MAX_EXPANSIONS) == Progress.FOUND ? path : null;
+    }
+
+    /**
+     * Start a search for {@link #advance} to carry out.
+     *
+     * @return false if the goal is refused outright: on another plane, or too far for the window
+     */
+    boolean begin(WorldPoint start, WorldPoint goal)
+    {
+        path = null;
+        progress = Progress.NO_ROUTE;
+        if (start.getPlane() != goal.getPlane())
+        {
+            return false;
+        }
+
+        plane = start.getPlane();
+        originX = Math.min(start.getX(), goal.getX()) - SEARCH_MARGIN;
+        originY = Math.min(start.getY(), goal.getY()) - SEARCH_MARGIN;
+        width = Math.max(start.getX(), goal.getX()) + SEARCH_MARGIN - originX + 1;
+        height = Math.max(start.getY(), goal.getY()) + SEARCH_MARGIN - originY + 1;
+        if (width > MAX_WINDOW || height > MAX_WINDOW)
+        {
+            return false;
+        }
+
+        if (++generation == 0)
+        {
+            Arrays.fill(visitedIn, 0);
+            generation = 1;
+        }
+        open.clear();
+        collision.copyWindow(originX, originY, width, height, plane, tiles, MAX_WINDOW);
+
+        gx = goal.getX() - originX;
+        gy = goal.getY() - originY;
+        goalBlocked = (tiles[cell(gx, gy)] & CollisionCache.FULL) != 0;
+
+        int startCell = cell(start.getX() - originX, start.getY() - originY);
+        visit(startCell, 0, -1);
+        int startH = heuristic(start.getX() - originX, start.getY() - originY, gx, gy);
+        open.add(entry(startH, startH, startCell));
+
+        expansions = 0;
+        progress = Progress.SEARCHING;
+        return true;
+    }
+
+    /**
+     * Expand up to {@code budget} more cells of the search {@link #begin} started.
+     *
+     * @return {@link Progress#FOUND} once {@link #getPath} is ready, {@link Progress#NO_ROUTE} if the
+     *         window holds none (or the search ran out of expansions)
+     */
+    Progress advance(int budget)
+    {
+        if (progress != Progress.SEARCHING)
+        {
+            return progress;
+        }
+
+        int stop = Math.min(MAX_EXPANSIONS, expansions + budget);
+        while (!open.isEmpty())
+        {
+            if (expansions >= stop)
+            {
+                return expansions >= MAX_EXPANSIONS ? end(Progress.NO_ROUTE) : Progress.SEARCHING;
+            }
+            expansions++;
+
+            long e = open.poll();
+            int c = (int) (e & CELL_MASK);
+            int x = c / MAX_WINDOW;
+            int y = c % MAX_WINDOW;
+            int g = cost[c];
+            int h = heuristic(x, y, gx, gy);
+            if ((int) (e >>> F_SHIFT) > g + h)
+            {
+                // Stale entry; a cheaper route to this cell was queued later.
+                continue;
+            }
+
+            if (h == 0 || (goalBlocked && h == 1 && isAdjacentReachable(x, y, gx, gy)))
+            {
+                path = walkBack(c);
+                return end(Progress.FOUND);
+            }
+
+            for (int d = 0; d < DX.length; d++)
+            {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height)
+                {
+                    continue;
+                }
+                if (!canMove(x, y, DX[d], DY[d]))
+                {
+                    continue;
+                }
+
+                int n = cell(nx, ny);
+                int ng = g + 1;
+                if (visitedIn[n] == generation && cost[n] <= ng)
+                {
+                    continue;
+                }
+
+                int nh = heuristic(nx, ny, gx, gy);
+                visit(n, ng, c);
+                open.add(entry(ng + nh, nh, n));
+            }
+        }
+
+        return end(Progress.NO_ROUTE);
+    }
+
+    /**
+     * @return the path the last search found; see {@link #findPath}
+     */
+    List<WorldPoint> getPath()
+    {
+        return path;
+    }
+
+    private Progress end(Progress result)
+    {
+        progress = result;
+        open.clear();
+        return result;
+    }
+
+    /**
+     * From next to a blocked goal, "reached" means the goal is straight across an edge with no wall on
+     * it; objects and NPCs cannot be interacted with diagonally or through a wall.
+     */
+    private boolean isAdjacentReachable(int x, int y, int gx, int gy)
+    {
+        int dx = gx - x;
+        int dy = gy - y;
+        return (dx == 0 || dy == 0) && !CollisionCache.hasWall(tiles[cell(x, y)], tiles[cell(gx, gy)], dx, dy);
+    }
+
+    /**
+     * {@link CollisionCache#canMove} on the copied window; the caller keeps (x + dx, y + dy) inside it.
+     */
+    private boolean canMove(int x, int y, int dx, int dy)
+    {
+        byte from = tiles[cell(x, y)];
+        if (dx == 0 || dy == 0)
+        {
+            return CollisionCache.canStep(from, tiles[cell(x + dx, y + dy)], dx, dy);
+        }
+
+        byte side = tiles[cell(x + dx, y)];
+        byte up = tiles[cell(x, y + dy)];
+        byte corner = tiles[cell(x + dx, y + dy)];
+        return CollisionCache.canStep(from, side, dx, 0) && CollisionCache.canStep(side, corner, 0, dy)
+                && CollisionCache.canStep(from, up, 0, dy) && CollisionCache.canStep(up, corner, dx, 0);
+    }
+
+    private List<WorldPoint> walkBack(int c)
+    {
+        List<WorldPoint> path = new ArrayList<>();
+        while (parent[c] >= 0)
+        {
+            path.add(new WorldPoint(originX + c / MAX_WINDOW, originY + c % MAX_WINDOW, plane));
+            c = parent[c];
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    private void visit(int c, int g, int from)
+    {
+        visitedIn[c] = generation;
+        cost[c] = g;
+        parent[c] = from;
+    }
+
+    private static int cell(int x, int y)
+    {
+        return x * MAX_WINDOW + y;
+    }
+
+    /**
+     * Queue key: f, then h, then cell. With unit step costs huge numbers of cells share an f value;
+     * preferring the lowest h among them heads straight for the goal instead of flooding the plateau.
+     */
+    private static long entry(int f, int h, int c)
+    {
+        return ((long) f << F_SHIFT) | ((long) h << H_SHIFT) | c;
+    }
+
+    private static int heuristic(int x, int y, int gx, int gy)
+    {
+        // Chebyshev distance: exact on an open grid where diagonal steps cost the same as straight ones.
+        return Math.max(Math.abs(gx - x), Math.abs(gy - y));
+    }
+}
@@ -0,0 +1,72 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of longs, for the searches' open sets: the boxing of a {@code PriorityQueue<Long>}
+ * would dominate a query. Callers pack their priority into the high bits and the node into the low.
+ *
+ * Not thread-safe.
+ */
+final class LongHeap
+{
+    private long[] heap = new long[256];
+    private int size;
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    void clear()
+    {
+        size = 0;
+    }
+
+    void add(long value)
+    {
+        if (size == heap.length)
+        {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        int i = size++;
+        while (i > 0)
+        {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= value)
+            {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    /**
+     * @return the smallest value, removed; the heap must not be empty
+     */
+    long poll()
+    {
+        long top = heap[0];
+        long last = heap[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half)
+        {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child])
+            {
+                child++;
+            }
+            if (last <= heap[child])
+            {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+}
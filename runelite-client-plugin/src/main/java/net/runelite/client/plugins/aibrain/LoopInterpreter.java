@@ -0,0 +1,383 @@
+package net.runelite.client.plugins.aibrain;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.coords.WorldPoint;
+
+import java.util.List;
+
+/**
+ * Runs a {@link BehaviorLoop} one game tick at a time. Each tick it issues at most one action, and
+ * moves past at most one full pass of the steps, so a loop whose conditions all hold at once ends
+ * rather than spinning. Every step has a timeout, counted from its last action or inventory change
+ * so a long mine-until-full step is not cut short while it is still working, and the loop as a whole
+ * a tick limit.
+ *
+ * The loop also ends as soon as something happens that it was not written for: a dialog opens, the
+ * player takes damage, or they end up far from where it started. The brain then decides again with
+ * the reason in the snapshot.
+ *
+ * Client thread only.
+ */
+@Slf4j
+final class LoopInterpreter
+{
+    enum Status
+    {
+        IDLE,
+        RUNNING,
+        /** Its exit condition held, it ran out of ticks, or it did not repeat and reached the end. */
+        FINISHED,
+        /** Something outside the loop's plan happened. */
+        INTERRUPTED,
+        /** A step timed out, found nothing to act on, or a whole pass did nothing. */
+        FAILED
+    }
+
+    /**
+     * What the interpreter needs from the game.
+     */
+    interface Game
+    {
+        int usedInventorySlots();
+
+        /**
+         * @return total quantity of inventory items called {@code name}
+         */
+        int countItem(String name);
+
+        /**
+         * @return the real level of a skill, or -1 if there is no such skill
+         */
+        int skillLevel(String skill);
+
+        int hitpoints();
+
+        boolean isAnimating();
+
+        boolean isDialogOpen();
+
+        /**
+         * @return false if there is no such object within reach
+         */
+        boolean interactObject(String name, String option);
+
+        /**
+         * @return false if there is no such NPC within reach
+         */
+        boolean interactNpc(String name, String option);
+
+        /**
+         * @return false if there is no such item in the inventory
+         */
+        boolean dropItem(String name);
+    }
+
+    static final int INVENTORY_SLOTS = 28;
+    /** Ticks the player stands still, not animating, before the next click on an object or NPC. */
+    private static final int IDLE_TICKS = 2;
+    /** Ticks a step may find no target before the loop gives up. */
+    private static final int NO_TARGET_TICKS = 10;
+    /** Tiles from the loop's starting tile beyond which the player is taken to have been moved. */
+    private static final int LEASH_DISTANCE = 30;
+    private static final int MAX_ITERATIONS = 1000;
+
+    private BehaviorLoop loop;
+    private Status status = Status.IDLE;
+    private String exitReason;
+    private int startTick;
+    private int endTick;
+    private WorldPoint startPosition;
+    private int index;
+    private int stepStartTick;
+    private int stepProgressTick;
+    private int lastUsedSlots;
+    private boolean actedInStep;
+    private boolean actedInPass;
+    private int noTargetSince = -1;
+    private int iterations;
+    private int actions;
+
+    private WorldPoint lastPosition;
+    private int idleTicks;
+    private int lastHitpoints;
+
+    /**
+     * Start running {@code loop} on the next {@link #step}, replacing any loop already running.
+     */
+    void start(BehaviorLoop loop, int tick, WorldPoint position, int hitpoints)
+    {
+        this.loop = loop;
+        status = Status.RUNNING;
+        exitReason = null;
+        startTick = tick;
+        startPosition = position;
+        index = 0;
+        iterations = 0;
+        actions = 0;
+        actedInPass = false;
+        lastPosition = position;
+        idleTicks = 0;
+        lastHitpoints = hitpoints;
+        lastUsedSlots = -1;
+        beginStep(tick);
+    }
+
+    void cancel()
+    {
+        loop = null;
+        status = Status.IDLE;
+        exitReason = null;
+    }
+
+    /**
+     * Advance the loop by one game tick.
+     *
+     * @return the status after this tick
+     */
+    Status step(int tick, WorldPoint position, Game game)
+    {
+        if (status != Status.RUNNING)
+        {
+            return status;
+        }
+
+        if (position.equals(lastPosition) && !game.isAnimating())
+        {
+            idleTicks++;
+        }
+        else
+        {
+            idleTicks = 0;
+        }
+        lastPosition = position;
+
+        int usedSlots = game.usedInventorySlots();
+        if (usedSlots != lastUsedSlots)
+        {
+            // Ore mined, logs cut, items dropped: the step is getting somewhere.
+            lastUsedSlots = usedSlots;
+            stepProgressTick = tick;
+        }
+
+        int hitpoints = game.hitpoints();
+        boolean hurt = hitpoints < lastHitpoints;
+        lastHitpoints = hitpoints;
+
+        if (game.isDialogOpen())
+        {
+            return end(tick, Status.INTERRUPTED, "a dialog opened");
+        }
+        if (hurt)
+        {
+            return end(tick, Status.INTERRUPTED, "the player took damage");
+        }
+        if (position.getPlane() != startPosition.getPlane() || position.distanceTo2D(startPosition) > LEASH_DISTANCE)
+        {
+            return end(tick, Status.INTERRUPTED, "the player left the area the loop started in");
+        }
+        if (loop.exitWhen() != null && holds(loop.exitWhen(), tick - startTick, game))
+        {
+            return end(tick, Status.FINISHED, "exit condition " + loop.exitWhen().type().getWireName() + " met");
+        }
+        if (tick - startTick >= loop.maxTicks())
+        {
+            return end(tick, Status.FINISHED, "ran for " + loop.maxTicks() + " ticks");
+        }
+
+        List<BehaviorLoop.Step> steps = loop.steps();
+        for (int moved = 0; moved <= steps.size(); moved++)
+        {
+            BehaviorLoop.Step s = steps.get(index);
+            if (tick - stepProgressTick > s.timeoutTicks())
+            {
+                return end(tick, Status.FAILED, describe(index, s) + " made no progress for " + s.timeoutTicks() + " ticks");
+            }
+
+            if (!runStep(s, tick, game))
+            {
+                // Acted, waiting, or ended.
+                return status;
+            }
+
+            if (++index < steps.size())
+            {
+                beginStep(tick);
+                continue;
+            }
+
+            if (!loop.repeat())
+            {
+                return end(tick, Status.FINISHED, "all steps done");
+            }
+            if (!actedInPass)
+            {
+                return end(tick, Status.FAILED, "a whole pass of the loop had nothing to do");
+            }
+            if (++iterations >= MAX_ITERATIONS)
+            {
+                return end(tick, Status.FINISHED, "repeated " + MAX_ITERATIONS + " times");
+            }
+            index = 0;
+            actedInPass = false;
+            beginStep(tick);
+        }
+        return status;
+    }
+
+    boolean isRunning()
+    {
+        return status == Status.RUNNING;
+    }
+
+    Status getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * @return why the loop stopped, null while it runs
+     */
+    String getExitReason()
+    {
+        return exitReason;
+    }
+
+    int getStepIndex()
+    {
+        return index;
+    }
+
+    int getIterations()
+    {
+        return iterations;
+    }
+
+    int getTicksRun(int tick)
+    {
+        if (loop == null)
+        {
+            return 0;
+        }
+        return (status == Status.RUNNING ? tick : endTick) - startTick;
+    }
+
+    /**
+     * @return actions issued by the current or last loop
+     */
+    int getActions()
+    {
+        return actions;
+    }
+
+    /**
+     * @return true once the step is done and the loop should move on
+     */
+    private boolean runStep(BehaviorLoop.Step s, int tick, Game game)
+    {
+        if (s.until() != null && holds(s.until(), tick - stepStartTick, game))
+        {
+            return true;
+        }
+
+        switch (s.verb())
+        {
+            case DROP_ITEM:
+                if (game.dropItem(s.name()))
+                {
+                    acted(tick);
+                    return false;
+                }
+                return s.until() == null || fail(tick, describe(index, s) + " ran out of " + s.name());
+            case INTERACT_OBJECT:
+            case INTERACT_NPC:
+                if (s.until() == null && actedInStep && idleTicks >= IDLE_TICKS)
+                {
+                    return true;
+                }
+                if (idleTicks < IDLE_TICKS)
+                {
+                    return false;
+                }
+
+                boolean found = s.verb() == BehaviorLoop.Verb.INTERACT_OBJECT
+                        ? game.interactObject(s.name(), s.option())
+                        : game.interactNpc(s.name(), s.option());
+                if (found)
+                {
+                    noTargetSince = -1;
+                    acted(tick);
+                    return false;
+                }
+                if (noTargetSince < 0)
+                {
+                    noTargetSince = tick;
+                }
+                else if (tick - noTargetSince >= NO_TARGET_TICKS)
+                {
+                    fail(tick, "no " + s.name() + " in reach for " + NO_TARGET_TICKS + " ticks");
+                }
+                return false;
+            case WAIT:
+            default:
+                return s.until() == null && idleTicks >= IDLE_TICKS;
+        }
+    }
+
+    private static boolean holds(BehaviorLoop.Condition c, int ticksElapsed, Game game)
+    {
+        switch (c.type())
+        {
+            case INVENTORY_FULL:
+                return game.usedInventorySlots() >= INVENTORY_SLOTS;
+            case INVENTORY_EMPTY:
+                return game.usedInventorySlots() == 0;
+            case HAS_ITEM:
+                return game.countItem(c.name()) >= Math.max(1, c.count());
+            case LACKS_ITEM:
+                return game.countItem(c.name()) == 0;
+            case SKILL_LEVEL:
+                return game.skillLevel(c.name()) >= c.count();
+            case TICKS:
+            default:
+                return ticksElapsed >= c.count();
+        }
+    }
+
+    private void beginStep(int tick)
+    {
+        stepStartTick = tick;
+        stepProgressTick = tick;
+        actedInStep = false;
+        noTargetSince = -1;
+    }
+
+    private void acted(int tick)
+    {
+        actedInStep = true;
+        actedInPass = true;
+        stepProgressTick = tick;
+        // Give the click time to get the player moving before looking for idleness again.
+        idleTicks = 0;
+        actions++;
+    }
+
+    private boolean fail(int tick, String reason)
+    {
+        end(tick, Status.FAILED, reason);
+        return false;
+    }
+
+    private Status end(int tick, Status outcome, String reason)
+    {
+        endTick = tick;
+        log.debug("Behaviour loop {} after {} actions: {}", outcome, actions, reason);
+        status = outcome;
+        exitReason = reason;
+        return status;
+    }
+
+    private static String describe(int index, BehaviorLoop.Step s)
+    {
+        return "step " + (index + 1) + " (" + s.verb().getWireName() + (s.name() != null ? " " + s.name() : "") + ")";
+    }
+}
@@ -0,0 +1,132 @@
+package net.runelite.client.plugins.aibrain;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tiny single-threaded HTTP listener on 127.0.0.1 serving {@code GET /metrics} in Prometheus text
+ * format. Deliberately dependency-free (plain sockets) so it works on any JRE the client ships with.
+ */
+@Slf4j
+class MetricsHttpExporter
+{
+    private static final int SOCKET_TIMEOUT_MS = 2000;
+
+    private final MetricsRegistry registry;
+    private final int port;
+
+    private ServerSocket serverSocket;
+    private Thread thread;
+
+    MetricsHttpExporter(MetricsRegistry registry, int port)
+    {
+        this.registry = registry;
+        this.port = port;
+    }
+
+    void start() throws IOException
+    {
+        serverSocket = new ServerSocket(port, 8, InetAddress.getLoopbackAddress());
+        thread = new Thread(this::acceptLoop, "aibrain-metrics");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("AI Brain metrics listening on http://127.0.0.1:{}/metrics", serverSocket.getLocalPort());
+    }
+
+    void stop()
+    {
+        ServerSocket s = serverSocket;
+        serverSocket = null;
+        if (s != null)
+        {
+            try
+            {
+                s.close();
+            }
+            catch (IOException e)
+            {
+                log.debug("Error closing metrics socket", e);
+            }
+        }
+    }
+
+    private void acceptLoop()
+    {
+        ServerSocket s = serverSocket;
+        while (s != null && !s.isClosed())
+        {
+            try (Socket socket = s.accept())
+            {
+                socket.setSoTimeout(SOCKET_TIMEOUT_MS);
+                handle(socket);
+            }
+            catch (SocketException e)
+            {
+                if (s.isClosed())
+                {
+                    // Closed by stop().
+                    return;
+                }
+                // A scraper reset or dropped its connection; keep serving the others.
+                log.debug("Metrics connection failed", e);
+            }
+            catch (IOException e)
+            {
+                log.debug("Metrics request failed", e);
+            }
+        }
+    }
+
+    private void handle(Socket socket) throws IOException
+    {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        String requestLine = in.readLine();
+        if (requestLine == null)
+        {
+            return;
+        }
+
+        // Drain headers; we never read a body.
+        String line;
+        while ((line = in.readLine()) != null && !line.isEmpty())
+        {
+            // ignore
+        }
+
+        String[] parts = requestLine.split(" ");
+        OutputStream out = socket.getOutputStream();
+        if (parts.length < 2 || !"GET".equals(parts[0]))
+        {
+            write(out, "405 Method Not Allowed", "text/plain", "GET only\n");
+        }
+        else if ("/metrics".equals(parts[1]) || parts[1].startsWith("/metrics?"))
+        {
+            write(out, "200 OK", "text/plain; version=0.0.4; charset=utf-8", registry.scrape());
+        }
+        else
+        {
+            write(out, "404 Not Found", "text/plain", "Try /metrics\n");
+        }
+    }
+
+    private static void write(OutputStream out, String status, String contentType, String body) throws IOException
+    {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String headers = "HTTP/1.1 " + status + "\r\n"
+                + "Content-Type: " + contentType + "\r\n"
+                + "Content-Length: " + bytes.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+        out.write(headers.getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes);
+        out.flush();
+    }
+}
@@ -0,0 +1,118 @@
+package net.runelite.client.plugins.aibrain;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+/**
+ * Read-only JMX view of {@link MetricsRegistry}; every metric series becomes one attribute.
+ */
+class MetricsMBean implements DynamicMBean
+{
+    private static final String OBJECT_NAME = "net.runelite.client.plugins.aibrain:type=Metrics";
+
+    private final MetricsRegistry registry;
+    private ObjectName registeredName;
+
+    MetricsMBean(MetricsRegistry registry)
+    {
+        this.registry = registry;
+    }
+
+    void register() throws Exception
+    {
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (ManagementFactory.getPlatformMBeanServer().isRegistered(name))
+        {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        registeredName = name;
+    }
+
+    void unregister()
+    {
+        ObjectName name = registeredName;
+        registeredName = null;
+        if (name == null)
+        {
+            return;
+        }
+
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+        catch (Exception e)
+        {
+            // Already gone; nothing to do.
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException
+    {
+        Number value = registry.flatten().get(attribute);
+        if (value == null)
+        {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException
+    {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes)
+    {
+        Map<String, Number> values = registry.flatten();
+        AttributeList list = new AttributeList();
+        for (String name : attributes)
+        {
+            Number value = values.get(name);
+            if (value != null)
+            {
+                list.add(new Attribute(name, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes)
+    {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature)
+    {
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo()
+    {
+        Map<String, Number> values = registry.flatten();
+        MBeanAttributeInfo[] attrs = new MBeanAttributeInfo[values.size()];
+        int i = 0;
+        for (Map.Entry<String, Number> e : values.entrySet())
+        {
+            attrs[i++] = new MBeanAttributeInfo(e.getKey(), e.getValue().getClass().getName(), e.getKey(),
+                    true, false, false);
+        }
+        return new MBeanInfo(getClass().getName(), "AI Brain plugin metrics", attrs, null,
+                new MBeanOperationInfo[0], null);
+    }
+}
@@ -0,0 +1,268 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Plugin-wide metrics, exported in Prometheus text format and through JMX.
+ *
+ * Registration happens once at startup; the hot path only touches {@link Counter} instances held
+ * in fields (striped {@link LongAdder}s, no locks, no map lookups). Values owned elsewhere (transport
+ * counters, histograms, queue sizes) are registered as suppliers and only read at scrape time.
+ */
+final class MetricsRegistry
+{
+    static final class Counter
+    {
+        private final LongAdder adder = new LongAdder();
+
+        void inc()
+        {
+            adder.increment();
+        }
+
+        void add(long n)
+        {
+            adder.add(n);
+        }
+
+        long get()
+        {
+            return adder.sum();
+        }
+    }
+
+    private enum Type
+    {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        SUMMARY("summary");
+
+        private final String text;
+
+        Type(String text)
+        {
+            this.text = text;
+        }
+    }
+
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    private static final class Family
+    {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final List<Child> children = new CopyOnWriteArrayList<>();
+        private volatile SummarySource summaries;
+
+        Family(String name, String help, Type type)
+        {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private static final class Child
+    {
+        private final String labels;
+        private final LongSupplier value;
+
+        Child(String labels, LongSupplier value)
+        {
+            this.labels = labels;
+            this.value = value;
+        }
+    }
+
+    private static final class SummarySource
+    {
+        private final String labelName;
+        private final Supplier<Map<String, LatencyRecorder>> recorders;
+        private final double scale;
+
+        SummarySource(String labelName, Supplier<Map<String, LatencyRecorder>> recorders, double scale)
+        {
+            this.labelName = labelName;
+            this.recorders = recorders;
+            this.scale = scale;
+        }
+    }
+
+    private final Map<String, Family> families = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * @param labels {@code name, value} pairs, e.g. {@code "type", "timeout"}
+     */
+    Counter counter(String name, String help, String... labels)
+    {
+        Counter counter = new Counter();
+        family(name, help, Type.COUNTER).children.add(new Child(formatLabels(labels), counter::get));
+        return counter;
+    }
+
+    /**
+     * A counter whose value is maintained elsewhere.
+     */
+    void counter(String name, String help, LongSupplier value, String... labels)
+    {
+        family(name, help, Type.COUNTER).children.add(new Child(formatLabels(labels), value));
+    }
+
+    void gauge(String name, String help, LongSupplier value, String... labels)
+    {
+        family(name, help, Type.GAUGE).children.add(new Child(formatLabels(labels), value));
+    }
+
+    /**
+     * Summaries with p50/p95/p99, one series per recorder the supplier returns at scrape time.
+     *
+     * @param scale multiplier from recorder units to the exported unit (e.g. 1e-6 for micros to seconds)
+     */
+    void summaries(String name, String help, String labelName, Supplier<Map<String, LatencyRecorder>> recorders,
+                   double scale)
+    {
+        family(name, help, Type.SUMMARY).summaries = new SummarySource(labelName, recorders, scale);
+    }
+
+    /**
+     * Prometheus text exposition format, version 0.0.4.
+     */
+    String scrape()
+    {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family f : snapshotFamilies())
+        {
+            out.append("# HELP ").append(f.name).append(' ').append(f.help).append('\n');
+            out.append("# TYPE ").append(f.name).append(' ').append(f.type.text).append('\n');
+
+            for (Child c : f.children)
+            {
+                out.append(f.name).append(c.labels).append(' ').append(c.value.getAsLong()).append('\n');
+            }
+
+            SummarySource src = f.summaries;
+            if (src != null)
+            {
+                for (Map.Entry<String, LatencyRecorder> e : src.recorders.get().entrySet())
+                {
+                    LatencyRecorder r = e.getValue();
+                    String label = src.labelName + "=\"" + escape(e.getKey()) + "\"";
+                    for (double q : QUANTILES)
+                    {
+                        out.append(f.name).append('{').append(label).append(",quantile=\"").append(q).append("\"} ")
+                                .append(r.getPercentile(q * 100) * src.scale).append('\n');
+                    }
+                    out.append(f.name).append("_sum{").append(label).append("} ").append(r.getSum() * src.scale).append('\n');
+                    out.append(f.name).append("_count{").append(label).append("} ").append(r.getCount()).append('\n');
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Flat attribute name to value view for JMX, e.g. {@code aibrain_errors_total.timeout}.
+     */
+    Map<String, Number> flatten()
+    {
+        Map<String, Number> out = new LinkedHashMap<>();
+        for (Family f : snapshotFamilies())
+        {
+            for (Child c : f.children)
+            {
+                out.put(f.name + flatLabels(c.labels), c.value.getAsLong());
+            }
+
+            SummarySource src = f.summaries;
+            if (src != null)
+            {
+                for (Map.Entry<String, LatencyRecorder> e : src.recorders.get().entrySet())
+                {
+                    String base = f.name + "." + e.getKey();
+                    LatencyRecorder r = e.getValue();
+                    for (double q : QUANTILES)
+                    {
+                        out.put(base + ".p" + Math.round(q * 100), r.getPercentile(q * 100) * src.scale);
+                    }
+                    out.put(base + ".count", r.getCount());
+                }
+            }
+        }
+        return out;
+    }
+
+    private List<Family> snapshotFamilies()
+    {
+        synchronized (families)
+        {
+            return new ArrayList<>(families.values());
+        }
+    }
+
+    private Family family(String name, String help, Type type)
+    {
+        synchronized (families)
+        {
+            Family f = families.computeIfAbsent(name, n -> new Family(n, help, type));
+            if (f.type != type)
+            {
+                throw new IllegalArgumentException("Metric " + name + " already registered as " + f.type.text);
+            }
+            return f;
+        }
+    }
+
+    private static String formatLabels(String... labels)
+    {
+        if (labels == null || labels.length == 0)
+        {
+            return "";
+        }
+
+        if (labels.length % 2 != 0)
+        {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2)
+        {
+            if (i > 0)
+            {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String flatLabels(String labels)
+    {
+        if (labels.isEmpty())
+        {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (String pair : labels.substring(1, labels.length() - 1).split(","))
+        {
+            int eq = pair.indexOf('=');
+            sb.append('.').append(pair.substring(eq + 2, pair.length() - 1));
+        }
+        return sb.toString();
+    }
+
+    private static String escape(String value)
+    {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,21 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.util.Map;
+
+/**
+ * Point-in-time view of the plugin's performance counters, pulled by {@link AIBrainPanel} on its refresh timer.
+ *
+ * @param recentDecideMs end-to-end decision latencies, oldest first, for the sparkline
+ * @param rates          label to already-formatted hit/suppression rate, in display order
+ */
+record PanelMetrics(
+        long[] recentDecideMs,
+        long rttP50Ms,
+        long rttP95Ms,
+        long lastSnapshotBytes,
+        long captureP50Micros,
+        long captureP95Micros,
+        double decisionsPerMinute,
+        Map<String, String> rates)
+{
+}
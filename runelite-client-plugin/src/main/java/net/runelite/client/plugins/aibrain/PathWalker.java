@@ -0,0 +1,402 @@
+package net.runelite.client.plugins.aibrain;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.coords.WorldPoint;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Drives the player to a destination that may be far outside the loaded scene. The trip is a queue
+ * of legs: walking legs are planned tile by tile with {@link LocalPathfinder} and walked one "Walk
+ * here" click at a time, each click on the farthest in-scene path tile within {@link #CLICK_RANGE},
+ * the next issued when the player has nearly caught up; transport legs (stairs, boats, ...) are used
+ * once and waited out until the player lands. A {@link TravelGraph} route supplies the legs of long
+ * trips; short ones are a single walking leg. If the player strays from a walking leg (a closed
+ * door, a tile the cache had wrong) that leg is planned again from where they stand.
+ *
+ * Planning shares the client thread with everything else, so a leg's search runs a bounded number of
+ * expansions per tick ({@link #PLAN_EXPANSIONS_PER_TICK}) and the walker starts clicking on the tick
+ * the path is ready; a short leg is still planned and clicked in the same tick.
+ *
+ * Client thread only.
+ */
+@Slf4j
+final class PathWalker
+{
+    enum Status
+    {
+        IDLE,
+        WALKING,
+        ARRIVED,
+        FAILED
+    }
+
+    /**
+     * What the walker needs from the game.
+     */
+    interface Actions
+    {
+        /**
+         * @return whether a tile can currently be clicked
+         */
+        boolean inScene(WorldPoint tile);
+
+        void walk(WorldPoint tile);
+
+        void use(TransportTable.Transport transport);
+    }
+
+    /** The game's own pathing handles clicks up to this far away reliably. */
+    static final int CLICK_RANGE = 14;
+    private static final int ARRIVE_DISTANCE = 1;
+    private static final int NEXT_CLICK_DISTANCE = 3;
+    private static final int OFF_ROUTE_DISTANCE = 6;
+    private static final int RECLICK_TICKS = 10;
+    private static final int STUCK_TICKS = 25;
+    private static final int MAX_REPLANS = 5;
+    /** Search share per tick; most in-scene legs finish in one, the longest take a few dozen. */
+    static final int PLAN_EXPANSIONS_PER_TICK = 4096;
+    /** A transport has landed the player once they are this close to its arrival tile. */
+    private static final int LANDED_DISTANCE = 3;
+    /** Ticks on top of a transport's own duration before using it again, and the number of tries. */
+    private static final int TRANSPORT_GRACE_TICKS = 8;
+    private static final int TRANSPORT_ATTEMPTS = 3;
+
+    private final LocalPathfinder pathfinder;
+
+    private final Deque<TravelGraph.Step> legs = new ArrayDeque<>();
+    private WorldPoint destination;
+    private List<WorldPoint> path;
+    private boolean planning;
+    private WorldPoint planFrom;
+    private WorldPoint planTo;
+    private int cursor;
+    private WorldPoint lastClick;
+    private int lastClickTick;
+    private WorldPoint lastPosition;
+    private int lastProgressTick;
+    private int replans;
+    private int transportAttempts;
+    private Status status = Status.IDLE;
+    private String failure;
+
+    PathWalker(LocalPathfinder pathfinder)
+    {
+        this.pathfinder = pathfinder;
+    }
+
+    /**
+     * Start a trip on the next {@link #step}.
+     *
+     * @param route legs from the travel graph, or null to walk straight there
+     * @return false if the first leg is refused outright (another plane, too far for a search), in
+     *         which case the walker is {@link Status#FAILED}; a search that finds no route fails a later
+     *         {@link #step}
+     */
+    boolean start(WorldPoint from, WorldPoint to, int tick, TravelGraph.Route route)
+    {
+        cancel();
+        destination = to;
+        if (route != null)
+        {
+            legs.addAll(route.steps());
+        }
+        else
+        {
+            legs.add(new TravelGraph.Step(to, null));
+        }
+
+        status = Status.WALKING;
+        return beginLeg(from, tick);
+    }
+
+    void cancel()
+    {
+        legs.clear();
+        destination = null;
+        path = null;
+        planning = false;
+        cursor = 0;
+        lastClick = null;
+        replans = 0;
+        transportAttempts = 0;
+        failure = null;
+        status = Status.IDLE;
+    }
+
+    /**
+     * Advance the trip by one game tick.
+     *
+     * @param position the player's tile
+     */
+    Status step(WorldPoint position, int tick, Actions actions)
+    {
+        if (status != Status.WALKING)
+        {
+            return status;
+        }
+
+        if (!position.equals(lastPosition))
+        {
+            lastPosition = position;
+            lastProgressTick = tick;
+        }
+
+        TravelGraph.Step leg = legs.peekFirst();
+        boolean legDone = leg.transport() != null
+                ? stepTransport(leg.transport(), position, tick, actions)
+                : stepWalk(leg.walkTo(), position, tick, actions);
+
+        if (legDone)
+        {
+            legs.removeFirst();
+            if (legs.isEmpty())
+            {
+                status = Status.ARRIVED;
+            }
+            else if (beginLeg(position, tick))
+            {
+                // Start the next leg straight away rather than idling a tick.
+                return step(position, tick, actions);
+            }
+        }
+        return status;
+    }
+
+    Status getStatus()
+    {
+        return status;
+    }
+
+    WorldPoint getDestination()
+    {
+        return destination;
+    }
+
+    String getFailure()
+    {
+        return failure;
+    }
+
+    /**
+     * @return whether the current walking leg is still being planned
+     */
+    boolean isPlanning()
+    {
+        return planning;
+    }
+
+    /**
+     * @return tiles left on the current walking leg, 0 when idle, planning or using a transport
+     */
+    int getRemainingTiles()
+    {
+        return path != null ? path.size() - cursor : 0;
+    }
+
+    /**
+     * @return legs not yet finished, including the current one
+     */
+    int getRemainingLegs()
+    {
+        return legs.size();
+    }
+
+    private boolean beginLeg(WorldPoint from, int tick)
+    {
+        path = null;
+        cursor = 0;
+        lastClick = null;
+        lastClickTick = tick;
+        lastPosition = from;
+        lastProgressTick = tick;
+        replans = 0;
+        transportAttempts = 0;
+
+        TravelGraph.Step leg = legs.peekFirst();
+        return leg.transport() != null || plan(from, leg.walkTo());
+    }
+
+    /**
+     * @return true once the player has arrived at the end of the leg
+     */
+    private boolean stepWalk(WorldPoint target, WorldPoint position, int tick, Actions actions)
+    {
+        if (position.getPlane() != target.getPlane())
+        {
+            fail("left the destination plane");
+            return false;
+        }
+
+        if (planning && !continuePlan(tick))
+        {
+            return false;
+        }
+
+        advanceCursor(position);
+        if (position.distanceTo2D(target) <= ARRIVE_DISTANCE || cursor >= path.size())
+        {
+            return true;
+        }
+
+        if (tick - lastProgressTick >= STUCK_TICKS)
+        {
+            fail("no progress for " + STUCK_TICKS + " ticks");
+            return false;
+        }
+
+        if (distanceToRoute(position) > OFF_ROUTE_DISTANCE)
+        {
+            if (++replans > MAX_REPLANS)
+            {
+                fail("route kept breaking");
+                return false;
+            }
+            if (!plan(position, target) || !continuePlan(tick))
+            {
+                return false;
+            }
+            lastClick = null;
+        }
+
+        boolean caughtUp = lastClick == null || position.distanceTo2D(lastClick) <= NEXT_CLICK_DISTANCE;
+        if (caughtUp || tick - lastClickTick >= RECLICK_TICKS)
+        {
+            WorldPoint next = nextClick(position, actions);
+            if (next == null)
+            {
+                fail("no path tile in the scene");
+                return false;
+            }
+            if (!next.equals(lastClick) || tick - lastClickTick >= RECLICK_TICKS)
+            {
+                actions.walk(next);
+                lastClick = next;
+                lastClickTick = tick;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true once the player has landed where the transport goes
+     */
+    private boolean stepTransport(TransportTable.Transport transport, WorldPoint position, int tick, Actions actions)
+    {
+        WorldPoint to = transport.to();
+        if (position.getPlane() == to.getPlane() && position.distanceTo2D(to) <= LANDED_DISTANCE)
+        {
+            return true;
+        }
+
+        if (transportAttempts == 0 || tick - lastClickTick >= transport.ticks() + TRANSPORT_GRACE_TICKS)
+        {
+            if (++transportAttempts > TRANSPORT_ATTEMPTS)
+            {
+                fail(transport.option() + " " + transport.target() + " did not take the player to " + to);
+                return false;
+            }
+            actions.use(transport);
+            lastClickTick = tick;
+        }
+        return false;
+    }
+
+    /**
+     * Start planning a walking leg; {@link #continuePlan} carries the search on.
+     *
+     * @return false if the search was refused outright
+     */
+    private boolean plan(WorldPoint from, WorldPoint to)
+    {
+        path = null;
+        cursor = 0;
+        planFrom = from;
+        planTo = to;
+        if (!pathfinder.begin(from, to))
+        {
+            planning = false;
+            fail("no known route from " + from + " to " + to);
+            return false;
+        }
+        planning = true;
+        return true;
+    }
+
+    /**
+     * Run this tick's share of the search.
+     *
+     * @return true once the path is ready
+     */
+    private boolean continuePlan(int tick)
+    {
+        switch (pathfinder.advance(PLAN_EXPANSIONS_PER_TICK))
+        {
+            case FOUND:
+                planning = false;
+                path = pathfinder.getPath();
+                cursor = 0;
+                // Time spent planning is not time spent stuck.
+                lastProgressTick = tick;
+                log.debug("Planned {} tile route from {} to {}", path.size(), planFrom, planTo);
+                return true;
+            case NO_ROUTE:
+                planning = false;
+                fail("no known route from " + planFrom + " to " + planTo);
+                return false;
+            case SEARCHING:
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Move the cursor past every path tile the player has already reached, looking a little ahead so
+     * the game's own corner cutting does not leave the cursor behind.
+     */
+    private void advanceCursor(WorldPoint position)
+    {
+        int limit = Math.min(path.size(), cursor + CLICK_RANGE);
+        for (int i = limit - 1; i >= cursor; i--)
+        {
+            if (path.get(i).equals(position))
+            {
+                cursor = i + 1;
+                return;
+            }
+        }
+    }
+
+    private int distanceToRoute(WorldPoint position)
+    {
+        int best = Integer.MAX_VALUE;
+        int limit = Math.min(path.size(), cursor + CLICK_RANGE);
+        for (int i = cursor; i < limit; i++)
+        {
+            best = Math.min(best, position.distanceTo2D(path.get(i)));
+        }
+        return best;
+    }
+
+    private WorldPoint nextClick(WorldPoint position, Actions actions)
+    {
+        for (int i = path.size() - 1; i >= cursor; i--)
+        {
+            WorldPoint p = path.get(i);
+            if (position.distanceTo2D(p) <= CLICK_RANGE && actions.inScene(p))
+            {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    private void fail(String reason)
+    {
+        log.debug("Walk to {} failed: {}", destination, reason);
+        failure = reason;
+        status = Status.FAILED;
+    }
+}
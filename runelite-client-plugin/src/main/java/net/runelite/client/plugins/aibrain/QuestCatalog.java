@@ -0,0 +1,232 @@
+package net.runelite.client.plugins.aibrain;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The F2P quests, read from the bundled {@code quests_f2p.json}: the same file the brain reads, so
+ * both sides agree on quest ids, names and NPCs. Indexed by id, by name and by the NPC and object
+ * names each quest involves, so a scan can flag quest-relevant entities with a map lookup.
+ *
+ * Immutable once loaded.
+ */
+final class QuestCatalog
+{
+    /**
+     * @param varbit whether {@code id} is a varbit rather than a varp
+     * @param completeAt the variable's value once the quest is done
+     */
+    record Progress(boolean varbit, int id, int completeAt)
+    {
+    }
+
+    /**
+     * @param id stable key, e.g. {@code cooks_assistant}
+     * @param npcs in-game names of the NPCs the quest involves, the start NPC first
+     * @param objects in-game names of the objects it involves
+     * @param progress the variables the quest's progress is kept in, one per route through it (e.g.
+     *                 Shield of Arrav's two gangs); it is complete once any one of them is
+     */
+    record Quest(String id, String name, int order, String startNpc, String startArea, String hint,
+                 List<String> npcs, List<String> objects, List<Progress> progress)
+    {
+    }
+
+    static final QuestCatalog EMPTY = new QuestCatalog(Collections.emptyList());
+
+    private static final String RESOURCE = "quests_f2p.json";
+
+    private final List<Quest> quests;
+    private final Map<String, Quest> byId = new HashMap<>();
+    private final Map<String, Quest> byName = new HashMap<>();
+    private final Map<String, List<String>> questsByNpc = new HashMap<>();
+    private final Map<String, List<String>> questsByObject = new HashMap<>();
+
+    private QuestCatalog(List<Quest> quests)
+    {
+        this.quests = quests;
+        for (Quest q : quests)
+        {
+            byId.put(q.id(), q);
+            byName.put(key(q.name()), q);
+            for (String npc : q.npcs())
+            {
+                questsByNpc.computeIfAbsent(key(npc), k -> new ArrayList<>()).add(q.id());
+            }
+            for (String object : q.objects())
+            {
+                questsByObject.computeIfAbsent(key(object), k -> new ArrayList<>()).add(q.id());
+            }
+        }
+    }
+
+    static QuestCatalog loadBundled() throws IOException
+    {
+        try (InputStream in = QuestCatalog.class.getResourceAsStream(RESOURCE))
+        {
+            if (in == null)
+            {
+                throw new IOException(RESOURCE + " is missing from the plugin jar");
+            }
+            return parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    static QuestCatalog parse(Reader in) throws IOException
+    {
+        List<Quest> quests = new ArrayList<>();
+        try
+        {
+            JsonArray arr = required(JsonParser.parseReader(in).getAsJsonObject(), "quests").getAsJsonArray();
+            for (int i = 0; i < arr.size(); i++)
+            {
+                try
+                {
+                    quests.add(readQuest(arr.get(i).getAsJsonObject()));
+                }
+                catch (JsonParseException | IllegalStateException | UnsupportedOperationException | NumberFormatException e)
+                {
+                    throw new IOException(RESOURCE + ": quests[" + i + "]: " + e.getMessage(), e);
+                }
+            }
+        }
+        catch (JsonParseException | IllegalStateException e)
+        {
+            throw new IOException(RESOURCE + ": " + e.getMessage(), e);
+        }
+
+        quests.sort(Comparator.comparingInt(Quest::order));
+        return new QuestCatalog(Collections.unmodifiableList(quests));
+    }
+
+    /**
+     * @return every quest in the order "do all quests" works through them
+     */
+    List<Quest> getQuests()
+    {
+        return quests;
+    }
+
+    List<String> getNames()
+    {
+        List<String> names = new ArrayList<>(quests.size());
+        for (Quest q : quests)
+        {
+            names.add(q.name());
+        }
+        return names;
+    }
+
+    /**
+     * @return the quest, or null if there is none with that id
+     */
+    Quest byId(String id)
+    {
+        return id != null ? byId.get(id) : null;
+    }
+
+    /**
+     * @return the quest (case-insensitive), or null if there is none with that name
+     */
+    Quest byName(String name)
+    {
+        return name != null ? byName.get(key(name)) : null;
+    }
+
+    /**
+     * @return ids of the quests involving an NPC of this name, empty if none
+     */
+    List<String> questsForNpc(String npcName)
+    {
+        return npcName != null ? questsByNpc.getOrDefault(key(npcName), Collections.emptyList()) : Collections.emptyList();
+    }
+
+    /**
+     * @return ids of the quests involving an object of this name, empty if none
+     */
+    List<String> questsForObject(String objectName)
+    {
+        return objectName != null ? questsByObject.getOrDefault(key(objectName), Collections.emptyList()) : Collections.emptyList();
+    }
+
+    private static Quest readQuest(JsonObject o)
+    {
+        // One progress variable, or an array of them for a quest with several routes.
+        JsonElement p = required(o, "progress");
+        List<Progress> progress = new ArrayList<>();
+        if (p.isJsonArray())
+        {
+            for (JsonElement e : p.getAsJsonArray())
+            {
+                progress.add(readProgress(e.getAsJsonObject()));
+            }
+        }
+        else
+        {
+            progress.add(readProgress(p.getAsJsonObject()));
+        }
+        if (progress.isEmpty())
+        {
+            throw new JsonParseException("empty \"progress\"");
+        }
+
+        return new Quest(
+                required(o, "id").getAsString(),
+                required(o, "name").getAsString(),
+                required(o, "sequence_order").getAsInt(),
+                required(o, "start_npc").getAsString(),
+                required(o, "start_area").getAsString(),
+                required(o, "short_hint").getAsString(),
+                strings(required(o, "npcs").getAsJsonArray()),
+                strings(required(o, "objects").getAsJsonArray()),
+                Collections.unmodifiableList(progress));
+    }
+
+    private static Progress readProgress(JsonObject p)
+    {
+        boolean varbit = p.has("varbit");
+        return new Progress(varbit, required(p, varbit ? "varbit" : "varp").getAsInt(),
+                required(p, "complete_at").getAsInt());
+    }
+
+    private static JsonElement required(JsonObject o, String key)
+    {
+        JsonElement e = o.get(key);
+        if (e == null || e.isJsonNull())
+        {
+            throw new JsonParseException("missing \"" + key + "\"");
+        }
+        return e;
+    }
+
+    private static List<String> strings(JsonArray arr)
+    {
+        List<String> out = new ArrayList<>(arr.size());
+        for (JsonElement e : arr)
+        {
+            out.add(e.getAsString());
+        }
+        return Collections.unmodifiableList(out);
+    }
+
+    private static String key(String name)
+    {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
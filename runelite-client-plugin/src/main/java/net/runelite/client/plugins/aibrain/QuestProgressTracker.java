@@ -0,0 +1,174 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Where the player is in each catalogued quest, read from the varp or varbit the game keeps its
+ * progress in. Values are re-read only on the tick after one of those variables changed, and each
+ * quest's raw stage goes into snapshots, so the brain does not have to work out progress from dialog.
+ *
+ * Client thread only.
+ */
+final class QuestProgressTracker
+{
+    /**
+     * How the tracker reads game variables.
+     */
+    interface Vars
+    {
+        int varp(int id);
+
+        int varbit(int id);
+    }
+
+    private final List<QuestCatalog.Quest> quests;
+    private final int[] varps;
+    private final int[] varbits;
+    // Per quest, the value of each of its progress variables.
+    private final int[][] stages;
+    private boolean dirty = true;
+
+    QuestProgressTracker(QuestCatalog catalog)
+    {
+        quests = catalog.getQuests();
+        varps = ids(quests, false);
+        varbits = ids(quests, true);
+        stages = new int[quests.size()][];
+        for (int i = 0; i < stages.length; i++)
+        {
+            stages[i] = new int[quests.get(i).progress().size()];
+        }
+    }
+
+    /**
+     * Note a VarbitChanged event; cheap enough to call for every one.
+     *
+     * @param varbitId the changed varbit, or -1 if a plain varp changed
+     */
+    void onVarChanged(int varpId, int varbitId)
+    {
+        if (Arrays.binarySearch(varps, varpId) >= 0 || (varbitId >= 0 && Arrays.binarySearch(varbits, varbitId) >= 0))
+        {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Make the next {@link #refresh} read every variable, e.g. after logging in.
+     */
+    void invalidate()
+    {
+        dirty = true;
+    }
+
+    /**
+     * Re-read the quest variables if any changed since the last call.
+     *
+     * @return true if they were read
+     */
+    boolean refresh(Vars vars)
+    {
+        if (!dirty)
+        {
+            return false;
+        }
+        dirty = false;
+
+        for (int i = 0; i < stages.length; i++)
+        {
+            List<QuestCatalog.Progress> progress = quests.get(i).progress();
+            for (int v = 0; v < stages[i].length; v++)
+            {
+                QuestCatalog.Progress p = progress.get(v);
+                stages[i][v] = p.varbit() ? vars.varbit(p.id()) : vars.varp(p.id());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the quest's raw progress value, or -1 for a quest that is not in the catalog; for a quest
+     *         with several routes, the value of the one that completed it, else the highest
+     */
+    int getStage(QuestCatalog.Quest quest)
+    {
+        int i = quests.indexOf(quest);
+        if (i < 0)
+        {
+            return -1;
+        }
+
+        int stage = 0;
+        List<QuestCatalog.Progress> progress = quest.progress();
+        for (int v = 0; v < stages[i].length; v++)
+        {
+            if (stages[i][v] >= progress.get(v).completeAt())
+            {
+                return stages[i][v];
+            }
+            stage = Math.max(stage, stages[i][v]);
+        }
+        return stage;
+    }
+
+    boolean isComplete(QuestCatalog.Quest quest)
+    {
+        int i = quests.indexOf(quest);
+        return i >= 0 && isComplete(i);
+    }
+
+    int getCompletedCount()
+    {
+        int n = 0;
+        for (int i = 0; i < stages.length; i++)
+        {
+            if (isComplete(i))
+            {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @return the first quest in catalog order after {@code quest} that is not yet complete,
+     *         wrapping around, or null if every one is done
+     */
+    QuestCatalog.Quest nextIncomplete(QuestCatalog.Quest quest)
+    {
+        int start = quests.indexOf(quest);
+        for (int k = 1; k <= quests.size(); k++)
+        {
+            int i = Math.floorMod(start + k, quests.size());
+            if (!isComplete(i))
+            {
+                return quests.get(i);
+            }
+        }
+        return null;
+    }
+
+    private boolean isComplete(int i)
+    {
+        List<QuestCatalog.Progress> progress = quests.get(i).progress();
+        for (int v = 0; v < stages[i].length; v++)
+        {
+            if (stages[i][v] >= progress.get(v).completeAt())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] ids(List<QuestCatalog.Quest> quests, boolean varbit)
+    {
+        return quests.stream()
+                .flatMap(q -> q.progress().stream())
+                .filter(p -> p.varbit() == varbit)
+                .mapToInt(QuestCatalog.Progress::id)
+                .sorted()
+                .toArray();
+    }
+}
@@ -0,0 +1,353 @@
+package net.runelite.client.plugins.aibrain;
+
+import net.runelite.api.CollisionData;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.WorldPoint;
+
+import java.util.Arrays;
+
+/**
+ * Which scene tiles the player can walk to, and how many steps each takes: a breadth-first flood
+ * fill from the player's tile over the live collision flags of their plane, with the game's own
+ * step rules (see {@link CollisionCache#canMove}). The fill stops {@link #MAX_DISTANCE} steps out and
+ * is spread over ticks by {@link #advance}; {@link #finish} completes it when a snapshot needs it now.
+ *
+ * The result is kept until the player moves to another tile, the scene reloads, or a door or gate
+ * changes within the filled area; changes outside it cannot make a tile reachable and are ignored.
+ * The steps allowed out of each tile are worked out once, the first time the fill expands it, and
+ * kept until the scene reloads or such a change, so when the player moves (every tick while walking)
+ * the fill is re-rooted at their new tile over those cached steps instead of reading and decoding
+ * the collision flags again.
+ *
+ * Client thread only.
+ */
+final class ReachabilityMap
+{
+    /** Steps from the player beyond which tiles count as unreachable. */
+    static final int MAX_DISTANCE = 48;
+    /** Blocked tiles crossed looking for a tile to stand on next to a large object's footprint. */
+    private static final int MAX_FOOTPRINT = 2;
+    /** Blocked tiles crossed to a walkable tile, for the counter or bank booth in front of a shopkeeper. */
+    private static final int MAX_COUNTER = 1;
+    private static final int UNREACHED = -1;
+    /** Set in {@link #moves} once a tile's steps have been worked out; the low bits are per direction. */
+    private static final int MOVES_KNOWN = 1 << 8;
+    private static final int[] DX = {0, 1, 0, -1, 1, 1, -1, -1};
+    private static final int[] DY = {1, 0, -1, 0, 1, -1, -1, 1};
+
+    private int[][] flags;
+    private int baseX;
+    private int baseY;
+    private int sizeX;
+    private int sizeY;
+    private int plane = -1;
+    private WorldPoint origin;
+
+    private short[] distance = new short[0];
+    private int[] queue = new int[0];
+    private short[] moves = new short[0];
+    private int head;
+    private int tail;
+    private boolean stale = true;
+    private boolean complete;
+    private int fills;
+
+    /**
+     * Forget the current fill, e.g. after a region load.
+     */
+    void invalidate()
+    {
+        stale = true;
+    }
+
+    /**
+     * Forget the current fill if the collision of {@code tile} may have changed what it reached.
+     */
+    void invalidate(WorldPoint tile)
+    {
+        if (stale || origin == null || tile.getPlane() != plane)
+        {
+            return;
+        }
+
+        int sx = tile.getX() - baseX;
+        int sy = tile.getY() - baseY;
+        for (int dx = -1; dx <= 1; dx++)
+        {
+            for (int dy = -1; dy <= 1; dy++)
+            {
+                if (inScene(sx + dx, sy + dy)
+                        && (distance[cell(sx + dx, sy + dy)] != UNREACHED || moves[cell(sx + dx, sy + dy)] != 0))
+                {
+                    stale = true;
+                    return;
+                }
+            }
+        }
+        // Flags are read as the fill expands, so an unfinished fill sees the change when it gets there.
+    }
+
+    /**
+     * Start again if the player has moved or the fill was invalidated, then expand up to
+     * {@code maxTiles} more tiles.
+     *
+     * @return false if there is no player position or collision map to fill from
+     */
+    boolean advance(WorldView wv, WorldPoint player, int maxTiles)
+    {
+        if (!restartIfNeeded(wv, player))
+        {
+            return false;
+        }
+        expand(maxTiles);
+        return true;
+    }
+
+    /**
+     * Like {@link #advance}, but runs the fill to completion.
+     */
+    boolean finish(WorldView wv, WorldPoint player)
+    {
+        return advance(wv, player, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return steps from the player to {@code tile}, or -1 if it cannot be reached within
+     *         {@link #MAX_DISTANCE}
+     */
+    int distanceTo(WorldPoint tile)
+    {
+        if (origin == null || tile.getPlane() != plane)
+        {
+            return UNREACHED;
+        }
+        int sx = tile.getX() - baseX;
+        int sy = tile.getY() - baseY;
+        return inScene(sx, sy) ? distance[cell(sx, sy)] : UNREACHED;
+    }
+
+    /**
+     * Steps from the player to where they could interact with something on {@code tile}: the tile
+     * itself if it can be walked to, otherwise the nearest reached tile orthogonally next to it with
+     * no wall in between, looking past the rest of a blocked tile's footprint, or past a counter in
+     * front of a walkable one.
+     *
+     * @return the path distance, or -1 if there is nowhere to stand
+     */
+    int approachDistance(WorldPoint tile)
+    {
+        int direct = distanceTo(tile);
+        if (direct != UNREACHED || origin == null || tile.getPlane() != plane)
+        {
+            return direct;
+        }
+
+        int sx = tile.getX() - baseX;
+        int sy = tile.getY() - baseY;
+        if (!inScene(sx, sy))
+        {
+            return UNREACHED;
+        }
+        int maxCrossed = (flagsAt(sx, sy) & CollisionCache.FULL) != 0 ? MAX_FOOTPRINT : MAX_COUNTER;
+        return approach(sx, sy, 0, maxCrossed, -1, -1);
+    }
+
+    /**
+     * @return tiles reached so far
+     */
+    int getReachedCount()
+    {
+        return origin != null ? tail : 0;
+    }
+
+    boolean isComplete()
+    {
+        return complete;
+    }
+
+    /**
+     * @return fills started from scratch since the plugin loaded; re-rooting after a move does not count
+     */
+    int getFillCount()
+    {
+        return fills;
+    }
+
+    private int approach(int sx, int sy, int depth, int maxCrossed, int fromX, int fromY)
+    {
+        int best = UNREACHED;
+        byte here = flagsAt(sx, sy);
+        for (int d = 0; d < 4; d++)
+        {
+            int nx = sx + DX[d];
+            int ny = sy + DY[d];
+            if (!inScene(nx, ny) || (nx == fromX && ny == fromY))
+            {
+                continue;
+            }
+
+            byte there = flagsAt(nx, ny);
+            if (CollisionCache.hasWall(there, here, -DX[d], -DY[d]))
+            {
+                continue;
+            }
+
+            int reached = distance[cell(nx, ny)];
+            int found = reached != UNREACHED
+                    ? reached + 1 + depth
+                    : (there & CollisionCache.FULL) != 0 && depth < maxCrossed
+                            ? approach(nx, ny, depth + 1, maxCrossed, sx, sy)
+                            : UNREACHED;
+            if (found != UNREACHED && (best == UNREACHED || found < best))
+            {
+                best = found;
+            }
+        }
+        return best;
+    }
+
+    private boolean restartIfNeeded(WorldView wv, WorldPoint player)
+    {
+        if (wv == null || player == null)
+        {
+            origin = null;
+            return false;
+        }
+
+        if (!stale && player.equals(origin) && wv.getBaseX() == baseX && wv.getBaseY() == baseY)
+        {
+            return true;
+        }
+
+        CollisionData[] maps = wv.getCollisionMaps();
+        int p = player.getPlane();
+        if (maps == null || p < 0 || p >= maps.length || maps[p] == null)
+        {
+            origin = null;
+            return false;
+        }
+
+        // Only the player moved: the cached steps still describe the same collision.
+        boolean reroot = !stale && origin != null && p == plane && wv.getBaseX() == baseX && wv.getBaseY() == baseY
+                && wv.getSizeX() == sizeX && wv.getSizeY() == sizeY;
+
+        flags = maps[p].getFlags();
+        plane = p;
+        baseX = wv.getBaseX();
+        baseY = wv.getBaseY();
+        sizeX = wv.getSizeX();
+        sizeY = wv.getSizeY();
+        if (distance.length != sizeX * sizeY)
+        {
+            distance = new short[sizeX * sizeY];
+            queue = new int[sizeX * sizeY];
+            moves = new short[sizeX * sizeY];
+        }
+        else if (!reroot)
+        {
+            Arrays.fill(moves, (short) 0);
+        }
+        Arrays.fill(distance, (short) UNREACHED);
+        head = 0;
+        tail = 0;
+        stale = false;
+        if (!reroot)
+        {
+            fills++;
+        }
+
+        origin = player;
+        int sx = player.getX() - baseX;
+        int sy = player.getY() - baseY;
+        if (inScene(sx, sy))
+        {
+            distance[cell(sx, sy)] = 0;
+            queue[tail++] = cell(sx, sy);
+        }
+        complete = head == tail;
+        return true;
+    }
+
+    private void expand(int maxTiles)
+    {
+        int budget = maxTiles;
+        while (head < tail && budget-- > 0)
+        {
+            int c = queue[head++];
+            int sx = c / sizeY;
+            int sy = c % sizeY;
+            int next = distance[c] + 1;
+            if (next > MAX_DISTANCE)
+            {
+                // Breadth-first: every tile still queued is at least as far.
+                head = tail;
+                break;
+            }
+
+            int allowed = movesFrom(c, sx, sy);
+            for (int d = 0; d < DX.length; d++)
+            {
+                if ((allowed & (1 << d)) == 0)
+                {
+                    continue;
+                }
+                int n = cell(sx + DX[d], sy + DY[d]);
+                if (distance[n] != UNREACHED)
+                {
+                    continue;
+                }
+                distance[n] = (short) next;
+                queue[tail++] = n;
+            }
+        }
+        complete = head == tail;
+    }
+
+    /**
+     * @return a bit per direction the player can step in from the tile, worked out on first use
+     */
+    private int movesFrom(int c, int sx, int sy)
+    {
+        int allowed = moves[c];
+        if (allowed == 0)
+        {
+            allowed = MOVES_KNOWN;
+            for (int d = 0; d < DX.length; d++)
+            {
+                if (canMove(sx, sy, DX[d], DY[d]))
+                {
+                    allowed |= 1 << d;
+                }
+            }
+            moves[c] = (short) allowed;
+        }
+        return allowed;
+    }
+
+    private boolean canMove(int sx, int sy, int dx, int dy)
+    {
+        if (dx != 0 && dy != 0)
+        {
+            return canMove(sx, sy, dx, 0) && canMove(sx + dx, sy, 0, dy)
+                    && canMove(sx, sy, 0, dy) && canMove(sx, sy + dy, dx, 0);
+        }
+        return inScene(sx + dx, sy + dy)
+                && CollisionCache.canStep(flagsAt(sx, sy), flagsAt(sx + dx, sy + dy), dx, dy);
+    }
+
+    private byte flagsAt(int sx, int sy)
+    {
+        return CollisionCache.encode(flags[sx][sy]);
+    }
+
+    private boolean inScene(int sx, int sy)
+    {
+        return sx >= 0 && sy >= 0 && sx < sizeX && sy < sizeY
+                && sx < flags.length && sy < flags[sx].length;
+    }
+
+    private int cell(int sx, int sy)
+    {
+        return sx * sizeY + sy;
+    }
+}
@@ -0,0 +1,200 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the segments written by {@link SessionRecorder} back in order. A record cut short at the
+ * end of a segment is treated as the end of that segment; anything else that does not add up is
+ * reported as an {@link IOException} naming the file.
+ */
+final class SessionLogReader implements Closeable
+{
+    private final List<Path> segments;
+    private final Inflater inflater = new Inflater();
+    private final CRC32 crc = new CRC32();
+    private int nextSegment;
+    private DataInputStream in;
+    private Path current;
+
+    SessionLogReader(List<Path> segments)
+    {
+        this.segments = new ArrayList<>(segments);
+    }
+
+    /**
+     * @return the segment files of every session in {@code directory}, keyed and ordered by session name
+     */
+    static NavigableMap<String, List<Path>> listSessions(Path directory) throws IOException
+    {
+        NavigableMap<String, List<Path>> sessions = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory))
+        {
+            files.filter(p -> p.getFileName().toString().endsWith(SessionRecorder.SEGMENT_SUFFIX))
+                    .sorted()
+                    .forEach(p ->
+                    {
+                        String name = p.getFileName().toString();
+                        int idx = name.lastIndexOf('-');
+                        String session = idx > 0 ? name.substring(0, idx) : name;
+                        sessions.computeIfAbsent(session, k -> new ArrayList<>()).add(p);
+                    });
+        }
+        return sessions;
+    }
+
+    /**
+     * @return the next record, or null once every segment has been read
+     */
+    SessionRecord next() throws IOException
+    {
+        while (true)
+        {
+            if (in == null && !openNextSegment())
+            {
+                return null;
+            }
+
+            SessionRecord record = readRecord();
+            if (record != null)
+            {
+                return record;
+            }
+
+            closeSegment();
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        closeSegment();
+        inflater.end();
+    }
+
+    private boolean openNextSegment() throws IOException
+    {
+        if (nextSegment >= segments.size())
+        {
+            return false;
+        }
+
+        current = segments.get(nextSegment++);
+        in = new DataInputStream(new BufferedInputStream(Files.newInputStream(current), 64 * 1024));
+        try
+        {
+            if (in.readInt() != SessionRecorder.MAGIC)
+            {
+                throw new IOException(current + " is not a session segment");
+            }
+            short version = in.readShort();
+            if (version != SessionRecorder.VERSION)
+            {
+                throw new IOException(current + " has unsupported version " + version);
+            }
+            in.readLong();
+            in.readInt();
+        }
+        catch (EOFException e)
+        {
+            // Created but never written to.
+            closeSegment();
+            return openNextSegment();
+        }
+        return true;
+    }
+
+    private SessionRecord readRecord() throws IOException
+    {
+        try
+        {
+            int frameLength;
+            try
+            {
+                frameLength = in.readInt();
+            }
+            catch (EOFException e)
+            {
+                return null;
+            }
+
+            if (frameLength < SessionRecorder.RECORD_HEADER_BYTES)
+            {
+                throw new IOException(current + ": bad record length " + frameLength);
+            }
+
+            int typeCode = in.readUnsignedByte();
+            int flags = in.readUnsignedByte();
+            long timeNanos = in.readLong();
+            long seq = in.readLong();
+            int rawLength = in.readInt();
+            int expectedCrc = in.readInt();
+            byte[] body = new byte[frameLength - SessionRecorder.RECORD_HEADER_BYTES];
+            in.readFully(body);
+
+            byte[] raw = (flags & SessionRecorder.FLAG_DEFLATED) != 0 ? inflate(body, rawLength) : body;
+            crc.reset();
+            crc.update(raw, 0, raw.length);
+            if ((int) crc.getValue() != expectedCrc)
+            {
+                throw new IOException(current + ": checksum mismatch in record #" + seq);
+            }
+
+            SessionRecord.Type type = SessionRecord.Type.fromCode(typeCode);
+            if (type == null)
+            {
+                // Written by a newer recorder; skip it.
+                return readRecord();
+            }
+            return new SessionRecord(type, timeNanos, seq, new String(raw, StandardCharsets.UTF_8));
+        }
+        catch (EOFException e)
+        {
+            // Truncated tail from a client that was killed mid-write.
+            return null;
+        }
+    }
+
+    private byte[] inflate(byte[] body, int rawLength) throws IOException
+    {
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(body);
+        try
+        {
+            int n = inflater.inflate(raw);
+            if (n != rawLength || !inflater.finished())
+            {
+                throw new IOException(current + ": compressed record does not match its length");
+            }
+        }
+        catch (DataFormatException e)
+        {
+            throw new IOException(current + ": corrupt compressed record", e);
+        }
+        return raw;
+    }
+
+    private void closeSegment() throws IOException
+    {
+        if (in != null)
+        {
+            in.close();
+            in = null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package net.runelite.client.plugins.aibrain;
+
+/**
+ * One entry of a recorded session.
+ *
+ * @param timeNanos nanoseconds since the recording started, for replaying at the original pace
+ * @param seq       brain decision sequence the entry belongs to, or 0 when there is none
+ * @param payload   the JSON exactly as it was sent, received or dispatched
+ */
+record SessionRecord(Type type, long timeNanos, long seq, String payload)
+{
+    enum Type
+    {
+        SNAPSHOT(1),
+        CONTROL(2),
+        RESPONSE(3),
+        ACTION(4);
+
+        private final int code;
+
+        Type(int code)
+        {
+            this.code = code;
+        }
+
+        int getCode()
+        {
+            return code;
+        }
+
+        static Type fromCode(int code)
+        {
+            for (Type t : values())
+            {
+                if (t.code == code)
+                {
+                    return t;
+                }
+            }
+            return null;
+        }
+    }
+}
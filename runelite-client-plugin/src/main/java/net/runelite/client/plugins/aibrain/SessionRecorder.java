@@ -0,0 +1,406 @@
+package net.runelite.client.plugins.aibrain;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Append-only recorder for snapshots, control updates, brain responses and dispatched actions.
+ *
+ * Callers only hand a string to a bounded queue; encoding, compression and file I/O happen on a
+ * single background thread, and entries are dropped (and counted) rather than ever blocking the
+ * game thread. The log is split into segments of roughly {@code segmentBytes}; whenever a segment
+ * is closed the oldest segments in the directory are deleted until the total fits {@code maxBytes}.
+ *
+ * Segment layout (big-endian):
+ * <pre>
+ * header: int magic 'AIBR', short version, long session start (epoch ms), int segment index
+ * record: int length of the rest, byte type, byte flags (bit 0 = deflated), long time (ns since start),
+ *         long seq, int raw UTF-8 length, int CRC32 of the raw bytes, payload
+ * </pre>
+ * A truncated final record (the client was killed mid-write) is simply ignored by {@link SessionLogReader}.
+ */
+@Slf4j
+final class SessionRecorder
+{
+    static final int MAGIC = 0x41494252;
+    static final short VERSION = 1;
+    static final int SEGMENT_HEADER_BYTES = 4 + 2 + 8 + 4;
+    static final int RECORD_HEADER_BYTES = 1 + 1 + 8 + 8 + 4 + 4;
+    static final int FLAG_DEFLATED = 1;
+    static final String SEGMENT_SUFFIX = ".aibr";
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final long MAX_PENDING_CHARS = 8L * 1024 * 1024;
+    private static final int BUFFER_BYTES = 256 * 1024;
+    private static final int MIN_DEFLATE_BYTES = 256;
+    private static final long IDLE_FLUSH_MS = 500;
+
+    private static final SessionRecord STOP = new SessionRecord(SessionRecord.Type.ACTION, 0, 0, "");
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long maxBytes;
+    private final long startNanos = System.nanoTime();
+    private final long startMillis = System.currentTimeMillis();
+    private final String sessionName = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(startMillis));
+
+    private final BlockingQueue<SessionRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong pendingChars = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    // Writer thread only.
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final CRC32 crc = new CRC32();
+    private byte[] deflateScratch = new byte[64 * 1024];
+    private FileChannel channel;
+    private Path currentSegment;
+    private int segmentIndex;
+    private long segmentSize;
+
+    SessionRecorder(Path directory, long segmentBytes, long maxBytes)
+    {
+        this.directory = directory;
+        this.segmentBytes = Math.max(1024 * 1024, segmentBytes);
+        this.maxBytes = Math.max(this.segmentBytes, maxBytes);
+        this.writer = new Thread(this::runWriter, "aibrain-recorder");
+        this.writer.setDaemon(true);
+    }
+
+    void start() throws IOException
+    {
+        Files.createDirectories(directory);
+        writer.start();
+        log.info("Recording AI brain session to {}", directory);
+    }
+
+    /**
+     * Queue an entry for writing. Never blocks; returns false if the entry had to be dropped.
+     */
+    boolean record(SessionRecord.Type type, long seq, String payload)
+    {
+        if (closed || payload == null)
+        {
+            return false;
+        }
+
+        long chars = payload.length();
+        if (pendingChars.addAndGet(chars) > MAX_PENDING_CHARS)
+        {
+            pendingChars.addAndGet(-chars);
+            dropped.increment();
+            return false;
+        }
+
+        if (!queue.offer(new SessionRecord(type, System.nanoTime() - startNanos, seq, payload)))
+        {
+            pendingChars.addAndGet(-chars);
+            dropped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stop accepting entries, write out what is queued and close the current segment.
+     */
+    void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+
+        // The queue may be full; keep trying briefly rather than leave the writer running.
+        try
+        {
+            if (!queue.offer(STOP, 1, TimeUnit.SECONDS))
+            {
+                writer.interrupt();
+            }
+            writer.join(5000);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long getRecorded()
+    {
+        return recorded.sum();
+    }
+
+    long getDropped()
+    {
+        return dropped.sum();
+    }
+
+    long getBytesWritten()
+    {
+        return bytesWritten.sum();
+    }
+
+    Path getDirectory()
+    {
+        return directory;
+    }
+
+    // ===== Writer thread =====
+
+    private void runWriter()
+    {
+        try
+        {
+            while (true)
+            {
+                SessionRecord entry = queue.poll(IDLE_FLUSH_MS, TimeUnit.MILLISECONDS);
+                if (entry == null)
+                {
+                    flush();
+                    continue;
+                }
+                if (entry == STOP)
+                {
+                    break;
+                }
+
+                pendingChars.addAndGet(-entry.payload().length());
+                write(entry);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (IOException e)
+        {
+            log.warn("AI brain session recording stopped after a write error", e);
+            closed = true;
+        }
+        finally
+        {
+            closeSegment();
+            deflater.end();
+            queue.clear();
+        }
+    }
+
+    private void write(SessionRecord entry) throws IOException
+    {
+        byte[] raw = entry.payload().getBytes(StandardCharsets.UTF_8);
+        crc.reset();
+        crc.update(raw, 0, raw.length);
+
+        byte[] body = raw;
+        int bodyLength = raw.length;
+        int flags = 0;
+        if (raw.length >= MIN_DEFLATE_BYTES)
+        {
+            int deflated = deflate(raw);
+            if (deflated > 0 && deflated < raw.length)
+            {
+                body = deflateScratch;
+                bodyLength = deflated;
+                flags |= FLAG_DEFLATED;
+            }
+        }
+
+        int frameLength = RECORD_HEADER_BYTES + bodyLength;
+        if (channel == null || segmentSize + 4 + frameLength > segmentBytes && segmentSize > SEGMENT_HEADER_BYTES)
+        {
+            rotate();
+        }
+
+        ensureRoom(4 + RECORD_HEADER_BYTES);
+        buffer.putInt(frameLength);
+        buffer.put((byte) entry.type().getCode());
+        buffer.put((byte) flags);
+        buffer.putLong(entry.timeNanos());
+        buffer.putLong(entry.seq());
+        buffer.putInt(raw.length);
+        buffer.putInt((int) crc.getValue());
+        put(body, bodyLength);
+
+        segmentSize += 4 + frameLength;
+        recorded.increment();
+    }
+
+    /**
+     * @return the compressed length in {@link #deflateScratch}, or -1 if it would not be smaller
+     */
+    private int deflate(byte[] raw)
+    {
+        if (deflateScratch.length < raw.length)
+        {
+            deflateScratch = new byte[Integer.highestOneBit(raw.length) << 1];
+        }
+
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int n = deflater.deflate(deflateScratch, 0, raw.length);
+        return deflater.finished() ? n : -1;
+    }
+
+    private void put(byte[] bytes, int length) throws IOException
+    {
+        if (length > buffer.capacity())
+        {
+            flush();
+            ByteBuffer direct = ByteBuffer.wrap(bytes, 0, length);
+            while (direct.hasRemaining())
+            {
+                bytesWritten.add(channel.write(direct));
+            }
+            return;
+        }
+
+        ensureRoom(length);
+        buffer.put(bytes, 0, length);
+    }
+
+    private void ensureRoom(int bytes) throws IOException
+    {
+        if (buffer.remaining() < bytes)
+        {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException
+    {
+        if (channel == null || buffer.position() == 0)
+        {
+            return;
+        }
+
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            bytesWritten.add(channel.write(buffer));
+        }
+        buffer.clear();
+    }
+
+    private void rotate() throws IOException
+    {
+        closeSegment();
+
+        segmentIndex++;
+        currentSegment = directory.resolve(String.format("session-%s-%04d%s", sessionName, segmentIndex, SEGMENT_SUFFIX));
+        channel = FileChannel.open(currentSegment,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putLong(startMillis);
+        buffer.putInt(segmentIndex);
+        segmentSize = SEGMENT_HEADER_BYTES;
+
+        pruneOldSegments();
+    }
+
+    private void closeSegment()
+    {
+        if (channel == null)
+        {
+            return;
+        }
+
+        try
+        {
+            flush();
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            log.debug("Error closing session segment {}", currentSegment, e);
+        }
+        channel = null;
+    }
+
+    /**
+     * Delete the oldest segments (by name, which sorts by session start and index) until the
+     * directory fits the disk cap. The segment being written is never deleted.
+     */
+    private void pruneOldSegments()
+    {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory))
+        {
+            files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .forEach(segments::add);
+        }
+        catch (IOException e)
+        {
+            log.debug("Unable to list session directory {}", directory, e);
+            return;
+        }
+
+        // Reserve a full segment for the one just opened.
+        long total = segmentBytes;
+        long[] sizes = new long[segments.size()];
+        for (int i = 0; i < segments.size(); i++)
+        {
+            if (segments.get(i).equals(currentSegment))
+            {
+                continue;
+            }
+            try
+            {
+                sizes[i] = Files.size(segments.get(i));
+            }
+            catch (IOException e)
+            {
+                sizes[i] = 0;
+            }
+            total += sizes[i];
+        }
+
+        for (int i = 0; i < segments.size() && total > maxBytes; i++)
+        {
+            Path p = segments.get(i);
+            if (p.equals(currentSegment))
+            {
+                continue;
+            }
+            try
+            {
+                Files.deleteIfExists(p);
+                total -= sizes[i];
+                log.debug("Deleted old session segment {}", p);
+            }
+            catch (IOException e)
+            {
+                log.debug("Unable to delete session segment {}", p, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package net.runelite.client.plugins.aibrain;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Snapshot sections that rarely change between decisions (skills, inventory, interface text),
+ * kept both as the JSON element last built and as its encoded text. Each section has a version
+ * that the events changing it bump; while it is unchanged, {@link #get} hands back the same
+ * element without touching the client, and {@link #encode} splices the cached text into the
+ * payload instead of serializing the section again.
+ *
+ * {@link #get}, {@link #invalidate} and {@link #encode} are client-thread only; the counters may be
+ * read from any thread.
+ */
+final class SnapshotSections
+{
+    enum Section
+    {
+        SKILLS("skills"),
+        INVENTORY("inventory"),
+        UI_TEXT("ui_text");
+
+        private final String key;
+
+        Section(String key)
+        {
+            this.key = key;
+        }
+
+        /**
+         * @return the section's key in the snapshot
+         */
+        String getKey()
+        {
+            return key;
+        }
+    }
+
+    private record Entry(int version, JsonElement element, String encoded)
+    {
+    }
+
+    private static final Map<String, Section> BY_KEY = new HashMap<>();
+
+    static
+    {
+        for (Section section : Section.values())
+        {
+            BY_KEY.put(section.key, section);
+        }
+    }
+
+    private final Gson gson;
+    private final Map<Section, Integer> versions = new EnumMap<>(Section.class);
+    private final Map<Section, Entry> entries = new EnumMap<>(Section.class);
+    private final Map<Section, LongAdder> reused = new EnumMap<>(Section.class);
+    private final Map<Section, LongAdder> rebuilt = new EnumMap<>(Section.class);
+
+    SnapshotSections(Gson gson)
+    {
+        this.gson = gson;
+        for (Section section : Section.values())
+        {
+            versions.put(section, 0);
+            reused.put(section, new LongAdder());
+            rebuilt.put(section, new LongAdder());
+        }
+    }
+
+    /**
+     * The section's content may have changed; the next {@link #get} rebuilds it.
+     */
+    void invalidate(Section section)
+    {
+        versions.merge(section, 1, Integer::sum);
+    }
+
+    void invalidateAll()
+    {
+        for (Section section : Section.values())
+        {
+            invalidate(section);
+        }
+    }
+
+    /**
+     * @param build reads the section from the client; called only if it changed since the last call
+     * @return the section's element, the very same instance while it is unchanged
+     */
+    JsonElement get(Section section, Supplier<JsonElement> build)
+    {
+        int version = versions.get(section);
+        Entry entry = entries.get(section);
+        if (entry != null && entry.version() == version)
+        {
+            reused.get(section).increment();
+            return entry.element();
+        }
+
+        JsonElement element = build.get();
+        entries.put(section, new Entry(version, element, null));
+        rebuilt.get(section).increment();
+        return element;
+    }
+
+    /**
+     * Serialize {@code root} as {@link Gson#toJson(JsonElement)} would, reusing the cached text of
+     * each section whose element is still the one {@link #get} returned.
+     */
+    String encode(JsonObject root)
+    {
+        StringWriter out = new StringWriter();
+        try
+        {
+            JsonWriter writer = gson.newJsonWriter(out);
+            writer.beginObject();
+            for (Map.Entry<String, JsonElement> e : root.entrySet())
+            {
+                writer.name(e.getKey());
+                String cached = encoded(e.getKey(), e.getValue());
+                if (cached != null)
+                {
+                    writer.jsonValue(cached);
+                }
+                else
+                {
+                    gson.toJson(e.getValue(), writer);
+                }
+            }
+            writer.endObject();
+            writer.flush();
+        }
+        catch (IOException e)
+        {
+            // StringWriter does not throw.
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    long getReused(Section section)
+    {
+        return reused.get(section).sum();
+    }
+
+    long getRebuilt(Section section)
+    {
+        return rebuilt.get(section).sum();
+    }
+
+    /**
+     * @return the section's encoded text if {@code value} is its cached element, else null
+     */
+    private String encoded(String key, JsonElement value)
+    {
+        Section section = BY_KEY.get(key);
+        Entry entry = section != null ? entries.get(section) : null;
+        if (entry == null || entry.element() != value)
+        {
+            return null;
+        }
+        if (entry.encoded() == null)
+        {
+            entry = new Entry(entry.version(), entry.element(), gson.toJson(entry.element()));
+            entries.put(section, entry);
+        }
+        return entry.encoded();
+    }
+}
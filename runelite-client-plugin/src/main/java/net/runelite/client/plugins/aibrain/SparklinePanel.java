@@ -0,0 +1,84 @@
+package net.runelite.client.plugins.aibrain;
+
+import javax.swing.JComponent;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+
+/**
+ * Minimal line chart of recent values, scaled to the largest one shown.
+ */
+class SparklinePanel extends JComponent
+{
+    private static final Color LINE_COLOR = new Color(0x4DA3FF);
+    private static final Color BASELINE_COLOR = new Color(255, 255, 255, 40);
+
+    private long[] values = new long[0];
+
+    SparklinePanel()
+    {
+        setPreferredSize(new Dimension(200, 36));
+        setMaximumSize(new Dimension(Integer.MAX_VALUE, 36));
+    }
+
+    void setValues(long[] values)
+    {
+        this.values = values != null ? values : new long[0];
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g)
+    {
+        super.paintComponent(g);
+
+        int w = getWidth();
+        int h = getHeight();
+        long[] v = values;
+
+        Graphics2D g2 = (Graphics2D) g.create();
+        try
+        {
+            g2.setColor(BASELINE_COLOR);
+            g2.drawLine(0, h - 1, w, h - 1);
+
+            if (v.length < 2)
+            {
+                return;
+            }
+
+            long max = 1;
+            for (long x : v)
+            {
+                max = Math.max(max, x);
+            }
+
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setStroke(new BasicStroke(1.5f));
+            g2.setColor(LINE_COLOR);
+
+            int prevX = 0;
+            int prevY = scaleY(v[0], max, h);
+            for (int i = 1; i < v.length; i++)
+            {
+                int x = (int) ((long) i * (w - 1) / (v.length - 1));
+                int y = scaleY(v[i], max, h);
+                g2.drawLine(prevX, prevY, x, y);
+                prevX = x;
+                prevY = y;
+            }
+        }
+        finally
+        {
+            g2.dispose();
+        }
+    }
+
+    private static int scaleY(long value, long max, int height)
+    {
+        return (height - 2) - (int) (value * (height - 4) / max);
+    }
+}
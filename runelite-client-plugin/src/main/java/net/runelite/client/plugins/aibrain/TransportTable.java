@@ -0,0 +1,94 @@
+package net.runelite.client.plugins.aibrain;
+
+import net.runelite.api.coords.WorldPoint;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Doors, stairs, ladders and boats: the ways between areas that walking alone does not connect.
+ * Read from the bundled {@code transports.tsv}; see that file for the column layout.
+ */
+final class TransportTable
+{
+    enum Type
+    {
+        DOOR,
+        STAIRS,
+        LADDER,
+        BOAT
+    }
+
+    /**
+     * @param from the object's tile, or where the NPC offering the trip stands
+     * @param to where the player ends up
+     * @param ticks rough time the transport takes, used as its cost when routing
+     * @param target object or NPC name to interact with
+     * @param option menu option that uses it
+     */
+    record Transport(Type type, WorldPoint from, WorldPoint to, int ticks, String target, String option)
+    {
+    }
+
+    private static final String RESOURCE = "transports.tsv";
+
+    private TransportTable()
+    {
+    }
+
+    static List<Transport> loadBundled() throws IOException
+    {
+        try (InputStream in = TransportTable.class.getResourceAsStream(RESOURCE))
+        {
+            if (in == null)
+            {
+                throw new IOException(RESOURCE + " is missing from the plugin jar");
+            }
+            return parse(in);
+        }
+    }
+
+    static List<Transport> parse(InputStream in) throws IOException
+    {
+        List<Transport> transports = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null)
+        {
+            lineNo++;
+            if (line.isBlank() || line.startsWith("#"))
+            {
+                continue;
+            }
+
+            String[] cols = line.split("\t");
+            if (cols.length != 10)
+            {
+                throw new IOException(RESOURCE + ":" + lineNo + ": expected 10 columns, found " + cols.length);
+            }
+
+            try
+            {
+                transports.add(new Transport(
+                        Type.valueOf(cols[0]),
+                        new WorldPoint(Integer.parseInt(cols[1]), Integer.parseInt(cols[2]), Integer.parseInt(cols[3])),
+                        new WorldPoint(Integer.parseInt(cols[4]), Integer.parseInt(cols[5]), Integer.parseInt(cols[6])),
+                        Integer.parseInt(cols[7]),
+                        cols[8],
+                        cols[9]));
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new IOException(RESOURCE + ":" + lineNo + ": " + e.getMessage(), e);
+            }
+        }
+        return Collections.unmodifiableList(transports);
+    }
+}
@@ -0,0 +1,467 @@
+package net.runelite.client.plugins.aibrain;
+
+import net.runelite.api.coords.WorldPoint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Long-distance routes over the graph written by {@link TravelGraphBuilder}, read straight from a
+ * memory-mapped file: opening it costs nothing up front and only the pages a query touches are
+ * loaded. Queries are A* with the landmark (ALT) lower bound, which settles a band of nodes between
+ * the two ends rather than everything within range of the start; a cross-map trip takes a few hundred
+ * microseconds.
+ *
+ * <pre>
+ * header    magic, version, nodes, edges, landmarks, regions, transports, reserved   (8 ints)
+ * nodes     packed tile of each node's representative                                (nodes ints)
+ * offsets   first edge of each node, plus the end                                    (nodes + 1 ints)
+ * edges     target node, weight, transport index or -1                               (3 ints each)
+ * landmarks node ids, then per node the distance from each landmark and to each      (ints)
+ * regions   sorted region ids, each region's 64 cell base node ids, its tile labels  (ints, bytes)
+ * transports type, from, to, ticks, target, option                                    (variable)
+ * </pre>
+ */
+final class TravelGraph
+{
+    static final int MAGIC = 0x41495447;
+    static final int VERSION = 1;
+    static final int UNREACHABLE = Integer.MAX_VALUE / 4;
+
+    static final int CELL_SIZE = 16;
+    static final int CELLS_PER_SIDE = CollisionCache.REGION_SIZE / CELL_SIZE;
+    static final int CELLS_PER_REGION = CELLS_PER_SIDE * CELLS_PER_SIDE * CollisionCache.PLANES;
+    static final int REGION_TILES = CollisionCache.REGION_SIZE * CollisionCache.REGION_SIZE * CollisionCache.PLANES;
+
+    /** Walking waypoints are thinned to about this spacing; each leg is then planned tile by tile. */
+    private static final int LEG_TILES = 48;
+    private static final int SNAP_RADIUS = 3;
+    private static final int HEADER_BYTES = 32;
+    private static final int H_SHIFT = 24;
+    private static final int F_SHIFT = 44;
+    private static final long NODE_MASK = (1L << H_SHIFT) - 1;
+    private static final long H_MASK = (1L << (F_SHIFT - H_SHIFT)) - 1;
+
+    /**
+     * One leg of a route: walk to {@code walkTo}, or use {@code transport}.
+     */
+    record Step(WorldPoint walkTo, TransportTable.Transport transport)
+    {
+    }
+
+    record Route(List<Step> steps, int cost)
+    {
+    }
+
+    private final ByteBuffer buf;
+    private final int nodeCount;
+    private final int landmarkCount;
+    private final int regionCount;
+    private final int nodesAt;
+    private final int offsetsAt;
+    private final int edgesAt;
+    private final int landmarksAt;
+    private final int distancesAt;
+    private final int regionIdsAt;
+    private final int cellBasesAt;
+    private final int labelsAt;
+    private final List<TransportTable.Transport> transports;
+
+    private int[] cost;
+    private int[] parentEdge;
+    private int[] estimate;
+    private int[] visitedIn;
+    private int generation;
+    private final int[] targetFrom;
+    private final int[] targetTo;
+    private final LongHeap open = new LongHeap();
+
+    private TravelGraph(ByteBuffer buf) throws IOException
+    {
+        this.buf = buf;
+        if (buf.capacity() < HEADER_BYTES || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION)
+        {
+            throw new IOException("not a travel graph of this version");
+        }
+
+        nodeCount = buf.getInt(8);
+        int edgeCount = buf.getInt(12);
+        landmarkCount = buf.getInt(16);
+        targetFrom = new int[landmarkCount];
+        targetTo = new int[landmarkCount];
+        regionCount = buf.getInt(20);
+        int transportCount = buf.getInt(24);
+
+        nodesAt = HEADER_BYTES;
+        offsetsAt = nodesAt + 4 * nodeCount;
+        edgesAt = offsetsAt + 4 * (nodeCount + 1);
+        landmarksAt = edgesAt + 12 * edgeCount;
+        distancesAt = landmarksAt + 4 * landmarkCount;
+        regionIdsAt = distancesAt + 8 * landmarkCount * nodeCount;
+        cellBasesAt = regionIdsAt + 4 * regionCount;
+        labelsAt = cellBasesAt + 4 * CELLS_PER_REGION * regionCount;
+        transports = readTransports(labelsAt + REGION_TILES * regionCount, transportCount);
+    }
+
+    /**
+     * Map {@code file} read-only. The mapping outlives the channel, which is closed straight away.
+     */
+    static TravelGraph open(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try
+            {
+                return new TravelGraph(mapped);
+            }
+            catch (IndexOutOfBoundsException e)
+            {
+                throw new IOException(file + " is truncated", e);
+            }
+            catch (IOException e)
+            {
+                throw new IOException(file + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    int getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    /**
+     * @return the cheapest known route, or null if either end is outside explored areas or the two
+     * are not connected
+     */
+    synchronized Route route(WorldPoint from, WorldPoint to)
+    {
+        int source = nodeNear(from);
+        int target = nodeNear(to);
+        if (source < 0 || target < 0)
+        {
+            return null;
+        }
+
+        int targetAt = distancesAt + 8 * landmarkCount * target;
+        for (int l = 0; l < landmarkCount; l++)
+        {
+            targetFrom[l] = buf.getInt(targetAt + 4 * l);
+            targetTo[l] = buf.getInt(targetAt + 4 * (landmarkCount + l));
+        }
+
+        if (cost == null)
+        {
+            cost = new int[nodeCount];
+            parentEdge = new int[nodeCount];
+            estimate = new int[nodeCount];
+            visitedIn = new int[nodeCount];
+        }
+        if (++generation == 0)
+        {
+            Arrays.fill(visitedIn, 0);
+            generation = 1;
+        }
+        open.clear();
+
+        visitedIn[source] = generation;
+        cost[source] = 0;
+        parentEdge[source] = -1;
+        estimate[source] = heuristic(source);
+        open.add(entry(estimate[source], estimate[source], source));
+
+        while (!open.isEmpty())
+        {
+            long e = open.poll();
+            int v = (int) (e & NODE_MASK);
+            int g = cost[v];
+            if ((int) (e >>> F_SHIFT) > g + estimate[v])
+            {
+                // Stale entry; a cheaper route to this node was queued later.
+                continue;
+            }
+            if (v == target)
+            {
+                return buildRoute(source, target, to);
+            }
+
+            int end = buf.getInt(offsetsAt + 4 * (v + 1));
+            for (int edge = buf.getInt(offsetsAt + 4 * v); edge < end; edge++)
+            {
+                int at = edgesAt + 12 * edge;
+                int w = buf.getInt(at);
+                int ng = g + buf.getInt(at + 4);
+                if (visitedIn[w] == generation && cost[w] <= ng)
+                {
+                    continue;
+                }
+                if (visitedIn[w] != generation)
+                {
+                    visitedIn[w] = generation;
+                    estimate[w] = heuristic(w);
+                }
+                cost[w] = ng;
+                parentEdge[w] = edge;
+                if (estimate[w] < UNREACHABLE)
+                {
+                    open.add(entry(ng + estimate[w], estimate[w], w));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Queue key: f, then h, then node. Many nodes tie on f; taking the one nearest the target first
+     * runs down one shortest path instead of settling all of them.
+     */
+    private static long entry(int f, int h, int node)
+    {
+        return ((long) f << F_SHIFT) | (Math.min(h, H_MASK) << H_SHIFT) | node;
+    }
+
+    /**
+     * ALT lower bound from the triangle inequality: for every landmark L, d(v,t) >= d(L,t) - d(L,v)
+     * and d(v,t) >= d(v,L) - d(t,L). Returns {@link #UNREACHABLE} when a landmark proves there is no
+     * path.
+     */
+    private int heuristic(int v)
+    {
+        int best = 0;
+        int at = distancesAt + 8 * landmarkCount * v;
+        for (int l = 0; l < landmarkCount; l++)
+        {
+            int lv = buf.getInt(at + 4 * l);
+            int vl = buf.getInt(at + 4 * (landmarkCount + l));
+            int lt = targetFrom[l];
+            int tl = targetTo[l];
+
+            if (lv < UNREACHABLE && lt < UNREACHABLE)
+            {
+                best = Math.max(best, lt - lv);
+            }
+            else if (lv < UNREACHABLE)
+            {
+                // L reaches v but not t, so neither can v.
+                return UNREACHABLE;
+            }
+            if (vl < UNREACHABLE && tl < UNREACHABLE)
+            {
+                best = Math.max(best, vl - tl);
+            }
+            else if (tl < UNREACHABLE)
+            {
+                // t reaches L but v does not, so v cannot reach t.
+                return UNREACHABLE;
+            }
+        }
+        return best;
+    }
+
+    private Route buildRoute(int source, int target, WorldPoint destination)
+    {
+        List<Integer> edges = new ArrayList<>();
+        for (int v = target; v != source; )
+        {
+            int edge = parentEdge[v];
+            edges.add(edge);
+            v = edgeSource(edge);
+        }
+        Collections.reverse(edges);
+
+        // Keep a walking waypoint only when skipping it would make a leg longer than LEG_TILES.
+        List<Step> steps = new ArrayList<>();
+        WorldPoint anchor = unpack(buf.getInt(nodesAt + 4 * source));
+        WorldPoint pending = null;
+        for (int edge : edges)
+        {
+            int transport = buf.getInt(edgesAt + 12 * edge + 8);
+            WorldPoint next = transport >= 0
+                    ? transports.get(transport).from()
+                    : unpack(buf.getInt(nodesAt + 4 * buf.getInt(edgesAt + 12 * edge)));
+
+            if (pending != null && anchor.distanceTo2D(next) > LEG_TILES)
+            {
+                steps.add(new Step(pending, null));
+                anchor = pending;
+            }
+
+            if (transport >= 0)
+            {
+                TransportTable.Transport t = transports.get(transport);
+                steps.add(new Step(t.from(), null));
+                steps.add(new Step(null, t));
+                anchor = t.to();
+                pending = null;
+            }
+            else
+            {
+                pending = next;
+            }
+        }
+        if (pending != null && anchor.distanceTo2D(destination) > LEG_TILES)
+        {
+            steps.add(new Step(pending, null));
+        }
+        steps.add(new Step(destination, null));
+        return new Route(Collections.unmodifiableList(steps), cost[target]);
+    }
+
+    private int edgeSource(int edge)
+    {
+        // Offsets are ascending, so the node owning an edge is found by binary search.
+        int lo = 0;
+        int hi = nodeCount - 1;
+        while (lo < hi)
+        {
+            int mid = (lo + hi + 1) >>> 1;
+            if (buf.getInt(offsetsAt + 4 * mid) <= edge)
+            {
+                lo = mid;
+            }
+            else
+            {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * The node of the tile, or of the closest tile with one within {@link #SNAP_RADIUS}: targets are
+     * often objects or NPCs standing on tiles the collision map has as blocked.
+     */
+    private int nodeNear(WorldPoint p)
+    {
+        for (int r = 0; r <= SNAP_RADIUS; r++)
+        {
+            for (int dx = -r; dx <= r; dx++)
+            {
+                for (int dy = -r; dy <= r; dy++)
+                {
+                    if (Math.max(Math.abs(dx), Math.abs(dy)) != r)
+                    {
+                        continue;
+                    }
+                    int node = nodeAt(p.getX() + dx, p.getY() + dy, p.getPlane());
+                    if (node >= 0)
+                    {
+                        return node;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private int nodeAt(int x, int y, int plane)
+    {
+        if (plane < 0 || plane >= CollisionCache.PLANES)
+        {
+            return -1;
+        }
+
+        int region = findRegion(CollisionCache.regionId(x, y));
+        if (region < 0)
+        {
+            return -1;
+        }
+
+        int lx = x & (CollisionCache.REGION_SIZE - 1);
+        int ly = y & (CollisionCache.REGION_SIZE - 1);
+        int label = buf.get(labelsAt + REGION_TILES * region + tileIndex(plane, lx, ly)) & 0xFF;
+        if (label == 0)
+        {
+            return -1;
+        }
+        return buf.getInt(cellBasesAt + 4 * (CELLS_PER_REGION * region + cellIndex(plane, lx, ly))) + label - 1;
+    }
+
+    private int findRegion(int regionId)
+    {
+        int lo = 0;
+        int hi = regionCount - 1;
+        while (lo <= hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            int id = buf.getInt(regionIdsAt + 4 * mid);
+            if (id < regionId)
+            {
+                lo = mid + 1;
+            }
+            else if (id > regionId)
+            {
+                hi = mid - 1;
+            }
+            else
+            {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private List<TransportTable.Transport> readTransports(int at, int count)
+    {
+        ByteBuffer in = buf.duplicate();
+        in.position(at);
+        List<TransportTable.Transport> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            TransportTable.Type type = TransportTable.Type.values()[in.get()];
+            WorldPoint from = unpack(in.getInt());
+            WorldPoint to = unpack(in.getInt());
+            int ticks = in.getInt();
+            list.add(new TransportTable.Transport(type, from, to, ticks, readUtf(in), readUtf(in)));
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    private static String readUtf(ByteBuffer in)
+    {
+        // Written with DataOutputStream.writeUTF; the names are plain ASCII, where modified UTF-8 is UTF-8.
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int tileIndex(int plane, int lx, int ly)
+    {
+        return (plane * CollisionCache.REGION_SIZE + lx) * CollisionCache.REGION_SIZE + ly;
+    }
+
+    static int cellIndex(int plane, int lx, int ly)
+    {
+        return (plane * CELLS_PER_SIDE + lx / CELL_SIZE) * CELLS_PER_SIDE + ly / CELL_SIZE;
+    }
+
+    static int pack(int x, int y, int plane)
+    {
+        return (plane << 30) | (x << 15) | y;
+    }
+
+    static int unpackX(int packed)
+    {
+        return (packed >>> 15) & 0x7FFF;
+    }
+
+    static int unpackY(int packed)
+    {
+        return packed & 0x7FFF;
+    }
+
+    static WorldPoint unpack(int packed)
+    {
+        return new WorldPoint(unpackX(packed), unpackY(packed), packed >>> 30);
+    }
+}
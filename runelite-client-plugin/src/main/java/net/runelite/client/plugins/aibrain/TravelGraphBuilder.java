@@ -0,0 +1,468 @@
+package net.runelite.client.plugins.aibrain;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.coords.WorldPoint;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Turns the {@link CollisionCache} and the {@link TransportTable} into the file {@link TravelGraph}
+ * maps. Nodes are the connected walkable areas inside each 16x16 cell of every captured region;
+ * neighbouring nodes are joined by walking edges, and transports add directed edges between the
+ * nodes they leave from and arrive at. For the landmark (ALT) heuristic, shortest distances from and
+ * to a set of landmarks spread across the graph by farthest-point selection are stored per node.
+ *
+ * Building touches every captured tile and runs a few dozen Dijkstra searches, so it belongs on a
+ * background thread, where it takes a second or two for the whole free-to-play map.
+ */
+@Slf4j
+final class TravelGraphBuilder
+{
+    private static final int MAX_LANDMARKS = 16;
+    private static final int[] NEAR_DX = {0, 1, 0, -1, 1, 1, -1, -1};
+    private static final int[] NEAR_DY = {1, 0, -1, 0, 1, -1, -1, 1};
+
+    private final CollisionCache collision;
+    private final List<TransportTable.Transport> transports;
+
+    private final Map<Integer, byte[]> labels = new HashMap<>();
+    private final Map<Integer, int[]> cellBases = new HashMap<>();
+    private final List<Integer> nodeTiles = new ArrayList<>();
+    private final List<List<int[]>> adjacency = new ArrayList<>();
+    private final Set<Long> walkEdges = new HashSet<>();
+    private int edgeCount;
+    private int skippedTransports;
+
+    TravelGraphBuilder(CollisionCache collision, List<TransportTable.Transport> transports)
+    {
+        this.collision = collision;
+        this.transports = transports;
+    }
+
+    /**
+     * Build the graph and write it to {@code out}, replacing any previous file atomically.
+     */
+    void write(Path out) throws IOException
+    {
+        long started = System.nanoTime();
+        List<Integer> regionIds = collision.getRegionIds();
+        Collections.sort(regionIds);
+
+        for (int regionId : regionIds)
+        {
+            labelRegion(regionId);
+        }
+        for (int regionId : regionIds)
+        {
+            connectRegion(regionId);
+        }
+        for (int i = 0; i < transports.size(); i++)
+        {
+            connectTransport(i, transports.get(i));
+        }
+
+        int n = nodeTiles.size();
+        int[] landmarks = pickLandmarks(Math.min(MAX_LANDMARKS, n));
+        int[][] fromLandmark = new int[landmarks.length][];
+        int[][] toLandmark = new int[landmarks.length][];
+        List<List<int[]>> reverse = reverseAdjacency();
+        for (int i = 0; i < landmarks.length; i++)
+        {
+            fromLandmark[i] = dijkstra(adjacency, landmarks[i]);
+            toLandmark[i] = dijkstra(reverse, landmarks[i]);
+        }
+
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        Files.createDirectories(out.toAbsolutePath().getParent());
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 256 * 1024)))
+        {
+            writeTo(dos, regionIds, landmarks, fromLandmark, toLandmark);
+        }
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        log.debug("Built travel graph: {} regions, {} nodes, {} edges, {} landmarks, {} transports skipped (unexplored) in {} ms",
+                regionIds.size(), n, edgeCount, landmarks.length, skippedTransports, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Flood-fill every cell of the region, giving each connected walkable area its own node.
+     */
+    private void labelRegion(int regionId)
+    {
+        byte[] regionLabels = new byte[TravelGraph.REGION_TILES];
+        int[] bases = new int[TravelGraph.CELLS_PER_REGION];
+        int baseX = (regionId >> 8) << 6;
+        int baseY = (regionId & 0xFF) << 6;
+        int[] stack = new int[TravelGraph.CELL_SIZE * TravelGraph.CELL_SIZE];
+
+        for (int plane = 0; plane < CollisionCache.PLANES; plane++)
+        {
+            for (int cx = 0; cx < TravelGraph.CELLS_PER_SIDE; cx++)
+            {
+                for (int cy = 0; cy < TravelGraph.CELLS_PER_SIDE; cy++)
+                {
+                    int cell = TravelGraph.cellIndex(plane, cx * TravelGraph.CELL_SIZE, cy * TravelGraph.CELL_SIZE);
+                    bases[cell] = nodeTiles.size();
+                    int label = 0;
+
+                    for (int lx = cx * TravelGraph.CELL_SIZE; lx < (cx + 1) * TravelGraph.CELL_SIZE; lx++)
+                    {
+                        for (int ly = cy * TravelGraph.CELL_SIZE; ly < (cy + 1) * TravelGraph.CELL_SIZE; ly++)
+                        {
+                            int idx = TravelGraph.tileIndex(plane, lx, ly);
+                            if (regionLabels[idx] != 0 || !walkable(baseX + lx, baseY + ly, plane))
+                            {
+                                continue;
+                            }
+
+                            label++;
+                            fillComponent(regionLabels, stack, baseX, baseY, plane, cx, cy, lx, ly, (byte) label);
+                        }
+                    }
+                }
+            }
+        }
+
+        labels.put(regionId, regionLabels);
+        cellBases.put(regionId, bases);
+    }
+
+    private void fillComponent(byte[] regionLabels, int[] stack, int baseX, int baseY, int plane,
+                               int cx, int cy, int startX, int startY, byte label)
+    {
+        int minX = cx * TravelGraph.CELL_SIZE;
+        int minY = cy * TravelGraph.CELL_SIZE;
+        int size = 0;
+        int top = 0;
+        long sumX = 0;
+        long sumY = 0;
+        List<Integer> members = new ArrayList<>();
+
+        stack[top++] = (startX << 8) | startY;
+        regionLabels[TravelGraph.tileIndex(plane, startX, startY)] = label;
+        while (top > 0)
+        {
+            int t = stack[--top];
+            int lx = t >> 8;
+            int ly = t & 0xFF;
+            members.add(t);
+            sumX += lx;
+            sumY += ly;
+            size++;
+
+            for (int d = 0; d < 4; d++)
+            {
+                int nx = lx + NEAR_DX[d];
+                int ny = ly + NEAR_DY[d];
+                if (nx < minX || ny < minY || nx >= minX + TravelGraph.CELL_SIZE || ny >= minY + TravelGraph.CELL_SIZE)
+                {
+                    continue;
+                }
+                int nIdx = TravelGraph.tileIndex(plane, nx, ny);
+                if (regionLabels[nIdx] != 0 || !canStep(baseX + lx, baseY + ly, plane, NEAR_DX[d], NEAR_DY[d]))
+                {
+                    continue;
+                }
+                regionLabels[nIdx] = label;
+                stack[top++] = (nx << 8) | ny;
+            }
+        }
+
+        // The member nearest the centroid stands for the node; it is always walkable, unlike the centroid.
+        double centerX = (double) sumX / size;
+        double centerY = (double) sumY / size;
+        int best = members.get(0);
+        double bestDist = Double.MAX_VALUE;
+        for (int t : members)
+        {
+            double dist = Math.pow((t >> 8) - centerX, 2) + Math.pow((t & 0xFF) - centerY, 2);
+            if (dist < bestDist)
+            {
+                bestDist = dist;
+                best = t;
+            }
+        }
+
+        nodeTiles.add(TravelGraph.pack(baseX + (best >> 8), baseY + (best & 0xFF), plane));
+        adjacency.add(new ArrayList<>());
+    }
+
+    /**
+     * Join each node to the nodes of the tiles east, north-east, north and south-east of its own,
+     * inside and across regions. Diagonal edges matter: without them the graph measures Manhattan
+     * distance, every node between two ends lies on some shortest path and no heuristic can prune.
+     */
+    private void connectRegion(int regionId)
+    {
+        int baseX = (regionId >> 8) << 6;
+        int baseY = (regionId & 0xFF) << 6;
+        for (int plane = 0; plane < CollisionCache.PLANES; plane++)
+        {
+            for (int lx = 0; lx < CollisionCache.REGION_SIZE; lx++)
+            {
+                for (int ly = 0; ly < CollisionCache.REGION_SIZE; ly++)
+                {
+                    int a = nodeAt(baseX + lx, baseY + ly, plane);
+                    if (a < 0)
+                    {
+                        continue;
+                    }
+                    connectWalk(a, baseX + lx, baseY + ly, plane, 1, 0);
+                    connectWalk(a, baseX + lx, baseY + ly, plane, 1, 1);
+                    connectWalk(a, baseX + lx, baseY + ly, plane, 0, 1);
+                    connectWalk(a, baseX + lx, baseY + ly, plane, 1, -1);
+                }
+            }
+        }
+    }
+
+    private void connectWalk(int a, int x, int y, int plane, int dx, int dy)
+    {
+        int b = nodeAt(x + dx, y + dy, plane);
+        if (b < 0 || b == a || !canStep(x, y, plane, dx, dy))
+        {
+            return;
+        }
+
+        long key = a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+        if (!walkEdges.add(key))
+        {
+            return;
+        }
+
+        int weight = Math.max(1, chebyshev(nodeTiles.get(a), nodeTiles.get(b)));
+        adjacency.get(a).add(new int[]{b, weight, -1});
+        adjacency.get(b).add(new int[]{a, weight, -1});
+        edgeCount += 2;
+    }
+
+    private void connectTransport(int index, TransportTable.Transport transport)
+    {
+        int a = nodeNear(transport.from());
+        int b = nodeNear(transport.to());
+        if (a < 0 || b < 0)
+        {
+            skippedTransports++;
+            return;
+        }
+        adjacency.get(a).add(new int[]{b, Math.max(1, transport.ticks()), index});
+        edgeCount++;
+    }
+
+    /**
+     * The node of the tile, or of a walkable neighbour when the tile itself holds the object.
+     */
+    private int nodeNear(WorldPoint p)
+    {
+        int node = nodeAt(p.getX(), p.getY(), p.getPlane());
+        for (int d = 0; node < 0 && d < NEAR_DX.length; d++)
+        {
+            node = nodeAt(p.getX() + NEAR_DX[d], p.getY() + NEAR_DY[d], p.getPlane());
+        }
+        return node;
+    }
+
+    private int nodeAt(int x, int y, int plane)
+    {
+        int regionId = CollisionCache.regionId(x, y);
+        byte[] regionLabels = labels.get(regionId);
+        if (regionLabels == null)
+        {
+            return -1;
+        }
+        int lx = x & (CollisionCache.REGION_SIZE - 1);
+        int ly = y & (CollisionCache.REGION_SIZE - 1);
+        int label = regionLabels[TravelGraph.tileIndex(plane, lx, ly)] & 0xFF;
+        return label == 0 ? -1 : cellBases.get(regionId)[TravelGraph.cellIndex(plane, lx, ly)] + label - 1;
+    }
+
+    private boolean walkable(int x, int y, int plane)
+    {
+        byte f = collision.getFlags(x, y, plane);
+        return (f & CollisionCache.KNOWN) != 0 && (f & CollisionCache.FULL) == 0;
+    }
+
+    private boolean canStep(int x, int y, int plane, int dx, int dy)
+    {
+        return walkable(x + dx, y + dy, plane) && collision.canMove(x, y, plane, dx, dy);
+    }
+
+    /**
+     * Farthest-point landmark selection: each new landmark is the node farthest from all chosen so far.
+     * Nodes another landmark cannot reach count as infinitely far, so separate islands get their own.
+     */
+    private int[] pickLandmarks(int count)
+    {
+        int n = nodeTiles.size();
+        int[] picked = new int[count];
+        if (count == 0)
+        {
+            return picked;
+        }
+
+        int[] nearest = new int[n];
+        Arrays.fill(nearest, Integer.MAX_VALUE);
+        int next = 0;
+        for (int i = 0; i < count; i++)
+        {
+            picked[i] = next;
+            int[] dist = dijkstra(adjacency, next);
+            int best = -1;
+            for (int v = 0; v < n; v++)
+            {
+                nearest[v] = Math.min(nearest[v], dist[v]);
+                if (best < 0 || nearest[v] > nearest[best])
+                {
+                    best = v;
+                }
+            }
+            next = best;
+        }
+        return picked;
+    }
+
+    private List<List<int[]>> reverseAdjacency()
+    {
+        List<List<int[]>> reverse = new ArrayList<>(adjacency.size());
+        for (int i = 0; i < adjacency.size(); i++)
+        {
+            reverse.add(new ArrayList<>());
+        }
+        for (int a = 0; a < adjacency.size(); a++)
+        {
+            for (int[] e : adjacency.get(a))
+            {
+                reverse.get(e[0]).add(new int[]{a, e[1], e[2]});
+            }
+        }
+        return reverse;
+    }
+
+    private static int[] dijkstra(List<List<int[]>> graph, int source)
+    {
+        int[] dist = new int[graph.size()];
+        Arrays.fill(dist, TravelGraph.UNREACHABLE);
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        dist[source] = 0;
+        queue.add((long) source);
+        while (!queue.isEmpty())
+        {
+            long e = queue.poll();
+            int v = (int) e;
+            int d = (int) (e >>> 32);
+            if (d > dist[v])
+            {
+                continue;
+            }
+            for (int[] edge : graph.get(v))
+            {
+                int nd = d + edge[1];
+                if (nd < dist[edge[0]])
+                {
+                    dist[edge[0]] = nd;
+                    queue.add(((long) nd << 32) | edge[0]);
+                }
+            }
+        }
+        return dist;
+    }
+
+    private void writeTo(DataOutputStream out, List<Integer> regionIds, int[] landmarks,
+                         int[][] fromLandmark, int[][] toLandmark) throws IOException
+    {
+        int n = nodeTiles.size();
+        out.writeInt(TravelGraph.MAGIC);
+        out.writeInt(TravelGraph.VERSION);
+        out.writeInt(n);
+        out.writeInt(edgeCount);
+        out.writeInt(landmarks.length);
+        out.writeInt(regionIds.size());
+        out.writeInt(transports.size());
+        out.writeInt(0);
+
+        for (int tile : nodeTiles)
+        {
+            out.writeInt(tile);
+        }
+
+        int offset = 0;
+        for (List<int[]> edges : adjacency)
+        {
+            out.writeInt(offset);
+            offset += edges.size();
+        }
+        out.writeInt(offset);
+        for (List<int[]> edges : adjacency)
+        {
+            for (int[] e : edges)
+            {
+                out.writeInt(e[0]);
+                out.writeInt(e[1]);
+                out.writeInt(e[2]);
+            }
+        }
+
+        for (int landmark : landmarks)
+        {
+            out.writeInt(landmark);
+        }
+        // Node-major, so the heuristic for one node reads a single contiguous run.
+        for (int v = 0; v < n; v++)
+        {
+            for (int[] dist : fromLandmark)
+            {
+                out.writeInt(dist[v]);
+            }
+            for (int[] dist : toLandmark)
+            {
+                out.writeInt(dist[v]);
+            }
+        }
+
+        for (int regionId : regionIds)
+        {
+            out.writeInt(regionId);
+        }
+        for (int regionId : regionIds)
+        {
+            for (int base : cellBases.get(regionId))
+            {
+                out.writeInt(base);
+            }
+        }
+        for (int regionId : regionIds)
+        {
+            out.write(labels.get(regionId));
+        }
+
+        for (TransportTable.Transport t : transports)
+        {
+            out.writeByte(t.type().ordinal());
+            out.writeInt(TravelGraph.pack(t.from().getX(), t.from().getY(), t.from().getPlane()));
+            out.writeInt(TravelGraph.pack(t.to().getX(), t.to().getY(), t.to().getPlane()));
+            out.writeInt(t.ticks());
+            out.writeUTF(t.target());
+            out.writeUTF(t.option());
+        }
+    }
+
+    private static int chebyshev(int a, int b)
+    {
+        return Math.max(Math.abs(TravelGraph.unpackX(a) - TravelGraph.unpackX(b)),
+                Math.abs(TravelGraph.unpackY(a) - TravelGraph.unpackY(b)));
+    }
+}
@@ -0,0 +1,243 @@
+package net.runelite.client.plugins.aibrain;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Conditions the brain asks to hear about between decisions, e.g. "no free inventory slot left"
+ * or "HP below 10". Each /decide response replaces the set. The plugin checks it every game tick
+ * against state it already keeps. When a watch trips, the brain is asked again at once instead of
+ * at the next scheduled decision; a watch marked {@code abort} also drops whatever plan is running
+ * (queued actions, walk, loop, dialog script) first.
+ *
+ * A watch trips when its condition starts to hold. The starting point is the snapshot the brain
+ * answered, not the tick the response arrived on, so a condition that came true during the round
+ * trip trips on the first check; one the brain already saw holding waits until it has stopped. The
+ * whole set disarms when any watch trips, since the brain registers a new one with its next response.
+ *
+ * Client thread only, except {@link #size}.
+ */
+final class WatchSet
+{
+    static final int MAX_WATCHES = 8;
+
+    enum Type
+    {
+        /** At most {@code count} free inventory slots. */
+        INVENTORY_FREE_SLOTS("inventory_free_slots"),
+        /** A chatbox dialog is open. */
+        DIALOG_OPENED("dialog_opened"),
+        /** Current (boosted) hitpoints below {@code count}. */
+        HP_BELOW("hp_below"),
+        /** An NPC called {@code name} within {@code count} tiles. */
+        NPC_WITHIN("npc_within");
+
+        private final String wireName;
+
+        Type(String wireName)
+        {
+            this.wireName = wireName;
+        }
+
+        String getWireName()
+        {
+            return wireName;
+        }
+
+        /**
+         * @return the matching type (case-insensitive), or null
+         */
+        static Type fromWireName(String name)
+        {
+            String wanted = name.trim().toLowerCase(Locale.ROOT);
+            for (Type type : values())
+            {
+                if (type.wireName.equals(wanted))
+                {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    enum OnTrip
+    {
+        /** Ask the brain now; anything already running carries on until it answers. */
+        DECIDE("decide"),
+        /** Drop the running plan, then ask the brain. */
+        ABORT("abort");
+
+        private final String wireName;
+
+        OnTrip(String wireName)
+        {
+            this.wireName = wireName;
+        }
+
+        String getWireName()
+        {
+            return wireName;
+        }
+
+        /**
+         * @return the matching value (case-insensitive), or null
+         */
+        static OnTrip fromWireName(String name)
+        {
+            String wanted = name.trim().toLowerCase(Locale.ROOT);
+            for (OnTrip then : values())
+            {
+                if (then.wireName.equals(wanted))
+                {
+                    return then;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @param id the brain's label for the watch, reported back when it trips
+     */
+    record Watch(String id, Type type, String name, int count, OnTrip then)
+    {
+    }
+
+    record Trip(Watch watch, int tick)
+    {
+    }
+
+    /**
+     * Watches from a response, with what the snapshot behind it showed.
+     *
+     * @param seen null if unknown, in which case the first check only records what holds
+     */
+    record Pending(List<Watch> watches, Seen seen)
+    {
+    }
+
+    /**
+     * What the watches are checked against.
+     */
+    interface Game
+    {
+        int freeInventorySlots();
+
+        boolean isDialogOpen();
+
+        int hitpoints();
+
+        /**
+         * @return tiles to the nearest NPC called {@code name} on the player's plane, or -1 if none
+         */
+        int npcDistance(String name);
+    }
+
+    /**
+     * The watched state as a snapshot showed it.
+     *
+     * @param npcDistances tiles to the nearest NPC of each (lower-case) name
+     */
+    record Seen(int freeInventorySlots, boolean isDialogOpen, int hitpoints, Map<String, Integer> npcDistances)
+            implements Game
+    {
+        @Override
+        public int npcDistance(String name)
+        {
+            return npcDistances.getOrDefault(name.toLowerCase(Locale.ROOT), -1);
+        }
+    }
+
+    private volatile List<Watch> watches = List.of();
+    // Whether each watch held on the last check; a watch trips only on a change to true.
+    private boolean[] held = new boolean[0];
+    private boolean primed;
+
+    /**
+     * Replace the set, counting a watch as already holding if it held in {@code seen}; with no
+     * {@code seen}, the first {@link #check} only records which watches already hold.
+     */
+    void arm(List<Watch> watches, Game seen)
+    {
+        this.watches = List.copyOf(watches);
+        held = new boolean[watches.size()];
+        if (seen != null)
+        {
+            for (int i = 0; i < held.length; i++)
+            {
+                held[i] = holds(watches.get(i), seen);
+            }
+        }
+        primed = seen != null;
+    }
+
+    void clear()
+    {
+        arm(List.of(), null);
+    }
+
+    /**
+     * Check every watch once.
+     *
+     * @return the first watch that started to hold this tick, or null; the set is then disarmed
+     */
+    Trip check(int tick, Game game)
+    {
+        List<Watch> armed = watches;
+        if (armed.isEmpty())
+        {
+            return null;
+        }
+
+        Trip trip = null;
+        for (int i = 0; i < armed.size(); i++)
+        {
+            Watch watch = armed.get(i);
+            boolean now = holds(watch, game);
+            if (primed && now && !held[i] && trip == null)
+            {
+                trip = new Trip(watch, tick);
+            }
+            held[i] = now;
+        }
+        primed = true;
+
+        if (trip != null)
+        {
+            clear();
+        }
+        return trip;
+    }
+
+    List<Watch> getWatches()
+    {
+        return watches;
+    }
+
+    /**
+     * @return watches armed; safe to read from any thread
+     */
+    int size()
+    {
+        return watches.size();
+    }
+
+    private static boolean holds(Watch watch, Game game)
+    {
+        switch (watch.type())
+        {
+            case INVENTORY_FREE_SLOTS:
+                return game.freeInventorySlots() <= watch.count();
+            case DIALOG_OPENED:
+                return game.isDialogOpen();
+            case HP_BELOW:
+                return game.hitpoints() < watch.count();
+            case NPC_WITHIN:
+            default:
+                int d = game.npcDistance(watch.name());
+                return d >= 0 && d <= watch.count();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package net.runelite.client.plugins.aibrain;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Feeds recorded /decide responses, and mutations of them, to {@link BrainResponseDecoder}. Whatever
+ * the brain sends, the decoder either returns an action or throws a {@link BrainResponseException};
+ * anything else would escape the plugin's malformed-response handling.
+ */
+class BrainResponseDecoderFuzzTest
+{
+    private static final long SEED = 0x5eed_da7aL;
+    private static final int MUTATIONS = 50_000;
+    private static final String[] TOKENS = {
+            "{", "}", "[", "]", "\"", ",", ":", "null", "true", "-1", "0", "0.5", "1e999", "2147483648",
+            "\"\"", "\"x\"", "{}", "[]", "\\", "\\u00", "\"action\":", "\"target\":", "\"watches\":[",
+    };
+
+    @Test
+    void recordedResponsesDecode() throws IOException
+    {
+        for (String body : recorded())
+        {
+            assertNotNull(BrainResponseDecoder.decode(body).type(), body);
+        }
+    }
+
+    @Test
+    void mutatedResponsesFailOnlyWithBrainResponseException() throws IOException
+    {
+        List<String> recorded = recorded();
+        Random random = new Random(SEED);
+        for (int i = 0; i < MUTATIONS; i++)
+        {
+            String body = recorded.get(random.nextInt(recorded.size()));
+            int edits = 1 + random.nextInt(3);
+            for (int e = 0; e < edits; e++)
+            {
+                body = mutate(body, random);
+            }
+
+            try
+            {
+                BrainResponseDecoder.decode(body);
+            }
+            catch (BrainResponseException expected)
+            {
+                // Rejected with the offending path, as the plugin expects.
+            }
+            catch (Throwable t)
+            {
+                fail("mutation #" + i + " threw " + t + " for body: " + body, t);
+            }
+        }
+    }
+
+    private static String mutate(String body, Random random)
+    {
+        int at = body.isEmpty() ? 0 : random.nextInt(body.length());
+        switch (random.nextInt(5))
+        {
+            case 0:
+                return body.substring(0, at) + TOKENS[random.nextInt(TOKENS.length)] + body.substring(at);
+            case 1:
+                return body.substring(0, at) + body.substring(Math.min(body.length(), at + 1 + random.nextInt(8)));
+            case 2:
+                return body.substring(0, at);
+            case 3:
+                return body.substring(0, at) + (char) random.nextInt(128) + body.substring(Math.min(body.length(), at + 1));
+            default:
+                // Move a slice elsewhere, e.g. a value under another key.
+                int end = Math.min(body.length(), at + 1 + random.nextInt(16));
+                String slice = body.substring(at, end);
+                String rest = body.substring(0, at) + body.substring(end);
+                int to = rest.isEmpty() ? 0 : random.nextInt(rest.length());
+                return rest.substring(0, to) + slice + rest.substring(to);
+        }
+    }
+
+    private static List<String> recorded() throws IOException
+    {
+        InputStream in = BrainResponseDecoderFuzzTest.class.getResourceAsStream("decide-responses.jsonl");
+        assertNotNull(in, "decide-responses.jsonl missing from test resources");
+
+        List<String> bodies = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (!line.isBlank())
+                {
+                    bodies.add(line);
+                }
+            }
+        }
+        assertFalse(bodies.isEmpty(), "no recorded responses");
+        return bodies;
+    }
+}
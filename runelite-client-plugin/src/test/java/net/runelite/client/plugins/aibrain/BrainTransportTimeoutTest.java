@@ -0,0 +1,98 @@
+package net.runelite.client.plugins.aibrain;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A brain that accepts the connection and never answers must end every decision at its deadline:
+ * counted as a timeout, reported to the caller and fed to the circuit breaker.
+ */
+class BrainTransportTimeoutTest
+{
+    private static final long DEADLINE_MS = 200;
+    private static final int DECISIONS = 4;
+
+    @Test
+    void silentBrainTimesOutAndOpensTheBreaker() throws Exception
+    {
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress()))
+        {
+            List<Socket> held = new CopyOnWriteArrayList<>();
+            Thread acceptor = new Thread(() -> acceptAndHold(server, held), "silent-brain");
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            String url = "http://127.0.0.1:" + server.getLocalPort() + "/decide";
+            BrainCircuitBreaker breaker = new BrainCircuitBreaker(100, Long.MAX_VALUE, 60_000);
+            BrainTransport transport = new BrainTransport(1000, breaker);
+            try
+            {
+                for (int i = 0; i < DECISIONS; i++)
+                {
+                    CountDownLatch answered = new CountDownLatch(1);
+                    AtomicReference<String> outcome = new AtomicReference<>();
+                    transport.decide(url, null, "{}", DEADLINE_MS, 0, new DecisionTrace(),
+                            new BrainTransport.DecideCallback()
+                            {
+                                @Override
+                                public void onResponse(long seq, String body, boolean fromHedge)
+                                {
+                                    outcome.set("unexpected response: " + body);
+                                    answered.countDown();
+                                }
+
+                                @Override
+                                public void onError(long seq, String status, String details)
+                                {
+                                    outcome.set(details);
+                                    answered.countDown();
+                                }
+                            });
+
+                    assertTrue(answered.await(5, TimeUnit.SECONDS), "decision #" + i + " never ended");
+                    assertTrue(outcome.get().contains("deadline"), outcome.get());
+                    assertEquals(0, transport.getInFlightCount());
+                }
+
+                assertEquals(DECISIONS, transport.getTimeouts());
+                assertEquals(0, transport.getIoErrors());
+                assertEquals(BrainCircuitBreaker.State.OPEN, breaker.getState());
+            }
+            finally
+            {
+                transport.shutdown();
+                for (Socket socket : held)
+                {
+                    socket.close();
+                }
+            }
+        }
+    }
+
+    private static void acceptAndHold(ServerSocket server, List<Socket> held)
+    {
+        try
+        {
+            while (!server.isClosed())
+            {
+                held.add(server.accept());
+            }
+        }
+        catch (IOException e)
+        {
+            // Closed at the end of the test.
+        }
+    }
+}